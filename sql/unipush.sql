@@ -116,20 +116,27 @@ CREATE TABLE `push_message`
     `id`                BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '消息ID',
     `message_id`        VARCHAR(64)     NOT NULL COMMENT '消息唯一标识（UUID）',
     `title`             VARCHAR(200)    NOT NULL COMMENT '标题',
-    `content`           TEXT            NOT NULL COMMENT '内容',
+    `content`           TEXT                  DEFAULT NULL COMMENT '内容（正文去重存储时为空，见content_hash）',
+    `content_hash`      CHAR(64)              DEFAULT NULL COMMENT '正文内容哈希（SHA-256，关联push_content）',
     `channel_code`      VARCHAR(50)     NOT NULL COMMENT '渠道编码',
     `target`            TEXT         NOT NULL COMMENT '推送目标（JSON格式）',
     `template_code`     VARCHAR(100) DEFAULT NULL COMMENT '使用的模板编码',
     `topic`             VARCHAR(100) DEFAULT NULL COMMENT '主题/分组',
     `callback_url`      VARCHAR(500) DEFAULT NULL COMMENT '回调URL',
-    `status`            VARCHAR(20)  NOT NULL DEFAULT 'INIT' COMMENT '状态：INIT-初始化 PENDING-待发送 SENDING-发送中 SUCCESS-成功 FAILED-失败',
+    `status`            VARCHAR(20)  NOT NULL DEFAULT 'INIT' COMMENT '状态：INIT-初始化 SCHEDULED-定时待发送 PENDING-待发送 SENDING-发送中 SUCCESS-成功 FAILED-失败 EXPIRED-已过期',
     `retry_count`       INT          NOT NULL DEFAULT 0 COMMENT '重试次数',
     `max_retry_count`   INT          NOT NULL DEFAULT 3 COMMENT '最大重试次数',
     `next_retry_time`   DATETIME              DEFAULT NULL COMMENT '下次重试时间',
     `error_message`     TEXT                  DEFAULT NULL COMMENT '错误信息',
     `ext_info`          TEXT                  DEFAULT NULL COMMENT '扩展信息（JSON格式）',
+    `access_token_id`   BIGINT UNSIGNED       DEFAULT NULL COMMENT '访问令牌ID',
+    `priority`          VARCHAR(10)  NOT NULL DEFAULT 'normal' COMMENT '优先级：high-紧急 normal-普通 bulk-批量',
+    `trace_id`          VARCHAR(32)           DEFAULT NULL COMMENT '链路追踪ID',
+    `trace_stages`      VARCHAR(255)          DEFAULT NULL COMMENT '最近一次投递的各阶段时间戳（按阶段顺序逗号分隔的epoch毫秒）',
     `create_time`       DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time`       DATETIME              DEFAULT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `schedule_time`     DATETIME              DEFAULT NULL COMMENT '计划发送时间（定时消息）',
+    `expire_time`       DATETIME              DEFAULT NULL COMMENT '过期时间（到期仍未送达的消息不再投递）',
     `send_time`         DATETIME              DEFAULT NULL COMMENT '发送时间',
     `success_time`      DATETIME              DEFAULT NULL COMMENT '成功时间',
     PRIMARY KEY (`id`),
@@ -138,7 +145,10 @@ CREATE TABLE `push_message`
     KEY `idx_status` (`status`),
     KEY `idx_create_time` (`create_time`),
     KEY `idx_next_retry_time` (`next_retry_time`),
-    KEY `idx_topic` (`topic`)
+    KEY `idx_topic` (`topic`),
+    KEY `idx_trace_id` (`trace_id`),
+    KEY `idx_content_hash` (`content_hash`),
+    KEY `idx_search` (`create_time`, `channel_code`, `status`, `topic`)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='推送消息主表';
@@ -168,6 +178,50 @@ CREATE TABLE `push_log`
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='推送日志表';
 
+-- ========================================
+-- 7. 消息正文表（内容寻址去重存储）
+-- ========================================
+DROP TABLE IF EXISTS `push_content`;
+CREATE TABLE `push_content`
+(
+    `content_hash`    CHAR(64)        NOT NULL COMMENT '正文内容哈希（SHA-256）',
+    `content`         MEDIUMTEXT      NOT NULL COMMENT '正文内容',
+    `content_length`  INT             NOT NULL DEFAULT 0 COMMENT '正文长度（字符数）',
+    `create_time`     DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `last_ref_time`   DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近被落库消息引用的时间（清理依据）',
+    PRIMARY KEY (`content_hash`),
+    KEY `idx_last_ref_time` (`last_ref_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='消息正文表';
+
+-- ========================================
+-- 8. 投递统计分钟表（预聚合）
+-- ========================================
+DROP TABLE IF EXISTS `push_stats_minute`;
+CREATE TABLE `push_stats_minute`
+(
+    `id`                BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `stat_minute`       DATETIME        NOT NULL COMMENT '统计分钟',
+    `channel_code`      VARCHAR(50)     NOT NULL COMMENT '渠道编码',
+    `topic`             VARCHAR(100)    NOT NULL DEFAULT '' COMMENT '主题/分组（空串表示未指定）',
+    `access_token_id`   BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '访问令牌ID（0表示非开放接口）',
+    `instance_id`       VARCHAR(64)     NOT NULL COMMENT '写入的core实例',
+    `success_count`     BIGINT          NOT NULL DEFAULT 0 COMMENT '成功数',
+    `failed_count`      BIGINT          NOT NULL DEFAULT 0 COMMENT '最终失败数',
+    `retry_count`       BIGINT          NOT NULL DEFAULT 0 COMMENT '重试数',
+    `latency_count`     BIGINT          NOT NULL DEFAULT 0 COMMENT '耗时样本数',
+    `latency_sum`       BIGINT          NOT NULL DEFAULT 0 COMMENT '耗时总和（毫秒）',
+    `latency_max`       BIGINT          NOT NULL DEFAULT 0 COMMENT '最大耗时（毫秒）',
+    `latency_histogram` BLOB                     DEFAULT NULL COMMENT '耗时分布（HdrHistogram压缩编码）',
+    `create_time`       DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_stats` (`stat_minute`, `channel_code`, `topic`, `access_token_id`, `instance_id`),
+    KEY `idx_channel_minute` (`channel_code`, `stat_minute`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='投递统计分钟表';
+
 -- ========================================
 -- 初始化数据
 -- ========================================
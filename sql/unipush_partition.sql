@@ -0,0 +1,55 @@
+-- ========================================
+-- UniPush 推送消息/日志表分区改造脚本
+-- push_message、push_log 按 create_time 做 RANGE 分区，
+-- 后续分区由 unipush-core 的 PartitionMaintenanceTask 自动创建与清理
+-- （开启方式：push.partition.enabled=true）
+-- ========================================
+
+USE `unipush`;
+
+-- MySQL 要求分区键包含在每个主键/唯一键中：
+-- 主键改为 (id, create_time)，消息唯一标识改为 (message_id, create_time)。
+-- 改造后 message_id 在 push_message 上不再全局唯一，由非分区表 push_message_index 保证：
+-- core 落库前先登记 message_id → create_time，已被占用的 message_id 拒绝写入；
+-- 按 message_id 查询/更新时先取 create_time 裁剪分区，避免逐个分区探查
+CREATE TABLE IF NOT EXISTS `push_message_index`
+(
+    `message_id`  VARCHAR(64) NOT NULL COMMENT '消息ID',
+    `create_time` DATETIME    NOT NULL COMMENT '消息创建时间（push_message分区键）',
+    PRIMARY KEY (`message_id`),
+    KEY `idx_create_time` (`create_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='消息ID索引表';
+
+INSERT IGNORE INTO `push_message_index` (`message_id`, `create_time`)
+SELECT `message_id`, `create_time`
+FROM `push_message`;
+
+ALTER TABLE `push_message`
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (`id`, `create_time`),
+    DROP INDEX `uk_message_id`,
+    ADD UNIQUE KEY `uk_message_id` (`message_id`, `create_time`);
+
+ALTER TABLE `push_log`
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (`id`, `create_time`);
+
+-- 初始分区：当月1日之前的历史数据放入 p_history，其余进入兜底分区 p_future，
+-- 维护任务启动后会从 p_future 中拆分出按天/按月的分区
+SET @boundary = DATE_FORMAT(CURDATE(), '%Y-%m-01');
+
+SET @ddl = CONCAT('ALTER TABLE `push_message` PARTITION BY RANGE (TO_DAYS(`create_time`)) (',
+                  'PARTITION p_history VALUES LESS THAN (TO_DAYS(''', @boundary, ''')), ',
+                  'PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = CONCAT('ALTER TABLE `push_log` PARTITION BY RANGE (TO_DAYS(`create_time`)) (',
+                  'PARTITION p_history VALUES LESS THAN (TO_DAYS(''', @boundary, ''')), ',
+                  'PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,96 @@
+-- ========================================
+-- UniPush 已有数据库升级脚本
+-- 适用于按旧版 unipush.sql 初始化的库，执行后表结构与当前 unipush.sql 一致；
+-- 新库直接执行 unipush.sql 即可，无需执行本脚本。
+-- 如需分区，先执行本脚本，再执行 unipush_partition.sql
+-- ========================================
+
+USE `unipush`;
+
+-- ========================================
+-- 1. 消息正文去重存储
+-- ========================================
+ALTER TABLE `push_message`
+    MODIFY COLUMN `content` TEXT DEFAULT NULL COMMENT '内容（正文去重存储时为空，见content_hash）',
+    ADD COLUMN `content_hash` CHAR(64) DEFAULT NULL COMMENT '正文内容哈希（SHA-256，关联push_content）' AFTER `content`,
+    ADD KEY `idx_content_hash` (`content_hash`);
+
+CREATE TABLE IF NOT EXISTS `push_content`
+(
+    `content_hash`    CHAR(64)        NOT NULL COMMENT '正文内容哈希（SHA-256）',
+    `content`         MEDIUMTEXT      NOT NULL COMMENT '正文内容',
+    `content_length`  INT             NOT NULL DEFAULT 0 COMMENT '正文长度（字符数）',
+    `create_time`     DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `last_ref_time`   DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近被落库消息引用的时间（清理依据）',
+    PRIMARY KEY (`content_hash`),
+    KEY `idx_last_ref_time` (`last_ref_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='消息正文表';
+
+-- ========================================
+-- 2. 消息检索索引（按时间范围 + 渠道/状态/主题的键集分页）
+-- ========================================
+ALTER TABLE `push_message`
+    ADD KEY `idx_search` (`create_time`, `channel_code`, `status`, `topic`);
+
+-- ========================================
+-- 3. 投递统计分钟表（预聚合）
+-- ========================================
+ALTER TABLE `push_message`
+    ADD COLUMN `access_token_id` BIGINT UNSIGNED DEFAULT NULL COMMENT '访问令牌ID' AFTER `ext_info`;
+
+CREATE TABLE IF NOT EXISTS `push_stats_minute`
+(
+    `id`                BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `stat_minute`       DATETIME        NOT NULL COMMENT '统计分钟',
+    `channel_code`      VARCHAR(50)     NOT NULL COMMENT '渠道编码',
+    `topic`             VARCHAR(100)    NOT NULL DEFAULT '' COMMENT '主题/分组（空串表示未指定）',
+    `access_token_id`   BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '访问令牌ID（0表示非开放接口）',
+    `instance_id`       VARCHAR(64)     NOT NULL COMMENT '写入的core实例',
+    `success_count`     BIGINT          NOT NULL DEFAULT 0 COMMENT '成功数',
+    `failed_count`      BIGINT          NOT NULL DEFAULT 0 COMMENT '最终失败数',
+    `retry_count`       BIGINT          NOT NULL DEFAULT 0 COMMENT '重试数',
+    `latency_count`     BIGINT          NOT NULL DEFAULT 0 COMMENT '耗时样本数',
+    `latency_sum`       BIGINT          NOT NULL DEFAULT 0 COMMENT '耗时总和（毫秒）',
+    `latency_max`       BIGINT          NOT NULL DEFAULT 0 COMMENT '最大耗时（毫秒）',
+    `latency_histogram` BLOB                     DEFAULT NULL COMMENT '耗时分布（HdrHistogram压缩编码）',
+    `create_time`       DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_stats` (`stat_minute`, `channel_code`, `topic`, `access_token_id`, `instance_id`),
+    KEY `idx_channel_minute` (`channel_code`, `stat_minute`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='投递统计分钟表';
+
+-- ========================================
+-- 4. 链路追踪
+-- ========================================
+ALTER TABLE `push_message`
+    ADD COLUMN `trace_id` VARCHAR(32) DEFAULT NULL COMMENT '链路追踪ID' AFTER `access_token_id`,
+    ADD COLUMN `trace_stages` VARCHAR(255) DEFAULT NULL COMMENT '最近一次投递的各阶段时间戳（按阶段顺序逗号分隔的epoch毫秒）' AFTER `trace_id`,
+    ADD KEY `idx_trace_id` (`trace_id`);
+
+-- ========================================
+-- 5. 投递通道优先级
+-- ========================================
+ALTER TABLE `push_message`
+    ADD COLUMN `priority` VARCHAR(10) NOT NULL DEFAULT 'normal' COMMENT '优先级：high-紧急 normal-普通 bulk-批量' AFTER `access_token_id`;
+
+-- push_message.priority 为消息的投递通道；存量消息按 normal 处理。
+-- push_channel.priority（渠道排序数值，如默认webhook渠道的100）不参与投递通道选择，存量渠道无需修改；
+-- 需要某个渠道的消息默认走紧急/批量通道时，在core配置 push.priority.channel-lanes（如 dingtalk:high）
+
+-- ========================================
+-- 6. 定时发送
+-- ========================================
+ALTER TABLE `push_message`
+    MODIFY COLUMN `status` VARCHAR(20) NOT NULL DEFAULT 'INIT' COMMENT '状态：INIT-初始化 SCHEDULED-定时待发送 PENDING-待发送 SENDING-发送中 SUCCESS-成功 FAILED-失败',
+    ADD COLUMN `schedule_time` DATETIME DEFAULT NULL COMMENT '计划发送时间（定时消息）' AFTER `update_time`;
+
+-- ========================================
+-- 7. 消息过期
+-- ========================================
+ALTER TABLE `push_message`
+    MODIFY COLUMN `status` VARCHAR(20) NOT NULL DEFAULT 'INIT' COMMENT '状态：INIT-初始化 SCHEDULED-定时待发送 PENDING-待发送 SENDING-发送中 SUCCESS-成功 FAILED-失败 EXPIRED-已过期',
+    ADD COLUMN `expire_time` DATETIME DEFAULT NULL COMMENT '过期时间（到期仍未送达的消息不再投递）' AFTER `schedule_time`;
@@ -0,0 +1,37 @@
+package top.zhengru.unipush.admin.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.zhengru.unipush.admin.service.MessageSearchService;
+import top.zhengru.unipush.common.model.dto.MessageSearchDTO;
+import top.zhengru.unipush.common.model.vo.CursorPageVO;
+import top.zhengru.unipush.common.model.vo.MessageSummaryVO;
+import top.zhengru.unipush.common.model.vo.ResponseVO;
+
+/**
+ * 消息管理控制器
+ *
+ * @author zhengru
+ */
+@RestController
+@RequestMapping("/api/admin/message")
+public class MessageController {
+
+    @Autowired
+    private MessageSearchService messageSearchService;
+
+    /**
+     * 检索消息（游标分页）
+     *
+     * @param query 检索条件，翻页时传入上一页返回的nextCursor
+     * @return 消息列表
+     */
+    @PostMapping("/search")
+    public ResponseVO<CursorPageVO<MessageSummaryVO>> search(@Valid @RequestBody MessageSearchDTO query) {
+        return ResponseVO.ok(messageSearchService.search(query));
+    }
+}
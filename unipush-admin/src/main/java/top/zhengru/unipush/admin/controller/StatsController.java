@@ -0,0 +1,38 @@
+package top.zhengru.unipush.admin.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.zhengru.unipush.admin.service.DeliveryStatsService;
+import top.zhengru.unipush.common.model.dto.StatsQueryDTO;
+import top.zhengru.unipush.common.model.vo.ResponseVO;
+import top.zhengru.unipush.common.model.vo.StatsPointVO;
+
+import java.util.List;
+
+/**
+ * 投递统计控制器
+ *
+ * @author zhengru
+ */
+@RestController
+@RequestMapping("/api/admin/stats")
+public class StatsController {
+
+    @Autowired
+    private DeliveryStatsService deliveryStatsService;
+
+    /**
+     * 查询投递统计（成功率、吞吐量、耗时分位数）
+     *
+     * @param query 查询条件
+     * @return 数据点列表
+     */
+    @PostMapping("/query")
+    public ResponseVO<List<StatsPointVO>> query(@Valid @RequestBody StatsQueryDTO query) {
+        return ResponseVO.ok(deliveryStatsService.query(query));
+    }
+}
@@ -0,0 +1,114 @@
+package top.zhengru.unipush.admin.filter;
+
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import top.zhengru.unipush.admin.util.JwtUtils;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.model.vo.ResponseVO;
+import top.zhengru.unipush.common.util.JsonUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 管理接口认证过滤器
+ * 与api的Web接口一致，校验unipush-api登录后签发的JWT；
+ * 配置了 push.admin.allowed-users 时只允许名单内的用户访问
+ *
+ * @author zhengru
+ */
+@Component
+public class AdminAuthFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminAuthFilter.class);
+
+    private static final String JWT_TOKEN_HEADER = "Authorization";
+    private static final String JWT_TOKEN_PREFIX = "Bearer ";
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    /**
+     * 允许访问管理接口的用户名，为空时所有登录用户均可访问
+     */
+    @Value("${push.admin.allowed-users:}")
+    private List<String> allowedUsers;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // 只对管理接口进行认证
+        if (!httpRequest.getRequestURI().startsWith("/api/admin/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            String token = httpRequest.getHeader(JWT_TOKEN_HEADER);
+            if (!StringUtils.hasText(token)) {
+                throw new BusinessException(ResponseCode.UNAUTHORIZED, "缺少认证令牌");
+            }
+
+            // 移除Bearer前缀
+            if (token.startsWith(JWT_TOKEN_PREFIX)) {
+                token = token.substring(JWT_TOKEN_PREFIX.length());
+            }
+
+            Claims claims = jwtUtils.parseToken(token);
+            if (claims == null) {
+                throw new BusinessException(ResponseCode.INVALID_TOKEN, "Token无效或已过期");
+            }
+
+            String username = claims.getSubject();
+            if (!isAllowed(username)) {
+                throw new BusinessException(ResponseCode.NO_PERMISSION, "无权访问管理接口");
+            }
+
+            // 将用户信息放入请求属性
+            httpRequest.setAttribute("userId", claims.get("userId", Long.class));
+            httpRequest.setAttribute("username", username);
+
+            chain.doFilter(request, response);
+
+        } catch (BusinessException e) {
+            handleError(httpResponse, e);
+        } catch (Exception e) {
+            logger.error("管理接口认证失败", e);
+            handleError(httpResponse, new BusinessException(ResponseCode.SYSTEM_ERROR, "系统异常"));
+        }
+    }
+
+    private boolean isAllowed(String username) {
+        if (allowedUsers == null || allowedUsers.stream().noneMatch(StringUtils::hasText)) {
+            return true;
+        }
+        return username != null && allowedUsers.stream().map(String::trim).anyMatch(username::equals);
+    }
+
+    /**
+     * 处理错误
+     *
+     * @param response HTTP响应
+     * @param e        异常
+     * @throws IOException IO异常
+     */
+    private void handleError(HttpServletResponse response, BusinessException e) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json;charset=UTF-8");
+        ResponseVO<Void> result = ResponseVO.fail(e.getCode(), e.getMessage());
+        response.getWriter().write(JsonUtils.toJsonString(result));
+    }
+}
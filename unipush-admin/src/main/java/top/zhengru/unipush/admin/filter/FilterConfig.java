@@ -0,0 +1,29 @@
+package top.zhengru.unipush.admin.filter;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 过滤器配置
+ *
+ * @author zhengru
+ */
+@Configuration
+public class FilterConfig {
+
+    /**
+     * 注册管理接口认证过滤器
+     *
+     * @param filter 管理接口认证过滤器
+     * @return 过滤器注册Bean
+     */
+    @Bean
+    public FilterRegistrationBean<AdminAuthFilter> adminAuthFilterRegistration(AdminAuthFilter filter) {
+        FilterRegistrationBean<AdminAuthFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/*");
+        registration.setName("adminAuthFilter");
+        registration.setOrder(1);
+        return registration;
+    }
+}
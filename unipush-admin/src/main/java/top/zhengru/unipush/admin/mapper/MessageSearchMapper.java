@@ -0,0 +1,50 @@
+package top.zhengru.unipush.admin.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import top.zhengru.unipush.common.model.dto.MessageSearchDTO;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息检索Mapper（SQL见 resources/mapper/admin/MessageSearchMapper.xml）
+ * 扫描范围：create_time ∈ [startTime, cursorTime]，且位于游标 (cursorTime, cursorId) 之后，按 (create_time, id) 倒序
+ *
+ * @author zhengru
+ */
+public interface MessageSearchMapper {
+
+    /**
+     * 游标分页检索
+     * 先在覆盖索引上最多扫描scanLimit行并过滤，再回表取本页数据
+     *
+     * @param query 过滤条件（channelCode、status、topic）
+     * @param startTime 开始时间
+     * @param cursorTime 游标时间
+     * @param cursorId 游标ID
+     * @param scanLimit 最大扫描行数
+     * @param limit 返回行数
+     * @return 消息列表（不含正文）
+     */
+    List<PushMessage> searchPage(@Param("query") MessageSearchDTO query,
+                                 @Param("startTime") LocalDateTime startTime,
+                                 @Param("cursorTime") LocalDateTime cursorTime,
+                                 @Param("cursorId") Long cursorId,
+                                 @Param("scanLimit") int scanLimit,
+                                 @Param("limit") int limit);
+
+    /**
+     * 查询扫描窗口的最后一行（用于扫描上限截断后的续扫游标）
+     *
+     * @param startTime 开始时间
+     * @param cursorTime 游标时间
+     * @param cursorId 游标ID
+     * @param offset 偏移量（scanLimit - 1）
+     * @return 只含id与create_time，扫描范围不足offset+1行时返回null
+     */
+    PushMessage selectScanBoundary(@Param("startTime") LocalDateTime startTime,
+                                   @Param("cursorTime") LocalDateTime cursorTime,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("offset") int offset);
+}
@@ -0,0 +1,12 @@
+package top.zhengru.unipush.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import top.zhengru.unipush.common.model.entity.PushStatsMinute;
+
+/**
+ * 投递统计分钟Mapper
+ *
+ * @author zhengru
+ */
+public interface PushStatsMinuteMapper extends BaseMapper<PushStatsMinute> {
+}
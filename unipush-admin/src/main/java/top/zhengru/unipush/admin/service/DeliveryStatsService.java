@@ -0,0 +1,222 @@
+package top.zhengru.unipush.admin.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.admin.mapper.PushStatsMinuteMapper;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.model.dto.StatsQueryDTO;
+import top.zhengru.unipush.common.model.entity.PushStatsMinute;
+import top.zhengru.unipush.common.model.vo.StatsPointVO;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 投递统计查询服务
+ * 读取push_stats_minute分钟桶并按粒度、维度合并，计算量只与桶数相关。
+ * 先只查标量列完成计数合并，耗时分布（BLOB）再按主键分批读取并解码进所属的合并结果，
+ * 不会一次把整个时间范围的分布数据留在内存中
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class DeliveryStatsService {
+
+    /**
+     * 与core写入时的HdrHistogram配置一致（1ms ~ 1h，2位有效数字）
+     */
+    private static final long MAX_LATENCY_MS = Duration.ofHours(1).toMillis();
+
+    @Autowired
+    private PushStatsMinuteMapper pushStatsMinuteMapper;
+
+    /**
+     * 单次查询的最大时间跨度（天）
+     */
+    @Value("${push.stats.max-query-days:31}")
+    private int maxQueryDays;
+
+    /**
+     * 单次查询最多读取的分钟桶行数
+     */
+    @Value("${push.stats.max-rows:200000}")
+    private long maxRows;
+
+    /**
+     * 按主键读取耗时分布的每批行数
+     */
+    @Value("${push.stats.histogram-batch-size:500}")
+    private int histogramBatchSize;
+
+    /**
+     * 查询统计数据
+     *
+     * @param query 查询条件
+     * @return 按时间（及维度）排序的数据点
+     */
+    public List<StatsPointVO> query(StatsQueryDTO query) {
+        if (!query.getStartTime().isBefore(query.getEndTime())) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "开始时间必须早于结束时间");
+        }
+        if (query.getStartTime().plusDays(maxQueryDays).isBefore(query.getEndTime())) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "查询跨度不能超过" + maxQueryDays + "天");
+        }
+
+        LambdaQueryWrapper<PushStatsMinute> wrapper = new LambdaQueryWrapper<>();
+        wrapper.ge(PushStatsMinute::getStatMinute, query.getStartTime())
+               .lt(PushStatsMinute::getStatMinute, query.getEndTime())
+               .eq(query.getChannelCode() != null, PushStatsMinute::getChannelCode, query.getChannelCode())
+               .eq(query.getTopic() != null, PushStatsMinute::getTopic, query.getTopic())
+               .eq(query.getAccessTokenId() != null, PushStatsMinute::getAccessTokenId, query.getAccessTokenId());
+        Long total = pushStatsMinuteMapper.selectCount(wrapper);
+        if (total != null && total > maxRows) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "查询范围内统计数据过多，请缩小时间范围或增加过滤条件");
+        }
+
+        // 只查标量列，耗时分布合并完计数后再按需读取
+        wrapper.select(PushStatsMinute::getId, PushStatsMinute::getStatMinute, PushStatsMinute::getChannelCode,
+                   PushStatsMinute::getTopic, PushStatsMinute::getAccessTokenId, PushStatsMinute::getInstanceId,
+                   PushStatsMinute::getSuccessCount, PushStatsMinute::getFailedCount, PushStatsMinute::getRetryCount,
+                   PushStatsMinute::getLatencyCount, PushStatsMinute::getLatencySum, PushStatsMinute::getLatencyMax)
+               .orderByAsc(PushStatsMinute::getStatMinute);
+        List<PushStatsMinute> rows = pushStatsMinuteMapper.selectList(wrapper);
+
+        int interval = query.getIntervalMinutes() != null ? query.getIntervalMinutes() : 1;
+        LocalDateTime origin = query.getStartTime().truncatedTo(ChronoUnit.MINUTES);
+
+        // 行已按时间排序，LinkedHashMap保持桶顺序
+        Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+        Map<Long, Aggregate> histogramOwners = new HashMap<>();
+        for (PushStatsMinute row : rows) {
+            long offset = Duration.between(origin, row.getStatMinute()).toMinutes() / interval * interval;
+            LocalDateTime bucketTime = origin.plusMinutes(offset);
+            String dimension = dimensionOf(row, query.getGroupBy());
+            Aggregate aggregate = aggregates.computeIfAbsent(bucketTime + "|" + dimension,
+                k -> new Aggregate(bucketTime, dimension));
+            aggregate.add(row);
+            if (Objects.requireNonNullElse(row.getLatencyCount(), 0L) > 0) {
+                histogramOwners.put(row.getId(), aggregate);
+            }
+        }
+        mergeHistograms(histogramOwners);
+
+        List<StatsPointVO> points = new ArrayList<>(aggregates.size());
+        for (Aggregate aggregate : aggregates.values()) {
+            points.add(aggregate.toVO(interval));
+        }
+        return points;
+    }
+
+    /**
+     * 按主键分批读取有耗时样本的行的耗时分布，解码后并入所属的合并结果
+     */
+    private void mergeHistograms(Map<Long, Aggregate> owners) {
+        List<Long> ids = new ArrayList<>(owners.keySet());
+        for (int i = 0; i < ids.size(); i += histogramBatchSize) {
+            List<PushStatsMinute> batch = pushStatsMinuteMapper.selectList(new LambdaQueryWrapper<PushStatsMinute>()
+                .select(PushStatsMinute::getId, PushStatsMinute::getStatMinute,
+                    PushStatsMinute::getInstanceId, PushStatsMinute::getLatencyHistogram)
+                .in(PushStatsMinute::getId, ids.subList(i, Math.min(i + histogramBatchSize, ids.size()))));
+            for (PushStatsMinute row : batch) {
+                Aggregate aggregate = owners.get(row.getId());
+                if (aggregate != null) {
+                    aggregate.addHistogram(row);
+                }
+            }
+        }
+    }
+
+    private String dimensionOf(PushStatsMinute row, String groupBy) {
+        if (groupBy == null) {
+            return null;
+        }
+        return switch (groupBy.toUpperCase()) {
+            case "CHANNEL" -> row.getChannelCode();
+            case "TOPIC" -> row.getTopic();
+            case "TOKEN" -> String.valueOf(row.getAccessTokenId());
+            default -> null;
+        };
+    }
+
+    /**
+     * 单个时间桶 × 维度的合并结果
+     */
+    private static class Aggregate {
+
+        private final LocalDateTime time;
+
+        private final String dimension;
+
+        private long success;
+
+        private long failed;
+
+        private long retry;
+
+        private long latencyCount;
+
+        private long latencySum;
+
+        private long latencyMax;
+
+        private final Histogram histogram = new Histogram(1, MAX_LATENCY_MS, 2);
+
+        private Aggregate(LocalDateTime time, String dimension) {
+            this.time = time;
+            this.dimension = dimension;
+        }
+
+        private void add(PushStatsMinute row) {
+            success += Objects.requireNonNullElse(row.getSuccessCount(), 0L);
+            failed += Objects.requireNonNullElse(row.getFailedCount(), 0L);
+            retry += Objects.requireNonNullElse(row.getRetryCount(), 0L);
+            latencyCount += Objects.requireNonNullElse(row.getLatencyCount(), 0L);
+            latencySum += Objects.requireNonNullElse(row.getLatencySum(), 0L);
+            latencyMax = Math.max(latencyMax, Objects.requireNonNullElse(row.getLatencyMax(), 0L));
+        }
+
+        private void addHistogram(PushStatsMinute row) {
+            if (row.getLatencyHistogram() != null) {
+                try {
+                    histogram.add(Histogram.decodeFromCompressedByteBuffer(
+                        ByteBuffer.wrap(row.getLatencyHistogram()), 1));
+                } catch (Exception e) {
+                    log.warn("耗时分布解码失败, statMinute: {}, instance: {}", row.getStatMinute(), row.getInstanceId());
+                }
+            }
+        }
+
+        private StatsPointVO toVO(int intervalMinutes) {
+            StatsPointVO vo = new StatsPointVO();
+            vo.setTime(time);
+            vo.setDimension(dimension);
+            vo.setSuccessCount(success);
+            vo.setFailedCount(failed);
+            vo.setRetryCount(retry);
+            vo.setSuccessRate(success + failed > 0 ? (double) success / (success + failed) : null);
+            vo.setThroughput((double) (success + failed) / (intervalMinutes * 60L));
+            vo.setAvgLatency(latencyCount > 0 ? (double) latencySum / latencyCount : null);
+            if (histogram.getTotalCount() > 0) {
+                vo.setP50Latency(histogram.getValueAtPercentile(50));
+                vo.setP90Latency(histogram.getValueAtPercentile(90));
+                vo.setP99Latency(histogram.getValueAtPercentile(99));
+            }
+            vo.setMaxLatency(latencyMax);
+            return vo;
+        }
+    }
+}
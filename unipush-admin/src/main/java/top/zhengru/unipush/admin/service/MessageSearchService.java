@@ -0,0 +1,238 @@
+package top.zhengru.unipush.admin.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.admin.mapper.MessageSearchMapper;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.model.dto.MessageSearchDTO;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.common.model.vo.CursorPageVO;
+import top.zhengru.unipush.common.model.vo.MessageSummaryVO;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 消息检索服务
+ * 按 (create_time, id) 游标分页，单次请求在数据库索引上扫描的行数有上限；
+ * 仍在Redis、尚未落库的最新消息与数据库行合并排序后再截取每一页
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessageSearchService {
+
+    private static final String SOURCE_DB = "DB";
+
+    private static final String SOURCE_REDIS = "REDIS";
+
+    /**
+     * 尚未落库的消息没有主键，排序时视为同一时间下最新的一条（首页游标id为Long.MAX_VALUE，仍可包含）
+     */
+    private static final long REDIS_ID = Long.MAX_VALUE - 1;
+
+    /**
+     * 分页顺序：(create_time, id)，与数据库游标一致
+     */
+    private static final Comparator<Candidate> ORDER = Comparator.comparing(Candidate::time)
+        .thenComparingLong(Candidate::id);
+
+    @Autowired
+    private MessageSearchMapper messageSearchMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 单次请求在索引上最多扫描的行数
+     */
+    @Value("${push.search.scan-limit:10000}")
+    private int scanLimit;
+
+    /**
+     * 未指定开始时间时默认查询的天数
+     */
+    @Value("${push.search.default-days:7}")
+    private int defaultDays;
+
+    /**
+     * 从持久化队列读取的Redis消息上限
+     */
+    @Value("${push.search.redis-scan-limit:500}")
+    private int redisScanLimit;
+
+    /**
+     * 检索消息
+     *
+     * @param query 检索条件
+     * @return 游标分页结果
+     */
+    public CursorPageVO<MessageSummaryVO> search(MessageSearchDTO query) {
+        int size = query.getSize() != null ? query.getSize() : 20;
+        LocalDateTime endTime = query.getEndTime() != null ? query.getEndTime() : LocalDateTime.now();
+        LocalDateTime startTime = query.getStartTime() != null ? query.getStartTime() : endTime.minusDays(defaultDays);
+        if (startTime.isAfter(endTime)) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "开始时间不能晚于结束时间");
+        }
+
+        LocalDateTime cursorTime = endTime;
+        long cursorId = Long.MAX_VALUE;
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            String[] parts = query.getCursor().split("_");
+            try {
+                cursorTime = toLocalDateTime(Long.parseLong(parts[0]));
+                cursorId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessException(ResponseCode.VALIDATION_ERROR, "无效的翻页游标");
+            }
+        }
+
+        // 1. 数据库游标分页（多取一行判断是否还有下一页）
+        List<PushMessage> rows = messageSearchMapper.searchPage(
+            query, startTime, cursorTime, cursorId, scanLimit, size + 1);
+        boolean hasMore = rows.size() > size;
+
+        // 本页未取满时，扫描窗口可能已被截断，窗口之外的数据留到下一页
+        Candidate boundary = null;
+        if (!hasMore) {
+            PushMessage row = messageSearchMapper.selectScanBoundary(startTime, cursorTime, cursorId, scanLimit - 1);
+            if (row != null) {
+                boundary = new Candidate(row, row.getCreateTime(), row.getId(), SOURCE_DB);
+            }
+        }
+
+        // 2. 合并尚未落库的Redis消息：与数据库行按 (create_time, id) 统一排序后再截取一页，
+        // 每页都合并游标之后的部分，翻页不会漏掉或重复Redis中的消息
+        Candidate cursor = new Candidate(null, cursorTime, cursorId, null);
+        List<Candidate> candidates = new ArrayList<>(rows.size());
+        Set<String> seen = new HashSet<>();
+        for (PushMessage row : rows) {
+            candidates.add(new Candidate(row, row.getCreateTime(), row.getId(), SOURCE_DB));
+            seen.add(row.getMessageId());
+        }
+        for (Candidate candidate : searchRedisWindow(query, startTime, endTime)) {
+            // 刚落库的消息可能同时出现在两边，以数据库为准
+            if (!seen.contains(candidate.message().getMessageId())
+                && ORDER.compare(candidate, cursor) < 0
+                && (boundary == null || ORDER.compare(candidate, boundary) > 0)) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort(ORDER.reversed());
+
+        List<MessageSummaryVO> records = new ArrayList<>(size);
+        Candidate last = null;
+        for (Candidate candidate : candidates) {
+            if (records.size() >= size) {
+                hasMore = true;
+                break;
+            }
+            MessageSummaryVO vo = toVO(candidate.message(), candidate.source());
+            vo.setCreateTime(candidate.time());
+            records.add(vo);
+            last = candidate;
+        }
+
+        CursorPageVO<MessageSummaryVO> page = new CursorPageVO<>();
+        page.setRecords(records);
+        page.setScanLimited(false);
+        if (hasMore && last != null) {
+            page.setNextCursor(encodeCursor(last.time(), last.id()));
+        } else if (boundary != null) {
+            page.setScanLimited(true);
+            page.setNextCursor(encodeCursor(boundary.time(), boundary.id()));
+        }
+        return page;
+    }
+
+    /**
+     * 读取持久化队列中尚未落库的消息并按条件过滤
+     */
+    private List<Candidate> searchRedisWindow(MessageSearchDTO query, LocalDateTime startTime,
+                                              LocalDateTime endTime) {
+        Set<Object> messageIds = redisTemplate.opsForZSet()
+            .reverseRange(RedisConstants.PUSH_MESSAGE_BATCH_KEY, 0, redisScanLimit - 1);
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> keys = messageIds.stream()
+            .map(id -> RedisConstants.PUSH_MESSAGE_KEY + id)
+            .toList();
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+
+        List<Candidate> result = new ArrayList<>();
+        for (Object value : values) {
+            if (!(value instanceof PushMessage message) || Objects.equals(message.getPersisted(), 1)) {
+                continue;
+            }
+
+            // 未落库的消息没有create_time，以发送时间代替
+            LocalDateTime time = message.getCreateTime() != null ? message.getCreateTime() : message.getSendTime();
+            if (time == null || time.isBefore(startTime) || time.isAfter(endTime)) {
+                continue;
+            }
+            if (!matches(query.getChannelCode(), message.getChannelCode())
+                || !matches(query.getStatus(), message.getStatus())
+                || !matches(query.getTopic(), message.getTopic())) {
+                continue;
+            }
+
+            result.add(new Candidate(message, time, REDIS_ID, SOURCE_REDIS));
+        }
+        return result;
+    }
+
+    private boolean matches(String expected, String actual) {
+        return expected == null || expected.isEmpty() || expected.equals(actual);
+    }
+
+    private MessageSummaryVO toVO(PushMessage message, String source) {
+        MessageSummaryVO vo = new MessageSummaryVO();
+        vo.setMessageId(message.getMessageId());
+        vo.setTitle(message.getTitle());
+        vo.setChannelCode(message.getChannelCode());
+        vo.setTopic(message.getTopic());
+        vo.setStatus(message.getStatus());
+        vo.setRetryCount(message.getRetryCount());
+        vo.setErrorMessage(message.getErrorMessage());
+        vo.setCreateTime(message.getCreateTime());
+        vo.setUpdateTime(message.getUpdateTime());
+        vo.setSource(source);
+        return vo;
+    }
+
+    /**
+     * 分页候选：数据库行或Redis中尚未落库的消息
+     */
+    private record Candidate(PushMessage message, LocalDateTime time, long id, String source) {
+    }
+
+    /**
+     * 游标格式：{create_time毫秒}_{id}
+     */
+    private String encodeCursor(LocalDateTime time, long id) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + "_" + id;
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
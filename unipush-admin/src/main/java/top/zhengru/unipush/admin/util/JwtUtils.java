@@ -0,0 +1,55 @@
+package top.zhengru.unipush.admin.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * JWT工具类
+ * 只校验unipush-api签发的Token，密钥与api共用 oauth2.client.jwt-secret
+ *
+ * @author zhengru
+ */
+@Component
+public class JwtUtils {
+
+    /**
+     * JWT密钥
+     */
+    @Value("${oauth2.client.jwt-secret:unipush-jwt-secret-key}")
+    private String secret;
+
+    /**
+     * 生成JWT密钥
+     *
+     * @return 密钥
+     */
+    private SecretKey getSignKey() {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析并校验Token
+     *
+     * @param token Token
+     * @return Claims，签名无效或已过期返回null
+     */
+    public Claims parseToken(String token) {
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(getSignKey())
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            return claims.getExpiration().before(new Date()) ? null : claims;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -7,15 +7,27 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.apache.dubbo.config.annotation.DubboReference;
+import org.apache.dubbo.rpc.RpcContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import top.zhengru.unipush.api.idempotency.IdempotencyGuard;
+import top.zhengru.unipush.api.metrics.ApiMetrics;
 import top.zhengru.unipush.common.api.PushCoreService;
+import top.zhengru.unipush.common.constant.TraceConstants;
 import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.enums.TraceStage;
 import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.exception.DuplicateRequestException;
 import top.zhengru.unipush.common.model.dto.BatchSendMessageDTO;
 import top.zhengru.unipush.common.model.dto.SendMessageDTO;
+import top.zhengru.unipush.common.model.entity.AccessToken;
 import top.zhengru.unipush.common.model.vo.BatchSendResultItemVO;
 import top.zhengru.unipush.common.model.vo.MessageResultVO;
 import top.zhengru.unipush.common.model.vo.ResponseVO;
+import top.zhengru.unipush.common.trace.TraceContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +46,15 @@ public class OpenMessageController {
     @DubboReference
     private PushCoreService pushCoreService;
 
+    @Autowired
+    private ApiMetrics apiMetrics;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @Value("${push.trace.enabled:true}")
+    private boolean traceEnabled;
+
     /**
      * 查询消息发送结果
      *
@@ -53,25 +74,31 @@ public class OpenMessageController {
     /**
      * 发送消息
      *
-     * @param request 发送消息请求
+     * @param request        发送消息请求
+     * @param idempotencyKey 幂等键，相同的键在有效期内只创建一次推送任务
      * @return 消息ID
      */
     @Operation(summary = "发送单条消息", description = "通过指定渠道发送单条消息")
     @PostMapping("/send")
     @SentinelResource(value = "send-message",
             blockHandler = "sendBlockHandler",
-            fallback = "sendFallback")
+            fallback = "sendFallback",
+            exceptionsToIgnore = DuplicateRequestException.class)
     public ResponseVO<String> send(
             @Parameter(description = "发送消息请求参数", required = true)
-            @Valid @RequestBody SendMessageDTO request) {
+            @Valid @RequestBody SendMessageDTO request,
+            @Parameter(description = "幂等键，重试时携带相同的值将返回首次请求的消息ID")
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
         // 1. 验证时间戳
         long currentTime = System.currentTimeMillis();
         if (Math.abs(currentTime - request.getTimestamp()) > 300000) { // 5分钟
             throw new BusinessException(ResponseCode.VALIDATION_ERROR, "请求时间戳过期");
         }
 
-        // 2. 调用Core服务创建推送任务
-        String messageId = pushCoreService.createPushTask(request);
+        // 2. 调用Core服务创建推送任务（重复的幂等键直接返回首次的消息ID）
+        request.setAccessTokenId(getAccessTokenId());
+        String messageId = idempotencyGuard.execute(idempotencyScope(request.getAccessTokenId()),
+                idempotencyKey, request, () -> createPushTask(request));
 
         // 3. 返回消息ID
         return ResponseVO.ok(messageId, "请求成功，请用messageId查询最终发送结果");
@@ -80,21 +107,24 @@ public class OpenMessageController {
     /**
      * 发送消息限流降级处理
      */
-    public ResponseVO<String> sendBlockHandler(SendMessageDTO request, BlockException exception) {
+    public ResponseVO<String> sendBlockHandler(SendMessageDTO request, String idempotencyKey,
+                                               BlockException exception) {
+        apiMetrics.recordLimited(request.getChannel());
         return ResponseVO.error(ResponseCode.TOO_MANY_REQUESTS, "请求过于频繁，请稍后再试");
     }
 
     /**
      * 发送消息异常降级处理
      */
-    public ResponseVO<String> sendFallback(SendMessageDTO request, Throwable throwable) {
+    public ResponseVO<String> sendFallback(SendMessageDTO request, String idempotencyKey, Throwable throwable) {
         return ResponseVO.error(ResponseCode.SERVICE_ERROR, "服务暂时不可用，请稍后再试");
     }
 
     /**
      * 多渠道发送消息
      *
-     * @param request 批量发送消息请求
+     * @param request        批量发送消息请求
+     * @param idempotencyKey 幂等键，按渠道分别判重
      * @return 批量发送结果列表
      */
     @Operation(summary = "批量发送消息", description = "通过多个渠道同时发送消息")
@@ -104,7 +134,9 @@ public class OpenMessageController {
             fallback = "sendBatchFallback")
     public ResponseVO<List<BatchSendResultItemVO>> sendBatch(
             @Parameter(description = "批量发送消息请求参数", required = true)
-            @Valid @RequestBody BatchSendMessageDTO request) {
+            @Valid @RequestBody BatchSendMessageDTO request,
+            @Parameter(description = "幂等键，重试时携带相同的值，已成功的渠道返回首次请求的消息ID")
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
         // 1. 验证时间戳
         long currentTime = System.currentTimeMillis();
         if (Math.abs(currentTime - request.getTimestamp()) > 300000) { // 5分钟
@@ -113,6 +145,7 @@ public class OpenMessageController {
 
         // 2. 遍历渠道，依次调用Core服务创建推送任务
         List<BatchSendResultItemVO> results = new ArrayList<>();
+        String scope = idempotencyScope(getAccessTokenId());
 
         for (String channelStr : request.getChannel()) {
             try {
@@ -128,10 +161,16 @@ public class OpenMessageController {
                 sendRequest.setTemplate(request.getTemplate());
                 sendRequest.setTopic(request.getTopic());
                 sendRequest.setCallbackUrl(request.getCallbackUrl());
+                sendRequest.setPriority(request.getPriority());
+                sendRequest.setSendAt(request.getSendAt());
+                sendRequest.setExpireAt(request.getExpireAt());
+                sendRequest.setTtl(request.getTtl());
                 sendRequest.setTimestamp(request.getTimestamp());
+                sendRequest.setAccessTokenId(getAccessTokenId());
 
                 // 调用Core服务
-                String messageId = pushCoreService.createPushTask(sendRequest);
+                String messageId = idempotencyGuard.execute(scope + ":" + channelStr,
+                        idempotencyKey, sendRequest, () -> createPushTask(sendRequest));
 
                 // 创建成功结果
                 BatchSendResultItemVO item = new BatchSendResultItemVO();
@@ -141,6 +180,14 @@ public class OpenMessageController {
                 item.setMsg("请求成功，请用messageId查询最终发送结果");
                 results.add(item);
 
+            } catch (DuplicateRequestException e) {
+                // 相同幂等键的请求仍在处理，或请求内容与首次不一致
+                BatchSendResultItemVO item = new BatchSendResultItemVO();
+                item.setChannel(channelStr);
+                item.setCode(ResponseCode.DUPLICATE_REQUEST.getCode());
+                item.setMsg(e.getMessage());
+                results.add(item);
+
             } catch (Exception e) {
                 // 创建失败结果
                 BatchSendResultItemVO item = new BatchSendResultItemVO();
@@ -158,7 +205,10 @@ public class OpenMessageController {
      * 批量发送消息限流降级处理
      */
     public ResponseVO<List<BatchSendResultItemVO>> sendBatchBlockHandler(
-            BatchSendMessageDTO request, BlockException exception) {
+            BatchSendMessageDTO request, String idempotencyKey, BlockException exception) {
+        if (request.getChannel() != null) {
+            request.getChannel().forEach(apiMetrics::recordLimited);
+        }
         return ResponseVO.error(ResponseCode.TOO_MANY_REQUESTS, "批量发送请求过于频繁，请稍后再试");
     }
 
@@ -166,7 +216,45 @@ public class OpenMessageController {
      * 批量发送消息异常降级处理
      */
     public ResponseVO<List<BatchSendResultItemVO>> sendBatchFallback(
-            BatchSendMessageDTO request, Throwable throwable) {
+            BatchSendMessageDTO request, String idempotencyKey, Throwable throwable) {
         return ResponseVO.error(ResponseCode.SERVICE_ERROR, "批量发送服务暂时不可用，请稍后再试");
     }
+
+    /**
+     * 调用Core服务创建推送任务并记录耗时
+     * 开启追踪时生成traceId，经Dubbo attachment传给core
+     */
+    private String createPushTask(SendMessageDTO request) {
+        if (traceEnabled) {
+            TraceContext trace = TraceContext.start().mark(TraceStage.API_RECEIVED);
+            RpcContext.getClientAttachment().setAttachment(TraceConstants.TRACE_ID, trace.getTraceId());
+            RpcContext.getClientAttachment().setAttachment(TraceConstants.TRACE_STAGES, trace.encodeStages());
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String messageId = pushCoreService.createPushTask(request);
+            success = true;
+            return messageId;
+        } finally {
+            apiMetrics.recordSend(request.getChannel(), success, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 幂等键按访问令牌隔离
+     */
+    private static String idempotencyScope(Long accessTokenId) {
+        return "token:" + accessTokenId;
+    }
+
+    /**
+     * 获取认证过滤器放入请求属性的访问令牌ID
+     */
+    private Long getAccessTokenId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object accessToken = attributes != null
+                ? attributes.getAttribute("accessToken", RequestAttributes.SCOPE_REQUEST) : null;
+        return accessToken instanceof AccessToken token ? token.getId() : null;
+    }
 }
@@ -7,10 +7,15 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import top.zhengru.unipush.api.idempotency.IdempotencyGuard;
 import top.zhengru.unipush.common.api.PushCoreService;
 import top.zhengru.unipush.common.enums.ResponseCode;
 import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.exception.DuplicateRequestException;
 import top.zhengru.unipush.common.model.dto.BatchSendMessageDTO;
 import top.zhengru.unipush.common.model.dto.SendMessageDTO;
 import top.zhengru.unipush.common.model.vo.BatchSendResultItemVO;
@@ -34,6 +39,9 @@ public class WebMessageController {
     @DubboReference
     private PushCoreService pushCoreService;
 
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
     /**
      * 查询消息发送结果
      *
@@ -53,25 +61,30 @@ public class WebMessageController {
     /**
      * 发送消息（Web接口）
      *
-     * @param request 发送消息请求
+     * @param request        发送消息请求
+     * @param idempotencyKey 幂等键，相同的键在有效期内只创建一次推送任务
      * @return 消息ID
      */
     @Operation(summary = "发送消息", description = "通过JWT认证发送单条消息")
     @PostMapping("/send")
     @SentinelResource(value = "web-send-message",
             blockHandler = "sendBlockHandler",
-            fallback = "sendFallback")
+            fallback = "sendFallback",
+            exceptionsToIgnore = DuplicateRequestException.class)
     public ResponseVO<String> send(
             @Parameter(description = "发送消息请求参数", required = true)
-            @Valid @RequestBody SendMessageDTO request) {
+            @Valid @RequestBody SendMessageDTO request,
+            @Parameter(description = "幂等键，重试时携带相同的值将返回首次请求的消息ID")
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
         // 1. 验证时间戳
         long currentTime = System.currentTimeMillis();
         if (Math.abs(currentTime - request.getTimestamp()) > 300000) { // 5分钟
             throw new BusinessException(ResponseCode.VALIDATION_ERROR, "请求时间戳过期");
         }
 
-        // 2. 调用Core服务创建推送任务
-        String messageId = pushCoreService.createPushTask(request);
+        // 2. 调用Core服务创建推送任务（重复的幂等键直接返回首次的消息ID）
+        String messageId = idempotencyGuard.execute(idempotencyScope(), idempotencyKey,
+                request, () -> pushCoreService.createPushTask(request));
 
         // 3. 返回消息ID
         return ResponseVO.ok(messageId, "请求成功，请用messageId查询最终发送结果");
@@ -80,21 +93,23 @@ public class WebMessageController {
     /**
      * 发送消息限流降级处理
      */
-    public ResponseVO<String> sendBlockHandler(SendMessageDTO request, BlockException exception) {
+    public ResponseVO<String> sendBlockHandler(SendMessageDTO request, String idempotencyKey,
+                                               BlockException exception) {
         return ResponseVO.error(ResponseCode.TOO_MANY_REQUESTS, "请求过于频繁，请稍后再试");
     }
 
     /**
      * 发送消息异常降级处理
      */
-    public ResponseVO<String> sendFallback(SendMessageDTO request, Throwable throwable) {
+    public ResponseVO<String> sendFallback(SendMessageDTO request, String idempotencyKey, Throwable throwable) {
         return ResponseVO.error(ResponseCode.SERVICE_ERROR, "服务暂时不可用，请稍后再试");
     }
 
     /**
      * 批量发送消息（Web接口）
      *
-     * @param request 批量发送消息请求
+     * @param request        批量发送消息请求
+     * @param idempotencyKey 幂等键，按渠道分别判重
      * @return 批量发送结果
      */
     @Operation(summary = "批量发送消息", description = "通过JWT认证批量发送消息")
@@ -104,7 +119,9 @@ public class WebMessageController {
             fallback = "sendBatchFallback")
     public ResponseVO<List<BatchSendResultItemVO>> sendBatch(
             @Parameter(description = "批量发送消息请求参数", required = true)
-            @Valid @RequestBody BatchSendMessageDTO request) {
+            @Valid @RequestBody BatchSendMessageDTO request,
+            @Parameter(description = "幂等键，重试时携带相同的值，已成功的渠道返回首次请求的消息ID")
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
         // 1. 验证时间戳
         long currentTime = System.currentTimeMillis();
         if (Math.abs(currentTime - request.getTimestamp()) > 300000) { // 5分钟
@@ -113,6 +130,7 @@ public class WebMessageController {
 
         // 2. 遍历渠道，依次调用Core服务创建推送任务
         List<BatchSendResultItemVO> results = new ArrayList<>();
+        String scope = idempotencyScope();
 
         for (String channelStr : request.getChannel()) {
             try {
@@ -128,10 +146,15 @@ public class WebMessageController {
                 sendRequest.setTemplate(request.getTemplate());
                 sendRequest.setTopic(request.getTopic());
                 sendRequest.setCallbackUrl(request.getCallbackUrl());
+                sendRequest.setPriority(request.getPriority());
+                sendRequest.setSendAt(request.getSendAt());
+                sendRequest.setExpireAt(request.getExpireAt());
+                sendRequest.setTtl(request.getTtl());
                 sendRequest.setTimestamp(request.getTimestamp());
 
                 // 调用Core服务
-                String messageId = pushCoreService.createPushTask(sendRequest);
+                String messageId = idempotencyGuard.execute(scope + ":" + channelStr,
+                        idempotencyKey, sendRequest, () -> pushCoreService.createPushTask(sendRequest));
 
                 // 创建成功结果
                 BatchSendResultItemVO item = new BatchSendResultItemVO();
@@ -141,6 +164,14 @@ public class WebMessageController {
                 item.setMsg("请求成功，请用messageId查询最终发送结果");
                 results.add(item);
 
+            } catch (DuplicateRequestException e) {
+                // 相同幂等键的请求仍在处理，或请求内容与首次不一致
+                BatchSendResultItemVO item = new BatchSendResultItemVO();
+                item.setChannel(channelStr);
+                item.setCode(ResponseCode.DUPLICATE_REQUEST.getCode());
+                item.setMsg(e.getMessage());
+                results.add(item);
+
             } catch (Exception e) {
                 // 创建失败结果
                 BatchSendResultItemVO item = new BatchSendResultItemVO();
@@ -158,7 +189,7 @@ public class WebMessageController {
      * 批量发送消息限流降级处理
      */
     public ResponseVO<List<BatchSendResultItemVO>> sendBatchBlockHandler(
-            BatchSendMessageDTO request, BlockException exception) {
+            BatchSendMessageDTO request, String idempotencyKey, BlockException exception) {
         return ResponseVO.error(ResponseCode.TOO_MANY_REQUESTS, "批量发送请求过于频繁，请稍后再试");
     }
 
@@ -166,7 +197,17 @@ public class WebMessageController {
      * 批量发送消息异常降级处理
      */
     public ResponseVO<List<BatchSendResultItemVO>> sendBatchFallback(
-            BatchSendMessageDTO request, Throwable throwable) {
+            BatchSendMessageDTO request, String idempotencyKey, Throwable throwable) {
         return ResponseVO.error(ResponseCode.SERVICE_ERROR, "批量发送服务暂时不可用，请稍后再试");
     }
+
+    /**
+     * 幂等键按JWT认证过滤器放入请求属性的用户ID隔离
+     */
+    private String idempotencyScope() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object userId = attributes != null
+                ? attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST) : null;
+        return "user:" + userId;
+    }
 }
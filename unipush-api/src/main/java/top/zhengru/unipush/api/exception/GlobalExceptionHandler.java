@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import top.zhengru.unipush.common.enums.ResponseCode;
 import top.zhengru.unipush.common.exception.BaseException;
 import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.exception.DuplicateRequestException;
 import top.zhengru.unipush.common.exception.OAuth2Exception;
 import top.zhengru.unipush.common.model.vo.ResponseVO;
 
@@ -47,6 +48,15 @@ public class GlobalExceptionHandler {
         return ResponseVO.fail(e.getCode(), e.getMessage());
     }
 
+    /**
+     * 重复请求异常
+     */
+    @ExceptionHandler(DuplicateRequestException.class)
+    public ResponseVO<Void> handleDuplicateRequestException(DuplicateRequestException e, HttpServletRequest request) {
+        logger.warn("重复请求：URI={}, Message={}", request.getRequestURI(), e.getMessage());
+        return ResponseVO.fail(ResponseCode.DUPLICATE_REQUEST.getCode(), e.getMessage());
+    }
+
     /**
      * 基础异常
      */
@@ -0,0 +1,244 @@
+package top.zhengru.unipush.api.idempotency;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.fastjson2.JSON;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import top.zhengru.unipush.api.metrics.ApiMetrics;
+import top.zhengru.unipush.api.util.RedisUtils;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.exception.DuplicateRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 发送接口幂等控制（Idempotency-Key 请求头）
+ * <p>
+ * 两级判重：本地分代布隆过滤器记录本实例已完成的键，Redis 以 SET NX 原子占位并保存首次请求的 messageId。
+ * <ul>
+ *     <li>过滤器未命中：本实例一定没处理过，直接 SET NX 占位，不先读 Redis；
+ *     键可能由其他实例处理过，占位失败时再读取</li>
+ *     <li>过滤器命中：大概率是重试，先读 Redis 取原 messageId，一次往返返回；误判时照常占位</li>
+ * </ul>
+ * 占位值为 "{请求指纹}|{@link #PROCESSING}"，有效期 processing-seconds，调用成功后替换为 "{请求指纹}|messageId"
+ * 并延长到 ttl-seconds；调用失败删除占位，客户端可用同一个键重试。
+ * 占位期间的并发重复请求、相同键但请求内容不同的请求抛出 {@link DuplicateRequestException}。
+ * 请求指纹为请求体（不含 timestamp，Map 按键排序）JSON 的 SHA-256，客户端重试时重新生成的时间戳不影响判重。
+ * 多实例下新键仍需一次 SET NX，本地过滤器无法代替 Redis 做跨实例判重。
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    /**
+     * 幂等键请求头
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String PROCESSING = "processing";
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 计算指纹时忽略的字段（客户端每次请求重新生成）
+     */
+    private static final String IGNORED_FIELD = "timestamp";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private ApiMetrics apiMetrics;
+
+    @Value("${push.idempotency.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 幂等键有效期（秒），期间相同的键返回首次请求的 messageId
+     */
+    @Value("${push.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    /**
+     * 处理中占位的有效期（秒），需大于一次创建推送任务的最长耗时；
+     * 不大于0时按 Dubbo 调用超时 × (重试次数 + 1) 再加 processing-margin-seconds 计算
+     */
+    @Value("${push.idempotency.processing-seconds:0}")
+    private long processingSeconds;
+
+    @Value("${push.idempotency.processing-margin-seconds:5}")
+    private long processingMarginSeconds;
+
+    @Value("${dubbo.consumer.timeout:5000}")
+    private long callTimeoutMillis;
+
+    @Value("${dubbo.consumer.retries:2}")
+    private int callRetries;
+
+    @Value("${push.idempotency.max-key-length:128}")
+    private int maxKeyLength;
+
+    /**
+     * 本地过滤器每代容纳的键数
+     */
+    @Value("${push.idempotency.filter.expected-keys:1000000}")
+    private int expectedKeys;
+
+    @Value("${push.idempotency.filter.fpp:0.01}")
+    private double fpp;
+
+    private RotatingBloomFilter filter;
+
+    @PostConstruct
+    public void init() {
+        if (processingSeconds <= 0) {
+            long callMillis = callTimeoutMillis * (Math.max(callRetries, 0) + 1);
+            processingSeconds = TimeUnit.MILLISECONDS.toSeconds(callMillis + 999) + processingMarginSeconds;
+        }
+        log.info("幂等键处理中占位有效期: {}s", processingSeconds);
+        filter = new RotatingBloomFilter(expectedKeys, fpp, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        log.info("幂等键本地过滤器初始化, expectedKeys: {}, fpp: {}, memoryBytes: {}",
+            expectedKeys, fpp, filter.memoryBytes());
+    }
+
+    /**
+     * 按幂等键执行创建推送任务，重复请求返回首次的 messageId
+     *
+     * @param scope          键的归属（访问令牌、用户），不同归属的相同键互不影响
+     * @param idempotencyKey 请求头中的幂等键，为空时不做幂等控制
+     * @param payload        请求内容，相同的键只接受相同内容的重试
+     * @param createTask     创建推送任务，返回 messageId
+     * @return messageId
+     */
+    public String execute(String scope, String idempotencyKey, Object payload, Supplier<String> createTask) {
+        if (!enabled || !StringUtils.hasText(idempotencyKey)) {
+            return createTask.get();
+        }
+        if (idempotencyKey.length() > maxKeyLength) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR,
+                HEADER + "长度不能超过" + maxKeyLength);
+        }
+        String key = RedisConstants.REPEAT_SUBMIT_KEY + "idem:" + scope + ":" + idempotencyKey;
+        String fingerprint = fingerprint(payload);
+
+        String original;
+        try {
+            original = claim(key, fingerprint);
+        } catch (DuplicateRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            // Redis不可用时不阻塞发送，退化为无幂等
+            log.warn("幂等键占位失败, 按普通请求处理, key: {}, error: {}", key, e.getMessage());
+            return createTask.get();
+        }
+        if (original != null) {
+            filter.put(key);
+            apiMetrics.recordIdempotentReplay();
+            return original;
+        }
+
+        String messageId;
+        try {
+            messageId = createTask.get();
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+        try {
+            redisUtils.set(key, fingerprint + SEPARATOR + messageId, ttlSeconds, TimeUnit.SECONDS);
+            filter.put(key);
+        } catch (Exception e) {
+            // 占位过期前重试会收到"处理中"，过期后按新请求处理
+            log.warn("幂等键保存messageId失败, key: {}, messageId: {}, error: {}", key, messageId, e.getMessage());
+        }
+        return messageId;
+    }
+
+    /**
+     * 占位
+     *
+     * @return null=本次请求获得占位；否则为首次请求的 messageId
+     */
+    private String claim(String key, String fingerprint) {
+        if (filter.mightContain(key)) {
+            Object existing = redisUtils.get(key);
+            if (existing != null) {
+                return completed(existing, fingerprint);
+            }
+        } else {
+            apiMetrics.recordIdempotentFilterMiss();
+        }
+        if (redisUtils.setIfAbsent(key, fingerprint + SEPARATOR + PROCESSING, processingSeconds, TimeUnit.SECONDS)) {
+            return null;
+        }
+        Object existing = redisUtils.get(key);
+        if (existing == null) {
+            // 占位恰好过期或被释放，交给客户端重试
+            throw new DuplicateRequestException();
+        }
+        return completed(existing, fingerprint);
+    }
+
+    private String completed(Object existing, String fingerprint) {
+        String value = existing.toString();
+        int separator = value.indexOf(SEPARATOR);
+        // 没有指纹的旧值只有 messageId，不做内容比对
+        String state = separator >= 0 ? value.substring(separator + 1) : value;
+        if (separator >= 0 && !value.substring(0, separator).equals(fingerprint)) {
+            throw new DuplicateRequestException("相同" + HEADER + "的请求内容不一致，请更换" + HEADER);
+        }
+        if (PROCESSING.equals(state)) {
+            apiMetrics.recordIdempotentInProgress();
+            throw new DuplicateRequestException("相同" + HEADER + "的请求正在处理，请稍后再试");
+        }
+        return state;
+    }
+
+    /**
+     * 请求指纹（不含 timestamp，Map 按键排序，与字段顺序无关）
+     */
+    private static String fingerprint(Object payload) {
+        Object tree = JSON.toJSON(payload);
+        if (tree instanceof Map<?, ?> map) {
+            map.remove(IGNORED_FIELD);
+        }
+        return DigestUtil.sha256Hex(JSON.toJSONString(sorted(tree)));
+    }
+
+    private static Object sorted(Object node) {
+        if (node instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, value) -> sorted.put(String.valueOf(key), sorted(value)));
+            return sorted;
+        }
+        if (node instanceof List<?> list) {
+            List<Object> sorted = new ArrayList<>(list.size());
+            for (Object value : list) {
+                sorted.add(sorted(value));
+            }
+            return sorted;
+        }
+        return node;
+    }
+
+    private void release(String key) {
+        try {
+            redisUtils.delete(key);
+        } catch (Exception e) {
+            log.warn("幂等键占位释放失败, key: {}, error: {}", key, e.getMessage());
+        }
+    }
+}
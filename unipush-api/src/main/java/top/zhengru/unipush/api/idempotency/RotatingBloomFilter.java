@@ -0,0 +1,148 @@
+package top.zhengru.unipush.api.idempotency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分代轮换的布隆过滤器
+ * <p>
+ * 两代位图：写入只进当前代，查询同时查两代；当前代写满 expectedKeys 或存活超过 maxAgeMillis 时，
+ * 丢弃上一代、当前代降为上一代、换一个空位图。内存固定为两个位图（约 2 × 9.6 bit × expectedKeys，fpp=1%时），
+ * 不随请求量增长。
+ * <p>
+ * 查询结果为 false 时本实例一定没有在最近两代内写入过该键；为 true 时可能是误判。
+ * 轮换会提前遗忘旧键（假阴性），调用方须把"不存在"当作"需要到Redis确认"，而不是"一定是新键"。
+ *
+ * @author zhengru
+ */
+public final class RotatingBloomFilter {
+
+    private final int expectedKeys;
+
+    private final long maxAgeMillis;
+
+    private final int bitCount;
+
+    private final int hashCount;
+
+    private volatile Generation current;
+
+    private volatile Generation previous;
+
+    /**
+     * @param expectedKeys 每代容纳的键数
+     * @param fpp          每代写满时的误判率
+     * @param maxAgeMillis 每代最长存活时间（毫秒）
+     */
+    public RotatingBloomFilter(int expectedKeys, double fpp, long maxAgeMillis) {
+        this.expectedKeys = Math.max(expectedKeys, 1);
+        this.maxAgeMillis = maxAgeMillis;
+        double p = Math.min(Math.max(fpp, 1e-9), 0.5);
+        long bits = (long) Math.ceil(-this.expectedKeys * Math.log(p) / (Math.log(2) * Math.log(2)));
+        // 按64位对齐，上限 2^31 位（256MB）
+        this.bitCount = (int) Math.min(Math.max(64, (bits + 63) & ~63L), (1L << 31) - 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedKeys * Math.log(2)));
+        this.current = new Generation(bitCount);
+        this.previous = new Generation(bitCount);
+    }
+
+    /**
+     * 是否可能包含该键
+     */
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        return current.mightContain(hash) || previous.mightContain(hash);
+    }
+
+    /**
+     * 写入一个键
+     */
+    public void put(String key) {
+        long hash = hash64(key);
+        Generation generation = current;
+        if (generation.count.get() >= expectedKeys
+            || System.currentTimeMillis() - generation.createdAt >= maxAgeMillis) {
+            generation = rotate(generation);
+        }
+        generation.put(hash);
+    }
+
+    /**
+     * 两代位图占用的字节数
+     */
+    public long memoryBytes() {
+        return 2L * bitCount / 8;
+    }
+
+    private synchronized Generation rotate(Generation expected) {
+        if (current == expected) {
+            previous = expected;
+            current = new Generation(bitCount);
+        }
+        return current;
+    }
+
+    /**
+     * 64位 FNV-1a 后再做一次 murmur3 finalizer 混合
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 一代位图，k个位置由两个32位哈希组合得到（Kirsch-Mitzenmacher）
+     */
+    private final class Generation {
+
+        final AtomicLongArray words;
+
+        final AtomicInteger count = new AtomicInteger();
+
+        final long createdAt = System.currentTimeMillis();
+
+        Generation(int bits) {
+            this.words = new AtomicLongArray(bits >>> 6);
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int bit = index(h1 + i * h2);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int bit = index(h1 + i * h2);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long old;
+                while (((old = words.get(word)) & mask) == 0 && !words.compareAndSet(word, old, old | mask)) {
+                    // 并发写入同一个字，重试
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        private int index(int combined) {
+            return (combined & Integer.MAX_VALUE) % bitCount;
+        }
+    }
+}
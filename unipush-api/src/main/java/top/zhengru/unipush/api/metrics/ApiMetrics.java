@@ -0,0 +1,123 @@
+package top.zhengru.unipush.api.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.MetricConstants;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * api 服务监控指标
+ * 按渠道预注册，记录时不构造 Tags
+ *
+ * @author zhengru
+ */
+@Component
+public class ApiMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Map<String, Timer> sendSuccess;
+
+    private Map<String, Timer> sendError;
+
+    private Map<String, Counter> limited;
+
+    private Counter idempotentReplayed;
+
+    private Counter idempotentInProgress;
+
+    private Counter idempotentFilterMiss;
+
+    @PostConstruct
+    public void init() {
+        sendSuccess = new HashMap<>();
+        sendError = new HashMap<>();
+        limited = new HashMap<>();
+        for (String channel : channelsWithOther()) {
+            sendSuccess.put(channel, sendTimer(channel, MetricConstants.OUTCOME_SUCCESS));
+            sendError.put(channel, sendTimer(channel, MetricConstants.OUTCOME_ERROR));
+            limited.put(channel, Counter.builder(MetricConstants.API_LIMITED)
+                .description("被限流的发送请求数")
+                .tag(MetricConstants.TAG_CHANNEL, channel)
+                .register(meterRegistry));
+        }
+        idempotentReplayed = idempotentCounter(MetricConstants.IDEMPOTENT_REPLAYED);
+        idempotentInProgress = idempotentCounter(MetricConstants.IDEMPOTENT_IN_PROGRESS);
+        idempotentFilterMiss = idempotentCounter(MetricConstants.IDEMPOTENT_FILTER_MISS);
+    }
+
+    /**
+     * 记录一次创建推送任务调用（api → core）
+     */
+    public void recordSend(String channel, boolean success, long nanos) {
+        byChannel(success ? sendSuccess : sendError, channel).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次被限流的请求
+     */
+    public void recordLimited(String channel) {
+        byChannel(limited, channel).increment();
+    }
+
+    /**
+     * 记录一次重复请求，返回了首次请求的 messageId
+     */
+    public void recordIdempotentReplay() {
+        idempotentReplayed.increment();
+    }
+
+    /**
+     * 记录一次首次请求仍在处理、被拒绝的重复请求
+     */
+    public void recordIdempotentInProgress() {
+        idempotentInProgress.increment();
+    }
+
+    /**
+     * 记录一次本地过滤器未命中（直接占位，跳过读取）
+     */
+    public void recordIdempotentFilterMiss() {
+        idempotentFilterMiss.increment();
+    }
+
+    private Counter idempotentCounter(String result) {
+        return Counter.builder(MetricConstants.API_IDEMPOTENT)
+            .description("幂等键判重次数")
+            .tag(MetricConstants.TAG_RESULT, result)
+            .register(meterRegistry);
+    }
+
+    private Timer sendTimer(String channel, String outcome) {
+        return Timer.builder(MetricConstants.API_SEND)
+            .description("创建推送任务调用耗时")
+            .tag(MetricConstants.TAG_CHANNEL, channel)
+            .tag(MetricConstants.TAG_OUTCOME, outcome)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(meterRegistry);
+    }
+
+    private static <T> T byChannel(Map<String, T> meters, String channel) {
+        T meter = channel != null ? meters.get(channel) : null;
+        return meter != null ? meter : meters.get(MetricConstants.CHANNEL_OTHER);
+    }
+
+    private static List<String> channelsWithOther() {
+        List<String> channels = new ArrayList<>(MetricConstants.CHANNELS);
+        channels.add(MetricConstants.CHANNEL_OTHER);
+        return channels;
+    }
+}
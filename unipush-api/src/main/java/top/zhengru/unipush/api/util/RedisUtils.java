@@ -43,6 +43,20 @@ public class RedisUtils {
         redisTemplate.opsForValue().set(key, value, timeout, timeUnit);
     }
 
+    /**
+     * 键不存在时才缓存（SET NX），带过期时间
+     *
+     * @param key      缓存的键值
+     * @param value    缓存的值
+     * @param timeout  时间
+     * @param timeUnit 时间颗粒度
+     * @return true=设置成功；false=键已存在
+     */
+    public <T> boolean setIfAbsent(String key, T value, long timeout, TimeUnit timeUnit) {
+        Boolean result = redisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit);
+        return result != null && result;
+    }
+
     /**
      * 设置有效时间
      *
@@ -0,0 +1,130 @@
+package top.zhengru.unipush.api.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分代轮换布隆过滤器测试
+ *
+ * @author zhengru
+ */
+class RotatingBloomFilterTest {
+
+    private static final long ONE_HOUR = 3600 * 1000L;
+
+    @Test
+    void containsEveryKeyPut() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(100_000, 0.01, ONE_HOUR);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("key-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("key-" + i), "假阴性: key-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfigured() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(100_000, 0.01, ONE_HOUR);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("key-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "误判率过高: " + rate);
+    }
+
+    @Test
+    void keepsPreviousGenerationAfterRotatingWhenFull() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 1e-6, ONE_HOUR);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("a-" + i);
+        }
+        // 第1001个键触发轮换，a-* 降为上一代，仍可查到
+        for (int i = 0; i < 1000; i++) {
+            filter.put("b-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("a-" + i));
+            assertTrue(filter.mightContain("b-" + i));
+        }
+
+        // 再轮换一次，a-* 所在的代被丢弃
+        filter.put("c-0");
+        int remembered = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain("a-" + i)) {
+                remembered++;
+            }
+        }
+        assertTrue(remembered < 10, "轮换两次后仍记得: " + remembered);
+        assertTrue(filter.mightContain("b-0"));
+        assertTrue(filter.mightContain("c-0"));
+    }
+
+    @Test
+    void rotatesWhenGenerationExceedsMaxAge() throws InterruptedException {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 1e-6, 50);
+        filter.put("first");
+        Thread.sleep(80);
+        filter.put("second");
+        assertTrue(filter.mightContain("first"));
+
+        Thread.sleep(80);
+        filter.put("third");
+        assertFalse(filter.mightContain("first"), "超过两代存活时间后仍记得");
+        assertTrue(filter.mightContain("second"));
+        assertTrue(filter.mightContain("third"));
+    }
+
+    @Test
+    void concurrentPutsAreAllVisible() throws InterruptedException {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1_000_000, 0.01, ONE_HOUR);
+        int threads = 8;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    filter.put(id + "-" + i);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int missing = 0;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                if (!filter.mightContain(t + "-" + i)) {
+                    missing++;
+                }
+            }
+        }
+        assertEquals(0, missing);
+    }
+}
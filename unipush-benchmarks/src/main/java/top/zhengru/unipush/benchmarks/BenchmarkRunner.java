@@ -0,0 +1,38 @@
+package top.zhengru.unipush.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 基准入口：按线程数 1/4/16/64 依次运行匹配的基准，结果以JSON写入 target/jmh-results
+ * <p>
+ * 用法：java -jar target/benchmarks.jar [基准名正则，默认全部] [线程数列表，默认 1,4,16,64]
+ *
+ * @author zhengru
+ */
+public class BenchmarkRunner {
+
+    private static final String RESULT_DIR = "target/jmh-results";
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        String threadList = args.length > 1 ? args[1] : "1,4,16,64";
+
+        new File(RESULT_DIR).mkdirs();
+        for (String value : threadList.split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(RESULT_DIR + "/result-t" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
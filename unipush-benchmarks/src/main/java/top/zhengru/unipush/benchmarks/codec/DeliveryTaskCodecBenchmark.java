@@ -0,0 +1,79 @@
+package top.zhengru.unipush.benchmarks.codec;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.zhengru.unipush.benchmarks.support.BenchmarkSupport;
+import top.zhengru.unipush.webhook.model.BarkRequest;
+import top.zhengru.unipush.webhook.model.DingTalkRequest;
+import top.zhengru.unipush.webhook.model.WebhookRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 投递任务JSON编解码基准
+ * <p>
+ * encode 对应 core 发送投递任务；parseObject 对应 webhook 消费者解析渠道编码；
+ * decodeTyped 对应各渠道服务解析为请求模型。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class DeliveryTaskCodecBenchmark {
+
+    @Param({"webhook", "dingtalk", "bark"})
+    private String channel;
+
+    @Param({"128", "2048"})
+    private int contentLength;
+
+    private Map<String, Object> deliveryTask;
+
+    private String encoded;
+
+    private Class<?> requestType;
+
+    @Setup
+    public void setup() {
+        deliveryTask = BenchmarkSupport.deliveryTask(
+            BenchmarkSupport.pushMessage("1234567890123456789", channel, contentLength));
+        encoded = JSON.toJSONString(deliveryTask);
+        requestType = switch (channel) {
+            case "dingtalk" -> DingTalkRequest.class;
+            case "bark" -> BarkRequest.class;
+            default -> WebhookRequest.class;
+        };
+    }
+
+    @Benchmark
+    public String encode() {
+        return JSON.toJSONString(deliveryTask);
+    }
+
+    @Benchmark
+    public String parseChannelCode() {
+        JSONObject task = JSON.parseObject(encoded);
+        return task.getString("channelCode");
+    }
+
+    @Benchmark
+    public Object decodeTyped() {
+        return JSON.parseObject(encoded, requestType);
+    }
+}
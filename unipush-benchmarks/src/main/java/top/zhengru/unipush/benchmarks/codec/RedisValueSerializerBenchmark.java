@@ -0,0 +1,86 @@
+package top.zhengru.unipush.benchmarks.codec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import top.zhengru.unipush.benchmarks.support.BenchmarkSupport;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisConfig 值序列化基准（带默认类型信息的 GenericJackson2JsonRedisSerializer）
+ * <p>
+ * serialize/deserialize 为单条消息；persistBatch 模拟 MessagePersistTask 一批的序列化工作：
+ * 读取（反序列化）→ 标记已持久化 → 写回（序列化），批大小与任务一致为100。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RedisValueSerializerBenchmark {
+
+    private static final int PERSIST_BATCH_SIZE = 100;
+
+    @Param({"128", "2048"})
+    private int contentLength;
+
+    private RedisSerializer<Object> serializer;
+
+    private PushMessage pushMessage;
+
+    private byte[] serialized;
+
+    private byte[][] batch;
+
+    @Setup
+    public void setup() {
+        serializer = BenchmarkSupport.redisValueSerializer();
+        pushMessage = BenchmarkSupport.pushMessage("1234567890123456789", "webhook", contentLength);
+        serialized = serializer.serialize(pushMessage);
+
+        batch = new byte[PERSIST_BATCH_SIZE][];
+        for (int i = 0; i < PERSIST_BATCH_SIZE; i++) {
+            batch[i] = serializer.serialize(
+                BenchmarkSupport.pushMessage(String.valueOf(1234567890123456789L + i), "webhook", contentLength));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(pushMessage);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PERSIST_BATCH_SIZE)
+    public void persistBatch(Blackhole blackhole) {
+        LocalDateTime now = LocalDateTime.now();
+        for (byte[] bytes : batch) {
+            PushMessage message = (PushMessage) serializer.deserialize(bytes);
+            message.setPersisted(1);
+            message.setPersistedTime(now);
+            blackhole.consume(serializer.serialize(message));
+        }
+    }
+}
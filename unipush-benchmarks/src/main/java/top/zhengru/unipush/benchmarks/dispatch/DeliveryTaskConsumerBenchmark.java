@@ -0,0 +1,138 @@
+package top.zhengru.unipush.benchmarks.dispatch;
+
+import com.alibaba.fastjson2.JSON;
+import okhttp3.OkHttpClient;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import top.zhengru.unipush.benchmarks.support.BenchmarkSupport;
+import top.zhengru.unipush.webhook.http.HttpClientManager;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.mq.DeliveryBackpressureController;
+import top.zhengru.unipush.webhook.mq.DeliveryLogProducer;
+import top.zhengru.unipush.webhook.mq.DeliveryResultProducer;
+import top.zhengru.unipush.webhook.mq.DeliveryTaskConsumer;
+import top.zhengru.unipush.webhook.service.BarkDeliveryService;
+import top.zhengru.unipush.webhook.service.DingTalkDeliveryService;
+import top.zhengru.unipush.webhook.service.MessageContentService;
+import top.zhengru.unipush.webhook.service.WebhookDeliveryService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分发热路径基准：DeliveryTaskConsumer 解析、渠道分发与各渠道请求构建
+ * <p>
+ * 真实的三个渠道服务，HTTP 由拦截器直接返回成功响应，结果/日志发送到 MockProducer，
+ * 因此测得的是单条任务在 webhook 进程内的CPU开销：任务解析、请求体/URL构建、
+ * 响应解析、结果与日志序列化。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class DeliveryTaskConsumerBenchmark {
+
+    @Param({"webhook", "dingtalk", "bark"})
+    private String channel;
+
+    @Param({"128", "2048"})
+    private int contentLength;
+
+    private DeliveryTaskConsumer consumer;
+
+    private MockProducer<String, String> resultProducer;
+
+    private MockProducer<String, String> logProducer;
+
+    private ConsumerRecord<String, String> record;
+
+    @Setup
+    public void setup() {
+        OkHttpClient okHttpClient = BenchmarkSupport.stubHttpClient();
+
+        resultProducer = BenchmarkSupport.mockProducer();
+        DeliveryResultProducer deliveryResultProducer = new DeliveryResultProducer();
+        BenchmarkSupport.inject(deliveryResultProducer, "kafkaTemplate",
+            BenchmarkSupport.mockKafkaTemplate(resultProducer));
+        BenchmarkSupport.inject(deliveryResultProducer, "resultTopic", "unipush-result");
+        BenchmarkSupport.inject(deliveryResultProducer, "hotPathEventLog", BenchmarkSupport.hotPathEventLog());
+
+        logProducer = BenchmarkSupport.mockProducer();
+        KafkaTemplate<String, String> logKafkaTemplate = BenchmarkSupport.mockKafkaTemplate(logProducer);
+        DeliveryLogProducer deliveryLogProducer = new DeliveryLogProducer(10000);
+        BenchmarkSupport.inject(deliveryLogProducer, "logKafkaTemplate", logKafkaTemplate);
+        BenchmarkSupport.inject(deliveryLogProducer, "enabled", true);
+        BenchmarkSupport.inject(deliveryLogProducer, "responseSampleRate", 0.1);
+        BenchmarkSupport.inject(deliveryLogProducer, "maxContentLength", 2000);
+
+        DeliveryMetrics deliveryMetrics = BenchmarkSupport.deliveryMetrics();
+        HttpClientManager httpClientManager = BenchmarkSupport.httpClientManager(okHttpClient, deliveryMetrics);
+        DeliveryBackpressureController backpressureController = BenchmarkSupport.backpressureController(deliveryMetrics);
+        BenchmarkSupport.inject(deliveryResultProducer, "deliveryBackpressureController", backpressureController);
+
+        consumer = new DeliveryTaskConsumer();
+        BenchmarkSupport.inject(consumer, "deliveryMetrics", deliveryMetrics);
+        BenchmarkSupport.inject(consumer, "deliveryBackpressureController", backpressureController);
+        BenchmarkSupport.inject(consumer, "deliveryResultProducer", deliveryResultProducer);
+        BenchmarkSupport.inject(consumer, "hotPathEventLog", BenchmarkSupport.hotPathEventLog());
+        BenchmarkSupport.inject(consumer, "webhookDeliveryService",
+            wire(new WebhookDeliveryService(), httpClientManager, deliveryResultProducer, deliveryLogProducer,
+                deliveryMetrics));
+        BenchmarkSupport.inject(consumer, "dingTalkDeliveryService",
+            wire(new DingTalkDeliveryService(), httpClientManager, deliveryResultProducer, deliveryLogProducer,
+                deliveryMetrics));
+        BarkDeliveryService barkDeliveryService =
+            wire(new BarkDeliveryService(), httpClientManager, deliveryResultProducer, deliveryLogProducer,
+                deliveryMetrics);
+        BenchmarkSupport.inject(barkDeliveryService, "barkApiBase", "https://api.day.app");
+        BenchmarkSupport.inject(consumer, "barkDeliveryService", barkDeliveryService);
+        // 任务自带正文，不会走到正文还原
+        BenchmarkSupport.inject(consumer, "messageContentService", new MessageContentService());
+
+        String messageId = "1234567890123456789";
+        String task = JSON.toJSONString(BenchmarkSupport.deliveryTask(
+            BenchmarkSupport.pushMessage(messageId, channel, contentLength)));
+        record = new ConsumerRecord<>("unipush-delivery", 0, 0L, messageId, task);
+    }
+
+    private static <T> T wire(T service, HttpClientManager httpClientManager,
+                              DeliveryResultProducer deliveryResultProducer,
+                              DeliveryLogProducer deliveryLogProducer,
+                              DeliveryMetrics deliveryMetrics) {
+        BenchmarkSupport.inject(service, "httpClientManager", httpClientManager);
+        BenchmarkSupport.inject(service, "responseBodyReader", BenchmarkSupport.responseBodyReader());
+        BenchmarkSupport.inject(service, "deliveryMetrics", deliveryMetrics);
+        BenchmarkSupport.inject(service, "deliveryResultProducer", deliveryResultProducer);
+        BenchmarkSupport.inject(service, "deliveryLogProducer", deliveryLogProducer);
+        BenchmarkSupport.inject(service, "hotPathEventLog", BenchmarkSupport.hotPathEventLog());
+        return service;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reset() {
+        resultProducer.clear();
+        logProducer.clear();
+    }
+
+    @Benchmark
+    public void consumeDeliveryTask() {
+        consumer.consumeDeliveryTask(record, null);
+    }
+}
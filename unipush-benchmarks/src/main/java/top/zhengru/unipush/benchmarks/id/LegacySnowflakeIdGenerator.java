@@ -0,0 +1,60 @@
+package top.zhengru.unipush.benchmarks.id;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 旧版雪花ID生成器（synchronized 实现），仅作为基准对照保留
+ *
+ * @author zhengru
+ */
+public class LegacySnowflakeIdGenerator {
+
+    private static final long START_TIMESTAMP = 1672531200000L;
+    private static final long DATACENTER_ID_BITS = 5L;
+    private static final long WORKER_ID_BITS = 5L;
+    private static final long SEQUENCE_BITS = 12L;
+    private static final long MAX_SEQUENCE = ~(-1L << SEQUENCE_BITS);
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final long DATACENTER_ID_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+    private static final long TIMESTAMP_SHIFT = DATACENTER_ID_BITS + WORKER_ID_BITS + SEQUENCE_BITS;
+
+    private final long datacenterId;
+    private final long workerId;
+    private final LongSupplier clock;
+    private long sequence = 0L;
+    private long lastTimestamp = -1L;
+
+    public LegacySnowflakeIdGenerator(long datacenterId, long workerId) {
+        this(datacenterId, workerId, System::currentTimeMillis);
+    }
+
+    public LegacySnowflakeIdGenerator(long datacenterId, long workerId, LongSupplier clock) {
+        this.datacenterId = datacenterId;
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        long timestamp = clock.getAsLong();
+        if (timestamp < lastTimestamp) {
+            throw new RuntimeException(
+                    String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
+                            lastTimestamp - timestamp));
+        }
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                while (timestamp <= lastTimestamp) {
+                    timestamp = clock.getAsLong();
+                }
+            }
+        } else {
+            sequence = 0L;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - START_TIMESTAMP) << TIMESTAMP_SHIFT)
+                | (datacenterId << DATACENTER_ID_SHIFT)
+                | (workerId << WORKER_ID_SHIFT)
+                | sequence;
+    }
+}
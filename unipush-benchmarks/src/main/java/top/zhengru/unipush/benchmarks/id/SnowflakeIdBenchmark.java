@@ -0,0 +1,89 @@
+package top.zhengru.unipush.benchmarks.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.zhengru.unipush.common.util.SnowflakeIdUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花ID生成基准：旧版 synchronized 实现 vs 无锁 CAS 实现（含批量预留）
+ * <p>
+ * 线程数由 {@link top.zhengru.unipush.benchmarks.BenchmarkRunner} 按 1/4/16/64 依次设置。
+ * 单实例每毫秒上限为 4096 个ID，使用系统时钟时两种实现都会触顶，多线程结果反映的是时钟而非生成器；
+ * fastClock* 使用加速1000倍的时钟（1微秒记为1毫秒），序列上限不再成为瓶颈，比较的是生成器本身在竞争下的开销。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnowflakeIdBenchmark {
+
+    private static final int BATCH_SIZE = 64;
+
+    private LegacySnowflakeIdGenerator legacy;
+
+    private SnowflakeIdUtils lockFree;
+
+    private LegacySnowflakeIdGenerator fastClockLegacy;
+
+    private SnowflakeIdUtils fastClockLockFree;
+
+    @Setup
+    public void setup() {
+        legacy = new LegacySnowflakeIdGenerator(1, 1);
+        lockFree = SnowflakeIdUtils.newInstance(1, 1);
+
+        long baseMillis = System.currentTimeMillis();
+        long baseNanos = System.nanoTime();
+        LongSupplier fastClock = () -> baseMillis + (System.nanoTime() - baseNanos) / 1000;
+        fastClockLegacy = new LegacySnowflakeIdGenerator(1, 1, fastClock);
+        fastClockLockFree = SnowflakeIdUtils.newInstance(1, 1, 10, fastClock);
+    }
+
+    @Benchmark
+    public long legacyNextId() {
+        return legacy.nextId();
+    }
+
+    @Benchmark
+    public long lockFreeNextId() {
+        return lockFree.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] lockFreeNextIds() {
+        return lockFree.nextIds(BATCH_SIZE);
+    }
+
+    @Benchmark
+    public long fastClockLegacyNextId() {
+        return fastClockLegacy.nextId();
+    }
+
+    @Benchmark
+    public long fastClockLockFreeNextId() {
+        return fastClockLockFree.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] fastClockLockFreeNextIds() {
+        return fastClockLockFree.nextIds(BATCH_SIZE);
+    }
+}
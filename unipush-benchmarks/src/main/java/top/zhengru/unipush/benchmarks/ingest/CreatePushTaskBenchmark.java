@@ -0,0 +1,110 @@
+package top.zhengru.unipush.benchmarks.ingest;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.zhengru.unipush.benchmarks.support.BenchmarkSupport;
+import top.zhengru.unipush.benchmarks.support.InMemoryRedisUtils;
+import top.zhengru.unipush.common.enums.MessagePriority;
+import top.zhengru.unipush.common.model.dto.SendMessageDTO;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.mq.DeliveryTaskProducer;
+import top.zhengru.unipush.core.outbox.DeliveryOutbox;
+import top.zhengru.unipush.core.service.MessageContentService;
+import top.zhengru.unipush.core.service.MessageIdGenerator;
+import top.zhengru.unipush.core.service.MessagePriorityResolver;
+import top.zhengru.unipush.core.service.PushMessageService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接入热路径基准：PushMessageService.createPushTask 全流程
+ * <p>
+ * 包括ID生成、实体构建、两次Redis值序列化、投递任务JSON编码与Kafka发送；
+ * Redis 与 Kafka 使用进程内替身，测得的是接口自身的CPU开销（不含网络）。
+ * 正文去重需要真实Redis，此处关闭（正文长度参数覆盖了序列化体积的影响）。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class CreatePushTaskBenchmark {
+
+    @Param({"webhook", "dingtalk", "bark"})
+    private String channel;
+
+    @Param({"128", "2048"})
+    private int contentLength;
+
+    private PushMessageService pushMessageService;
+
+    private InMemoryRedisUtils redisUtils;
+
+    private MockProducer<String, String> producer;
+
+    private SendMessageDTO request;
+
+    @Setup
+    public void setup() {
+        redisUtils = new InMemoryRedisUtils(BenchmarkSupport.redisValueSerializer());
+        producer = BenchmarkSupport.mockProducer();
+        CoreMetrics coreMetrics = BenchmarkSupport.coreMetrics();
+
+        DeliveryTaskProducer deliveryTaskProducer = BenchmarkSupport.inject(new DeliveryTaskProducer(),
+            "kafkaTemplate", BenchmarkSupport.mockKafkaTemplate(producer));
+        BenchmarkSupport.inject(deliveryTaskProducer, "coreMetrics", coreMetrics);
+        BenchmarkSupport.inject(deliveryTaskProducer, "hotPathEventLog", BenchmarkSupport.hotPathEventLog());
+        DeliveryOutbox deliveryOutbox = BenchmarkSupport.deliveryOutbox(coreMetrics);
+        BenchmarkSupport.inject(deliveryTaskProducer, "deliveryOutbox", deliveryOutbox);
+
+        MessageContentService messageContentService = new MessageContentService();
+        BenchmarkSupport.inject(messageContentService, "dedupEnabled", false);
+        BenchmarkSupport.inject(messageContentService, "cacheMaxWeight", 1024L);
+        messageContentService.init();
+
+        MessageIdGenerator messageIdGenerator = new MessageIdGenerator();
+        BenchmarkSupport.inject(messageIdGenerator, "fixedWorkerId", 1);
+        BenchmarkSupport.inject(messageIdGenerator, "format", "DECIMAL");
+        messageIdGenerator.init();
+
+        pushMessageService = new PushMessageService();
+        BenchmarkSupport.inject(pushMessageService, "redisUtils", redisUtils);
+        BenchmarkSupport.inject(pushMessageService, "deliveryTaskProducer", deliveryTaskProducer);
+        BenchmarkSupport.inject(pushMessageService, "messageContentService", messageContentService);
+        BenchmarkSupport.inject(pushMessageService, "messageIdGenerator", messageIdGenerator);
+        BenchmarkSupport.inject(pushMessageService, "coreMetrics", coreMetrics);
+        BenchmarkSupport.inject(pushMessageService, "hotPathEventLog", BenchmarkSupport.hotPathEventLog());
+        BenchmarkSupport.inject(pushMessageService, "deliveryOutbox", deliveryOutbox);
+        BenchmarkSupport.inject(pushMessageService, "messagePriorityResolver", new MessagePriorityResolver());
+
+        // 显式指定优先级，不查询渠道表
+        request = BenchmarkSupport.sendRequest(channel, contentLength);
+        request.setPriority(MessagePriority.NORMAL.getCode());
+    }
+
+    @TearDown(Level.Iteration)
+    public void reset() {
+        redisUtils.clear();
+        producer.clear();
+    }
+
+    @Benchmark
+    public String createPushTask() {
+        return pushMessageService.createPushTask(request);
+    }
+}
@@ -0,0 +1,124 @@
+package top.zhengru.unipush.benchmarks.kafka;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import top.zhengru.unipush.benchmarks.support.BenchmarkSupport;
+import top.zhengru.unipush.common.constant.KafkaConstants;
+import top.zhengru.unipush.common.kafka.KafkaProducerProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Kafka生产者档位对比：旧配置（单在途请求、不攒批）与 latency / throughput 档位
+ * <p>
+ * 每次调用异步发送一批投递任务大小的消息并等待全部确认，测得的是真实broker（嵌入式KRaft单节点）下的吞吐；
+ * 绝对值受本机磁盘与CPU影响，只用于档位之间的相对比较。
+ *
+ * @author zhengru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ProducerProfileBenchmark {
+
+    private static final int BATCH = 1000;
+
+    private static final int PARTITIONS = 6;
+
+    /**
+     * legacy 为改造前 core 的生产者配置
+     */
+    @Param({"legacy", "latency", "throughput"})
+    private String profile;
+
+    @Param({"512", "4096"})
+    private int messageSize;
+
+    private EmbeddedKafkaKraftBroker broker;
+
+    private KafkaProducer<String, String> producer;
+
+    private String[] keys;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, KafkaConstants.TOPIC_DELIVERY);
+        broker.afterPropertiesSet();
+
+        Map<String, Object> config = new HashMap<>();
+        if ("legacy".equals(profile)) {
+            config.put(ProducerConfig.ACKS_CONFIG, "all");
+            config.put(ProducerConfig.RETRIES_CONFIG, 3);
+            config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+            config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        } else {
+            KafkaProducerProperties properties = new KafkaProducerProperties();
+            properties.setProfile(profile);
+            config.putAll(properties.toConfig());
+        }
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producer = new KafkaProducer<>(config);
+
+        keys = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            keys[i] = String.valueOf(1_800_000_000_000_000_000L + i);
+        }
+        // 投递任务为JSON文本，用正文生成器模拟可压缩性相近的内容
+        value = BenchmarkSupport.content(messageSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        producer.close(Duration.ofSeconds(5));
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sendBatch() throws Exception {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        for (int i = 0; i < BATCH; i++) {
+            producer.send(new ProducerRecord<>(KafkaConstants.TOPIC_DELIVERY, keys[i], value), (metadata, ex) -> {
+                if (ex != null) {
+                    error.compareAndSet(null, ex);
+                }
+                latch.countDown();
+            });
+        }
+        if (!latch.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("等待确认超时");
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+}
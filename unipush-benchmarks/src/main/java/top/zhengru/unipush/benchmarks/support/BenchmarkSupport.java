@@ -0,0 +1,283 @@
+package top.zhengru.unipush.benchmarks.support;
+
+import com.alibaba.fastjson2.JSON;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.ReflectionUtils;
+import top.zhengru.unipush.common.enums.MessageStatus;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.model.dto.SendMessageDTO;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.core.config.RedisConfig;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.outbox.DeliveryOutbox;
+import top.zhengru.unipush.webhook.http.HttpClientManager;
+import top.zhengru.unipush.webhook.http.ResponseBodyReader;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.mq.DeliveryBackpressureController;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准公共支撑：进程内替身（Kafka/HTTP/Redis序列化）与确定性测试数据
+ * <p>
+ * 被测类都是 Spring Bean，这里不启动容器，按字段名直接注入依赖；
+ * 测试数据用固定种子生成，保证多次运行、不同机器之间结果可比。
+ *
+ * @author zhengru
+ */
+public final class BenchmarkSupport {
+
+    private static final long SEED = 20240101L;
+
+    private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 按字段名注入依赖（含父类字段），替代 @Autowired/@Value
+     */
+    public static <T> T inject(T target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("字段不存在: " + target.getClass().getSimpleName() + "." + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+        return target;
+    }
+
+    /**
+     * 生产环境使用的Redis值序列化器（直接取自core的 RedisConfig，保证与线上一致）
+     */
+    @SuppressWarnings("unchecked")
+    public static RedisSerializer<Object> redisValueSerializer() {
+        // 连接工厂仅用于通过 RedisTemplate 的参数校验，不会建立连接
+        RedisTemplate<String, Object> template = new RedisConfig().redisTemplate(new LettuceConnectionFactory());
+        return (RedisSerializer<Object>) template.getValueSerializer();
+    }
+
+    /**
+     * 基于内存注册表的 core 指标（与线上一样在热路径上记录）
+     */
+    public static CoreMetrics coreMetrics() {
+        CoreMetrics coreMetrics = inject(new CoreMetrics(), "meterRegistry", new SimpleMeterRegistry());
+        coreMetrics.init();
+        return coreMetrics;
+    }
+
+    /**
+     * 基于内存注册表的 webhook 投递指标
+     */
+    public static DeliveryMetrics deliveryMetrics() {
+        DeliveryMetrics deliveryMetrics = inject(new DeliveryMetrics(), "meterRegistry", new SimpleMeterRegistry());
+        inject(deliveryMetrics, "maxHostTags", 50);
+        deliveryMetrics.init();
+        return deliveryMetrics;
+    }
+
+    /**
+     * 未开启的outbox（替身Kafka发送总是成功，不会走到outbox）
+     */
+    public static DeliveryOutbox deliveryOutbox(CoreMetrics coreMetrics) {
+        return inject(new DeliveryOutbox(), "coreMetrics", coreMetrics);
+    }
+
+    /**
+     * 关闭输出的热路径日志，避免控制台IO干扰测量
+     */
+    public static HotPathEventLog hotPathEventLog() {
+        return HotPathEventLog.disabled();
+    }
+
+    /**
+     * 基于替身客户端的连接管理器（与线上一样按主机统计，不做定期调整与预热）
+     */
+    public static HttpClientManager httpClientManager(OkHttpClient okHttpClient, DeliveryMetrics deliveryMetrics) {
+        HttpClientManager manager = inject(new HttpClientManager(), "okHttpClient", okHttpClient);
+        inject(manager, "deliveryMetrics", deliveryMetrics);
+        inject(manager, "hotHostLimit", 32);
+        inject(manager, "hotMinRequests", 100L);
+        inject(manager, "maxPerHost", 32);
+        inject(manager, "maxTrackedHosts", 10000);
+        inject(manager, "keepAliveDuration", 300000L);
+        manager.init();
+        return manager;
+    }
+
+    /**
+     * 与线上默认阈值一致的消费背压（没有监听容器，达到阈值也不会暂停）
+     */
+    public static DeliveryBackpressureController backpressureController(DeliveryMetrics deliveryMetrics) {
+        DeliveryBackpressureController controller = new DeliveryBackpressureController();
+        inject(controller, "kafkaListenerEndpointRegistry", new KafkaListenerEndpointRegistry());
+        inject(controller, "deliveryMetrics", deliveryMetrics);
+        inject(controller, "enabled", true);
+        inject(controller, "maxInFlight", 500);
+        inject(controller, "maxPendingBytes", 8388608L);
+        inject(controller, "resumeRatio", 0.5);
+        inject(controller, "ticketTimeoutMillis", 600000L);
+        controller.init();
+        return controller;
+    }
+
+    /**
+     * 与线上默认配置一致的响应体读取器
+     */
+    public static ResponseBodyReader responseBodyReader() {
+        ResponseBodyReader reader = inject(new ResponseBodyReader(), "maxBytes", 4096);
+        return inject(reader, "maxDrainBytes", 65536L);
+    }
+
+    /**
+     * 基于 MockProducer 的 KafkaTemplate：发送立即成功，不经网络
+     */
+    public static KafkaTemplate<String, String> mockKafkaTemplate(MockProducer<String, String> producer) {
+        return new KafkaTemplate<>(() -> producer);
+    }
+
+    /**
+     * 创建自动完成的 MockProducer；KafkaTemplate 每次发送后会 close 生产者，这里忽略 close
+     */
+    public static MockProducer<String, String> mockProducer() {
+        return new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+    }
+
+    /**
+     * 进程内HTTP替身：拦截所有请求并按渠道返回成功响应，不经网络
+     */
+    public static OkHttpClient stubHttpClient() {
+        return new OkHttpClient.Builder()
+            .addInterceptor(chain -> {
+                String host = chain.request().url().host();
+                String body;
+                if (host.contains("dingtalk")) {
+                    body = "{\"errcode\":0,\"errmsg\":\"ok\"}";
+                } else if (host.contains("day.app")) {
+                    body = "{\"code\":200,\"message\":\"success\",\"timestamp\":1700000000}";
+                } else {
+                    body = "{\"success\":true}";
+                }
+                return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(body, JSON_TYPE))
+                    .build();
+            })
+            .build();
+    }
+
+    /**
+     * 生成指定长度的正文（中英文混合，固定种子）
+     */
+    public static String content(int length) {
+        Random random = new Random(SEED + length);
+        String alphabet = "统一消息推送平台投递成功失败重试abcdefghijklmnopqrstuvwxyz0123456789 ";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 渠道对应的target
+     */
+    public static Map<String, Object> target(String channelCode) {
+        Map<String, Object> target = new HashMap<>();
+        switch (channelCode) {
+            case "dingtalk" -> target.put("url", "https://oapi.dingtalk.com/robot/send?access_token=bench");
+            case "bark" -> {
+                target.put("key", "benchDeviceKey0123456789");
+                target.put("sound", "bell");
+                target.put("group", "bench");
+            }
+            default -> target.put("url", "https://hooks.example.com/unipush/bench");
+        }
+        return target;
+    }
+
+    /**
+     * 开放接口请求
+     */
+    public static SendMessageDTO sendRequest(String channelCode, int contentLength) {
+        SendMessageDTO request = new SendMessageDTO();
+        request.setChannel(channelCode);
+        request.setTitle("基准测试消息");
+        request.setContent(content(contentLength));
+        request.setTarget(target(channelCode));
+        request.setTopic("bench");
+        request.setAccessTokenId(1L);
+        return request;
+    }
+
+    /**
+     * 与 Redis 中缓存的状态一致的推送消息
+     */
+    public static PushMessage pushMessage(String messageId, String channelCode, int contentLength) {
+        PushMessage pushMessage = new PushMessage();
+        pushMessage.setMessageId(messageId);
+        pushMessage.setTitle("基准测试消息");
+        pushMessage.setContent(content(contentLength));
+        pushMessage.setChannelCode(channelCode);
+        pushMessage.setTarget(JSON.toJSONString(target(channelCode)));
+        pushMessage.setTopic("bench");
+        pushMessage.setStatus(MessageStatus.PENDING.getCode());
+        pushMessage.setRetryCount(0);
+        pushMessage.setMaxRetryCount(3);
+        pushMessage.setAccessTokenId(1L);
+        pushMessage.setPersisted(0);
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+        pushMessage.setCreateTime(now);
+        pushMessage.setSendTime(now);
+        return pushMessage;
+    }
+
+    /**
+     * 与 PushMessageService.sendToDeliveryTopic 相同结构的投递任务
+     */
+    public static Map<String, Object> deliveryTask(PushMessage pushMessage) {
+        Map<String, Object> deliveryTask = new HashMap<>();
+        deliveryTask.put("messageId", pushMessage.getMessageId());
+        deliveryTask.put("channelCode", pushMessage.getChannelCode());
+        deliveryTask.put("title", pushMessage.getTitle());
+        deliveryTask.put("content", pushMessage.getContent());
+        deliveryTask.put("contentHash", pushMessage.getContentHash());
+        deliveryTask.put("target", pushMessage.getTarget());
+        deliveryTask.put("templateCode", pushMessage.getTemplateCode());
+        deliveryTask.put("topic", pushMessage.getTopic());
+        deliveryTask.put("callbackUrl", pushMessage.getCallbackUrl());
+        deliveryTask.put("status", pushMessage.getStatus());
+        deliveryTask.put("retryCount", pushMessage.getRetryCount());
+        deliveryTask.put("maxRetryCount", pushMessage.getMaxRetryCount());
+        deliveryTask.put("timestamp", 1704081600000L);
+        return deliveryTask;
+    }
+}
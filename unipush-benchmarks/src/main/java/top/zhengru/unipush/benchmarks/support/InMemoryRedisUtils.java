@@ -0,0 +1,74 @@
+package top.zhengru.unipush.benchmarks.support;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内Redis替身：推送消息相关操作落到内存Map
+ * <p>
+ * 值仍经过生产环境的序列化器编码为字节，序列化开销与线上一致，只省去网络往返
+ *
+ * @author zhengru
+ */
+public class InMemoryRedisUtils extends RedisUtils {
+
+    private final RedisSerializer<Object> valueSerializer;
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> persistQueue = new ConcurrentHashMap<>();
+
+    public InMemoryRedisUtils(RedisSerializer<Object> valueSerializer) {
+        this.valueSerializer = valueSerializer;
+    }
+
+    @Override
+    public void setPushMessage(String messageId, Object pushMessage, long expireSeconds) {
+        values.put(RedisConstants.PUSH_MESSAGE_KEY + messageId, valueSerializer.serialize(pushMessage));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getPushMessage(String messageId) {
+        byte[] bytes = values.get(RedisConstants.PUSH_MESSAGE_KEY + messageId);
+        return bytes != null ? (T) valueSerializer.deserialize(bytes) : null;
+    }
+
+    @Override
+    public void addToPersistQueue(String messageId, long score) {
+        persistQueue.put(messageId, score);
+    }
+
+    @Override
+    public void removeFromPersistQueue(String messageId) {
+        persistQueue.remove(messageId);
+    }
+
+    @Override
+    public long removeFromPersistQueueBatch(Object... messageIds) {
+        long removed = 0;
+        for (Object messageId : messageIds) {
+            if (persistQueue.remove(String.valueOf(messageId)) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long getPersistQueueSize() {
+        return persistQueue.size();
+    }
+
+    /**
+     * 清空数据，避免长时间运行内存膨胀影响测量
+     */
+    public void clear() {
+        values.clear();
+        persistQueue.clear();
+    }
+}
@@ -12,6 +12,16 @@ public class KafkaConstants {
      */
     public static final String TOPIC_DELIVERY = "unipush-delivery";
 
+    /**
+     * 紧急投递任务Topic（MessagePriority.HIGH）
+     */
+    public static final String TOPIC_DELIVERY_HIGH = "unipush-delivery-high";
+
+    /**
+     * 批量投递任务Topic（MessagePriority.BULK）
+     */
+    public static final String TOPIC_DELIVERY_BULK = "unipush-delivery-bulk";
+
     /**
      * 投递结果回传Topic
      */
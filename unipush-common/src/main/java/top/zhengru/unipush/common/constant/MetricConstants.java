@@ -0,0 +1,220 @@
+package top.zhengru.unipush.common.constant;
+
+import java.util.List;
+
+/**
+ * 监控指标常量定义
+ * 各服务统一的指标名与标签，标签取值均为有限集合（渠道、结果、操作），避免高基数
+ *
+ * @author zhengru
+ */
+public class MetricConstants {
+
+    // ============================= 指标名 =============================
+
+    /**
+     * api 开放接口发送请求（Timer，标签：channel、outcome）
+     */
+    public static final String API_SEND = "unipush.api.send";
+
+    /**
+     * api 开放接口被限流的请求（Counter，标签：channel）
+     */
+    public static final String API_LIMITED = "unipush.api.limited";
+
+    /**
+     * api 幂等键判重（Counter，标签：result）
+     */
+    public static final String API_IDEMPOTENT = "unipush.api.idempotent";
+
+    /**
+     * core 创建推送任务（Timer，标签：channel、outcome）
+     */
+    public static final String INGEST = "unipush.ingest";
+
+    /**
+     * core Redis 操作耗时（Timer，标签：op）
+     */
+    public static final String REDIS_OP = "unipush.redis.op";
+
+    /**
+     * Kafka 发送确认耗时（Timer，标签：topic、outcome）
+     */
+    public static final String KAFKA_SEND = "unipush.kafka.send";
+
+    /**
+     * webhook 任务在Kafka中的排队时间，core发出到webhook开始处理（Timer，标签：channel）
+     */
+    public static final String DELIVERY_QUEUE = "unipush.delivery.queue";
+
+    /**
+     * webhook 单次渠道HTTP投递耗时（Timer，标签：channel、outcome）
+     */
+    public static final String DELIVERY = "unipush.delivery";
+
+    /**
+     * webhook 按目标主机的投递耗时（Timer，标签：host，主机数有上限）
+     */
+    public static final String DELIVERY_HOST = "unipush.delivery.host";
+
+    /**
+     * core 处理投递结果（Counter，标签：channel、status）
+     */
+    public static final String DELIVERY_RESULT = "unipush.delivery.result";
+
+    /**
+     * core 持久化队列积压（Gauge）
+     */
+    public static final String PERSIST_QUEUE_SIZE = "unipush.persist.queue.size";
+
+    /**
+     * core 批量持久化耗时（Timer，标签：outcome）
+     */
+    public static final String PERSIST_BATCH = "unipush.persist.batch";
+
+    /**
+     * core 已持久化消息数（Counter）
+     */
+    public static final String PERSIST_MESSAGES = "unipush.persist.messages";
+
+    /**
+     * core 链路各阶段耗时，投递结果回传时按 TraceStage 统计（Timer，标签：stage）
+     */
+    public static final String TRACE_STAGE = "unipush.trace.stage";
+
+    /**
+     * core 写入outbox的投递任务（Counter，标签：reason）
+     */
+    public static final String OUTBOX_APPEND = "unipush.outbox.append";
+
+    /**
+     * core outbox重放结果（Counter，标签：outcome）
+     */
+    public static final String OUTBOX_REPLAY = "unipush.outbox.replay";
+
+    /**
+     * core 发送失败且未能写入outbox的投递任务（Counter）
+     */
+    public static final String OUTBOX_LOST = "unipush.outbox.lost";
+
+    /**
+     * core outbox积压（Gauge）
+     */
+    public static final String OUTBOX_SIZE = "unipush.outbox.size";
+
+    /**
+     * core 已加载到时间轮、尚未到期的定时消息（Gauge）
+     */
+    public static final String SCHEDULE_WHEEL_SIZE = "unipush.schedule.wheel.size";
+
+    /**
+     * core 到期投递的定时消息（Counter）
+     */
+    public static final String SCHEDULE_DISPATCHED = "unipush.schedule.dispatched";
+
+    /**
+     * webhook HTTP连接获取（Counter，标签：result=reused/new）
+     */
+    public static final String HTTP_CONNECTION = "unipush.http.connection";
+
+    /**
+     * webhook TLS握手次数（Counter）
+     */
+    public static final String HTTP_TLS_HANDSHAKE = "unipush.http.tls.handshake";
+
+    /**
+     * webhook HTTP连接池连接数（Gauge，标签：pool=shared/dedicated、state=total/idle）
+     */
+    public static final String HTTP_POOL_CONNECTIONS = "unipush.http.pool.connections";
+
+    /**
+     * webhook 拥有独立连接池的热点主机数（Gauge）
+     */
+    public static final String HTTP_HOT_HOSTS = "unipush.http.hot.hosts";
+
+    /**
+     * webhook 钉钉机器人排队中的消息数（Gauge）
+     */
+    public static final String DINGTALK_QUEUE = "unipush.dingtalk.queue";
+
+    /**
+     * webhook 钉钉合并发送的消息条数（DistributionSummary，只记录合并了多条的发送）
+     */
+    public static final String DINGTALK_COALESCED = "unipush.dingtalk.coalesced";
+
+    /**
+     * webhook 钉钉返回限流错误码的次数（Counter）
+     */
+    public static final String DINGTALK_THROTTLED = "unipush.dingtalk.throttled";
+
+    /**
+     * webhook 已消费未回报结果的在途任务数（Gauge）
+     */
+    public static final String WORKER_IN_FLIGHT = "unipush.worker.inflight";
+
+    /**
+     * webhook 在途任务字节数（Gauge）
+     */
+    public static final String WORKER_PENDING_BYTES = "unipush.worker.pending.bytes";
+
+    /**
+     * webhook 因背压暂停拉取的分区数（Gauge）
+     */
+    public static final String WORKER_PAUSED_PARTITIONS = "unipush.worker.paused.partitions";
+
+    /**
+     * webhook 分区暂停次数（Counter）
+     */
+    public static final String WORKER_PARTITION_PAUSE = "unipush.worker.partition.pause";
+
+    /**
+     * webhook 已过期、未投递直接丢弃的任务（Counter，标签：channel）
+     */
+    public static final String WORKER_EXPIRED = "unipush.worker.expired";
+
+    // ============================= 标签 =============================
+
+    public static final String TAG_CHANNEL = "channel";
+
+    public static final String TAG_OUTCOME = "outcome";
+
+    public static final String TAG_STATUS = "status";
+
+    public static final String TAG_OP = "op";
+
+    public static final String TAG_TOPIC = "topic";
+
+    public static final String TAG_HOST = "host";
+
+    public static final String TAG_STAGE = "stage";
+
+    public static final String TAG_REASON = "reason";
+
+    public static final String TAG_RESULT = "result";
+
+    public static final String TAG_POOL = "pool";
+
+    public static final String TAG_STATE = "state";
+
+    // ============================= 标签取值 =============================
+
+    public static final String OUTCOME_SUCCESS = "success";
+
+    public static final String OUTCOME_ERROR = "error";
+
+    /**
+     * 幂等键判重结果：返回首次请求的 messageId / 首次请求仍在处理 / 本地过滤器未命中（跳过读取）
+     */
+    public static final String IDEMPOTENT_REPLAYED = "replayed";
+
+    public static final String IDEMPOTENT_IN_PROGRESS = "in_progress";
+
+    public static final String IDEMPOTENT_FILTER_MISS = "filter_miss";
+
+    /**
+     * 已接入的渠道，指标按此预注册；其余渠道归入 {@link #CHANNEL_OTHER}
+     */
+    public static final List<String> CHANNELS = List.of("webhook", "dingtalk", "bark");
+
+    public static final String CHANNEL_OTHER = "other";
+}
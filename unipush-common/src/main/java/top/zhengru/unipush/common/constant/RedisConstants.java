@@ -54,4 +54,88 @@ public class RedisConstants {
      * 用于定时任务批量迁移到数据库
      */
     public static final String PUSH_MESSAGE_BATCH_KEY = "push:message:batch";
+
+    /**
+     * 消息正文去重存储 Key（内容寻址）
+     * 格式: push:content:{sha256(content)}
+     * 过期时间: 8天（长于引用它的消息）
+     */
+    public static final String PUSH_CONTENT_KEY = "push:content:";
+
+    /**
+     * 冷归档任务锁 Key（多实例只允许一个实例执行归档）
+     */
+    public static final String PUSH_ARCHIVE_LOCK_KEY = "push:archive:lock";
+
+    /**
+     * 冷归档水位（epoch毫秒）：创建时间早于该值的消息均已写入归档段，分区清理不得越过该水位
+     */
+    public static final String PUSH_ARCHIVE_WATERMARK_KEY = "push:archive:watermark";
+
+    /**
+     * 冷归档游标（格式: epoch毫秒:主键ID）：按(create_time, id)顺序已写入归档段的最后一行，
+     * 单次任务因 max-rows-per-run 中断时下次从这里继续
+     */
+    public static final String PUSH_ARCHIVE_CURSOR_KEY = "push:archive:cursor";
+
+    /**
+     * 分区维护任务锁 Key（多实例只允许一个实例执行DDL）
+     */
+    public static final String PUSH_PARTITION_LOCK_KEY = "push:partition:lock";
+
+    /**
+     * 正文清理任务锁 Key（多实例只允许一个实例执行清理）
+     */
+    public static final String PUSH_CONTENT_CLEANUP_LOCK_KEY = "push:content:cleanup:lock";
+
+    /**
+     * 未回报结果消息检查任务锁 Key（多实例只允许一个实例执行）
+     */
+    public static final String PUSH_PENDING_SWEEP_LOCK_KEY = "push:pending-sweep:lock";
+
+    /**
+     * 消息ID机器号占用 Key
+     * 格式: push:worker:{workerSlot}，value为占用实例，定期续期
+     */
+    public static final String PUSH_WORKER_KEY = "push:worker:";
+
+    /**
+     * 投递任务outbox（Stream）
+     * Kafka发送失败的投递任务暂存于此，由重放任务在Kafka恢复后按序补发
+     */
+    public static final String PUSH_OUTBOX_KEY = "push:outbox";
+
+    /**
+     * outbox重放任务锁 Key（多实例只允许一个实例重放，避免重复投递）
+     */
+    public static final String PUSH_OUTBOX_LOCK_KEY = "push:outbox:lock";
+
+    /**
+     * webhook 热点投递主机列表（逗号分隔），重启后用于预热连接
+     */
+    public static final String PUSH_HTTP_HOT_HOSTS_KEY = "push:http:hot-hosts";
+
+    /**
+     * 定时消息分钟桶（Sorted Set，member为messageId，score为计划发送时间）
+     * 格式: push:schedule:{epochMinute}，桶内消息全部取走后自动删除
+     */
+    public static final String PUSH_SCHEDULE_KEY = "push:schedule:";
+
+    /**
+     * 定时消息分钟桶加载标记 Key（多实例只由一个实例加载同一个桶）
+     * 格式: push:schedule-claim:{epochMinute}，value为加载实例
+     */
+    public static final String PUSH_SCHEDULE_CLAIM_KEY = "push:schedule-claim:";
+
+    /**
+     * 已从分钟桶取走、尚未确认投递的定时消息（Sorted Set，member为messageId，score为确认期限）
+     * 超过期限仍未确认的（如取走后实例宕机）重新放回分钟桶
+     */
+    public static final String PUSH_SCHEDULE_INFLIGHT_KEY = "push:schedule-inflight";
+
+    /**
+     * 定时消息分钟桶水位（epoch分钟）：早于该分钟的桶均已取空
+     * 加载时从水位开始检查，所有实例停机超过回溯分钟数后，更早的剩余桶仍能被加载
+     */
+    public static final String PUSH_SCHEDULE_WATERMARK_KEY = "push:schedule-watermark";
 }
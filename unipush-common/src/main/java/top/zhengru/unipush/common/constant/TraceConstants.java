@@ -0,0 +1,20 @@
+package top.zhengru.unipush.common.constant;
+
+/**
+ * 链路追踪常量定义
+ * 同一组键同时用于Dubbo attachment与Kafka record header
+ *
+ * @author zhengru
+ */
+public class TraceConstants {
+
+    /**
+     * 追踪ID
+     */
+    public static final String TRACE_ID = "unipush-trace-id";
+
+    /**
+     * 各阶段时间戳（见 TraceContext#encodeStages）
+     */
+    public static final String TRACE_STAGES = "unipush-trace-stages";
+}
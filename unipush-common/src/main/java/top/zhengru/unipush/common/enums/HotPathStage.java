@@ -0,0 +1,56 @@
+package top.zhengru.unipush.common.enums;
+
+/**
+ * 逐条消息日志的阶段枚举
+ * 每个阶段对应独立的logger（top.zhengru.unipush.hotpath.{code}），可单独配置级别与开关
+ *
+ * @author zhengru
+ */
+public enum HotPathStage {
+
+    /**
+     * core 创建推送任务
+     */
+    INGEST("ingest", "创建任务"),
+
+    /**
+     * core 发送投递任务（含Kafka确认回调）
+     */
+    DISPATCH("dispatch", "发送投递任务"),
+
+    /**
+     * webhook 消费投递任务
+     */
+    CONSUME("consume", "消费投递任务"),
+
+    /**
+     * webhook 渠道HTTP投递
+     */
+    DELIVERY("delivery", "渠道投递"),
+
+    /**
+     * webhook 回传结果、core 处理结果
+     */
+    RESULT("result", "投递结果"),
+
+    /**
+     * core 查询消息状态
+     */
+    QUERY("query", "查询消息");
+
+    private final String code;
+    private final String desc;
+
+    HotPathStage(String code, String desc) {
+        this.code = code;
+        this.desc = desc;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
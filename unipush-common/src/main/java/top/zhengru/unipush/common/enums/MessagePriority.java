@@ -0,0 +1,66 @@
+package top.zhengru.unipush.common.enums;
+
+import top.zhengru.unipush.common.constant.KafkaConstants;
+
+/**
+ * 消息优先级（投递通道）
+ * 每个优先级对应独立的投递Topic，webhook按通道分配消费线程，紧急消息不会排在批量消息之后
+ *
+ * @author zhengru
+ */
+public enum MessagePriority {
+
+    /**
+     * 紧急：告警等，独占消费线程
+     */
+    HIGH("high", "紧急", KafkaConstants.TOPIC_DELIVERY_HIGH),
+
+    /**
+     * 普通
+     */
+    NORMAL("normal", "普通", KafkaConstants.TOPIC_DELIVERY),
+
+    /**
+     * 批量：营销等大批量发送
+     */
+    BULK("bulk", "批量", KafkaConstants.TOPIC_DELIVERY_BULK);
+
+    private final String code;
+    private final String desc;
+    private final String topic;
+
+    MessagePriority(String code, String desc, String topic) {
+        this.code = code;
+        this.desc = desc;
+        this.topic = topic;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 根据编码获取优先级（忽略大小写）
+     *
+     * @return 优先级，编码为空或未知时返回null
+     */
+    public static MessagePriority getByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (MessagePriority priority : values()) {
+            if (priority.code.equalsIgnoreCase(code)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+}
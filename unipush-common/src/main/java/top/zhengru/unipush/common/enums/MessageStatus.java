@@ -12,6 +12,11 @@ public enum MessageStatus {
      */
     INIT("INIT", "初始化"),
 
+    /**
+     * 定时待发送（到计划发送时间后转为PENDING）
+     */
+    SCHEDULED("SCHEDULED", "定时待发送"),
+
     /**
      * 待发送
      */
@@ -30,7 +35,12 @@ public enum MessageStatus {
     /**
      * 失败
      */
-    FAILED("FAILED", "失败");
+    FAILED("FAILED", "失败"),
+
+    /**
+     * 已过期：超过过期时间仍未送达，不再投递（终态）
+     */
+    EXPIRED("EXPIRED", "已过期");
 
     private final String code;
     private final String desc;
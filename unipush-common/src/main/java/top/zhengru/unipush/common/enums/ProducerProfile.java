@@ -0,0 +1,73 @@
+package top.zhengru.unipush.common.enums;
+
+/**
+ * Kafka生产者调优档位
+ * 两个档位都开启幂等并允许5个在途请求（幂等生产者在该上限内仍保证分区内有序），只在攒批与缓冲上取舍
+ *
+ * @author zhengru
+ */
+public enum ProducerProfile {
+
+    /**
+     * 低延迟：不等待攒批，消息到达即发送
+     */
+    LATENCY("latency", "低延迟", 0, 16 * 1024, "lz4", 32 * 1024 * 1024L),
+
+    /**
+     * 高吞吐：等待少量时间攒批，大批次压缩后发送
+     */
+    THROUGHPUT("throughput", "高吞吐", 10, 128 * 1024, "lz4", 64 * 1024 * 1024L);
+
+    private final String code;
+    private final String desc;
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+    private final long bufferMemory;
+
+    ProducerProfile(String code, String desc, int lingerMs, int batchSize,
+                    String compressionType, long bufferMemory) {
+        this.code = code;
+        this.desc = desc;
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+        this.bufferMemory = bufferMemory;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+
+    public long getBufferMemory() {
+        return bufferMemory;
+    }
+
+    /**
+     * 根据编码获取档位（忽略大小写）
+     */
+    public static ProducerProfile getByCode(String code) {
+        for (ProducerProfile profile : values()) {
+            if (profile.code.equalsIgnoreCase(code)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("未知的生产者档位: " + code);
+    }
+}
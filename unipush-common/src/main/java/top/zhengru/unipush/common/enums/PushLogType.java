@@ -0,0 +1,45 @@
+package top.zhengru.unipush.common.enums;
+
+/**
+ * 推送日志类型枚举
+ *
+ * @author zhengru
+ */
+public enum PushLogType {
+
+    /**
+     * 请求
+     */
+    REQUEST("REQUEST", "请求"),
+
+    /**
+     * 响应
+     */
+    RESPONSE("RESPONSE", "响应"),
+
+    /**
+     * 重试
+     */
+    RETRY("RETRY", "重试"),
+
+    /**
+     * 回调
+     */
+    CALLBACK("CALLBACK", "回调");
+
+    private final String code;
+    private final String desc;
+
+    PushLogType(String code, String desc) {
+        this.code = code;
+        this.desc = desc;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
@@ -77,6 +77,11 @@ public enum ResponseCode {
      */
     OAUTH2_USER_NOT_FOUND(403, "用户不存在，请联系管理员添加"),
 
+    /**
+     * 重复请求（相同幂等键的请求正在处理）
+     */
+    DUPLICATE_REQUEST(409, "重复请求，请稍后再试"),
+
     /**
      * 请求过于频繁（限流）
      */
@@ -0,0 +1,66 @@
+package top.zhengru.unipush.common.enums;
+
+/**
+ * 链路阶段枚举
+ * 按消息经过的先后顺序定义，相邻两个阶段的时间差即为该段耗时（以后一阶段命名）
+ *
+ * @author zhengru
+ */
+public enum TraceStage {
+
+    /**
+     * api 收到发送请求
+     */
+    API_RECEIVED("api_received", "api接收"),
+
+    /**
+     * core 收到Dubbo调用（与上一阶段之差为Dubbo调用耗时）
+     */
+    CORE_RECEIVED("core_received", "core接收"),
+
+    /**
+     * 消息写入Redis完成
+     */
+    REDIS_WRITTEN("redis_written", "写入Redis"),
+
+    /**
+     * 投递任务交给Kafka生产者
+     */
+    KAFKA_SENT("kafka_sent", "发送Kafka"),
+
+    /**
+     * webhook 消费到投递任务（与上一阶段之差为Kafka积压时间）
+     */
+    WORKER_RECEIVED("worker_received", "worker接收"),
+
+    /**
+     * 开始渠道HTTP请求（与上一阶段之差为worker内排队与准备时间）
+     */
+    HTTP_START("http_start", "HTTP开始"),
+
+    /**
+     * 渠道HTTP请求结束（与上一阶段之差为远端耗时）
+     */
+    HTTP_END("http_end", "HTTP结束"),
+
+    /**
+     * core 收到投递结果
+     */
+    RESULT_RECEIVED("result_received", "结果回传");
+
+    private final String code;
+    private final String desc;
+
+    TraceStage(String code, String desc) {
+        this.code = code;
+        this.desc = desc;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
@@ -0,0 +1,81 @@
+package top.zhengru.unipush.common.kafka;
+
+import lombok.Data;
+import top.zhengru.unipush.common.enums.ProducerProfile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 可靠投递用Kafka生产者配置（push.kafka.producer）
+ * <p>
+ * 先按档位取默认值，再用显式配置的项覆盖。
+ * common 不依赖 kafka-clients，这里直接使用生产者配置项的字符串键。
+ *
+ * @author zhengru
+ */
+@Data
+public class KafkaProducerProperties {
+
+    /**
+     * 档位：latency / throughput
+     */
+    private String profile = ProducerProfile.LATENCY.getCode();
+
+    /**
+     * 攒批等待时间（毫秒），为空时取档位默认值
+     */
+    private Integer lingerMs;
+
+    /**
+     * 单分区批次大小（字节），为空时取档位默认值
+     */
+    private Integer batchSize;
+
+    /**
+     * 压缩算法（none/gzip/snappy/lz4/zstd），为空时取档位默认值
+     */
+    private String compressionType;
+
+    /**
+     * 发送缓冲总大小（字节），为空时取档位默认值
+     */
+    private Long bufferMemory;
+
+    /**
+     * 缓冲写满或等待元数据时send()的最长阻塞时间（毫秒），超时后send()抛出异常
+     */
+    private long maxBlockMs = 5000;
+
+    /**
+     * 单条消息从send()到确认的总超时（毫秒，含重试），须不小于 linger.ms + request.timeout.ms
+     */
+    private int deliveryTimeoutMs = 30000;
+
+    /**
+     * 单次请求等待broker响应的超时（毫秒）
+     */
+    private int requestTimeoutMs = 10000;
+
+    /**
+     * 生成生产者配置项（不含地址与序列化器）
+     */
+    public Map<String, Object> toConfig() {
+        ProducerProfile producerProfile = ProducerProfile.getByCode(profile);
+        Map<String, Object> config = new HashMap<>();
+        config.put("acks", "all");
+        config.put("enable.idempotence", true);
+        // 幂等生产者最多允许5个在途请求，重试时broker按序列号去重并保证分区内有序
+        config.put("max.in.flight.requests.per.connection", 5);
+        // 重试次数不设上限，由 delivery.timeout.ms 统一控制总时长
+        config.put("retries", Integer.MAX_VALUE);
+        config.put("delivery.timeout.ms", deliveryTimeoutMs);
+        config.put("request.timeout.ms", requestTimeoutMs);
+        config.put("max.block.ms", maxBlockMs);
+        config.put("linger.ms", lingerMs != null ? lingerMs : producerProfile.getLingerMs());
+        config.put("batch.size", batchSize != null ? batchSize : producerProfile.getBatchSize());
+        config.put("compression.type", compressionType != null ? compressionType : producerProfile.getCompressionType());
+        config.put("buffer.memory", bufferMemory != null ? bufferMemory : producerProfile.getBufferMemory());
+        return config;
+    }
+}
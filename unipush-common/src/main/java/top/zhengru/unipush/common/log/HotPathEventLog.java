@@ -0,0 +1,341 @@
+package top.zhengru.unipush.common.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+import top.zhengru.unipush.common.enums.HotPathStage;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 逐条消息的热路径日志
+ * <p>
+ * 先按阶段级别、logger级别、采样率判断是否输出，不输出时直接返回，不做任何格式化和分配；
+ * ASYNC 模式下只把模板和参数引用写入预分配的环形缓冲槽位，由后台线程格式化输出，
+ * 缓冲写满时丢弃新事件（计数并定期告警），不阻塞调用线程。
+ * 事件记录调用线程名和MDC，后台线程输出时还原，日志中的线程名与链路字段与同步输出一致。
+ * <p>
+ * 参数在后台线程才格式化，调用方只应传入不可变值（ID、数字、字符串），不要传入之后会被修改的对象。
+ * 各阶段使用 top.zhengru.unipush.hotpath.{stage} 作为logger名，也可通过 logging.level 控制。
+ *
+ * @author zhengru
+ */
+public final class HotPathEventLog implements AutoCloseable {
+
+    private static final String LOGGER_PREFIX = "top.zhengru.unipush.hotpath.";
+
+    private static final int LEVEL_OFF = Integer.MAX_VALUE;
+
+    private static final HotPathStage[] STAGES = HotPathStage.values();
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long DROP_REPORT_INTERVAL_MILLIS = 10_000;
+
+    /**
+     * 连续输出时每隔多少个事件检查一次丢弃告警
+     */
+    private static final int DROP_REPORT_CHECK_EVENTS = 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(HotPathEventLog.class);
+
+    /**
+     * 输出模式
+     */
+    public enum Mode {
+        ASYNC, SYNC, OFF
+    }
+
+    /**
+     * 环形缓冲槽位，published 等于槽位序号时内容可读
+     */
+    private static final class Slot {
+        volatile long published = -1;
+        HotPathStage stage;
+        Level level;
+        String template;
+        String threadName;
+        Map<String, String> mdc;
+        int argCount;
+        Object a1;
+        Object a2;
+        Object a3;
+        Object a4;
+    }
+
+    private final Mode mode;
+
+    private final Logger[] loggers = new Logger[STAGES.length];
+
+    private final int[] thresholds = new int[STAGES.length];
+
+    private final double sampleRate;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    /**
+     * 下一个待申请的序号（生产者CAS推进）
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待输出的序号（仅后台线程推进）
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 已告警的丢弃数与上次检查时间（仅后台线程读写）
+     */
+    private long reportedDropped;
+
+    private long lastReportTime = System.currentTimeMillis();
+
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+
+    public HotPathEventLog(HotPathLogProperties properties) {
+        this.mode = Mode.valueOf(properties.getMode().toUpperCase(Locale.ROOT));
+        this.sampleRate = properties.getSampleRate();
+
+        Map<String, String> levels = properties.getLevels();
+        for (HotPathStage stage : STAGES) {
+            loggers[stage.ordinal()] = LoggerFactory.getLogger(LOGGER_PREFIX + stage.getCode());
+            String level = levels != null ? levels.get(stage.getCode()) : null;
+            thresholds[stage.ordinal()] = parseThreshold(level);
+        }
+
+        int capacity = 1;
+        while (capacity < properties.getBufferSize()) {
+            capacity <<= 1;
+        }
+        if (mode == Mode.ASYNC) {
+            slots = new Slot[capacity];
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Slot();
+            }
+            mask = capacity - 1;
+            drainer = new Thread(this::drain, "hotpath-log");
+            drainer.setDaemon(true);
+            drainer.start();
+        } else {
+            slots = null;
+            mask = 0;
+            drainer = null;
+        }
+    }
+
+    /**
+     * 全部关闭的实例（未接入配置的场景使用）
+     */
+    public static HotPathEventLog disabled() {
+        HotPathLogProperties properties = new HotPathLogProperties();
+        properties.setMode(Mode.OFF.name());
+        return new HotPathEventLog(properties);
+    }
+
+    // ============================= 记录接口（固定参数个数，避免可变参数数组分配） =============================
+
+    public void info(HotPathStage stage, String template, Object a1) {
+        emit(stage, Level.INFO, template, 1, a1, null, null, null);
+    }
+
+    public void info(HotPathStage stage, String template, Object a1, Object a2) {
+        emit(stage, Level.INFO, template, 2, a1, a2, null, null);
+    }
+
+    public void info(HotPathStage stage, String template, Object a1, Object a2, Object a3) {
+        emit(stage, Level.INFO, template, 3, a1, a2, a3, null);
+    }
+
+    public void info(HotPathStage stage, String template, Object a1, Object a2, Object a3, Object a4) {
+        emit(stage, Level.INFO, template, 4, a1, a2, a3, a4);
+    }
+
+    public void debug(HotPathStage stage, String template, Object a1) {
+        emit(stage, Level.DEBUG, template, 1, a1, null, null, null);
+    }
+
+    public void debug(HotPathStage stage, String template, Object a1, Object a2) {
+        emit(stage, Level.DEBUG, template, 2, a1, a2, null, null);
+    }
+
+    public void debug(HotPathStage stage, String template, Object a1, Object a2, Object a3) {
+        emit(stage, Level.DEBUG, template, 3, a1, a2, a3, null);
+    }
+
+    public void debug(HotPathStage stage, String template, Object a1, Object a2, Object a3, Object a4) {
+        emit(stage, Level.DEBUG, template, 4, a1, a2, a3, a4);
+    }
+
+    /**
+     * 是否会输出该阶段该级别的事件（不含采样），参数需要额外计算时可先判断
+     */
+    public boolean isEnabled(HotPathStage stage, Level level) {
+        int index = stage.ordinal();
+        return mode != Mode.OFF
+            && level.toInt() >= thresholds[index]
+            && loggers[index].isEnabledForLevel(level);
+    }
+
+    /**
+     * 因缓冲写满丢弃的事件数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void emit(HotPathStage stage, Level level, String template, int argCount,
+                      Object a1, Object a2, Object a3, Object a4) {
+        if (!isEnabled(stage, level)) {
+            return;
+        }
+        if (level.toInt() < Level.WARN.toInt() && sampleRate < 1.0
+            && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (mode == Mode.SYNC) {
+            write(loggers[stage.ordinal()], level, template, argCount, a1, a2, a3, a4);
+            return;
+        }
+
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        Slot slot = slots[(int) seq & mask];
+        slot.stage = stage;
+        slot.level = level;
+        slot.template = template;
+        slot.threadName = Thread.currentThread().getName();
+        slot.mdc = MDC.getCopyOfContextMap();
+        slot.argCount = argCount;
+        slot.a1 = a1;
+        slot.a2 = a2;
+        slot.a3 = a3;
+        slot.a4 = a4;
+        slot.published = seq;
+    }
+
+    private void drain() {
+        Thread self = Thread.currentThread();
+        String drainerName = self.getName();
+        long next = head.get();
+        int sinceCheck = 0;
+        while (running || next < tail.get()) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published != next) {
+                if (next < tail.get()) {
+                    // 序号已被申请，生产者正在写入槽位
+                    Thread.onSpinWait();
+                    continue;
+                }
+                reportDropped(self, drainerName);
+                sinceCheck = 0;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            // 还原调用线程名与MDC（线程名不变时不重复设置）
+            if (!slot.threadName.equals(self.getName())) {
+                self.setName(slot.threadName);
+            }
+            if (slot.mdc != null) {
+                MDC.setContextMap(slot.mdc);
+            } else {
+                MDC.clear();
+            }
+            try {
+                write(loggers[slot.stage.ordinal()], slot.level, slot.template, slot.argCount,
+                    slot.a1, slot.a2, slot.a3, slot.a4);
+            } catch (Exception e) {
+                log.warn("热路径日志输出失败: {}", e.getMessage());
+            }
+            slot.template = null;
+            slot.threadName = null;
+            slot.mdc = null;
+            slot.a1 = null;
+            slot.a2 = null;
+            slot.a3 = null;
+            slot.a4 = null;
+            next++;
+            head.lazySet(next);
+
+            // 缓冲持续写满时后台线程始终有事件可输出，同样按时间告警丢弃数
+            if (++sinceCheck >= DROP_REPORT_CHECK_EVENTS) {
+                sinceCheck = 0;
+                reportDropped(self, drainerName);
+            }
+        }
+        self.setName(drainerName);
+        MDC.clear();
+    }
+
+    /**
+     * 距上次检查超过告警间隔时，输出期间新增的丢弃数
+     */
+    private void reportDropped(Thread self, String drainerName) {
+        long now = System.currentTimeMillis();
+        if (now - lastReportTime < DROP_REPORT_INTERVAL_MILLIS) {
+            return;
+        }
+        lastReportTime = now;
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            // 告警属于后台线程自身，不带最后一个事件的线程名和MDC
+            self.setName(drainerName);
+            MDC.clear();
+            log.warn("热路径日志缓冲已满, 丢弃事件数: {}", total - reportedDropped);
+            reportedDropped = total;
+        }
+    }
+
+    private static void write(Logger logger, Level level, String template, int argCount,
+                              Object a1, Object a2, Object a3, Object a4) {
+        switch (argCount) {
+            case 1 -> logger.atLevel(level).log(template, a1);
+            case 2 -> logger.atLevel(level).log(template, a1, a2);
+            case 3 -> logger.atLevel(level).log(template, a1, a2, a3);
+            default -> logger.atLevel(level).log(template, a1, a2, a3, a4);
+        }
+    }
+
+    private static int parseThreshold(String level) {
+        if (level == null || level.isEmpty()) {
+            return Level.INFO.toInt();
+        }
+        String upper = level.toUpperCase(Locale.ROOT);
+        return "OFF".equals(upper) ? LEVEL_OFF : Level.valueOf(upper).toInt();
+    }
+
+    /**
+     * 停止后台线程，输出缓冲中剩余的事件
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (drainer != null) {
+            try {
+                drainer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
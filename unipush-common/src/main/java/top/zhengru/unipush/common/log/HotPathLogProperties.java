@@ -0,0 +1,35 @@
+package top.zhengru.unipush.common.log;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 逐条消息日志配置（push.hot-log）
+ *
+ * @author zhengru
+ */
+@Data
+public class HotPathLogProperties {
+
+    /**
+     * 输出模式：ASYNC-写入环形缓冲由后台线程输出 SYNC-在调用线程直接输出 OFF-关闭
+     */
+    private String mode = "ASYNC";
+
+    /**
+     * 环形缓冲容量（向上取2的幂），写满时丢弃新事件
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * 采样率（0~1），只作用于INFO及以下级别
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * 各阶段最低输出级别（阶段编码 → TRACE/DEBUG/INFO/WARN/ERROR/OFF），未配置的阶段为INFO
+     */
+    private Map<String, String> levels = new HashMap<>();
+}
@@ -0,0 +1,59 @@
+package top.zhengru.unipush.common.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 消息检索请求DTO
+ *
+ * @author zhengru
+ */
+@Data
+public class MessageSearchDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 渠道编码
+     */
+    private String channelCode;
+
+    /**
+     * 状态：INIT PENDING SENDING SUCCESS FAILED
+     */
+    private String status;
+
+    /**
+     * 主题/分组
+     */
+    private String topic;
+
+    /**
+     * 开始时间（含），为空时默认最近7天
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间（含），为空时默认当前时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    /**
+     * 翻页游标（上一页返回的nextCursor），为空表示第一页
+     */
+    private String cursor;
+
+    /**
+     * 每页条数
+     */
+    @Min(value = 1, message = "每页条数不能小于1")
+    @Max(value = 200, message = "每页条数不能超过200")
+    private Integer size = 20;
+}
@@ -1,8 +1,10 @@
 package top.zhengru.unipush.common.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -57,10 +59,37 @@ public class SendMessageDTO implements Serializable {
      */
     private String callbackUrl;
 
+    /**
+     * 优先级：high-紧急 normal-普通 bulk-批量（见 MessagePriority），不传时按渠道优先级决定
+     */
+    @Pattern(regexp = "(?i)(high|normal|bulk)?", message = "优先级只能是 high、normal 或 bulk")
+    private String priority;
+
+    /**
+     * 计划发送时间（epoch毫秒），不传或早于当前时间时立即发送
+     */
+    private Long sendAt;
+
+    /**
+     * 过期时间（epoch毫秒），到期仍未送达的消息不再投递，标记为EXPIRED
+     */
+    private Long expireAt;
+
+    /**
+     * 有效期（秒），从计划发送时间（立即发送为当前时间）起算；与expireAt同时传入时取较早者
+     */
+    private Integer ttl;
+
     /**
      * 时间戳
      */
     @NotNull(message = "时间戳不能为空")
     @JsonProperty("timestamp")
     private Long timestamp;
+
+    /**
+     * 访问令牌ID（由服务端根据认证结果填充，不接受客户端传入）
+     */
+    @JsonIgnore
+    private Long accessTokenId;
 }
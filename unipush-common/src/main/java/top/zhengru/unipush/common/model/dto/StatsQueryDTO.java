@@ -0,0 +1,62 @@
+package top.zhengru.unipush.common.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 投递统计查询DTO
+ *
+ * @author zhengru
+ */
+@Data
+public class StatsQueryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 渠道编码
+     */
+    private String channelCode;
+
+    /**
+     * 主题/分组
+     */
+    private String topic;
+
+    /**
+     * 访问令牌ID
+     */
+    private Long accessTokenId;
+
+    /**
+     * 开始时间（含）
+     */
+    @NotNull(message = "开始时间不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间（不含）
+     */
+    @NotNull(message = "结束时间不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    /**
+     * 聚合粒度（分钟）
+     */
+    @Min(value = 1, message = "聚合粒度不能小于1分钟")
+    @Max(value = 1440, message = "聚合粒度不能超过1天")
+    private Integer intervalMinutes = 1;
+
+    /**
+     * 分组维度：NONE-不分组 CHANNEL-渠道 TOPIC-主题 TOKEN-访问令牌
+     */
+    private String groupBy = "NONE";
+}
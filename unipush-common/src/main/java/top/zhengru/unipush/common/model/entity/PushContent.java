@@ -0,0 +1,46 @@
+package top.zhengru.unipush.common.model.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 消息正文实体（内容寻址，hash → body）
+ *
+ * @author zhengru
+ */
+@Data
+@TableName("push_content")
+public class PushContent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 正文内容哈希（SHA-256）
+     */
+    @TableId(value = "content_hash", type = IdType.INPUT)
+    private String contentHash;
+
+    /**
+     * 正文内容
+     */
+    private String content;
+
+    /**
+     * 正文长度（字符数）
+     */
+    private Integer contentLength;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    /**
+     * 最近一次被落库消息引用的时间
+     */
+    private LocalDateTime lastRefTime;
+}
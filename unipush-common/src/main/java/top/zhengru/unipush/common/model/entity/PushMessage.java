@@ -34,10 +34,15 @@ public class PushMessage implements Serializable {
     private String title;
 
     /**
-     * 内容
+     * 内容（正文去重存储时为空，通过contentHash还原）
      */
     private String content;
 
+    /**
+     * 正文内容哈希（SHA-256），对应push_content表
+     */
+    private String contentHash;
+
     /**
      * 渠道编码
      */
@@ -93,6 +98,26 @@ public class PushMessage implements Serializable {
      */
     private String extInfo;
 
+    /**
+     * 发起请求的访问令牌ID（开放接口调用时记录，用于统计）
+     */
+    private Long accessTokenId;
+
+    /**
+     * 优先级（见 MessagePriority）
+     */
+    private String priority;
+
+    /**
+     * 链路追踪ID
+     */
+    private String traceId;
+
+    /**
+     * 最近一次投递的各阶段时间戳（见 TraceContext#encodeStages）
+     */
+    private String traceStages;
+
     /**
      * 创建时间
      */
@@ -105,6 +130,16 @@ public class PushMessage implements Serializable {
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime updateTime;
 
+    /**
+     * 计划发送时间（定时消息）
+     */
+    private LocalDateTime scheduleTime;
+
+    /**
+     * 过期时间，到期仍未送达的消息不再投递
+     */
+    private LocalDateTime expireTime;
+
     /**
      * 发送时间
      */
@@ -0,0 +1,91 @@
+package top.zhengru.unipush.common.model.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 投递统计分钟实体（按 分钟 × 渠道 × 主题 × 访问令牌 × 实例 预聚合）
+ *
+ * @author zhengru
+ */
+@Data
+@TableName("push_stats_minute")
+public class PushStatsMinute implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 统计分钟
+     */
+    private LocalDateTime statMinute;
+
+    /**
+     * 渠道编码
+     */
+    private String channelCode;
+
+    /**
+     * 主题/分组（空串表示未指定）
+     */
+    private String topic;
+
+    /**
+     * 访问令牌ID（0表示非开放接口）
+     */
+    private Long accessTokenId;
+
+    /**
+     * 写入的core实例
+     */
+    private String instanceId;
+
+    /**
+     * 成功数
+     */
+    private Long successCount;
+
+    /**
+     * 最终失败数
+     */
+    private Long failedCount;
+
+    /**
+     * 重试数
+     */
+    private Long retryCount;
+
+    /**
+     * 耗时样本数
+     */
+    private Long latencyCount;
+
+    /**
+     * 耗时总和（毫秒）
+     */
+    private Long latencySum;
+
+    /**
+     * 最大耗时（毫秒）
+     */
+    private Long latencyMax;
+
+    /**
+     * 耗时分布（HdrHistogram压缩编码）
+     */
+    private byte[] latencyHistogram;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,33 @@
+package top.zhengru.unipush.common.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果VO
+ *
+ * @param <T> 数据类型
+ * @author zhengru
+ */
+@Data
+public class CursorPageVO<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 本页数据
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标，为空表示没有更多数据
+     */
+    private String nextCursor;
+
+    /**
+     * 是否因达到扫描上限而提前返回（本页可能不足size条，但仍可继续翻页）
+     */
+    private Boolean scanLimited;
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * 消息发送结果VO
@@ -46,7 +47,7 @@ public class MessageResultVO implements Serializable {
     private LocalDateTime createTime;
 
     /**
-     * 状态：1-待处理 2-处理中 3-成功 4-失败
+     * 状态：1-初始化 2-待发送 3-发送中 4-成功 5-失败 6-定时待发送 7-已过期
      */
     private Integer status;
 
@@ -59,4 +60,14 @@ public class MessageResultVO implements Serializable {
      * 更新时间
      */
     private LocalDateTime updateTime;
+
+    /**
+     * 链路追踪ID
+     */
+    private String traceId;
+
+    /**
+     * 最近一次投递的各阶段耗时（阶段编码 → 毫秒）
+     */
+    private Map<String, Long> stageCosts;
 }
@@ -0,0 +1,67 @@
+package top.zhengru.unipush.common.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 消息检索结果项VO（不含正文与推送目标）
+ *
+ * @author zhengru
+ */
+@Data
+public class MessageSummaryVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 消息ID
+     */
+    private String messageId;
+
+    /**
+     * 标题
+     */
+    private String title;
+
+    /**
+     * 渠道编码
+     */
+    private String channelCode;
+
+    /**
+     * 主题/分组
+     */
+    private String topic;
+
+    /**
+     * 状态
+     */
+    private String status;
+
+    /**
+     * 重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 错误信息
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 数据来源：DB-数据库 REDIS-尚未落库的Redis数据
+     */
+    private String source;
+}
@@ -0,0 +1,77 @@
+package top.zhengru.unipush.common.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 投递统计数据点VO
+ *
+ * @author zhengru
+ */
+@Data
+public class StatsPointVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 时间桶起点
+     */
+    private LocalDateTime time;
+
+    /**
+     * 分组维度值（不分组时为空）
+     */
+    private String dimension;
+
+    /**
+     * 成功数
+     */
+    private Long successCount;
+
+    /**
+     * 最终失败数
+     */
+    private Long failedCount;
+
+    /**
+     * 重试数
+     */
+    private Long retryCount;
+
+    /**
+     * 成功率（成功数 / (成功数 + 最终失败数)）
+     */
+    private Double successRate;
+
+    /**
+     * 吞吐量（条/秒）
+     */
+    private Double throughput;
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    private Double avgLatency;
+
+    /**
+     * P50耗时（毫秒）
+     */
+    private Long p50Latency;
+
+    /**
+     * P90耗时（毫秒）
+     */
+    private Long p90Latency;
+
+    /**
+     * P99耗时（毫秒）
+     */
+    private Long p99Latency;
+
+    /**
+     * 最大耗时（毫秒）
+     */
+    private Long maxLatency;
+}
@@ -0,0 +1,205 @@
+package top.zhengru.unipush.common.trace;
+
+import top.zhengru.unipush.common.enums.TraceStage;
+
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 消息链路上下文：追踪ID + 各阶段时间戳（epoch毫秒，0表示未经过）
+ * <p>
+ * 跨进程时通过Dubbo attachment、Kafka header传递 {@link #getTraceId()} 与 {@link #encodeStages()}；
+ * 进程内由边界处（Kafka消费者）放入 {@link #setCurrent}，同步调用链上的服务直接读取。
+ * 时间戳取自各机器本地时钟，跨机器的阶段耗时包含时钟偏差，负值按0处理。
+ *
+ * @author zhengru
+ */
+public final class TraceContext {
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private static final TraceStage[] STAGES = TraceStage.values();
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String traceId;
+
+    private final long[] stages = new long[STAGES.length];
+
+    private TraceContext(String traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * 开启新链路（生成追踪ID）
+     */
+    public static TraceContext start() {
+        return new TraceContext(HEX.toHexDigits(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * 沿用已有追踪ID开启新的一轮阶段记录（如重试）
+     */
+    public static TraceContext of(String traceId) {
+        return new TraceContext(traceId);
+    }
+
+    /**
+     * 从传递的字段还原上下文
+     *
+     * @param traceId       追踪ID
+     * @param encodedStages {@link #encodeStages()} 的结果，可为空
+     * @return 上下文，traceId为空时返回null
+     */
+    public static TraceContext restore(String traceId, String encodedStages) {
+        if (traceId == null || traceId.isEmpty()) {
+            return null;
+        }
+        TraceContext context = new TraceContext(traceId);
+        if (encodedStages != null && !encodedStages.isEmpty()) {
+            String[] parts = encodedStages.split(",");
+            for (int i = 0; i < parts.length && i < context.stages.length; i++) {
+                try {
+                    context.stages[i] = parts[i].isEmpty() ? 0 : Long.parseLong(parts[i]);
+                } catch (NumberFormatException e) {
+                    context.stages[i] = 0;
+                }
+            }
+        }
+        return context;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * 记录当前时间为该阶段时间戳
+     */
+    public TraceContext mark(TraceStage stage) {
+        stages[stage.ordinal()] = System.currentTimeMillis();
+        return this;
+    }
+
+    /**
+     * 阶段时间戳，未经过返回0
+     */
+    public long get(TraceStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * 合并另一上下文中已记录的阶段（用于把下游回传的阶段并入本地记录）
+     */
+    public TraceContext merge(TraceContext other) {
+        if (other != null) {
+            for (int i = 0; i < stages.length; i++) {
+                if (other.stages[i] > 0) {
+                    stages[i] = other.stages[i];
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 阶段耗时：该阶段与前一阶段的时间差（毫秒），任一端未记录时返回-1
+     */
+    public long costOf(TraceStage stage) {
+        int index = stage.ordinal();
+        if (index == 0 || stages[index] == 0 || stages[index - 1] == 0) {
+            return -1;
+        }
+        return Math.max(stages[index] - stages[index - 1], 0);
+    }
+
+    /**
+     * 总耗时：最早与最晚阶段的时间差（毫秒），不足两个阶段返回-1
+     */
+    public long totalCost() {
+        long first = 0;
+        long last = 0;
+        for (long time : stages) {
+            if (time > 0) {
+                if (first == 0) {
+                    first = time;
+                }
+                last = time;
+            }
+        }
+        return first == 0 || first == last ? -1 : Math.max(last - first, 0);
+    }
+
+    /**
+     * 编码各阶段时间戳：按 {@link TraceStage} 顺序逗号分隔，未经过为空，省略末尾未经过的阶段
+     */
+    public String encodeStages() {
+        int end = stages.length;
+        while (end > 0 && stages[end - 1] == 0) {
+            end--;
+        }
+        StringBuilder sb = new StringBuilder(end * 14);
+        for (int i = 0; i < end; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (stages[i] > 0) {
+                sb.append(stages[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 已记录的阶段时间戳（阶段编码 → epoch毫秒）
+     */
+    public Map<String, Long> stageTimes() {
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (TraceStage stage : STAGES) {
+            if (stages[stage.ordinal()] > 0) {
+                times.put(stage.getCode(), stages[stage.ordinal()]);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * 可计算的阶段耗时（阶段编码 → 毫秒）
+     */
+    public Map<String, Long> stageCosts() {
+        Map<String, Long> costs = new LinkedHashMap<>();
+        for (TraceStage stage : STAGES) {
+            long cost = costOf(stage);
+            if (cost >= 0) {
+                costs.put(stage.getCode(), cost);
+            }
+        }
+        return costs;
+    }
+
+    // ============================= 线程上下文 =============================
+
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    public static void setCurrent(TraceContext context) {
+        CURRENT.set(context);
+    }
+
+    public static void clearCurrent() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 在当前线程的上下文上记录阶段，无上下文时忽略
+     */
+    public static void markCurrent(TraceStage stage) {
+        TraceContext context = CURRENT.get();
+        if (context != null) {
+            context.mark(stage);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package top.zhengru.unipush.common.trace;
+
+/**
+ * 链路记录导出器
+ * 注册为Spring Bean即可接入（如写入日志、内存、外部追踪系统），可同时存在多个
+ * <p>
+ * 在投递结果消费线程上同步调用，实现不应阻塞；导出失败只影响追踪数据，不影响消息处理
+ *
+ * @author zhengru
+ */
+public interface TraceExporter {
+
+    /**
+     * 导出一条链路记录
+     *
+     * @param record 链路记录
+     */
+    void export(TraceRecord record);
+}
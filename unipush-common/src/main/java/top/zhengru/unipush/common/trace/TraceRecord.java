@@ -0,0 +1,57 @@
+package top.zhengru.unipush.common.trace;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 一次投递的完整链路记录（core收到投递结果时生成，交给 {@link TraceExporter}）
+ *
+ * @author zhengru
+ */
+@Data
+public class TraceRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 追踪ID
+     */
+    private String traceId;
+
+    /**
+     * 消息ID
+     */
+    private String messageId;
+
+    /**
+     * 渠道编码
+     */
+    private String channelCode;
+
+    /**
+     * 本次投递是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 本次投递前的重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 各阶段时间戳（阶段编码 → epoch毫秒）
+     */
+    private Map<String, Long> stageTimes;
+
+    /**
+     * 各阶段耗时（阶段编码 → 毫秒）
+     */
+    private Map<String, Long> stageCosts;
+
+    /**
+     * 总耗时（毫秒），无法计算时为-1
+     */
+    private Long totalCost;
+}
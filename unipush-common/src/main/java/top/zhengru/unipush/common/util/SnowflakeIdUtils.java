@@ -1,7 +1,16 @@
 package top.zhengru.unipush.common.util;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
 /**
  * 雪花ID生成器
+ * <p>
+ * 无锁实现：上次时间戳与毫秒内序列打包在一个 AtomicLong 中，通过 CAS 推进，
+ * 读取系统时钟不在临界区内；支持批量预留（{@link #nextIds(int)}）。
+ * <p>
+ * 时钟回拨处理：回拨不超过容忍值时沿用上次时间戳继续分配序列（逻辑时钟不后退），
+ * 超过容忍值才抛出异常；序列耗尽时借用下一毫秒，但逻辑时钟领先系统时钟不超过容忍值。
  *
  * @author zhengru
  */
@@ -58,24 +67,40 @@ public class SnowflakeIdUtils {
     private static final long TIMESTAMP_SHIFT = DATACENTER_ID_BITS + WORKER_ID_BITS + SEQUENCE_BITS;
 
     /**
-     * 数据中心ID
+     * 默认时钟回拨容忍值（毫秒）
      */
-    private final long datacenterId;
+    private static final long DEFAULT_MAX_BACKWARD_MS = 10L;
 
     /**
-     * 工作机器ID
+     * Base62字符表（按ASCII升序，定长编码后字典序与数值序一致）
      */
-    private final long workerId;
+    private static final char[] BASE62_CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
 
     /**
-     * 毫秒内序列
+     * 正数long的Base62最大长度
      */
-    private long sequence = 0L;
+    private static final int BASE62_LENGTH = 11;
 
     /**
-     * 上次生成ID的时间戳
+     * 数据中心ID与工作机器ID合并后的位段（生成时直接或入）
      */
-    private long lastTimestamp = -1L;
+    private final long nodeBits;
+
+    /**
+     * 时钟回拨容忍值（毫秒）
+     */
+    private final long maxBackwardMs;
+
+    /**
+     * 时钟（epoch毫秒）
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 生成状态：高位为上次生成ID的相对时间戳，低 SEQUENCE_BITS 位为该毫秒内已用的最大序列
+     */
+    private final AtomicLong state = new AtomicLong(-1L);
 
     /**
      * 单例实例
@@ -85,10 +110,12 @@ public class SnowflakeIdUtils {
     /**
      * 构造函数
      *
-     * @param datacenterId 数据中心ID (0~31)
-     * @param workerId     工作ID (0~31)
+     * @param datacenterId  数据中心ID (0~31)
+     * @param workerId      工作ID (0~31)
+     * @param maxBackwardMs 时钟回拨容忍值（毫秒）
+     * @param clock         时钟（epoch毫秒）
      */
-    private SnowflakeIdUtils(long datacenterId, long workerId) {
+    private SnowflakeIdUtils(long datacenterId, long workerId, long maxBackwardMs, LongSupplier clock) {
         if (datacenterId > MAX_DATACENTER_ID || datacenterId < 0) {
             throw new IllegalArgumentException(
                     String.format("datacenter Id can't be greater than %d or less than 0", MAX_DATACENTER_ID));
@@ -97,8 +124,12 @@ public class SnowflakeIdUtils {
             throw new IllegalArgumentException(
                     String.format("worker Id can't be greater than %d or less than 0", MAX_WORKER_ID));
         }
-        this.datacenterId = datacenterId;
-        this.workerId = workerId;
+        if (maxBackwardMs < 0) {
+            throw new IllegalArgumentException("max backward millis can't be less than 0");
+        }
+        this.nodeBits = (datacenterId << DATACENTER_ID_SHIFT) | (workerId << WORKER_ID_SHIFT);
+        this.maxBackwardMs = maxBackwardMs;
+        this.clock = clock;
     }
 
     /**
@@ -112,13 +143,50 @@ public class SnowflakeIdUtils {
         if (instance == null) {
             synchronized (SnowflakeIdUtils.class) {
                 if (instance == null) {
-                    instance = new SnowflakeIdUtils(datacenterId, workerId);
+                    instance = new SnowflakeIdUtils(datacenterId, workerId, DEFAULT_MAX_BACKWARD_MS, System::currentTimeMillis);
                 }
             }
         }
         return instance;
     }
 
+    /**
+     * 创建独立实例（用于按协调分配的机器ID生成，不影响单例）
+     *
+     * @param datacenterId 数据中心ID
+     * @param workerId     工作ID
+     * @return SnowflakeIdUtils实例
+     */
+    public static SnowflakeIdUtils newInstance(long datacenterId, long workerId) {
+        return new SnowflakeIdUtils(datacenterId, workerId, DEFAULT_MAX_BACKWARD_MS, System::currentTimeMillis);
+    }
+
+    /**
+     * 创建独立实例并指定时钟回拨容忍值
+     *
+     * @param datacenterId  数据中心ID
+     * @param workerId      工作ID
+     * @param maxBackwardMs 时钟回拨容忍值（毫秒）
+     * @return SnowflakeIdUtils实例
+     */
+    public static SnowflakeIdUtils newInstance(long datacenterId, long workerId, long maxBackwardMs) {
+        return new SnowflakeIdUtils(datacenterId, workerId, maxBackwardMs, System::currentTimeMillis);
+    }
+
+    /**
+     * 创建使用指定时钟的独立实例（测试与基准用，如加速的时钟可避开每毫秒4096个的序列上限）
+     *
+     * @param datacenterId  数据中心ID
+     * @param workerId      工作ID
+     * @param maxBackwardMs 时钟回拨容忍值（毫秒）
+     * @param clock         时钟（epoch毫秒）
+     * @return SnowflakeIdUtils实例
+     */
+    public static SnowflakeIdUtils newInstance(long datacenterId, long workerId, long maxBackwardMs,
+                                               LongSupplier clock) {
+        return new SnowflakeIdUtils(datacenterId, workerId, maxBackwardMs, clock);
+    }
+
     /**
      * 获取默认实例（datacenterId=0, workerId=0）
      *
@@ -129,64 +197,100 @@ public class SnowflakeIdUtils {
     }
 
     /**
-     * 生成下一个ID（线程安全）
+     * 生成下一个ID（线程安全，无锁）
      *
      * @return SnowflakeId
      */
-    public synchronized long nextId() {
-        long timestamp = getCurrentTimestamp();
+    public long nextId() {
+        long first = reserve(1);
+        return compose(first >>> SEQUENCE_BITS, first & MAX_SEQUENCE);
+    }
 
-        // 如果当前时间小于上次生成ID的时间，说明系统时钟回退，抛出异常
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(
-                    String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
-                            lastTimestamp - timestamp));
+    /**
+     * 批量生成ID（一次CAS预留同一毫秒内的连续序列，跨毫秒时分段预留）
+     *
+     * @param count 数量
+     * @return 递增的ID数组
+     */
+    public long[] nextIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count can't be less than 0");
         }
-
-        // 如果是同一毫秒内生成的
-        if (timestamp == lastTimestamp) {
-            // 序列自增
-            sequence = (sequence + 1) & MAX_SEQUENCE;
-            // 如果序列溢出，则等待下一毫秒
-            if (sequence == 0) {
-                timestamp = waitNextMillis(timestamp);
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int remaining = count - filled;
+            long first = reserve(remaining);
+            long timestamp = first >>> SEQUENCE_BITS;
+            long firstSequence = first & MAX_SEQUENCE;
+            long lastSequence = Math.min(MAX_SEQUENCE, firstSequence + remaining - 1);
+            for (long sequence = firstSequence; sequence <= lastSequence; sequence++) {
+                ids[filled++] = compose(timestamp, sequence);
             }
-        } else {
-            // 不同毫秒，序列重置为0
-            sequence = 0L;
         }
+        return ids;
+    }
 
-        // 更新上次生成ID的时间戳
-        lastTimestamp = timestamp;
+    /**
+     * 预留最多 count 个序列（受当前毫秒剩余序列数限制）
+     *
+     * @return 本次预留的起始位置（相对时间戳 + 起始序列），
+     * 实际预留数量为 min(count, MAX_SEQUENCE + 1 - 起始序列)
+     */
+    private long reserve(int count) {
+        while (true) {
+            long now = getCurrentTimestamp() - START_TIMESTAMP;
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+
+            if (current >= 0 && now < lastTimestamp - maxBackwardMs) {
+                throw new IllegalStateException(
+                        String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
+                                lastTimestamp - now));
+            }
 
-        // 生成ID
-        return ((timestamp - START_TIMESTAMP) << TIMESTAMP_SHIFT)
-                | (datacenterId << DATACENTER_ID_SHIFT)
-                | (workerId << WORKER_ID_SHIFT)
-                | sequence;
+            long timestamp;
+            long firstSequence;
+            if (current < 0 || now > lastTimestamp) {
+                // 新的一毫秒，序列从0开始
+                timestamp = now;
+                firstSequence = 0L;
+            } else if ((current & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                // 同一毫秒（或容忍范围内的回拨），沿用上次时间戳继续分配
+                timestamp = lastTimestamp;
+                firstSequence = (current & MAX_SEQUENCE) + 1;
+            } else {
+                // 序列耗尽，借用下一毫秒；领先系统时钟过多时自旋等待
+                timestamp = lastTimestamp + 1;
+                firstSequence = 0L;
+                if (timestamp - now > maxBackwardMs) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+
+            long lastSequence = Math.min(MAX_SEQUENCE, firstSequence + count - 1);
+            long next = (timestamp << SEQUENCE_BITS) | lastSequence;
+            if (state.compareAndSet(current, next)) {
+                return (timestamp << SEQUENCE_BITS) | firstSequence;
+            }
+        }
     }
 
     /**
-     * 获取当前时间戳
-     *
-     * @return 当前时间戳（毫秒）
+     * 组装ID
      */
-    private long getCurrentTimestamp() {
-        return System.currentTimeMillis();
+    private long compose(long relativeTimestamp, long sequence) {
+        return (relativeTimestamp << TIMESTAMP_SHIFT) | nodeBits | sequence;
     }
 
     /**
-     * 等待下一毫秒
+     * 获取当前时间戳
      *
-     * @param lastTimestamp 上次生成ID的时间戳
-     * @return 新的时间戳
+     * @return 当前时间戳（毫秒）
      */
-    private long waitNextMillis(long lastTimestamp) {
-        long timestamp = getCurrentTimestamp();
-        while (timestamp <= lastTimestamp) {
-            timestamp = getCurrentTimestamp();
-        }
-        return timestamp;
+    private long getCurrentTimestamp() {
+        return clock.getAsLong();
     }
 
     /**
@@ -197,4 +301,31 @@ public class SnowflakeIdUtils {
     public String nextIdStr() {
         return String.valueOf(nextId());
     }
+
+    /**
+     * 生成Base62编码的ID
+     *
+     * @return 11位Base62字符串
+     */
+    public String nextIdBase62() {
+        return toBase62(nextId());
+    }
+
+    /**
+     * 将非负ID编码为定长Base62（左侧补0，字典序与数值序一致）
+     *
+     * @param id 非负ID
+     * @return 11位Base62字符串
+     */
+    public static String toBase62(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id can't be negative");
+        }
+        char[] chars = new char[BASE62_LENGTH];
+        for (int i = BASE62_LENGTH - 1; i >= 0; i--) {
+            chars[i] = BASE62_CHARS[(int) (id % 62)];
+            id /= 62;
+        }
+        return new String(chars);
+    }
 }
@@ -0,0 +1,163 @@
+package top.zhengru.unipush.common.log;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+import top.zhengru.unipush.common.enums.HotPathStage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热路径日志测试
+ *
+ * @author zhengru
+ */
+class HotPathEventLogTest {
+
+    private Logger logger;
+
+    private CapturingAppender appender;
+
+    @BeforeEach
+    void attachAppender() {
+        logger = (Logger) LoggerFactory.getLogger("top.zhengru.unipush.hotpath." + HotPathStage.INGEST.getCode());
+        logger.setLevel(ch.qos.logback.classic.Level.DEBUG);
+        logger.setAdditive(false);
+        appender = new CapturingAppender();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        logger.detachAppender(appender);
+        logger.setAdditive(true);
+        logger.setLevel(null);
+    }
+
+    @Test
+    void asyncDeliversEveryEventWithCallerThreadAndMdc() throws InterruptedException {
+        HotPathEventLog eventLog = new HotPathEventLog(properties("ASYNC", 1 << 16));
+        int producers = 4;
+        int perProducer = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            Thread thread = new Thread(() -> {
+                MDC.put("traceId", "trace-" + id);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    eventLog.info(HotPathStage.INGEST, "event {} {}", id, i);
+                }
+                MDC.clear();
+            }, "producer-" + p);
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        eventLog.close();
+
+        assertEquals(0, eventLog.getDropped());
+        assertEquals(producers * perProducer, appender.list.size());
+        int[] nextSeq = new int[producers];
+        for (ILoggingEvent event : appender.list) {
+            Object[] args = event.getArgumentArray();
+            int id = (Integer) args[0];
+            assertEquals("producer-" + id, event.getThreadName());
+            assertEquals("trace-" + id, event.getMDCPropertyMap().get("traceId"));
+            // 同一生产者的事件按写入顺序输出
+            assertEquals(nextSeq[id]++, (int) (Integer) args[1]);
+        }
+    }
+
+    @Test
+    void countsDroppedEventsWhenBufferIsFull() {
+        HotPathEventLog eventLog = new HotPathEventLog(properties("ASYNC", 2));
+        int total = 50_000;
+        for (int i = 0; i < total; i++) {
+            eventLog.info(HotPathStage.INGEST, "event {}", i);
+        }
+        eventLog.close();
+
+        assertEquals(total, appender.list.size() + eventLog.getDropped());
+    }
+
+    @Test
+    void syncWritesOnCallingThread() {
+        HotPathEventLog eventLog = new HotPathEventLog(properties("SYNC", 16));
+        MDC.put("traceId", "sync-trace");
+        try {
+            eventLog.info(HotPathStage.INGEST, "event {}", 1);
+        } finally {
+            MDC.clear();
+        }
+        eventLog.close();
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Thread.currentThread().getName(), event.getThreadName());
+        assertEquals("sync-trace", event.getMDCPropertyMap().get("traceId"));
+        assertEquals("event 1", event.getFormattedMessage());
+    }
+
+    @Test
+    void skipsEventsBelowStageLevelAndWhenOff() {
+        HotPathLogProperties properties = properties("SYNC", 16);
+        Map<String, String> levels = new HashMap<>();
+        levels.put(HotPathStage.INGEST.getCode(), "WARN");
+        properties.setLevels(levels);
+        HotPathEventLog eventLog = new HotPathEventLog(properties);
+        assertFalse(eventLog.isEnabled(HotPathStage.INGEST, Level.INFO));
+        assertTrue(eventLog.isEnabled(HotPathStage.DISPATCH, Level.INFO));
+        eventLog.info(HotPathStage.INGEST, "event {}", 1);
+        eventLog.close();
+
+        HotPathEventLog disabled = HotPathEventLog.disabled();
+        assertFalse(disabled.isEnabled(HotPathStage.INGEST, Level.INFO));
+        disabled.info(HotPathStage.INGEST, "event {}", 2);
+        disabled.close();
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private static HotPathLogProperties properties(String mode, int bufferSize) {
+        HotPathLogProperties properties = new HotPathLogProperties();
+        properties.setMode(mode);
+        properties.setBufferSize(bufferSize);
+        return properties;
+    }
+
+    /**
+     * 追加时固定线程名与MDC（logback默认在读取时才取当前线程）
+     */
+    private static final class CapturingAppender extends ListAppender<ILoggingEvent> {
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            event.prepareForDeferredProcessing();
+            super.append(event);
+        }
+    }
+}
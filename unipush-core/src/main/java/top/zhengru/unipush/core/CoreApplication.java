@@ -20,9 +20,13 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class CoreApplication {
 
     public static void main(String[] args) {
-        // 强制指定Dubbo绑定的IP地址（解决多网卡IP识别错误问题）
-        System.setProperty("dubbo.protocol.host", "192.168.31.101");
-        System.setProperty("dubbo.registry.parameters.register.ip", "192.168.31.101");
+        // 强制指定Dubbo绑定的IP地址（解决多网卡IP识别错误问题），启动参数 -D 已指定时以其为准
+        if (System.getProperty("dubbo.protocol.host") == null) {
+            System.setProperty("dubbo.protocol.host", "192.168.31.101");
+        }
+        if (System.getProperty("dubbo.registry.parameters.register.ip") == null) {
+            System.setProperty("dubbo.registry.parameters.register.ip", "192.168.31.101");
+        }
 
         SpringApplication.run(CoreApplication.class, args);
         System.out.println("(♥◠‿◠)ノ゙  UniPush Core启动成功   ლ(´ڡ`ლ)゙");
@@ -0,0 +1,101 @@
+package top.zhengru.unipush.core.archive;
+
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 归档段文件的列定义
+ * 段文件按列存储，列顺序：id → 时间列 → 整数列 → 字符串列，新增列只能追加在对应分组末尾
+ *
+ * @author zhengru
+ */
+final class ArchiveColumns {
+
+    private ArchiveColumns() {
+    }
+
+    /**
+     * 时间列（按epoch毫秒存储，null存为Long.MIN_VALUE）
+     */
+    record TimeColumn(String name,
+                      Function<PushMessage, LocalDateTime> getter,
+                      BiConsumer<PushMessage, LocalDateTime> setter) {
+    }
+
+    /**
+     * 整数列（null存为Integer.MIN_VALUE）
+     */
+    record IntColumn(String name,
+                     Function<PushMessage, Integer> getter,
+                     BiConsumer<PushMessage, Integer> setter) {
+    }
+
+    /**
+     * 字符串列（长度前缀 + UTF-8字节，null长度为-1）
+     */
+    record StringColumn(String name,
+                        Function<PushMessage, String> getter,
+                        BiConsumer<PushMessage, String> setter) {
+    }
+
+    static final List<TimeColumn> TIME_COLUMNS = List.of(
+        new TimeColumn("create_time", PushMessage::getCreateTime, PushMessage::setCreateTime),
+        new TimeColumn("update_time", PushMessage::getUpdateTime, PushMessage::setUpdateTime),
+        new TimeColumn("send_time", PushMessage::getSendTime, PushMessage::setSendTime),
+        new TimeColumn("success_time", PushMessage::getSuccessTime, PushMessage::setSuccessTime),
+        new TimeColumn("next_retry_time", PushMessage::getNextRetryTime, PushMessage::setNextRetryTime)
+    );
+
+    static final List<IntColumn> INT_COLUMNS = List.of(
+        new IntColumn("retry_count", PushMessage::getRetryCount, PushMessage::setRetryCount),
+        new IntColumn("max_retry_count", PushMessage::getMaxRetryCount, PushMessage::setMaxRetryCount)
+    );
+
+    static final List<StringColumn> STRING_COLUMNS = List.of(
+        new StringColumn("message_id", PushMessage::getMessageId, PushMessage::setMessageId),
+        new StringColumn("title", PushMessage::getTitle, PushMessage::setTitle),
+        new StringColumn("content", PushMessage::getContent, PushMessage::setContent),
+        new StringColumn("content_hash", PushMessage::getContentHash, PushMessage::setContentHash),
+        new StringColumn("channel_code", PushMessage::getChannelCode, PushMessage::setChannelCode),
+        new StringColumn("target", PushMessage::getTarget, PushMessage::setTarget),
+        new StringColumn("template_code", PushMessage::getTemplateCode, PushMessage::setTemplateCode),
+        new StringColumn("topic", PushMessage::getTopic, PushMessage::setTopic),
+        new StringColumn("callback_url", PushMessage::getCallbackUrl, PushMessage::setCallbackUrl),
+        new StringColumn("status", PushMessage::getStatus, PushMessage::setStatus),
+        new StringColumn("error_message", PushMessage::getErrorMessage, PushMessage::setErrorMessage),
+        new StringColumn("ext_info", PushMessage::getExtInfo, PushMessage::setExtInfo),
+        // 后续新增的列只能追加在末尾，旧段文件缺少的列读取时为null
+        new StringColumn("priority", PushMessage::getPriority, PushMessage::setPriority),
+        // 非字符串类型追加时同样按字符串列存储，避免改变时间列/整数列的列序
+        new StringColumn("access_token_id",
+            message -> message.getAccessTokenId() == null ? null : message.getAccessTokenId().toString(),
+            (message, value) -> message.setAccessTokenId(value == null ? null : Long.valueOf(value))),
+        new StringColumn("trace_id", PushMessage::getTraceId, PushMessage::setTraceId),
+        new StringColumn("schedule_time",
+            message -> formatTime(message.getScheduleTime()),
+            (message, value) -> message.setScheduleTime(parseTime(value))),
+        new StringColumn("expire_time",
+            message -> formatTime(message.getExpireTime()),
+            (message, value) -> message.setExpireTime(parseTime(value)))
+    );
+
+    /**
+     * 总列数（含id列）
+     */
+    static final int COLUMN_COUNT = 1 + TIME_COLUMNS.size() + INT_COLUMNS.size() + STRING_COLUMNS.size();
+
+    /**
+     * 追加的时间类字符串列按ISO-8601格式存储
+     */
+    private static String formatTime(LocalDateTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+}
@@ -0,0 +1,151 @@
+package top.zhengru.unipush.core.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 归档段的message_id布隆过滤器（{name}.bloom）
+ * 回查时先在内存中判断，不可能包含的段不再打开索引文件；误判时照常二分查找索引。
+ * 过滤器可由索引文件重建，文件缺失或损坏不影响段的完整性
+ *
+ * @author zhengru
+ */
+final class ArchiveSegmentFilter {
+
+    private final long[] words;
+
+    private final int hashCount;
+
+    private ArchiveSegmentFilter(long[] words, int hashCount) {
+        this.words = words;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * 按消息ID构建
+     */
+    static ArchiveSegmentFilter build(List<String> messageIds, double fpp) {
+        int expected = Math.max(messageIds.size(), 1);
+        double p = Math.min(Math.max(fpp, 1e-6), 0.5);
+        long bits = (long) Math.ceil(-expected * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) >>> 6);
+        int hashCount = Math.max(1, (int) Math.round((double) wordCount * 64 / expected * Math.log(2)));
+
+        ArchiveSegmentFilter filter = new ArchiveSegmentFilter(new long[wordCount], hashCount);
+        for (String messageId : messageIds) {
+            filter.put(messageId);
+        }
+        return filter;
+    }
+
+    /**
+     * 从索引文件重建（旧段没有过滤器文件时）
+     */
+    static ArchiveSegmentFilter fromIndex(Path indexFile, double fpp) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            int count = in.readInt();
+            String[] messageIds = new String[count];
+            byte[] key = new byte[ArchiveSegmentWriter.INDEX_KEY_LENGTH];
+            for (int i = 0; i < count; i++) {
+                in.readFully(key);
+                in.readInt();
+                int length = 0;
+                while (length < key.length && key[length] != 0) {
+                    length++;
+                }
+                messageIds[i] = new String(key, 0, length, StandardCharsets.UTF_8);
+            }
+            return build(List.of(messageIds), fpp);
+        }
+    }
+
+    /**
+     * 读取过滤器文件
+     */
+    static ArchiveSegmentFilter read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int hashCount = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new ArchiveSegmentFilter(words, hashCount);
+        }
+    }
+
+    /**
+     * 写出过滤器文件
+     */
+    void write(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + words.length * Long.BYTES);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(hashCount);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        out.flush();
+        ArchiveSegmentWriter.writeAtomically(file, bytes.toByteArray());
+    }
+
+    /**
+     * 是否可能包含该消息ID（false表示一定不在段中）
+     */
+    boolean mightContain(String messageId) {
+        long hash = hash64(messageId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 占用的字节数
+     */
+    long memoryBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    private void put(String messageId) {
+        long hash = hash64(messageId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private int index(int combined) {
+        return (int) ((combined & Integer.MAX_VALUE) % ((long) words.length * 64));
+    }
+
+    /**
+     * 64位 FNV-1a 后再做一次 murmur3 finalizer 混合
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,59 @@
+package top.zhengru.unipush.core.archive;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 归档段元信息（与段文件同名的 .meta.json，写入完成的标志）
+ *
+ * @author zhengru
+ */
+@Data
+public class ArchiveSegmentMeta {
+
+    /**
+     * 段名称（不含扩展名，相对归档根目录的路径）
+     */
+    private String name;
+
+    /**
+     * 行数
+     */
+    private Integer rowCount;
+
+    /**
+     * 最小主键ID
+     */
+    private Long minId;
+
+    /**
+     * 最大主键ID
+     */
+    private Long maxId;
+
+    /**
+     * 最小message_id（字典序，时间有序ID时可用于快速排除）
+     */
+    private String minMessageId;
+
+    /**
+     * 最大message_id（字典序）
+     */
+    private String maxMessageId;
+
+    /**
+     * 最早创建时间
+     */
+    private LocalDateTime minCreateTime;
+
+    /**
+     * 最晚创建时间
+     */
+    private LocalDateTime maxCreateTime;
+
+    /**
+     * 归档时间
+     */
+    private LocalDateTime archivedTime;
+}
@@ -0,0 +1,145 @@
+package top.zhengru.unipush.core.archive;
+
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 归档段读取器（格式见 {@link ArchiveSegmentWriter}）
+ * 单条查询只读取索引的 log2(n) 个条目和各列数据块，不加载整段
+ *
+ * @author zhengru
+ */
+public final class ArchiveSegmentReader {
+
+    private ArchiveSegmentReader() {
+    }
+
+    /**
+     * 在索引文件中二分查找message_id
+     *
+     * @return 行号，不存在返回-1
+     */
+    public static int findRow(Path indexFile, String messageId) throws IOException {
+        byte[] target = ArchiveSegmentWriter.indexKey(messageId);
+        byte[] key = new byte[ArchiveSegmentWriter.INDEX_KEY_LENGTH];
+        try (RandomAccessFile file = new RandomAccessFile(indexFile.toFile(), "r")) {
+            int low = 0;
+            int high = file.readInt() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                file.seek(Integer.BYTES + (long) mid * ArchiveSegmentWriter.INDEX_ENTRY_LENGTH);
+                file.readFully(key);
+                int cmp = Arrays.compareUnsigned(key, target);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return file.readInt();
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 读取段中指定行
+     */
+    public static PushMessage readRow(Path segmentFile, int row) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile.toFile(), "r")) {
+            file.seek(file.length() - Long.BYTES);
+            file.seek(file.readLong());
+            if (file.readInt() != ArchiveSegmentWriter.MAGIC) {
+                throw new IOException("归档段格式错误: " + segmentFile);
+            }
+            int version = file.readInt();
+            if (version != ArchiveSegmentWriter.VERSION) {
+                throw new IOException("不支持的归档段版本: " + version);
+            }
+            int rowCount = file.readInt();
+            if (row < 0 || row >= rowCount) {
+                throw new IOException("行号越界: " + row + "/" + rowCount);
+            }
+            int columnCount = file.readInt();
+            long[] offsets = new long[columnCount];
+            int[] lengths = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                offsets[i] = file.readLong();
+                lengths[i] = file.readInt();
+            }
+
+            PushMessage message = new PushMessage();
+            int column = 0;
+
+            try (DataInputStream data = openColumn(file, offsets[column], lengths[column++])) {
+                long id = 0;
+                for (int i = 0; i <= row; i++) {
+                    id += data.readLong();
+                }
+                message.setId(id);
+            }
+
+            for (ArchiveColumns.TimeColumn timeColumn : ArchiveColumns.TIME_COLUMNS) {
+                try (DataInputStream data = openColumn(file, offsets[column], lengths[column++])) {
+                    data.skipNBytes((long) row * Long.BYTES);
+                    timeColumn.setter().accept(message, toLocalDateTime(data.readLong()));
+                }
+            }
+
+            for (ArchiveColumns.IntColumn intColumn : ArchiveColumns.INT_COLUMNS) {
+                try (DataInputStream data = openColumn(file, offsets[column], lengths[column++])) {
+                    data.skipNBytes((long) row * Integer.BYTES);
+                    int value = data.readInt();
+                    intColumn.setter().accept(message, value == Integer.MIN_VALUE ? null : value);
+                }
+            }
+
+            for (ArchiveColumns.StringColumn stringColumn : ArchiveColumns.STRING_COLUMNS) {
+                if (column >= columnCount) {
+                    // 旧版本段文件没有后来追加的列
+                    break;
+                }
+                try (DataInputStream data = openColumn(file, offsets[column], lengths[column++])) {
+                    for (int i = 0; i < row; i++) {
+                        int length = data.readInt();
+                        if (length > 0) {
+                            data.skipNBytes(length);
+                        }
+                    }
+                    int length = data.readInt();
+                    if (length >= 0) {
+                        byte[] bytes = data.readNBytes(length);
+                        stringColumn.setter().accept(message, new String(bytes, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+
+            // 归档数据视为已持久化
+            message.setPersisted(1);
+            return message;
+        }
+    }
+
+    private static DataInputStream openColumn(RandomAccessFile file, long offset, int length) throws IOException {
+        byte[] block = new byte[length];
+        file.seek(offset);
+        file.readFully(block);
+        return new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block), 64 * 1024));
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return epochMilli == Long.MIN_VALUE ? null
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,235 @@
+package top.zhengru.unipush.core.archive;
+
+import com.alibaba.fastjson2.JSON;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 归档段写入器
+ * <p>
+ * 每个段由三个文件组成：
+ * <ul>
+ *     <li>{name}.seg：按列GZIP压缩的数据块，文件尾部为列偏移表</li>
+ *     <li>{name}.idx：按message_id排序的定长索引（id + 行号），支持二分查找</li>
+ *     <li>{name}.meta.json：行数、主键与创建时间范围，最后写入，存在即表示段完整</li>
+ *     <li>{name}.bloom：message_id布隆过滤器（{@link ArchiveSegmentFilter}），可选，缺失时由索引重建</li>
+ * </ul>
+ * 文件先写临时文件再改名，目录可以是本地磁盘，也可以是对象存储的挂载路径
+ *
+ * @author zhengru
+ */
+public final class ArchiveSegmentWriter {
+
+    static final int MAGIC = 0x55505347;
+
+    static final int VERSION = 1;
+
+    /**
+     * 索引中message_id的定长字节数（与push_message.message_id VARCHAR(64)一致）
+     */
+    static final int INDEX_KEY_LENGTH = 64;
+
+    static final int INDEX_ENTRY_LENGTH = INDEX_KEY_LENGTH + Integer.BYTES;
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    static final String INDEX_SUFFIX = ".idx";
+
+    static final String META_SUFFIX = ".meta.json";
+
+    static final String FILTER_SUFFIX = ".bloom";
+
+    private ArchiveSegmentWriter() {
+    }
+
+    /**
+     * 写入一个段
+     *
+     * @param root 归档根目录
+     * @param name 段名称（相对根目录，如 2025/09/seg-100-200）
+     * @param rows 按主键升序排列的消息
+     * @return 段元信息
+     */
+    public static ArchiveSegmentMeta write(Path root, String name, List<PushMessage> rows) throws IOException {
+        Path base = root.resolve(name);
+        Files.createDirectories(base.getParent());
+
+        writeSegment(Path.of(base + SEGMENT_SUFFIX), rows);
+        writeIndex(Path.of(base + INDEX_SUFFIX), rows);
+
+        ArchiveSegmentMeta meta = new ArchiveSegmentMeta();
+        meta.setName(name);
+        meta.setRowCount(rows.size());
+        meta.setMinId(rows.get(0).getId());
+        meta.setMaxId(rows.get(rows.size() - 1).getId());
+        meta.setMinMessageId(rows.stream().map(PushMessage::getMessageId)
+            .min(Comparator.naturalOrder()).orElse(null));
+        meta.setMaxMessageId(rows.stream().map(PushMessage::getMessageId)
+            .max(Comparator.naturalOrder()).orElse(null));
+        meta.setMinCreateTime(rows.stream().map(PushMessage::getCreateTime)
+            .min(Comparator.naturalOrder()).orElse(null));
+        meta.setMaxCreateTime(rows.stream().map(PushMessage::getCreateTime)
+            .max(Comparator.naturalOrder()).orElse(null));
+        meta.setArchivedTime(LocalDateTime.now());
+        writeAtomically(Path.of(base + META_SUFFIX), JSON.toJSONBytes(meta));
+        return meta;
+    }
+
+    private static void writeSegment(Path file, List<PushMessage> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] offsets = new long[ArchiveColumns.COLUMN_COUNT];
+        int[] lengths = new int[ArchiveColumns.COLUMN_COUNT];
+        int column = 0;
+
+        // id列：差值编码，连续id压缩后几乎不占空间
+        byte[] block = compress(data -> {
+            long previous = 0;
+            for (PushMessage row : rows) {
+                data.writeLong(row.getId() - previous);
+                previous = row.getId();
+            }
+        });
+        offsets[column] = out.size();
+        lengths[column++] = block.length;
+        out.write(block);
+
+        for (ArchiveColumns.TimeColumn timeColumn : ArchiveColumns.TIME_COLUMNS) {
+            block = compress(data -> {
+                for (PushMessage row : rows) {
+                    data.writeLong(toEpochMilli(timeColumn.getter().apply(row)));
+                }
+            });
+            offsets[column] = out.size();
+            lengths[column++] = block.length;
+            out.write(block);
+        }
+
+        for (ArchiveColumns.IntColumn intColumn : ArchiveColumns.INT_COLUMNS) {
+            block = compress(data -> {
+                for (PushMessage row : rows) {
+                    Integer value = intColumn.getter().apply(row);
+                    data.writeInt(value == null ? Integer.MIN_VALUE : value);
+                }
+            });
+            offsets[column] = out.size();
+            lengths[column++] = block.length;
+            out.write(block);
+        }
+
+        for (ArchiveColumns.StringColumn stringColumn : ArchiveColumns.STRING_COLUMNS) {
+            block = compress(data -> {
+                for (PushMessage row : rows) {
+                    String value = stringColumn.getter().apply(row);
+                    if (value == null) {
+                        data.writeInt(-1);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        data.writeInt(bytes.length);
+                        data.write(bytes);
+                    }
+                }
+            });
+            offsets[column] = out.size();
+            lengths[column++] = block.length;
+            out.write(block);
+        }
+
+        // 尾部：magic、版本、行数、列数、列偏移表，最后8字节为尾部起始位置
+        long footerOffset = out.size();
+        DataOutputStream footer = new DataOutputStream(out);
+        footer.writeInt(MAGIC);
+        footer.writeInt(VERSION);
+        footer.writeInt(rows.size());
+        footer.writeInt(ArchiveColumns.COLUMN_COUNT);
+        for (int i = 0; i < ArchiveColumns.COLUMN_COUNT; i++) {
+            footer.writeLong(offsets[i]);
+            footer.writeInt(lengths[i]);
+        }
+        footer.writeLong(footerOffset);
+        footer.flush();
+
+        writeAtomically(file, out.toByteArray());
+    }
+
+    private static void writeIndex(Path file, List<PushMessage> rows) throws IOException {
+        byte[][] keys = new byte[rows.size()][];
+        Integer[] order = new Integer[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            keys[i] = indexKey(rows.get(i).getMessageId());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + rows.size() * INDEX_ENTRY_LENGTH);
+        buffer.putInt(rows.size());
+        for (Integer row : order) {
+            buffer.put(keys[row]);
+            buffer.putInt(row);
+        }
+        writeAtomically(file, buffer.array());
+    }
+
+    /**
+     * message_id 转为定长索引键（UTF-8，右侧补0）
+     */
+    static byte[] indexKey(String messageId) {
+        byte[] bytes = messageId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > INDEX_KEY_LENGTH) {
+            throw new IllegalArgumentException("messageId过长: " + messageId);
+        }
+        return Arrays.copyOf(bytes, INDEX_KEY_LENGTH);
+    }
+
+    static long toEpochMilli(LocalDateTime time) {
+        return time == null ? Long.MIN_VALUE : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static byte[] compress(ColumnEncoder encoder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(bytes, 64 * 1024))) {
+            encoder.encode(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temp = Path.of(file + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = Channels.newOutputStream(channel)) {
+            out.write(content);
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 部分对象存储挂载不支持原子改名，meta最后写入仍可保证段完整性
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnEncoder {
+        void encode(DataOutputStream data) throws IOException;
+    }
+}
@@ -0,0 +1,408 @@
+package top.zhengru.unipush.core.archive;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.core.mapper.PushMessageMapper;
+import top.zhengru.unipush.core.service.MessageContentService;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * 消息冷归档服务
+ * 将超过阈值的push_message按(create_time, id)游标分页导出为列式压缩段文件，并支持按message_id回查。
+ * 回查先用内存中的每段布隆过滤器排除不可能包含的段，只对可能命中的段打开索引文件。
+ * 段元信息以归档目录为准：其他实例写入或清理段后，本实例在回查/归档前按间隔重新扫描目录
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessageArchiveService {
+
+    private static final String TABLE_DIR = "push_message";
+
+    private static final DateTimeFormatter MONTH_DIR = DateTimeFormatter.ofPattern("yyyy/MM");
+
+    @Autowired
+    private PushMessageMapper pushMessageMapper;
+
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    /**
+     * 归档根目录（本地磁盘或对象存储挂载路径，段文件相对路径即对象Key）
+     */
+    @Value("${push.archive.path:./archive}")
+    private String archivePath;
+
+    /**
+     * 每页读取行数
+     */
+    @Value("${push.archive.page-size:1000}")
+    private int pageSize;
+
+    /**
+     * 每个段文件的行数
+     */
+    @Value("${push.archive.segment-rows:50000}")
+    private int segmentRows;
+
+    /**
+     * 单次任务最多归档行数（避免长时间占用数据库）
+     */
+    @Value("${push.archive.max-rows-per-run:2000000}")
+    private int maxRowsPerRun;
+
+    /**
+     * 段写入成功后是否删除数据库中的对应行
+     */
+    @Value("${push.archive.delete-after-archive:true}")
+    private boolean deleteAfterArchive;
+
+    /**
+     * 每段message_id布隆过滤器的误判率（1%时每行约1.2字节内存）
+     */
+    @Value("${push.archive.filter-fpp:0.01}")
+    private double filterFpp;
+
+    /**
+     * 段元信息重新扫描间隔（秒），0表示每次回查都扫描
+     */
+    @Value("${push.archive.segment-reload-seconds:60}")
+    private long segmentReloadSeconds;
+
+    /**
+     * 归档段元信息（按maxCreateTime降序，新数据优先命中）
+     */
+    private final List<ArchiveSegmentMeta> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * 上次扫描目录的时间
+     */
+    private volatile long segmentsLoadedAt;
+
+    /**
+     * 段名称 → message_id布隆过滤器（首次回查时加载，写段时直接放入）
+     */
+    private final Map<String, ArchiveSegmentFilter> filters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadSegments() {
+        segmentsLoadedAt = System.currentTimeMillis();
+        Path root = Paths.get(archivePath, TABLE_DIR);
+        if (!Files.isDirectory(root)) {
+            segments.clear();
+            filters.clear();
+            return;
+        }
+
+        List<ArchiveSegmentMeta> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> file.getFileName().toString().endsWith(ArchiveSegmentWriter.META_SUFFIX))
+                .forEach(file -> {
+                    try {
+                        loaded.add(JSON.parseObject(Files.readAllBytes(file), ArchiveSegmentMeta.class));
+                    } catch (Exception e) {
+                        log.warn("归档段元信息读取失败, file: {}", file, e);
+                    }
+                });
+        } catch (IOException e) {
+            log.error("归档目录扫描失败, path: {}", root, e);
+        }
+
+        loaded.sort(Comparator.comparing(ArchiveSegmentMeta::getMaxCreateTime,
+            Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())).reversed());
+        segments.clear();
+        segments.addAll(loaded);
+        // 已被清理的段不再保留过滤器
+        filters.keySet().retainAll(loaded.stream().map(ArchiveSegmentMeta::getName).toList());
+        log.info("已加载归档段, count: {}", segments.size());
+    }
+
+    /**
+     * 距上次扫描超过 segment-reload-seconds 时重新扫描归档目录
+     */
+    private void refreshSegments() {
+        if (System.currentTimeMillis() - segmentsLoadedAt >= segmentReloadSeconds * 1000) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - segmentsLoadedAt >= segmentReloadSeconds * 1000) {
+                    loadSegments();
+                }
+            }
+        }
+    }
+
+    /**
+     * 归档创建时间早于指定时间的消息
+     * 按(create_time, id)从上次的游标继续分页；本次扫描到末尾（未因 max-rows-per-run 中断）时，水位推进到before
+     *
+     * @return 归档行数
+     */
+    public int archiveBefore(LocalDateTime before) {
+        // 归档与其他实例的清理可能交替进行，先以目录为准
+        loadSegments();
+
+        ArchiveCursor cursor = startCursor();
+        List<PushMessage> buffer = new ArrayList<>(segmentRows);
+        int archived = 0;
+        boolean drained = false;
+
+        while (archived + buffer.size() < maxRowsPerRun) {
+            int limit = Math.min(pageSize, maxRowsPerRun - archived - buffer.size());
+            LambdaQueryWrapper<PushMessage> wrapper = Wrappers.<PushMessage>lambdaQuery()
+                .lt(PushMessage::getCreateTime, before);
+            if (cursor != null) {
+                ArchiveCursor from = cursor;
+                wrapper.and(w -> w.gt(PushMessage::getCreateTime, from.createTime())
+                    .or(o -> o.eq(PushMessage::getCreateTime, from.createTime()).gt(PushMessage::getId, from.id())));
+            }
+            List<PushMessage> page = pushMessageMapper.selectList(wrapper
+                .orderByAsc(PushMessage::getCreateTime)
+                .orderByAsc(PushMessage::getId)
+                .last("LIMIT " + limit));
+            if (page.isEmpty()) {
+                drained = true;
+                break;
+            }
+
+            buffer.addAll(page);
+            PushMessage last = page.get(page.size() - 1);
+            cursor = new ArchiveCursor(last.getCreateTime(), last.getId());
+
+            if (buffer.size() >= segmentRows) {
+                archived += flush(buffer);
+            }
+            if (page.size() < limit) {
+                drained = true;
+                break;
+            }
+        }
+
+        if (!buffer.isEmpty()) {
+            archived += flush(buffer);
+        }
+        if (drained) {
+            redisUtils.set(RedisConstants.PUSH_ARCHIVE_WATERMARK_KEY, toEpochMilli(before));
+        }
+        return archived;
+    }
+
+    /**
+     * 本次归档的起始游标：取持久化游标与水位中较后者（水位之前的行已全部归档）
+     *
+     * @return 游标，从未归档过返回null
+     */
+    private ArchiveCursor startCursor() {
+        ArchiveCursor cursor = null;
+        Object value = redisUtils.get(RedisConstants.PUSH_ARCHIVE_CURSOR_KEY);
+        if (value != null) {
+            String[] parts = value.toString().split(":", 2);
+            cursor = new ArchiveCursor(toLocalDateTime(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        }
+        LocalDateTime watermark = getWatermark();
+        if (watermark != null && (cursor == null || watermark.isAfter(cursor.createTime()))) {
+            // 主键从1开始，id取0即包含create_time等于水位的行
+            cursor = new ArchiveCursor(watermark, 0L);
+        }
+        return cursor;
+    }
+
+    /**
+     * 归档水位：创建时间早于该时间的消息均已写入归档段
+     *
+     * @return 水位，从未完整归档过返回null
+     */
+    public LocalDateTime getWatermark() {
+        Object value = redisUtils.get(RedisConstants.PUSH_ARCHIVE_WATERMARK_KEY);
+        if (value == null) {
+            return null;
+        }
+        return toLocalDateTime(Long.parseLong(value.toString()));
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+
+    /**
+     * 写出一个段，成功后再删除数据库行（写失败时抛出异常，数据库保持原样）
+     */
+    private int flush(List<PushMessage> buffer) {
+        // 去重存储的正文内联进段文件，归档后不再依赖push_content（其行随后可被清理）
+        for (PushMessage pushMessage : buffer) {
+            if (pushMessage.getContent() == null && pushMessage.getContentHash() != null) {
+                pushMessage.setContent(messageContentService.resolve(pushMessage.getContentHash()));
+            }
+        }
+
+        PushMessage first = buffer.get(0);
+        PushMessage last = buffer.get(buffer.size() - 1);
+        String name = TABLE_DIR + "/" + first.getCreateTime().format(MONTH_DIR)
+            + "/seg-" + first.getId() + "-" + last.getId();
+
+        ArchiveSegmentMeta meta;
+        try {
+            meta = ArchiveSegmentWriter.write(Paths.get(archivePath), name, buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("归档段写入失败: " + name, e);
+        }
+        segments.add(0, meta);
+        cacheFilter(name, buffer.stream().map(PushMessage::getMessageId).toList());
+        // 段落盘后推进游标，此后中断或删除失败都不会重复归档这些行
+        redisUtils.set(RedisConstants.PUSH_ARCHIVE_CURSOR_KEY,
+            toEpochMilli(last.getCreateTime()) + ":" + last.getId());
+
+        if (deleteAfterArchive) {
+            List<Long> ids = buffer.stream().map(PushMessage::getId).toList();
+            for (int i = 0; i < ids.size(); i += pageSize) {
+                pushMessageMapper.deleteBatchIds(ids.subList(i, Math.min(i + pageSize, ids.size())));
+            }
+        }
+
+        int count = buffer.size();
+        buffer.clear();
+        log.info("归档段写入完成, segment: {}, rows: {}", name, count);
+        return count;
+    }
+
+    /**
+     * 按message_id回查归档
+     *
+     * @return 归档中的消息，不存在返回null
+     */
+    public PushMessage find(String messageId) {
+        refreshSegments();
+        Path root = Paths.get(archivePath);
+        for (ArchiveSegmentMeta meta : segments) {
+            // 时间有序ID可直接按范围排除
+            if (meta.getMinMessageId() != null
+                && (messageId.compareTo(meta.getMinMessageId()) < 0
+                || messageId.compareTo(meta.getMaxMessageId()) > 0)) {
+                continue;
+            }
+
+            ArchiveSegmentFilter filter = filterOf(meta.getName());
+            if (filter != null && !filter.mightContain(messageId)) {
+                continue;
+            }
+
+            try {
+                Path base = root.resolve(meta.getName());
+                int row = ArchiveSegmentReader.findRow(
+                    Paths.get(base + ArchiveSegmentWriter.INDEX_SUFFIX), messageId);
+                if (row >= 0) {
+                    return ArchiveSegmentReader.readRow(
+                        Paths.get(base + ArchiveSegmentWriter.SEGMENT_SUFFIX), row);
+                }
+            } catch (IOException e) {
+                log.error("归档段读取失败, segment: {}, messageId: {}", meta.getName(), messageId, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写段后直接由本批数据构建过滤器并落盘，无需回读索引
+     */
+    private void cacheFilter(String name, List<String> messageIds) {
+        ArchiveSegmentFilter filter = ArchiveSegmentFilter.build(messageIds, filterFpp);
+        filters.put(name, filter);
+        try {
+            filter.write(Paths.get(Paths.get(archivePath).resolve(name) + ArchiveSegmentWriter.FILTER_SUFFIX));
+        } catch (IOException e) {
+            // 过滤器文件可由索引重建，写失败不影响段本身
+            log.warn("归档段过滤器写入失败, segment: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 取段的过滤器：优先读过滤器文件，旧段没有时由索引重建并落盘
+     *
+     * @return 过滤器，加载失败返回null（退化为直接查索引）
+     */
+    private ArchiveSegmentFilter filterOf(String name) {
+        return filters.computeIfAbsent(name, key -> {
+            Path base = Paths.get(archivePath).resolve(key);
+            Path filterFile = Paths.get(base + ArchiveSegmentWriter.FILTER_SUFFIX);
+            try {
+                if (Files.exists(filterFile)) {
+                    return ArchiveSegmentFilter.read(filterFile);
+                }
+                ArchiveSegmentFilter filter = ArchiveSegmentFilter.fromIndex(
+                    Paths.get(base + ArchiveSegmentWriter.INDEX_SUFFIX), filterFpp);
+                filter.write(filterFile);
+                return filter;
+            } catch (IOException e) {
+                log.warn("归档段过滤器加载失败, segment: {}, error: {}", key, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 删除创建时间早于指定时间的归档段
+     *
+     * @return 删除的段数
+     */
+    public int purgeBefore(LocalDateTime before) {
+        refreshSegments();
+        Path root = Paths.get(archivePath);
+        int purged = 0;
+        for (ArchiveSegmentMeta meta : segments) {
+            if (meta.getMaxCreateTime() == null || !meta.getMaxCreateTime().isBefore(before)) {
+                continue;
+            }
+
+            Path base = root.resolve(meta.getName());
+            try {
+                // 先删meta，段即视为不存在
+                Files.deleteIfExists(Paths.get(base + ArchiveSegmentWriter.META_SUFFIX));
+                Files.deleteIfExists(Paths.get(base + ArchiveSegmentWriter.INDEX_SUFFIX));
+                Files.deleteIfExists(Paths.get(base + ArchiveSegmentWriter.SEGMENT_SUFFIX));
+                Files.deleteIfExists(Paths.get(base + ArchiveSegmentWriter.FILTER_SUFFIX));
+                segments.remove(meta);
+                filters.remove(meta.getName());
+                purged++;
+            } catch (IOException e) {
+                log.error("归档段删除失败, segment: {}", meta.getName(), e);
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * 归档游标：(create_time, id) 上已归档的最后一行
+     */
+    private record ArchiveCursor(LocalDateTime createTime, long id) {
+    }
+}
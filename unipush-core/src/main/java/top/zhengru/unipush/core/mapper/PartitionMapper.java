@@ -0,0 +1,92 @@
+package top.zhengru.unipush.core.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表分区维护Mapper
+ * 表名、分区名由调用方按白名单拼装，不接受外部输入
+ *
+ * @author zhengru
+ */
+@Mapper
+public interface PartitionMapper {
+
+    /**
+     * 查询表的分区名（按分区顺序）
+     *
+     * @param tableName 表名
+     * @return 分区名列表，未分区时为空
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{tableName} AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> listPartitions(@Param("tableName") String tableName);
+
+    /**
+     * 查询表的分区名与上界（PARTITION_DESCRIPTION，RANGE(TO_DAYS)分区为天数，兜底分区为MAXVALUE）
+     *
+     * @param tableName 表名
+     * @return 每个分区一行：name、description
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS description " +
+            "FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{tableName} AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<Map<String, Object>> listPartitionBounds(@Param("tableName") String tableName);
+
+    /**
+     * 拆分兜底分区 p_future，追加新分区（p_future 为空时仅修改元数据）
+     *
+     * @param tableName   表名
+     * @param definitions 新分区定义（需包含末尾的 p_future）
+     */
+    @Update("ALTER TABLE ${tableName} REORGANIZE PARTITION p_future INTO (${definitions})")
+    void reorganizeFuturePartition(@Param("tableName") String tableName,
+                                   @Param("definitions") String definitions);
+
+    /**
+     * 删除分区（O(1)，不产生逐行DELETE）
+     *
+     * @param tableName     表名
+     * @param partitionName 分区名
+     */
+    @Update("ALTER TABLE ${tableName} DROP PARTITION ${partitionName}")
+    void dropPartition(@Param("tableName") String tableName,
+                       @Param("partitionName") String partitionName);
+
+    /**
+     * 创建与源表结构一致的归档表
+     *
+     * @param archiveTable 归档表名
+     * @param tableName    源表名
+     */
+    @Update("CREATE TABLE IF NOT EXISTS ${archiveTable} LIKE ${tableName}")
+    void createArchiveTable(@Param("archiveTable") String archiveTable,
+                            @Param("tableName") String tableName);
+
+    /**
+     * 移除归档表的分区定义（EXCHANGE PARTITION 要求目标为非分区表）
+     *
+     * @param archiveTable 归档表名
+     */
+    @Update("ALTER TABLE ${archiveTable} REMOVE PARTITIONING")
+    void removePartitioning(@Param("archiveTable") String archiveTable);
+
+    /**
+     * 将分区与归档表交换（仅交换元数据）
+     *
+     * @param tableName     源表名
+     * @param partitionName 分区名
+     * @param archiveTable  归档表名
+     */
+    @Update("ALTER TABLE ${tableName} EXCHANGE PARTITION ${partitionName} WITH TABLE ${archiveTable}")
+    void exchangePartition(@Param("tableName") String tableName,
+                           @Param("partitionName") String partitionName,
+                           @Param("archiveTable") String archiveTable);
+}
@@ -0,0 +1,47 @@
+package top.zhengru.unipush.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import top.zhengru.unipush.common.model.entity.PushContent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息正文Mapper
+ *
+ * @author zhengru
+ */
+@Mapper
+public interface PushContentMapper extends BaseMapper<PushContent> {
+
+    /**
+     * 批量写入正文（多行INSERT，hash已存在时只刷新最近引用时间）
+     *
+     * @param list 正文列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO push_content (content_hash, content, content_length, create_time, last_ref_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.contentHash}, #{item.content}, #{item.contentLength}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE last_ref_time = VALUES(last_ref_time)" +
+            "</script>")
+    int upsertBatch(@Param("list") List<PushContent> list);
+
+    /**
+     * 删除一批长时间未被引用、且已没有消息引用的正文
+     *
+     * @param before 最近引用时间早于该时间
+     * @param limit  最多删除行数
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM push_content WHERE last_ref_time < #{before} " +
+            "AND NOT EXISTS (SELECT 1 FROM push_message m WHERE m.content_hash = push_content.content_hash) " +
+            "LIMIT #{limit}")
+    int deleteUnreferenced(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,34 @@
+package top.zhengru.unipush.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import top.zhengru.unipush.common.model.entity.PushLog;
+
+import java.util.List;
+
+/**
+ * 推送日志Mapper
+ *
+ * @author zhengru
+ */
+@Mapper
+public interface PushLogMapper extends BaseMapper<PushLog> {
+
+    /**
+     * 批量插入日志（多行INSERT，create_time使用事件发生时间）
+     *
+     * @param list 日志列表
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO push_log (message_id, channel_code, log_type, log_level, request_content, " +
+            "response_content, error_message, cost_time, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.messageId}, #{item.channelCode}, #{item.logType}, #{item.logLevel}, #{item.requestContent}, " +
+            "#{item.responseContent}, #{item.errorMessage}, #{item.costTime}, IFNULL(#{item.createTime}, NOW()))" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<PushLog> list);
+}
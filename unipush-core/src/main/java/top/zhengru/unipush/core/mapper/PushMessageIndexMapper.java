@@ -0,0 +1,69 @@
+package top.zhengru.unipush.core.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 消息ID索引Mapper（push_message_index，非分区表）
+ * push_message分区后唯一键包含create_time，由该表保证message_id全局唯一，并提供 message_id → create_time 定位
+ *
+ * @author zhengru
+ */
+@Mapper
+public interface PushMessageIndexMapper {
+
+    /**
+     * 批量登记消息ID（已存在时忽略）
+     *
+     * @param list 消息列表（取message_id、create_time）
+     * @return 实际插入行数
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO push_message_index (message_id, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.messageId}, #{item.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("list") List<PushMessage> list);
+
+    /**
+     * 批量查询登记的创建时间
+     *
+     * @param messageIds 消息ID
+     * @return 已登记的消息（只含message_id、create_time）
+     */
+    @Select("<script>" +
+            "SELECT message_id, create_time FROM push_message_index WHERE message_id IN " +
+            "<foreach collection='messageIds' item='messageId' open='(' separator=',' close=')'>" +
+            "#{messageId}" +
+            "</foreach>" +
+            "</script>")
+    List<PushMessage> selectByMessageIds(@Param("messageIds") Collection<String> messageIds);
+
+    /**
+     * 查询消息的创建时间
+     *
+     * @param messageId 消息ID
+     * @return 创建时间，未登记返回null
+     */
+    @Select("SELECT create_time FROM push_message_index WHERE message_id = #{messageId}")
+    LocalDateTime selectCreateTime(@Param("messageId") String messageId);
+
+    /**
+     * 删除一批创建时间早于指定时间的登记（对应分区已清理）
+     *
+     * @param before 创建时间上界
+     * @param limit  最多删除行数
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM push_message_index WHERE create_time < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,40 @@
+package top.zhengru.unipush.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import top.zhengru.unipush.common.model.entity.PushStatsMinute;
+
+import java.util.List;
+
+/**
+ * 投递统计分钟Mapper
+ *
+ * @author zhengru
+ */
+@Mapper
+public interface PushStatsMinuteMapper extends BaseMapper<PushStatsMinute> {
+
+    /**
+     * 批量写入统计行（同一实例同一分钟重复写入时覆盖，保证刷盘重试幂等）
+     *
+     * @param list 统计行
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO push_stats_minute (stat_minute, channel_code, topic, access_token_id, instance_id, " +
+            "success_count, failed_count, retry_count, latency_count, latency_sum, latency_max, " +
+            "latency_histogram, create_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.statMinute}, #{item.channelCode}, #{item.topic}, #{item.accessTokenId}, #{item.instanceId}, " +
+            "#{item.successCount}, #{item.failedCount}, #{item.retryCount}, #{item.latencyCount}, " +
+            "#{item.latencySum}, #{item.latencyMax}, #{item.latencyHistogram}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE success_count = VALUES(success_count), failed_count = VALUES(failed_count), " +
+            "retry_count = VALUES(retry_count), latency_count = VALUES(latency_count), " +
+            "latency_sum = VALUES(latency_sum), latency_max = VALUES(latency_max), " +
+            "latency_histogram = VALUES(latency_histogram)" +
+            "</script>")
+    int upsertBatch(@Param("list") List<PushStatsMinute> list);
+}
@@ -0,0 +1,346 @@
+package top.zhengru.unipush.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.KafkaConstants;
+import top.zhengru.unipush.common.constant.MetricConstants;
+import top.zhengru.unipush.common.enums.TraceStage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * core 服务监控指标
+ * <p>
+ * 所有 Timer/Counter 在启动时按有限的标签组合预注册，记录时只做 Map 查找和原子累加，
+ * 热路径上不构造 Tags、不分配对象。
+ *
+ * @author zhengru
+ */
+@Component
+public class CoreMetrics {
+
+    /**
+     * 投递结果状态（标签 status 的取值）
+     */
+    public static final String RESULT_SUCCESS = "success";
+
+    public static final String RESULT_RETRY = "retry";
+
+    public static final String RESULT_FAILED = "failed";
+
+    public static final String RESULT_EXPIRED = "expired";
+
+    private static final List<String> RESULT_STATUSES =
+        List.of(RESULT_SUCCESS, RESULT_RETRY, RESULT_FAILED, RESULT_EXPIRED);
+
+    /**
+     * 写入outbox的原因（标签 reason 的取值）：Kafka发送失败 / 发送失败后的分流窗口内直接写入
+     */
+    public static final String OUTBOX_REASON_SEND_ERROR = "send_error";
+
+    public static final String OUTBOX_REASON_DIVERTED = "diverted";
+
+    private static final List<String> KAFKA_TOPICS = List.of(KafkaConstants.TOPIC_DELIVERY,
+        KafkaConstants.TOPIC_DELIVERY_HIGH, KafkaConstants.TOPIC_DELIVERY_BULK, KafkaConstants.TOPIC_LOG);
+
+    /**
+     * Redis 操作（标签 op 的取值）
+     */
+    public enum RedisOp {
+        SET_MESSAGE("set_message"),
+        GET_MESSAGE("get_message"),
+        ADD_PERSIST_QUEUE("add_persist_queue");
+
+        private final String tag;
+
+        RedisOp(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Map<String, Timer> ingestSuccess;
+
+    private Map<String, Timer> ingestError;
+
+    private Map<String, Map<String, Counter>> results;
+
+    private Map<String, Timer> kafkaSendSuccess;
+
+    private Map<String, Timer> kafkaSendError;
+
+    private Timer[] redisOps;
+
+    private Timer persistSuccess;
+
+    private Timer persistError;
+
+    private Counter persistedMessages;
+
+    private Timer[] traceStages;
+
+    private Counter outboxSendError;
+
+    private Counter outboxDiverted;
+
+    private Counter outboxReplaySuccess;
+
+    private Counter outboxReplayError;
+
+    private Counter outboxLost;
+
+    private Counter scheduledDispatched;
+
+    @PostConstruct
+    public void init() {
+        ingestSuccess = channelTimers(MetricConstants.INGEST, MetricConstants.OUTCOME_SUCCESS);
+        ingestError = channelTimers(MetricConstants.INGEST, MetricConstants.OUTCOME_ERROR);
+
+        results = new HashMap<>();
+        for (String channel : channelsWithOther()) {
+            Map<String, Counter> byStatus = new HashMap<>();
+            for (String status : RESULT_STATUSES) {
+                byStatus.put(status, Counter.builder(MetricConstants.DELIVERY_RESULT)
+                    .description("投递结果处理数")
+                    .tag(MetricConstants.TAG_CHANNEL, channel)
+                    .tag(MetricConstants.TAG_STATUS, status)
+                    .register(meterRegistry));
+            }
+            results.put(channel, byStatus);
+        }
+
+        kafkaSendSuccess = new HashMap<>();
+        kafkaSendError = new HashMap<>();
+        for (String topic : KAFKA_TOPICS) {
+            kafkaSendSuccess.put(topic, kafkaTimer(topic, MetricConstants.OUTCOME_SUCCESS));
+            kafkaSendError.put(topic, kafkaTimer(topic, MetricConstants.OUTCOME_ERROR));
+        }
+
+        RedisOp[] ops = RedisOp.values();
+        redisOps = new Timer[ops.length];
+        for (RedisOp op : ops) {
+            redisOps[op.ordinal()] = Timer.builder(MetricConstants.REDIS_OP)
+                .description("Redis操作耗时")
+                .tag(MetricConstants.TAG_OP, op.tag)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(meterRegistry);
+        }
+
+        persistSuccess = persistTimer(MetricConstants.OUTCOME_SUCCESS);
+        persistError = persistTimer(MetricConstants.OUTCOME_ERROR);
+        persistedMessages = Counter.builder(MetricConstants.PERSIST_MESSAGES)
+            .description("已批量持久化的消息数")
+            .register(meterRegistry);
+
+        TraceStage[] stages = TraceStage.values();
+        traceStages = new Timer[stages.length];
+        // 第一个阶段没有前序阶段，不产生耗时
+        for (int i = 1; i < stages.length; i++) {
+            traceStages[i] = Timer.builder(MetricConstants.TRACE_STAGE)
+                .description("链路阶段耗时")
+                .tag(MetricConstants.TAG_STAGE, stages[i].getCode())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+        }
+
+        outboxSendError = outboxAppendCounter(OUTBOX_REASON_SEND_ERROR);
+        outboxDiverted = outboxAppendCounter(OUTBOX_REASON_DIVERTED);
+        outboxReplaySuccess = outboxReplayCounter(MetricConstants.OUTCOME_SUCCESS);
+        outboxReplayError = outboxReplayCounter(MetricConstants.OUTCOME_ERROR);
+        outboxLost = Counter.builder(MetricConstants.OUTBOX_LOST)
+            .description("发送失败且未能写入outbox的投递任务数")
+            .register(meterRegistry);
+        scheduledDispatched = Counter.builder(MetricConstants.SCHEDULE_DISPATCHED)
+            .description("到期投递的定时消息数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次创建推送任务
+     */
+    public void recordIngest(String channel, boolean success, long nanos) {
+        Map<String, Timer> timers = success ? ingestSuccess : ingestError;
+        byChannel(timers, channel).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次投递结果处理
+     *
+     * @param status {@link #RESULT_SUCCESS} / {@link #RESULT_RETRY} / {@link #RESULT_FAILED} / {@link #RESULT_EXPIRED}
+     */
+    public void recordResult(String channel, String status) {
+        byChannel(results, channel).get(status).increment();
+    }
+
+    /**
+     * 记录一次Kafka发送（从调用send到broker确认）
+     */
+    public void recordKafkaSend(String topic, boolean success, long nanos) {
+        Timer timer = (success ? kafkaSendSuccess : kafkaSendError).get(topic);
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录一次Redis操作
+     */
+    public void recordRedis(RedisOp op, long nanos) {
+        redisOps[op.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次批量持久化
+     */
+    public void recordPersist(boolean success, int count, long nanos) {
+        (success ? persistSuccess : persistError).record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            persistedMessages.increment(count);
+        }
+    }
+
+    /**
+     * 记录一个链路阶段的耗时（与前一阶段的时间差）
+     */
+    public void recordTraceStage(TraceStage stage, long costMillis) {
+        Timer timer = traceStages[stage.ordinal()];
+        if (timer != null) {
+            timer.record(costMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 注册持久化队列积压量（抓取时读取）
+     */
+    public void bindPersistQueueSize(Supplier<Number> size) {
+        Gauge.builder(MetricConstants.PERSIST_QUEUE_SIZE, size)
+            .description("待持久化的消息数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次写入outbox
+     *
+     * @param reason {@link #OUTBOX_REASON_SEND_ERROR} / {@link #OUTBOX_REASON_DIVERTED}
+     */
+    public void recordOutboxAppend(String reason) {
+        (OUTBOX_REASON_DIVERTED.equals(reason) ? outboxDiverted : outboxSendError).increment();
+    }
+
+    /**
+     * 记录一批outbox重放
+     */
+    public void recordOutboxReplay(int success, int error) {
+        outboxReplaySuccess.increment(success);
+        outboxReplayError.increment(error);
+    }
+
+    /**
+     * 记录一条丢失的投递任务
+     */
+    public void recordOutboxLost() {
+        outboxLost.increment();
+    }
+
+    /**
+     * 注册outbox积压量（抓取时读取）
+     */
+    public void bindOutboxSize(Supplier<Number> size) {
+        Gauge.builder(MetricConstants.OUTBOX_SIZE, size)
+            .description("outbox中待重放的投递任务数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一批到期投递的定时消息
+     */
+    public void recordScheduledDispatch(int count) {
+        scheduledDispatched.increment(count);
+    }
+
+    /**
+     * 注册时间轮中的定时消息数（抓取时读取）
+     */
+    public void bindScheduledWheelSize(Supplier<Number> size) {
+        Gauge.builder(MetricConstants.SCHEDULE_WHEEL_SIZE, size)
+            .description("已加载到时间轮、尚未到期的定时消息数")
+            .register(meterRegistry);
+    }
+
+    private Counter outboxAppendCounter(String reason) {
+        return Counter.builder(MetricConstants.OUTBOX_APPEND)
+            .description("写入outbox的投递任务数")
+            .tag(MetricConstants.TAG_REASON, reason)
+            .register(meterRegistry);
+    }
+
+    private Counter outboxReplayCounter(String outcome) {
+        return Counter.builder(MetricConstants.OUTBOX_REPLAY)
+            .description("outbox重放的投递任务数")
+            .tag(MetricConstants.TAG_OUTCOME, outcome)
+            .register(meterRegistry);
+    }
+
+    private Map<String, Timer> channelTimers(String name, String outcome) {
+        Map<String, Timer> timers = new HashMap<>();
+        for (String channel : channelsWithOther()) {
+            timers.put(channel, Timer.builder(name)
+                .tag(MetricConstants.TAG_CHANNEL, channel)
+                .tag(MetricConstants.TAG_OUTCOME, outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+        }
+        return timers;
+    }
+
+    private Timer kafkaTimer(String topic, String outcome) {
+        return Timer.builder(MetricConstants.KAFKA_SEND)
+            .description("Kafka发送确认耗时")
+            .tag(MetricConstants.TAG_TOPIC, topic)
+            .tag(MetricConstants.TAG_OUTCOME, outcome)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(meterRegistry);
+    }
+
+    private Timer persistTimer(String outcome) {
+        return Timer.builder(MetricConstants.PERSIST_BATCH)
+            .description("批量持久化耗时")
+            .tag(MetricConstants.TAG_OUTCOME, outcome)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(60))
+            .register(meterRegistry);
+    }
+
+    private static <T> T byChannel(Map<String, T> meters, String channel) {
+        T meter = channel != null ? meters.get(channel) : null;
+        return meter != null ? meter : meters.get(MetricConstants.CHANNEL_OTHER);
+    }
+
+    private static List<String> channelsWithOther() {
+        List<String> channels = new ArrayList<>(MetricConstants.CHANNELS);
+        channels.add(MetricConstants.CHANNEL_OTHER);
+        return channels;
+    }
+}
@@ -0,0 +1,72 @@
+package top.zhengru.unipush.core.mq;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.model.entity.PushLog;
+import top.zhengru.unipush.core.mapper.PushLogMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 投递日志Kafka消费者
+ * 批量消费unipush-log Topic，按批多行INSERT写入push_log
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class DeliveryLogConsumer {
+
+    @Autowired
+    private PushLogMapper pushLogMapper;
+
+    /**
+     * 单条INSERT的最大行数
+     */
+    @Value("${push.log.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    /**
+     * 批量消费投递日志
+     * 日志是尽力而为的：写库失败时记录错误并提交offset，不阻塞后续日志
+     *
+     * @param records 一次poll的记录
+     * @param ack 手动确认对象
+     */
+    @KafkaListener(
+        topics = "${kafka.topic.log:unipush-log}",
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "logBatchListenerContainerFactory"
+    )
+    public void consumeDeliveryLogs(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        List<PushLog> logs = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                logs.add(JSON.parseObject(record.value(), PushLog.class));
+            } catch (Exception e) {
+                log.warn("投递日志解析失败, offset: {}", record.offset());
+            }
+        }
+
+        for (int i = 0; i < logs.size(); i += insertBatchSize) {
+            List<PushLog> batch = logs.subList(i, Math.min(i + insertBatchSize, logs.size()));
+            try {
+                pushLogMapper.insertBatch(batch);
+            } catch (Exception e) {
+                log.error("投递日志写入失败，丢弃本批, count: {}", batch.size(), e);
+            }
+        }
+
+        if (ack != null) {
+            ack.acknowledge();
+        }
+        log.debug("投递日志批量写入完成, count: {}", logs.size());
+    }
+}
@@ -2,12 +2,20 @@ package top.zhengru.unipush.core.mq;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.TraceConstants;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
 import top.zhengru.unipush.core.service.PushMessageService;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * 投递结果Kafka消费者
  * 消费unipush-result Topic,更新消息状态
@@ -21,6 +29,9 @@ public class DeliveryResultConsumer {
     @Autowired
     private PushMessageService pushMessageService;
 
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
     /**
      * 消费投递结果
      * manualImmediate模式: 手动立即提交offset
@@ -36,8 +47,14 @@ public class DeliveryResultConsumer {
     public void consumeDeliveryResult(ConsumerRecord<String, String> record, Acknowledgment ack) {
         try {
             String message = record.value();
-            log.info("收到投递结果, topic: {}, partition: {}, offset: {}, key: {}",
-                record.topic(), record.partition(), record.offset(), record.key());
+            if (hotPathEventLog.isEnabled(HotPathStage.RESULT, Level.DEBUG)) {
+                hotPathEventLog.debug(HotPathStage.RESULT, "收到投递结果, topic: {}, partition: {}, offset: {}, key: {}",
+                    record.topic(), record.partition(), record.offset(), record.key());
+            }
+
+            // 还原webhook回传的链路上下文，供结果处理汇总各阶段耗时
+            TraceContext.setCurrent(TraceContext.restore(header(record, TraceConstants.TRACE_ID),
+                header(record, TraceConstants.TRACE_STAGES)));
 
             // 处理投递结果
             pushMessageService.handleDeliveryResult(message);
@@ -50,6 +67,13 @@ public class DeliveryResultConsumer {
         } catch (Exception e) {
             log.error("处理投递结果失败, offset: {}, 暂不提交offset等待重试", record.offset(), e);
             // 不提交offset,等待Kafka重新投递
+        } finally {
+            TraceContext.clearCurrent();
         }
     }
+
+    private static String header(ConsumerRecord<String, String> record, String key) {
+        Header header = record.headers().lastHeader(key);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
 }
@@ -1,16 +1,26 @@
 package top.zhengru.unipush.core.mq;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.TraceConstants;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.outbox.DeliveryOutbox;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 投递任务Kafka生产者
- * 负责发送投递任务到统一的 unipush-delivery Topic
+ * 负责发送投递任务到优先级对应的投递Topic
  *
  * @author zhengru
  */
@@ -21,32 +31,102 @@ public class DeliveryTaskProducer {
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    @Autowired
+    private DeliveryOutbox deliveryOutbox;
+
     /**
      * 发送投递任务到指定Topic
      *
-     * @param topic Topic名称（统一使用 unipush-delivery）
+     * @param topic Topic名称（见 MessagePriority#getTopic）
      * @param key 消息Key（messageId，保证同一消息发送到同一分区）
      * @param value 消息体（JSON字符串，包含channelCode等字段）
      */
     public void sendDeliveryTask(String topic, String key, String value) {
+        sendDeliveryTask(topic, key, value, null);
+    }
+
+    /**
+     * 发送投递任务，并把链路上下文写入record header
+     * 发送失败时转入outbox，由重放任务补发
+     *
+     * @param topic Topic名称
+     * @param key 消息Key
+     * @param value 消息体
+     * @param trace 链路上下文，为null时不写header
+     */
+    public void sendDeliveryTask(String topic, String key, String value, TraceContext trace) {
+        if (deliveryOutbox.isDiverting()) {
+            // Kafka近期发送失败，直接写入outbox，避免每次send()都阻塞到 max.block.ms
+            if (!deliveryOutbox.append(topic, key, value, trace, CoreMetrics.OUTBOX_REASON_DIVERTED)) {
+                throw new RuntimeException("Kafka不可用且写入outbox失败");
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        // send()立即失败时回调和异常都会触发，只转入outbox一次
+        AtomicBoolean outboxed = new AtomicBoolean();
         try {
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(topic, key, value);
+            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(buildRecord(topic, key, value, trace));
 
             future.whenComplete((result, ex) -> {
+                coreMetrics.recordKafkaSend(topic, ex == null, System.nanoTime() - start);
                 if (ex == null) {
-                    log.info("Kafka消息发送成功, topic: {}, key: {}, partition: {}, offset: {}",
-                        topic, key,
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset());
-                } else {
-                    log.error("Kafka消息发送失败, topic: {}, key: {}, error: {}",
-                        topic, key, ex.getMessage(), ex);
-                    // TODO: 考虑降级处理或补偿机制
+                    // 回调运行在Kafka生产者IO线程上，只做入队
+                    if (hotPathEventLog.isEnabled(HotPathStage.DISPATCH, Level.DEBUG)) {
+                        hotPathEventLog.debug(HotPathStage.DISPATCH, "Kafka消息发送成功, topic: {}, key: {}, partition: {}, offset: {}",
+                            topic, key,
+                            result.getRecordMetadata().partition(),
+                            result.getRecordMetadata().offset());
+                    }
+                } else if (outboxed.compareAndSet(false, true)) {
+                    log.error("Kafka消息发送失败, 转入outbox, topic: {}, key: {}, error: {}",
+                        topic, key, ex.getMessage());
+                    deliveryOutbox.markKafkaFailure();
+                    deliveryOutbox.appendAsync(topic, key, value, trace, CoreMetrics.OUTBOX_REASON_SEND_ERROR);
                 }
             });
         } catch (Exception e) {
-            log.error("Kafka发送异常, topic: {}, key: {}", topic, key, e);
-            throw new RuntimeException("Kafka发送失败", e);
+            if (!outboxed.compareAndSet(false, true)) {
+                return;
+            }
+            log.error("Kafka发送异常, 转入outbox, topic: {}, key: {}", topic, key, e);
+            deliveryOutbox.markKafkaFailure();
+            if (!deliveryOutbox.append(topic, key, value, trace, CoreMetrics.OUTBOX_REASON_SEND_ERROR)) {
+                throw new RuntimeException("Kafka发送失败", e);
+            }
+        }
+    }
+
+    /**
+     * 重放outbox中的投递任务（失败不再转入outbox，由调用方保留记录）
+     *
+     * @return 发送结果，send()同步抛出的异常也以失败的future返回
+     */
+    public CompletableFuture<SendResult<String, String>> replayDeliveryTask(String topic, String key, String value,
+                                                                          TraceContext trace) {
+        long start = System.nanoTime();
+        try {
+            return kafkaTemplate.send(buildRecord(topic, key, value, trace))
+                .whenComplete((result, ex) -> coreMetrics.recordKafkaSend(topic, ex == null, System.nanoTime() - start));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static ProducerRecord<String, String> buildRecord(String topic, String key, String value, TraceContext trace) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, value);
+        if (trace != null) {
+            record.headers()
+                .add(TraceConstants.TRACE_ID, trace.getTraceId().getBytes(StandardCharsets.UTF_8))
+                .add(TraceConstants.TRACE_STAGES, trace.encodeStages().getBytes(StandardCharsets.UTF_8));
         }
+        return record;
     }
 }
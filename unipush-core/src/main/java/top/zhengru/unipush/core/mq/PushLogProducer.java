@@ -0,0 +1,60 @@
+package top.zhengru.unipush.core.mq;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.KafkaConstants;
+import top.zhengru.unipush.common.model.entity.PushLog;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+
+import java.time.LocalDateTime;
+
+/**
+ * 推送日志Kafka生产者
+ * core侧事件（重试等）与webhook投递日志走同一条 unipush-log 管道，发送失败只记录不抛出
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class PushLogProducer {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Value("${push.log.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 发送推送日志
+     *
+     * @param pushLog 日志（createTime为空时取当前时间）
+     */
+    public void sendLog(PushLog pushLog) {
+        if (!enabled) {
+            return;
+        }
+        if (pushLog.getCreateTime() == null) {
+            pushLog.setCreateTime(LocalDateTime.now());
+        }
+
+        long start = System.nanoTime();
+        try {
+            kafkaTemplate.send(KafkaConstants.TOPIC_LOG, pushLog.getMessageId(), JSON.toJSONString(pushLog))
+                .whenComplete((result, ex) -> {
+                    coreMetrics.recordKafkaSend(KafkaConstants.TOPIC_LOG, ex == null, System.nanoTime() - start);
+                    if (ex != null) {
+                        log.warn("推送日志发送失败, messageId: {}, error: {}", pushLog.getMessageId(), ex.getMessage());
+                    }
+                });
+        } catch (Exception e) {
+            log.warn("推送日志发送异常, messageId: {}, error: {}", pushLog.getMessageId(), e.getMessage());
+        }
+    }
+}
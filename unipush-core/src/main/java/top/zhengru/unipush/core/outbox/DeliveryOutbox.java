@@ -0,0 +1,253 @@
+package top.zhengru.unipush.core.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 投递任务outbox
+ * <p>
+ * Kafka发送失败的投递任务写入Redis Stream（push:outbox），由 OutboxReplayTask 在Kafka恢复后补发，
+ * 消息不会停留在PENDING状态而无人投递。
+ * <ul>
+ *     <li>发送失败回调运行在Kafka生产者IO线程上，写outbox交给单线程执行，等待队列有上限，超出记为丢失；</li>
+ *     <li>发送失败后的一段时间内（divert-millis）新任务直接写入outbox，不再逐条阻塞在Kafka上；</li>
+ *     <li>积压达到上限（max-backlog）时拒绝新的推送请求，向api施加背压。</li>
+ * </ul>
+ * 重放是至少一次语义：补发成功后删除记录前进程退出，会重复投递一次。
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class DeliveryOutbox {
+
+    private static final String FIELD_TOPIC = "topic";
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_VALUE = "value";
+    private static final String FIELD_TRACE_ID = "traceId";
+    private static final String FIELD_TRACE_STAGES = "traceStages";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Value("${push.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${push.outbox.max-backlog:100000}")
+    private long maxBacklog;
+
+    @Value("${push.outbox.pending-capacity:10000}")
+    private int pendingCapacity;
+
+    @Value("${push.outbox.divert-millis:5000}")
+    private long divertMillis;
+
+    /**
+     * 积压量：重放任务定期以XLEN校准，期间按本实例写入累加
+     */
+    private final AtomicLong backlog = new AtomicLong();
+
+    private volatile long divertUntil;
+
+    private ThreadPoolExecutor appender;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        appender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(pendingCapacity), r -> {
+                Thread thread = new Thread(r, "outbox-appender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        refreshBacklog();
+        coreMetrics.bindOutboxSize(backlog::get);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (appender == null) {
+            return;
+        }
+        appender.shutdown();
+        try {
+            if (!appender.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.error("outbox写入未完成即关闭, 丢弃数量: {}", appender.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否处于分流窗口（Kafka近期发送失败，新任务直接写入outbox）
+     */
+    public boolean isDiverting() {
+        return enabled && System.currentTimeMillis() < divertUntil;
+    }
+
+    /**
+     * 积压是否已达上限（达到后应拒绝新的推送请求）
+     */
+    public boolean isOverloaded() {
+        return enabled && backlog.get() >= maxBacklog;
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Kafka发送失败，开启分流窗口
+     */
+    public void markKafkaFailure() {
+        if (enabled) {
+            divertUntil = System.currentTimeMillis() + divertMillis;
+        }
+    }
+
+    /**
+     * Kafka已恢复（重放成功），关闭分流窗口
+     */
+    public void markKafkaRecovered() {
+        divertUntil = 0;
+    }
+
+    /**
+     * 在调用线程写入outbox
+     *
+     * @param reason 写入原因（CoreMetrics.OUTBOX_REASON_*）
+     * @return 是否写入成功，未开启或Redis写入失败时返回false
+     */
+    public boolean append(String topic, String key, String value, TraceContext trace, String reason) {
+        if (!enabled) {
+            return false;
+        }
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_TOPIC, topic);
+        fields.put(FIELD_KEY, key);
+        fields.put(FIELD_VALUE, value);
+        if (trace != null) {
+            fields.put(FIELD_TRACE_ID, trace.getTraceId());
+            fields.put(FIELD_TRACE_STAGES, trace.encodeStages());
+        }
+        try {
+            redisUtils.addToOutbox(fields);
+            backlog.incrementAndGet();
+            coreMetrics.recordOutboxAppend(reason);
+            return true;
+        } catch (Exception e) {
+            log.error("投递任务写入outbox失败, topic: {}, key: {}", topic, key, e);
+            return false;
+        }
+    }
+
+    /**
+     * 交给后台线程写入outbox（用于Kafka回调线程，不在IO线程上访问Redis）
+     */
+    public void appendAsync(String topic, String key, String value, TraceContext trace, String reason) {
+        if (!enabled) {
+            coreMetrics.recordOutboxLost();
+            return;
+        }
+        try {
+            appender.execute(() -> {
+                if (!append(topic, key, value, trace, reason)) {
+                    coreMetrics.recordOutboxLost();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            coreMetrics.recordOutboxLost();
+            log.error("outbox等待队列已满, 投递任务丢失, topic: {}, key: {}", topic, key);
+        }
+    }
+
+    /**
+     * 按写入顺序读取最早的记录（不删除）
+     */
+    public List<Entry> peek(int count) {
+        List<MapRecord<String, Object, Object>> records = redisUtils.rangeOutbox(count);
+        List<Entry> entries = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> fields = record.getValue();
+            entries.add(new Entry(record.getId(),
+                (String) fields.get(FIELD_TOPIC),
+                (String) fields.get(FIELD_KEY),
+                (String) fields.get(FIELD_VALUE),
+                TraceContext.restore((String) fields.get(FIELD_TRACE_ID), (String) fields.get(FIELD_TRACE_STAGES))));
+        }
+        return entries;
+    }
+
+    /**
+     * 删除已补发的记录
+     */
+    public void remove(List<RecordId> recordIds) {
+        if (recordIds.isEmpty()) {
+            return;
+        }
+        redisUtils.removeFromOutbox(recordIds.toArray(new RecordId[0]));
+        backlog.addAndGet(-recordIds.size());
+    }
+
+    /**
+     * 以XLEN校准积压量（包含其他实例写入的记录）
+     */
+    public void refreshBacklog() {
+        try {
+            backlog.set(redisUtils.getOutboxSize());
+        } catch (Exception e) {
+            log.warn("读取outbox积压量失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * outbox中的一条投递任务
+     */
+    @Getter
+    public static class Entry {
+
+        private final RecordId recordId;
+        private final String topic;
+        private final String key;
+        private final String value;
+        private final TraceContext trace;
+
+        Entry(RecordId recordId, String topic, String key, String value, TraceContext trace) {
+            this.recordId = recordId;
+            this.topic = topic;
+            this.key = key;
+            this.value = value;
+            this.trace = trace;
+        }
+    }
+}
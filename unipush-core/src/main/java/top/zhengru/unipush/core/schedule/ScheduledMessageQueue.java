@@ -0,0 +1,313 @@
+package top.zhengru.unipush.core.schedule;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时消息队列
+ * <p>
+ * 持久层：Redis按计划发送时间的分钟分桶（push:schedule:{epochMinute}），写入只追加到一个小桶，
+ * 与待发送消息总量无关；内存层：即将到期的桶由认领到的实例整桶加载进分层时间轮，
+ * 到期时由时间轮按刻度批量取出，不对单条消息轮询。
+ * <p>
+ * 已被加载（认领）的桶再有新消息写入时，写入方直接放入自己的时间轮。
+ * 取出时逐条ZREM，只有删除成功的实例才投递，因此重复加载不会重复投递；
+ * 认领过期后桶内剩余的消息（如实例宕机）会被重新加载。
+ * 加载范围的起点取回溯窗口与持久化水位（push:schedule-watermark）中较早者，水位只推进到仍有剩余的最早一个桶，
+ * 所有实例停机超过回溯分钟数后，更早的桶也不会被遗漏。
+ * <p>
+ * 取走的消息同时记入待确认集合（push:schedule-inflight），投递成功后确认；
+ * 投递失败或超过确认期限仍未确认（取走后实例宕机）的，放回下一个未被认领的分钟桶，
+ * 不放回已认领的桶（要等认领过期才会重新加载）。重复放回由投递前的状态检查去重。
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class ScheduledMessageQueue {
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    /**
+     * 时间轮刻度（毫秒），即定时发送的精度
+     */
+    @Value("${push.schedule.tick-millis:100}")
+    private long tickMillis;
+
+    @Value("${push.schedule.wheel-size:64}")
+    private int wheelSize;
+
+    /**
+     * 提前加载的分钟数
+     */
+    @Value("${push.schedule.preload-minutes:2}")
+    private int preloadMinutes;
+
+    /**
+     * 回溯检查的分钟数（需大于认领有效期，宕机实例的剩余消息才能被接管；更早的剩余桶由水位兜底）
+     */
+    @Value("${push.schedule.catch-up-minutes:15}")
+    private int catchUpMinutes;
+
+    @Value("${push.schedule.claim-seconds:600}")
+    private long claimSeconds;
+
+    /**
+     * 取走后的确认期限（秒），需大于一批消息的投递耗时
+     */
+    @Value("${push.schedule.inflight-seconds:60}")
+    private long inflightSeconds;
+
+    /**
+     * 加载分钟桶时每页读取的条数
+     */
+    @Value("${push.schedule.load-page-size:5000}")
+    private int loadPageSize;
+
+    private final String instanceId;
+
+    private TimingWheel<Item> wheel;
+
+    /**
+     * 已到期但尚未取出的（加入时已到期）
+     */
+    private List<Item> ready = new ArrayList<>();
+
+    /**
+     * 本实例已认领的桶 -> 认领到期时间
+     */
+    private final Map<Long, Long> claimedMinutes = new ConcurrentHashMap<>();
+
+    public ScheduledMessageQueue() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        this.instanceId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        coreMetrics.bindScheduledWheelSize(this::inMemorySize);
+    }
+
+    /**
+     * 加入一条定时消息
+     *
+     * @param messageId 消息ID
+     * @param sendAt    计划发送时间（epoch毫秒）
+     */
+    public void add(String messageId, long sendAt) {
+        long minute = sendAt / MINUTE_MILLIS;
+        redisUtils.addToScheduleBucket(minute, messageId, sendAt);
+        // 先写桶再检查认领：未认领时加载方一定在认领之后读桶，能读到这条
+        if (claimedMinutes.containsKey(minute) || redisUtils.isScheduleBucketClaimed(minute)) {
+            addLocal(new Item(messageId, minute), sendAt);
+        }
+    }
+
+    /**
+     * 认领并加载即将到期的分钟桶（由调度线程调用）
+     */
+    public void load() {
+        long now = System.currentTimeMillis();
+        long currentMinute = now / MINUTE_MILLIS;
+        claimedMinutes.values().removeIf(expireAt -> expireAt < now);
+        recoverInflight(now);
+
+        long windowStart = currentMinute - catchUpMinutes;
+        Long watermark = getWatermark();
+        long oldestRemaining = windowStart;
+        for (long minute = watermark != null ? Math.min(watermark, windowStart) : windowStart;
+             minute <= currentMinute + preloadMinutes; minute++) {
+            if (minute < windowStart) {
+                // 回溯窗口之前的桶只会被取空，不会再有新写入
+                if (!redisUtils.hasScheduleBucket(minute)) {
+                    continue;
+                }
+                oldestRemaining = Math.min(oldestRemaining, minute);
+                if (claimedMinutes.containsKey(minute)) {
+                    continue;
+                }
+            } else if (claimedMinutes.containsKey(minute) || !redisUtils.hasScheduleBucket(minute)) {
+                continue;
+            }
+            if (!redisUtils.claimScheduleBucket(minute, instanceId, claimSeconds)) {
+                continue;
+            }
+            claimedMinutes.put(minute, now + TimeUnit.SECONDS.toMillis(claimSeconds));
+            int loaded = loadBucket(minute);
+            log.info("加载定时消息分钟桶, minute: {}, count: {}", minute, loaded);
+        }
+
+        // 水位推进到仍有剩余的最早一个桶（都已取空则推进到回溯窗口起点）
+        if (watermark == null || oldestRemaining > watermark) {
+            redisUtils.set(RedisConstants.PUSH_SCHEDULE_WATERMARK_KEY, oldestRemaining);
+        }
+    }
+
+    /**
+     * 分钟桶水位：早于该分钟的桶均已取空
+     *
+     * @return 水位（epoch分钟），从未加载过返回null
+     */
+    private Long getWatermark() {
+        Object value = redisUtils.get(RedisConstants.PUSH_SCHEDULE_WATERMARK_KEY);
+        return value != null ? Long.parseLong(value.toString()) : null;
+    }
+
+    /**
+     * 找回超过确认期限的消息
+     */
+    private void recoverInflight(long now) {
+        List<String> expired = redisUtils.takeExpiredScheduleInflight(now, loadPageSize);
+        for (String messageId : expired) {
+            requeue(messageId, now);
+        }
+        if (!expired.isEmpty()) {
+            log.warn("定时消息超过确认期限未投递, 放回分钟桶, count: {}", expired.size());
+        }
+    }
+
+    private int loadBucket(long minute) {
+        int loaded = 0;
+        for (long start = 0; ; start += loadPageSize) {
+            Set<ZSetOperations.TypedTuple<Object>> page =
+                redisUtils.rangeScheduleBucket(minute, start, start + loadPageSize - 1);
+            for (ZSetOperations.TypedTuple<Object> tuple : page) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    addLocal(new Item(tuple.getValue().toString(), minute), tuple.getScore().longValue());
+                    loaded++;
+                }
+            }
+            if (page.size() < loadPageSize) {
+                return loaded;
+            }
+        }
+    }
+
+    private synchronized void addLocal(Item item, long sendAt) {
+        if (!wheel.add(sendAt, item)) {
+            ready.add(item);
+        }
+    }
+
+    /**
+     * 推进时间轮并取走到期的消息（由调度线程调用）
+     *
+     * @return 本实例取走、应当投递的消息ID
+     */
+    public List<String> poll() {
+        List<Item> due;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            due = ready;
+            ready = new ArrayList<>();
+            wheel.advance(now, due);
+        }
+        if (due.isEmpty()) {
+            return List.of();
+        }
+
+        long[] minutes = new long[due.size()];
+        List<String> messageIds = new ArrayList<>(due.size());
+        for (int i = 0; i < due.size(); i++) {
+            minutes[i] = due.get(i).minute;
+            messageIds.add(due.get(i).messageId);
+        }
+        boolean[] taken = redisUtils.takeFromScheduleBuckets(minutes, messageIds,
+            now + TimeUnit.SECONDS.toMillis(inflightSeconds));
+        Iterator<String> iterator = messageIds.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            iterator.next();
+            if (!taken[i]) {
+                // 已被其他实例或之前的加载取走
+                iterator.remove();
+            }
+        }
+        return messageIds;
+    }
+
+    /**
+     * 确认一批消息已投递
+     */
+    public void ack(List<String> messageIds) {
+        redisUtils.ackScheduleInflight(messageIds);
+    }
+
+    /**
+     * 放回未能投递的消息（放入下一个未被认领的分钟桶，由加载该桶的实例重新投递）
+     */
+    public void putBack(String messageId) {
+        requeue(messageId, System.currentTimeMillis());
+        redisUtils.ackScheduleInflight(List.of(messageId));
+    }
+
+    private void requeue(String messageId, long now) {
+        long minute = nextUnclaimedMinute(now / MINUTE_MILLIS);
+        redisUtils.addToScheduleBucket(minute, messageId, now);
+        // 与add相同：写桶后该桶恰好被认领时，加载方可能已读完桶
+        if (claimedMinutes.containsKey(minute) || redisUtils.isScheduleBucketClaimed(minute)) {
+            addLocal(new Item(messageId, minute), now);
+        }
+    }
+
+    /**
+     * 当前分钟之后第一个未被认领的桶（计划发送时间记为放回时刻，加载后立即到期）
+     * 回溯分钟数内都已被认领时放入其后的桶：该桶晚于水位，进入预加载范围后照常加载
+     */
+    private long nextUnclaimedMinute(long currentMinute) {
+        long minute = currentMinute + 1;
+        for (; minute <= currentMinute + catchUpMinutes; minute++) {
+            if (!claimedMinutes.containsKey(minute) && !redisUtils.isScheduleBucketClaimed(minute)) {
+                return minute;
+            }
+        }
+        return minute;
+    }
+
+    private synchronized int inMemorySize() {
+        return wheel.size() + ready.size();
+    }
+
+    /**
+     * 时间轮中的一条定时消息
+     */
+    private static final class Item {
+
+        final String messageId;
+
+        final long minute;
+
+        Item(String messageId, long minute) {
+            this.messageId = messageId;
+            this.minute = minute;
+        }
+    }
+}
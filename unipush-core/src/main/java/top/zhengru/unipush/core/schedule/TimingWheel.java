@@ -0,0 +1,170 @@
+package top.zhengru.unipush.core.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 每层 wheelSize 个槽，第0层每槽 tickMillis，上一层的一个槽覆盖下一层转一整圈的时间，层数按需增加。
+ * 插入时按到期时间直接放入能容纳它的最低一层的槽，O(1)；时钟每走一格只取出一个槽，
+ * 上层的槽在时钟走到该槽起点时整体下沉到下层（重新放置），不逐条轮询。
+ * 元素在到期时间之后的第一个刻度取出，误差不超过一格。
+ * <p>
+ * 非线程安全，由调用方加锁。
+ *
+ * @param <T> 元素类型
+ * @author zhengru
+ */
+public final class TimingWheel<T> {
+
+    private final int wheelSize;
+
+    private final List<Level<T>> levels = new ArrayList<>();
+
+    private int size;
+
+    /**
+     * @param tickMillis 第0层每槽时长（毫秒）
+     * @param wheelSize  每层槽数
+     * @param startTime  起始时间（epoch毫秒）
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+        this.wheelSize = Math.max(wheelSize, 2);
+        long tick = Math.max(tickMillis, 1);
+        levels.add(new Level<>(tick, this.wheelSize, startTime - startTime % tick));
+    }
+
+    /**
+     * 加入一个元素
+     *
+     * @param deadline 到期时间（epoch毫秒）
+     * @return false=已经到期（早于当前刻度），未加入，由调用方直接处理
+     */
+    public boolean add(long deadline, T value) {
+        if (!place(new Entry<>(deadline, value))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 时钟推进到now，取出所有已到期的元素
+     *
+     * @param now 当前时间（epoch毫秒）
+     * @param due 到期元素输出
+     */
+    public void advance(long now, List<T> due) {
+        Level<T> bottom = levels.get(0);
+        while (bottom.currentTime + bottom.tickMillis <= now) {
+            long time = bottom.currentTime + bottom.tickMillis;
+            for (Level<T> level : levels) {
+                level.currentTime = time - time % level.tickMillis;
+            }
+            // 第0层：取出上一格（到期时间已全部早于time），先于下沉，避免下沉的元素落入同一槽位
+            List<Entry<T>> expired = bottom.take(time / bottom.tickMillis - 1);
+            if (expired != null) {
+                for (Entry<T> entry : expired) {
+                    due.add(entry.value);
+                }
+                size -= expired.size();
+            }
+            // 上层从高到低：时钟走到槽的起点时整体下沉
+            for (int i = levels.size() - 1; i >= 1; i--) {
+                Level<T> level = levels.get(i);
+                if (time % level.tickMillis == 0) {
+                    List<Entry<T>> sinking = level.take(time / level.tickMillis);
+                    if (sinking != null) {
+                        for (Entry<T> entry : sinking) {
+                            if (!place(entry)) {
+                                due.add(entry.value);
+                                size--;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的元素数
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean place(Entry<T> entry) {
+        Level<T> bottom = levels.get(0);
+        if (entry.deadline < bottom.currentTime) {
+            return false;
+        }
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                Level<T> below = levels.get(i - 1);
+                long tick = below.tickMillis * wheelSize;
+                levels.add(new Level<>(tick, wheelSize, bottom.currentTime - bottom.currentTime % tick));
+            }
+            Level<T> level = levels.get(i);
+            if (entry.deadline < level.currentTime + level.interval) {
+                level.put(entry.deadline / level.tickMillis, entry);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 一层时间轮
+     */
+    private static final class Level<T> {
+
+        final long tickMillis;
+
+        final long interval;
+
+        final List<Entry<T>>[] slots;
+
+        /**
+         * 当前刻度（对齐到 tickMillis）
+         */
+        long currentTime;
+
+        @SuppressWarnings("unchecked")
+        Level(long tickMillis, int wheelSize, long currentTime) {
+            this.tickMillis = tickMillis;
+            this.interval = tickMillis * wheelSize;
+            this.slots = new List[wheelSize];
+            this.currentTime = currentTime;
+        }
+
+        void put(long virtualSlot, Entry<T> entry) {
+            int index = (int) (virtualSlot % slots.length);
+            List<Entry<T>> slot = slots[index];
+            if (slot == null) {
+                slot = new ArrayList<>();
+                slots[index] = slot;
+            }
+            slot.add(entry);
+        }
+
+        List<Entry<T>> take(long virtualSlot) {
+            int index = (int) (virtualSlot % slots.length);
+            List<Entry<T>> slot = slots[index];
+            slots[index] = null;
+            return slot;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        final long deadline;
+
+        final T value;
+
+        Entry(long deadline, T value) {
+            this.deadline = deadline;
+            this.value = value;
+        }
+    }
+}
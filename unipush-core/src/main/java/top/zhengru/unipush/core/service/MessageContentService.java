@@ -0,0 +1,227 @@
+package top.zhengru.unipush.core.service;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.model.entity.PushContent;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.core.mapper.PushContentMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息正文去重存储服务
+ * 大正文按SHA-256内容寻址存储（hash → body），消息与投递任务只携带contentHash，
+ * 同一正文通过多个渠道/目标广播时，Redis、Kafka和数据库都只保存一份
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessageContentService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PushContentMapper pushContentMapper;
+
+    @Value("${push.content.dedup.enabled:true}")
+    private boolean dedupEnabled;
+
+    /**
+     * 正文长度（字符数）达到该阈值才做去重存储，小正文直接内联
+     */
+    @Value("${push.content.dedup.min-length:1024}")
+    private int minLength;
+
+    /**
+     * 本地正文缓存上限（按字符数计）
+     */
+    @Value("${push.content.cache.max-weight:33554432}")
+    private long cacheMaxWeight;
+
+    /**
+     * 正文在Redis中的过期时间（秒）
+     * 比消息的7天多1天，且本地1小时内不重复续期，保证引用它的消息总是先过期
+     */
+    private static final long CONTENT_EXPIRE_SECONDS = 8 * 24 * 3600;
+
+    /**
+     * 最近已写入/续期过的hash（1小时内重复引用不再访问Redis）
+     */
+    private Cache<String, Boolean> refreshedHashes;
+
+    /**
+     * 已落库的hash（避免每次持久化都重复INSERT IGNORE）
+     */
+    private Cache<String, Boolean> persistedHashes;
+
+    /**
+     * 正文本地缓存
+     */
+    private Cache<String, String> contentCache;
+
+    @PostConstruct
+    public void init() {
+        refreshedHashes = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+        persistedHashes = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+        contentCache = Caffeine.newBuilder()
+            .maximumWeight(cacheMaxWeight)
+            .weigher((String hash, String content) -> content.length())
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+    }
+
+    /**
+     * 对消息正文做去重存储
+     * 满足条件时把正文写入 push:content:{hash}，并将消息改为只携带contentHash
+     *
+     * @param pushMessage 推送消息
+     */
+    public void dedup(PushMessage pushMessage) {
+        String content = pushMessage.getContent();
+        if (!dedupEnabled || content == null || content.length() < minLength) {
+            return;
+        }
+
+        String contentHash = DigestUtil.sha256Hex(content);
+        if (refreshedHashes.getIfPresent(contentHash) == null) {
+            String key = RedisConstants.PUSH_CONTENT_KEY + contentHash;
+            // 已存在时只续期，不重复传输正文
+            Boolean exists = stringRedisTemplate.expire(key, CONTENT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(exists)) {
+                stringRedisTemplate.opsForValue().set(key, content, CONTENT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            }
+            refreshedHashes.put(contentHash, Boolean.TRUE);
+        }
+        contentCache.put(contentHash, content);
+
+        pushMessage.setContentHash(contentHash);
+        pushMessage.setContent(null);
+    }
+
+    /**
+     * 获取消息的完整正文（去重存储的消息按contentHash还原）
+     *
+     * @param pushMessage 推送消息
+     * @return 正文内容
+     */
+    public String getContent(PushMessage pushMessage) {
+        if (pushMessage.getContent() == null && pushMessage.getContentHash() != null) {
+            return resolve(pushMessage.getContentHash());
+        }
+        return pushMessage.getContent();
+    }
+
+    /**
+     * 根据hash还原正文：本地缓存 → Redis → 数据库
+     *
+     * @param contentHash 正文哈希
+     * @return 正文内容，不存在时返回null
+     */
+    public String resolve(String contentHash) {
+        return contentCache.get(contentHash, this::loadContent);
+    }
+
+    /**
+     * 还原Redis中已不存在的正文（worker回报正文缺失时调用）
+     * 从数据库读到后重新写回Redis，同一正文的其他投递任务可直接命中
+     *
+     * @param contentHash 正文哈希
+     * @return 正文内容，数据库中也不存在时返回null
+     */
+    public String restore(String contentHash) {
+        String content = resolve(contentHash);
+        if (content != null) {
+            stringRedisTemplate.opsForValue().set(RedisConstants.PUSH_CONTENT_KEY + contentHash,
+                content, CONTENT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            refreshedHashes.put(contentHash, Boolean.TRUE);
+        }
+        return content;
+    }
+
+    /**
+     * 将批次中引用的正文写入push_content表（须在消息落库前调用）
+     * 已存在的行只刷新last_ref_time，本地1天内不重复刷新；清理任务据此判断正文是否仍在使用
+     *
+     * @param batch 待持久化的消息
+     */
+    public void persistContents(List<PushMessage> batch) {
+        Map<String, PushContent> pending = new LinkedHashMap<>();
+        for (PushMessage pushMessage : batch) {
+            String contentHash = pushMessage.getContentHash();
+            if (contentHash == null || pending.containsKey(contentHash)
+                || persistedHashes.getIfPresent(contentHash) != null) {
+                continue;
+            }
+
+            String content = resolve(contentHash);
+            if (content == null) {
+                log.warn("消息正文不存在, messageId: {}, contentHash: {}",
+                    pushMessage.getMessageId(), contentHash);
+                continue;
+            }
+
+            PushContent pushContent = new PushContent();
+            pushContent.setContentHash(contentHash);
+            pushContent.setContent(content);
+            pushContent.setContentLength(content.length());
+            pending.put(contentHash, pushContent);
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        pushContentMapper.upsertBatch(new ArrayList<>(pending.values()));
+        pending.keySet().forEach(contentHash -> persistedHashes.put(contentHash, Boolean.TRUE));
+    }
+
+    private String loadContent(String contentHash) {
+        String content = stringRedisTemplate.opsForValue().get(RedisConstants.PUSH_CONTENT_KEY + contentHash);
+        if (content == null) {
+            PushContent pushContent = pushContentMapper.selectById(contentHash);
+            content = pushContent != null ? pushContent.getContent() : null;
+        }
+        return content;
+    }
+
+    /**
+     * 清理不再被引用的正文
+     * 只删除 last_ref_time 早于指定时间、且push_message中已没有消息引用的行；
+     * 消息被分区删除或归档（归档段内联了正文）后，其正文随之可清理
+     *
+     * @param before    last_ref_time早于该时间
+     * @param batchSize 每批删除行数
+     * @return 删除行数
+     */
+    public int purgeUnreferenced(LocalDateTime before, int batchSize) {
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = pushContentMapper.deleteUnreferenced(before, batchSize);
+            purged += deleted;
+        } while (deleted >= batchSize);
+        return purged;
+    }
+}
@@ -0,0 +1,155 @@
+package top.zhengru.unipush.core.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.util.SnowflakeIdUtils;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息ID生成器
+ * 基于雪花算法生成时间有序的消息ID，uk_message_id 按顺序追加写入；
+ * 10位机器号（数据中心5位 + 机器5位）通过Redis SETNX 占用并定期续期，避免多实例冲突
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class MessageIdGenerator {
+
+    /**
+     * 机器号总数（2^10）
+     */
+    private static final int WORKER_SLOTS = 1024;
+
+    /**
+     * 仅当机器号仍由本实例持有时续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    /**
+     * 固定机器号（0~1023），-1 表示通过Redis自动分配
+     */
+    @Value("${push.id.worker-id:-1}")
+    private int fixedWorkerId;
+
+    /**
+     * ID格式：DECIMAL-十进制 BASE62-11位Base62
+     */
+    @Value("${push.id.format:DECIMAL}")
+    private String format;
+
+    /**
+     * 机器号占用有效期（秒）
+     */
+    @Value("${push.id.lease-seconds:60}")
+    private long leaseSeconds;
+
+    private final String instanceId;
+
+    private volatile int workerSlot = -1;
+
+    private volatile SnowflakeIdUtils generator;
+
+    public MessageIdGenerator() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        this.instanceId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (fixedWorkerId >= 0) {
+            assign(fixedWorkerId);
+            log.info("消息ID使用固定机器号, workerSlot: {}", fixedWorkerId);
+            return;
+        }
+        claimWorkerSlot();
+    }
+
+    /**
+     * 生成消息ID
+     */
+    public String nextMessageId() {
+        return "BASE62".equalsIgnoreCase(format) ? generator.nextIdBase62() : generator.nextIdStr();
+    }
+
+    /**
+     * 定期续期机器号；若已丢失（如Redis长时间不可用后被其他实例占用），重新申请
+     */
+    @Scheduled(fixedDelayString = "${push.id.renew-interval:20000}", initialDelay = 20000)
+    public void renewWorkerSlot() {
+        if (fixedWorkerId >= 0) {
+            return;
+        }
+
+        try {
+            Long renewed = redisUtils.getRedisTemplate().execute(RENEW_SCRIPT,
+                Collections.singletonList(RedisConstants.PUSH_WORKER_KEY + workerSlot),
+                instanceId, leaseSeconds);
+            if (renewed == null || renewed == 0L) {
+                log.warn("消息ID机器号已丢失，重新申请, workerSlot: {}", workerSlot);
+                claimWorkerSlot();
+            }
+        } catch (Exception e) {
+            log.error("消息ID机器号续期失败, workerSlot: {}", workerSlot, e);
+        }
+    }
+
+    @PreDestroy
+    public void releaseWorkerSlot() {
+        if (fixedWorkerId < 0 && workerSlot >= 0) {
+            try {
+                String key = RedisConstants.PUSH_WORKER_KEY + workerSlot;
+                if (instanceId.equals(redisUtils.get(key))) {
+                    redisUtils.delete(key);
+                }
+            } catch (Exception e) {
+                log.warn("消息ID机器号释放失败, workerSlot: {}", workerSlot);
+            }
+        }
+    }
+
+    /**
+     * 从实例ID的哈希位置开始依次尝试占用空闲机器号
+     */
+    private void claimWorkerSlot() {
+        int start = Math.floorMod(instanceId.hashCode(), WORKER_SLOTS);
+        for (int i = 0; i < WORKER_SLOTS; i++) {
+            int slot = (start + i) % WORKER_SLOTS;
+            Boolean claimed = redisUtils.getRedisTemplate().opsForValue().setIfAbsent(
+                RedisConstants.PUSH_WORKER_KEY + slot, instanceId, leaseSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(claimed)) {
+                assign(slot);
+                log.info("消息ID机器号申请成功, workerSlot: {}, instance: {}", slot, instanceId);
+                return;
+            }
+        }
+        throw new IllegalStateException("消息ID机器号已耗尽（" + WORKER_SLOTS + "个）");
+    }
+
+    private void assign(int slot) {
+        this.generator = SnowflakeIdUtils.newInstance(slot >> 5, slot & 31);
+        this.workerSlot = slot;
+    }
+}
@@ -0,0 +1,103 @@
+package top.zhengru.unipush.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.core.mapper.PushMessageIndexMapper;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息ID索引服务
+ * push_message分区后主键为 (id, create_time)、唯一键为 (message_id, create_time)，
+ * 不带create_time的按ID查询/更新要逐个分区探查，message_id也不再全局唯一。
+ * 开启分区时由非分区表 push_message_index 登记 message_id → create_time：
+ * 新消息落库前先登记，已被其他消息占用的message_id拒绝写入；按message_id查询时先取create_time裁剪分区。
+ * 未开启分区时不登记，直接走push_message的全局唯一键
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessageIndexService {
+
+    @Autowired
+    private PushMessageIndexMapper pushMessageIndexMapper;
+
+    @Value("${push.partition.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记新消息的message_id
+     *
+     * @param inserts 待插入的新消息
+     * @return 可以插入的消息（message_id已被其他消息占用的被剔除）
+     */
+    public List<PushMessage> register(List<PushMessage> inserts) {
+        if (!enabled || inserts.isEmpty()) {
+            return inserts;
+        }
+        pushMessageIndexMapper.insertIgnoreBatch(inserts);
+
+        Map<String, LocalDateTime> registered = new HashMap<>();
+        for (PushMessage indexed : pushMessageIndexMapper.selectByMessageIds(
+            inserts.stream().map(PushMessage::getMessageId).toList())) {
+            registered.put(indexed.getMessageId(), indexed.getCreateTime());
+        }
+
+        List<PushMessage> accepted = new ArrayList<>(inserts.size());
+        for (PushMessage pushMessage : inserts) {
+            LocalDateTime createTime = registered.get(pushMessage.getMessageId());
+            if (createTime != null && sameSecond(createTime, pushMessage.getCreateTime())) {
+                accepted.add(pushMessage);
+            } else {
+                log.error("message_id已被其他消息占用, 拒绝落库, messageId: {}, createTime: {}, registered: {}",
+                    pushMessage.getMessageId(), pushMessage.getCreateTime(), createTime);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 查询消息的创建时间（用于裁剪分区）
+     *
+     * @return 创建时间，未开启分区或未登记返回null
+     */
+    public LocalDateTime createTimeOf(String messageId) {
+        return enabled ? pushMessageIndexMapper.selectCreateTime(messageId) : null;
+    }
+
+    /**
+     * 删除创建时间早于指定时间的登记（push_message对应分区清理后调用）
+     *
+     * @return 删除行数
+     */
+    public int purgeBefore(LocalDateTime before, int batchSize) {
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = pushMessageIndexMapper.deleteBefore(before, batchSize);
+            purged += deleted;
+        } while (deleted >= batchSize);
+        return purged;
+    }
+
+    /**
+     * DATETIME列按秒存储（写入时小数秒四舍五入），比较时允许1秒误差
+     */
+    private static boolean sameSecond(LocalDateTime stored, LocalDateTime value) {
+        return value != null
+            && Math.abs(ChronoUnit.MILLIS.between(stored, value)) < 1000;
+    }
+}
@@ -0,0 +1,76 @@
+package top.zhengru.unipush.core.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import top.zhengru.unipush.common.enums.MessagePriority;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.exception.BusinessException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息优先级解析
+ * 请求指定了优先级时直接使用（未知编码拒绝，不静默降级）；未指定时使用 push.priority.channel-lanes 中
+ * 为该渠道显式配置的通道，没有配置的渠道走普通通道。
+ * push_channel.priority 是渠道排序用的数值，不参与投递通道选择（存量数据中的取值不会把默认流量导入紧急通道）
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessagePriorityResolver {
+
+    /**
+     * 渠道默认投递通道，格式 渠道编码:优先级（如 dingtalk:high,bark:bulk）
+     */
+    @Value("${push.priority.channel-lanes:}")
+    private List<String> channelLanes;
+
+    private final Map<String, MessagePriority> channelPriorities = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (channelLanes == null) {
+            return;
+        }
+        for (String entry : channelLanes) {
+            if (!StringUtils.hasText(entry)) {
+                continue;
+            }
+            String[] parts = entry.split(":", 2);
+            MessagePriority priority = parts.length == 2 ? MessagePriority.getByCode(parts[1].trim()) : null;
+            if (priority == null) {
+                throw new IllegalStateException("push.priority.channel-lanes 配置错误: " + entry);
+            }
+            channelPriorities.put(parts[0].trim(), priority);
+        }
+        if (!channelPriorities.isEmpty()) {
+            log.info("渠道默认投递通道: {}", channelPriorities);
+        }
+    }
+
+    /**
+     * 解析消息优先级
+     *
+     * @param requested   请求中的优先级编码，可为null
+     * @param channelCode 渠道编码
+     * @return 优先级，不会为null
+     * @throws BusinessException 请求的优先级编码未知
+     */
+    public MessagePriority resolve(String requested, String channelCode) {
+        if (StringUtils.hasText(requested)) {
+            MessagePriority priority = MessagePriority.getByCode(requested.trim());
+            if (priority == null) {
+                throw new BusinessException(ResponseCode.VALIDATION_ERROR, "未知的优先级: " + requested);
+            }
+            return priority;
+        }
+        MessagePriority configured = channelCode != null ? channelPriorities.get(channelCode) : null;
+        return configured != null ? configured : MessagePriority.NORMAL;
+    }
+}
@@ -1,26 +1,55 @@
 package top.zhengru.unipush.core.service;
 
 import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboService;
+import org.apache.dubbo.rpc.RpcContext;
+import org.apache.dubbo.rpc.RpcContextAttachment;
+import org.apache.ibatis.binding.MapperMethod;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import top.zhengru.unipush.common.api.PushCoreService;
 import top.zhengru.unipush.common.constant.KafkaConstants;
+import top.zhengru.unipush.common.constant.TraceConstants;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.enums.MessagePriority;
 import top.zhengru.unipush.common.enums.MessageStatus;
+import top.zhengru.unipush.common.enums.PushLogType;
+import top.zhengru.unipush.common.enums.ResponseCode;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.exception.BusinessException;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.model.entity.PushLog;
 import top.zhengru.unipush.common.model.dto.SendMessageDTO;
 import top.zhengru.unipush.common.model.entity.PushMessage;
 import top.zhengru.unipush.common.model.vo.MessageResultVO;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.core.archive.MessageArchiveService;
 import top.zhengru.unipush.core.mapper.PushMessageMapper;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
 import top.zhengru.unipush.core.mq.DeliveryTaskProducer;
+import top.zhengru.unipush.core.mq.PushLogProducer;
+import top.zhengru.unipush.core.outbox.DeliveryOutbox;
+import top.zhengru.unipush.core.schedule.ScheduledMessageQueue;
+import top.zhengru.unipush.core.stats.DeliveryStatsCollector;
+import top.zhengru.unipush.core.trace.MessageTraceService;
 import top.zhengru.unipush.core.util.RedisUtils;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 推送消息核心业务服务
@@ -43,15 +72,83 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private PushLogProducer pushLogProducer;
+
+    @Autowired
+    private DeliveryStatsCollector deliveryStatsCollector;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Autowired
+    private MessageTraceService messageTraceService;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    @Autowired
+    private DeliveryOutbox deliveryOutbox;
+
+    @Autowired
+    private MessagePriorityResolver messagePriorityResolver;
+
+    @Autowired
+    private ScheduledMessageQueue scheduledMessageQueue;
+
+    @Autowired
+    private MessageIndexService messageIndexService;
+
+    @Value("${push.trace.enabled:true}")
+    private boolean traceEnabled;
+
+    @Value("${push.schedule.enabled:true}")
+    private boolean scheduleEnabled;
+
+    /**
+     * 定时发送最多提前的天数
+     */
+    @Value("${push.schedule.max-delay-days:7}")
+    private int scheduleMaxDelayDays;
+
     private static final int DEFAULT_MAX_RETRY_COUNT = 3;
 
     @Override
     public String createPushTask(SendMessageDTO request) {
-        log.info("创建推送任务, channel: {}, title: {}", request.getChannel(), request.getTitle());
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String messageId = doCreatePushTask(request);
+            success = true;
+            return messageId;
+        } finally {
+            coreMetrics.recordIngest(request.getChannel(), success, System.nanoTime() - start);
+        }
+    }
+
+    private String doCreatePushTask(SendMessageDTO request) {
+        hotPathEventLog.debug(HotPathStage.INGEST, "创建推送任务, channel: {}, title: {}",
+            request.getChannel(), request.getTitle());
+        // outbox积压已达上限（Kafka长时间不可用），拒绝新任务，由调用方稍后重试
+        if (deliveryOutbox.isOverloaded()) {
+            throw new BusinessException(ResponseCode.SERVICE_ERROR, "投递任务积压，请稍后再试");
+        }
+        TraceContext trace = traceEnabled ? restoreTrace().mark(TraceStage.CORE_RECEIVED) : null;
+        Long sendAt = resolveSendAt(request.getSendAt());
+        Long expireAt = resolveExpireAt(request, sendAt);
 
         // 1. 构建PushMessage实体
         PushMessage pushMessage = new PushMessage();
-        pushMessage.setMessageId(UUID.randomUUID().toString().replace("-", ""));
+        pushMessage.setMessageId(messageIdGenerator.nextMessageId());
         pushMessage.setTitle(request.getTitle());
         pushMessage.setContent(request.getContent());
         pushMessage.setChannelCode(request.getChannel());
@@ -62,7 +159,19 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
         pushMessage.setStatus(MessageStatus.INIT.getCode());
         pushMessage.setRetryCount(0);
         pushMessage.setMaxRetryCount(DEFAULT_MAX_RETRY_COUNT);
+        pushMessage.setAccessTokenId(request.getAccessTokenId());
+        pushMessage.setPriority(messagePriorityResolver.resolve(request.getPriority(), request.getChannel()).getCode());
+        pushMessage.setCreateTime(LocalDateTime.now());  // 显式记录创建时间，落库前即可计算端到端耗时
         pushMessage.setPersisted(0);  // 标记为未持久化
+        pushMessage.setTraceId(trace != null ? trace.getTraceId() : null);
+        pushMessage.setExpireTime(expireAt != null ? toLocalDateTime(expireAt) : null);
+
+        if (sendAt != null) {
+            return scheduleMessage(pushMessage, sendAt);
+        }
+
+        // 大正文去重存储，消息只保留contentHash
+        messageContentService.dedup(pushMessage);
 
         // 2. 写入Redis（快速存储，可立即查询）
         redisUtils.setPushMessage(pushMessage.getMessageId(), pushMessage, 7 * 24 * 3600);
@@ -72,30 +181,208 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
         redisUtils.addToPersistQueue(pushMessage.getMessageId(), score);
 
         // 4. 发送到Kafka投递Topic
-        sendToDeliveryTopic(pushMessage);
+        sendToDeliveryTopic(pushMessage, trace);
 
         // 5. 立即返回messageId（总耗时 5-10ms）
-        log.info("推送任务创建成功, messageId: {}", pushMessage.getMessageId());
+        hotPathEventLog.info(HotPathStage.INGEST, "推送任务创建成功, messageId: {}, channel: {}",
+            pushMessage.getMessageId(), pushMessage.getChannelCode());
         return pushMessage.getMessageId();
     }
 
     /**
-     * 发送到投递Topic(统一Topic: unipush-delivery)
+     * 校验计划发送时间
+     *
+     * @return 需要定时发送时返回计划发送时间，立即发送返回null
      */
-    private void sendToDeliveryTopic(PushMessage pushMessage) {
+    private Long resolveSendAt(Long sendAt) {
+        if (sendAt == null || sendAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        if (!scheduleEnabled) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "未开启定时发送");
+        }
+        if (sendAt > System.currentTimeMillis() + TimeUnit.DAYS.toMillis(scheduleMaxDelayDays)) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR,
+                "定时发送时间不能晚于" + scheduleMaxDelayDays + "天后");
+        }
+        return sendAt;
+    }
+
+    /**
+     * 计算过期时间（expireAt 与 ttl 取较早者，ttl 从计划发送时间起算）
+     *
+     * @return 过期时间，不过期返回null
+     */
+    private Long resolveExpireAt(SendMessageDTO request, Long sendAt) {
+        long start = sendAt != null ? sendAt : System.currentTimeMillis();
+        Long expireAt = request.getExpireAt();
+        if (request.getTtl() != null && request.getTtl() > 0) {
+            long ttlExpireAt = start + TimeUnit.SECONDS.toMillis(request.getTtl());
+            expireAt = expireAt != null ? Math.min(expireAt, ttlExpireAt) : ttlExpireAt;
+        }
+        if (expireAt != null && expireAt <= start) {
+            throw new BusinessException(ResponseCode.VALIDATION_ERROR, "过期时间必须晚于发送时间");
+        }
+        return expireAt;
+    }
+
+    /**
+     * 消息是否已过期
+     */
+    private static boolean isExpired(PushMessage pushMessage) {
+        return pushMessage.getExpireTime() != null && !pushMessage.getExpireTime().isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * 标记为已过期（终态，不再投递或重试）
+     */
+    private void markExpired(PushMessage pushMessage, String errorMessage) {
+        pushMessage.setStatus(MessageStatus.EXPIRED.getCode());
+        pushMessage.setErrorMessage(errorMessage != null ? errorMessage : "消息已过期，未投递");
+        deliveryStatsCollector.recordFailure(pushMessage);
+        coreMetrics.recordResult(pushMessage.getChannelCode(), CoreMetrics.RESULT_EXPIRED);
+        hotPathEventLog.info(HotPathStage.RESULT, "消息已过期, 不再投递, messageId: {}, expireTime: {}",
+            pushMessage.getMessageId(), pushMessage.getExpireTime());
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+
+    /**
+     * 保存定时消息，到期后由 ScheduledDispatchTask 投递
+     * 正文不做去重存储：去重正文的缓存有效期按立即发送设计，定时消息可能在其过期后才投递
+     */
+    private String scheduleMessage(PushMessage pushMessage, long sendAt) {
+        pushMessage.setStatus(MessageStatus.SCHEDULED.getCode());
+        pushMessage.setScheduleTime(toLocalDateTime(sendAt));
+
+        // Redis中的消息保留到计划发送后7天
+        long delaySeconds = TimeUnit.MILLISECONDS.toSeconds(sendAt - System.currentTimeMillis());
+        redisUtils.setPushMessage(pushMessage.getMessageId(), pushMessage, 7 * 24 * 3600 + delaySeconds);
+        redisUtils.addToPersistQueue(pushMessage.getMessageId(), System.currentTimeMillis() + 5000);
+        scheduledMessageQueue.add(pushMessage.getMessageId(), sendAt);
+
+        hotPathEventLog.info(HotPathStage.INGEST, "定时推送任务创建成功, messageId: {}, channel: {}, sendAt: {}",
+            pushMessage.getMessageId(), pushMessage.getChannelCode(), pushMessage.getScheduleTime());
+        return pushMessage.getMessageId();
+    }
+
+    /**
+     * 投递一批到期的定时消息（由 ScheduledDispatchTask 调用）
+     * 状态已不是SCHEDULED的（已投递过）跳过
+     *
+     * @param messageIds 消息ID
+     */
+    public void dispatchScheduled(List<String> messageIds) {
+        List<PushMessage> messages = redisUtils.getPushMessages(messageIds);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < messageIds.size(); i++) {
+            String messageId = messageIds.get(i);
+            PushMessage pushMessage = messages.get(i);
+            if (pushMessage == null) {
+                pushMessage = findByMessageId(messageId);
+            }
+            if (pushMessage == null) {
+                log.warn("定时消息不存在, messageId: {}", messageId);
+                continue;
+            }
+            if (!MessageStatus.SCHEDULED.getCode().equals(pushMessage.getStatus())) {
+                continue;
+            }
+            if (isExpired(pushMessage)) {
+                markExpired(pushMessage, null);
+                redisUtils.setPushMessage(messageId, pushMessage, 7 * 24 * 3600);
+                redisUtils.addToPersistQueue(messageId, now);
+                continue;
+            }
+            String traceId = pushMessage.getTraceId();
+            sendToDeliveryTopic(pushMessage, traceEnabled && traceId != null ? TraceContext.of(traceId) : null);
+            redisUtils.addToPersistQueue(messageId, now);
+        }
+    }
+
+    /**
+     * 重新处理长时间未回报结果的投递（由 PendingSweepTask 调用）
+     * worker 把任务交给内存队列（钉钉限流队列、批量窗口）后即提交offset，进程异常退出时这部分任务随之丢失，
+     * 消息停留在PENDING；超过期限仍未回报的按投递失败处理：未达到最大重试次数时重新下发，否则标记为失败
+     *
+     * @param sentBefore   下发时间早于该时间仍为PENDING的视为结果丢失
+     * @param createdAfter 只检查该时间之后创建的消息（分区表上只访问最近的分区）
+     * @param limit        本次最多处理的条数
+     * @return 处理的条数
+     */
+    public int redispatchStalePending(LocalDateTime sentBefore, LocalDateTime createdAfter, int limit) {
+        List<PushMessage> candidates = this.lambdaQuery()
+            .eq(PushMessage::getStatus, MessageStatus.PENDING.getCode())
+            .lt(PushMessage::getSendTime, sentBefore)
+            .ge(PushMessage::getCreateTime, createdAfter)
+            .last("LIMIT " + limit)
+            .list();
+        int handled = 0;
+        for (PushMessage candidate : candidates) {
+            String messageId = candidate.getMessageId();
+            // Redis中的状态比数据库新（结果已回报、尚未写回）
+            PushMessage pushMessage = redisUtils.getPushMessage(messageId);
+            if (pushMessage == null) {
+                pushMessage = candidate;
+            }
+            if (!MessageStatus.PENDING.getCode().equals(pushMessage.getStatus())
+                || pushMessage.getSendTime() == null || !pushMessage.getSendTime().isBefore(sentBefore)) {
+                continue;
+            }
+            if (isExpired(pushMessage)) {
+                markExpired(pushMessage, null);
+            } else {
+                retryOrFail(pushMessage, "投递结果超时未回报");
+            }
+            redisUtils.setPushMessage(messageId, pushMessage, 7 * 24 * 3600);
+            redisUtils.addToPersistQueue(messageId, System.currentTimeMillis());
+            handled++;
+        }
+        return handled;
+    }
+
+    /**
+     * 从Dubbo attachment还原api传来的链路，没有时（非api调用）开启新链路
+     */
+    private TraceContext restoreTrace() {
+        RpcContextAttachment attachment = RpcContext.getServerAttachment();
+        TraceContext trace = TraceContext.restore(attachment.getAttachment(TraceConstants.TRACE_ID),
+            attachment.getAttachment(TraceConstants.TRACE_STAGES));
+        return trace != null ? trace : TraceContext.start();
+    }
+
+    /**
+     * 发送到优先级对应的投递Topic（紧急/普通/批量三个通道，普通通道即 unipush-delivery）
+     *
+     * @param trace 本次投递的链路上下文，未开启追踪时为null
+     */
+    private void sendToDeliveryTopic(PushMessage pushMessage, TraceContext trace) {
+        sendToDeliveryTopic(pushMessage, trace, pushMessage.getContent());
+    }
+
+    /**
+     * 发送到投递Topic，正文由调用方指定（去重存储的正文已从数据库还原时直接内联，不依赖Redis）
+     */
+    private void sendToDeliveryTopic(PushMessage pushMessage, TraceContext trace, String content) {
         // 更新内存中的状态（不写数据库）
         pushMessage.setStatus(MessageStatus.PENDING.getCode());
         pushMessage.setSendTime(LocalDateTime.now());
 
         // 同步更新Redis
         redisUtils.setPushMessage(pushMessage.getMessageId(), pushMessage, 7 * 24 * 3600);
+        if (trace != null) {
+            trace.mark(TraceStage.REDIS_WRITTEN);
+        }
 
         // 构建投递任务消息（包含完整的PushMessage数据）
         Map<String, Object> deliveryTask = new HashMap<>();
         deliveryTask.put("messageId", pushMessage.getMessageId());
         deliveryTask.put("channelCode", pushMessage.getChannelCode());
         deliveryTask.put("title", pushMessage.getTitle());
-        deliveryTask.put("content", pushMessage.getContent());
+        deliveryTask.put("content", content);
+        deliveryTask.put("contentHash", pushMessage.getContentHash());
         deliveryTask.put("target", pushMessage.getTarget());
         deliveryTask.put("templateCode", pushMessage.getTemplateCode());
         deliveryTask.put("topic", pushMessage.getTopic());
@@ -103,35 +390,50 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
         deliveryTask.put("status", pushMessage.getStatus());
         deliveryTask.put("retryCount", pushMessage.getRetryCount());
         deliveryTask.put("maxRetryCount", pushMessage.getMaxRetryCount());
+        deliveryTask.put("priority", pushMessage.getPriority());
+        if (pushMessage.getExpireTime() != null) {
+            // 过期时间随任务下发，worker投递前直接比较，无需查询消息
+            deliveryTask.put("expireAt", pushMessage.getExpireTime()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
         deliveryTask.put("timestamp", System.currentTimeMillis());
 
-        // 发送到统一的投递Topic
+        // 发送到优先级对应的投递Topic
+        MessagePriority priority = MessagePriority.getByCode(pushMessage.getPriority());
+        String topic = priority != null ? priority.getTopic() : KafkaConstants.TOPIC_DELIVERY;
         String message = JSON.toJSONString(deliveryTask);
+        if (trace != null) {
+            trace.mark(TraceStage.KAFKA_SENT);
+        }
         deliveryTaskProducer.sendDeliveryTask(
-            KafkaConstants.TOPIC_DELIVERY,
+            topic,
             pushMessage.getMessageId(),
-            message
+            message,
+            trace
         );
 
-        log.info("投递任务已发送到统一Topic, messageId: {}, channelCode: {}",
-            pushMessage.getMessageId(), pushMessage.getChannelCode());
+        hotPathEventLog.debug(HotPathStage.DISPATCH, "投递任务已发送, messageId: {}, channelCode: {}, topic: {}",
+            pushMessage.getMessageId(), pushMessage.getChannelCode(), topic);
     }
 
     @Override
     public MessageResultVO getMessageResult(String messageId) {
-        log.info("查询消息状态, messageId: {}", messageId);
+        hotPathEventLog.debug(HotPathStage.QUERY, "查询消息状态, messageId: {}", messageId);
 
         // 1. 先查Redis（快速返回）
         PushMessage pushMessage = redisUtils.getPushMessage(messageId);
 
         // 2. Redis没有，再查数据库
         if (pushMessage == null) {
-            pushMessage = this.lambdaQuery()
-                .eq(PushMessage::getMessageId, messageId)
-                .one();
+            pushMessage = findByMessageId(messageId);
+        }
+
+        // 3. 数据库也没有，再查冷归档
+        if (pushMessage == null) {
+            pushMessage = messageArchiveService.find(messageId);
         }
 
-        // 3. 都没有，返回不存在
+        // 4. 都没有，返回不存在
         if (pushMessage == null) {
             MessageResultVO result = new MessageResultVO();
             result.setMessageId(messageId);
@@ -140,17 +442,22 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
             return result;
         }
 
-        // 4. 返回结果
+        // 5. 返回结果
         MessageResultVO result = new MessageResultVO();
         result.setMessageId(messageId);
         result.setTitle(pushMessage.getTitle());
-        result.setContent(pushMessage.getContent());
+        result.setContent(messageContentService.getContent(pushMessage));
         result.setChannelCode(pushMessage.getChannelCode());
         result.setStatus(mapStatusToInt(pushMessage.getStatus()));
         result.setErrorMessage(pushMessage.getErrorMessage());
         result.setRetryCount(pushMessage.getRetryCount());
         result.setCreateTime(pushMessage.getCreateTime());
         result.setUpdateTime(pushMessage.getUpdateTime());
+        result.setTraceId(pushMessage.getTraceId());
+        TraceContext trace = TraceContext.restore(pushMessage.getTraceId(), pushMessage.getTraceStages());
+        if (trace != null) {
+            result.setStageCosts(trace.stageCosts());
+        }
 
         return result;
     }
@@ -158,22 +465,22 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void handleDeliveryResult(String resultMessage) {
-        log.info("处理投递结果: {}", resultMessage);
-
         // 解析结果消息
         Map<String, Object> result = JSON.parseObject(resultMessage, Map.class);
         String messageId = (String) result.get("messageId");
         Boolean success = (Boolean) result.get("success");
+        Boolean expired = (Boolean) result.get("expired");
+        Boolean contentMissing = (Boolean) result.get("contentMissing");
         String errorMessage = (String) result.get("errorMessage");
+        hotPathEventLog.debug(HotPathStage.RESULT, "处理投递结果, messageId: {}, success: {}, error: {}",
+            messageId, success, errorMessage);
 
         // 1. 先从Redis查询（快速查询）
         PushMessage pushMessage = redisUtils.getPushMessage(messageId);
 
         if (pushMessage == null) {
             // Redis没有，再查数据库（可能是已经持久化的消息）
-            pushMessage = this.lambdaQuery()
-                .eq(PushMessage::getMessageId, messageId)
-                .one();
+            pushMessage = findByMessageId(messageId);
 
             if (pushMessage == null) {
                 log.error("消息不存在: {}", messageId);
@@ -184,39 +491,47 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
             redisUtils.setPushMessage(messageId, pushMessage, 7 * 24 * 3600);
         }
 
+        // 链路已经过全部阶段（由结果消费者从Kafka header还原），记录到消息并导出
+        TraceContext trace = TraceContext.current();
+        if (trace != null) {
+            trace.mark(TraceStage.RESULT_RECEIVED);
+            pushMessage.setTraceStages(trace.encodeStages());
+            messageTraceService.complete(pushMessage, trace, Boolean.TRUE.equals(success));
+        }
+
         // 2. 更新消息状态
         if (Boolean.TRUE.equals(success)) {
             // 投递成功
             pushMessage.setStatus(MessageStatus.SUCCESS.getCode());
             pushMessage.setSuccessTime(LocalDateTime.now());
             pushMessage.setErrorMessage(null);
-            log.info("消息投递成功, messageId: {}", messageId);
-        } else {
-            // 投递失败,判断是否需要重试
-            int currentRetry = pushMessage.getRetryCount();
-            int maxRetry = pushMessage.getMaxRetryCount();
-
-            if (currentRetry < maxRetry) {
-                // 需要重试
-                pushMessage.setRetryCount(currentRetry + 1);
-                pushMessage.setErrorMessage(errorMessage);
-
-                // 计算下次重试时间(指数退避: 1min, 2min, 4min, 8min...)
-                int delayMinutes = (int) Math.pow(2, currentRetry);
-                pushMessage.setNextRetryTime(LocalDateTime.now().plusMinutes(delayMinutes));
-
-                log.info("消息投递失败,将在{}分钟后重试, messageId: {}, retryCount: {}/{}",
-                    delayMinutes, messageId, pushMessage.getRetryCount(), maxRetry);
-
-                // 重新发送到投递队列
-                sendToDeliveryTopic(pushMessage);
+            deliveryStatsCollector.recordSuccess(pushMessage);
+            coreMetrics.recordResult(pushMessage.getChannelCode(), CoreMetrics.RESULT_SUCCESS);
+            hotPathEventLog.info(HotPathStage.RESULT, "消息投递成功, messageId: {}", messageId);
+        } else if (Boolean.TRUE.equals(expired) || isExpired(pushMessage)) {
+            // worker判定已过期，或投递失败时已过期：不再重试
+            markExpired(pushMessage, errorMessage);
+        } else if (Boolean.TRUE.equals(contentMissing)) {
+            // worker在Redis中找不到正文：从数据库还原后携带正文重新下发（不计重试），还原不了则为终态失败
+            String content = pushMessage.getContentHash() != null
+                ? messageContentService.restore(pushMessage.getContentHash()) : null;
+            if (content != null) {
+                hotPathEventLog.info(HotPathStage.RESULT, "消息正文已还原, 重新下发, messageId: {}, contentHash: {}",
+                    messageId, pushMessage.getContentHash());
+                String traceId = pushMessage.getTraceId();
+                sendToDeliveryTopic(pushMessage, traceEnabled && traceId != null ? TraceContext.of(traceId) : null,
+                    content);
             } else {
-                // 达到最大重试次数,标记为失败
                 pushMessage.setStatus(MessageStatus.FAILED.getCode());
-                pushMessage.setErrorMessage(errorMessage);
-                log.error("消息投递失败且达到最大重试次数, messageId: {}, retryCount: {}/{}",
-                    messageId, currentRetry, maxRetry);
+                pushMessage.setErrorMessage("消息正文已丢失，无法投递");
+                deliveryStatsCollector.recordFailure(pushMessage);
+                coreMetrics.recordResult(pushMessage.getChannelCode(), CoreMetrics.RESULT_FAILED);
+                log.error("消息正文已丢失, 标记为失败, messageId: {}, contentHash: {}",
+                    messageId, pushMessage.getContentHash());
             }
+        } else {
+            // 投递失败,判断是否需要重试
+            retryOrFail(pushMessage, errorMessage);
         }
 
         // 3. 更新Redis（快速更新）
@@ -238,6 +553,125 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
         // }
     }
 
+    /**
+     * 投递失败：未达到最大重试次数时重新下发，否则标记为失败
+     */
+    private void retryOrFail(PushMessage pushMessage, String errorMessage) {
+        String messageId = pushMessage.getMessageId();
+        int currentRetry = pushMessage.getRetryCount();
+        int maxRetry = pushMessage.getMaxRetryCount();
+
+        if (currentRetry < maxRetry) {
+            // 需要重试
+            pushMessage.setRetryCount(currentRetry + 1);
+            pushMessage.setErrorMessage(errorMessage);
+
+            // 计算下次重试时间(指数退避: 1min, 2min, 4min, 8min...)
+            int delayMinutes = (int) Math.pow(2, currentRetry);
+            pushMessage.setNextRetryTime(LocalDateTime.now().plusMinutes(delayMinutes));
+
+            hotPathEventLog.info(HotPathStage.RESULT, "消息投递失败,将在{}分钟后重试, messageId: {}, retryCount: {}/{}",
+                delayMinutes, messageId, pushMessage.getRetryCount(), maxRetry);
+
+            PushLog retryLog = new PushLog();
+            retryLog.setMessageId(messageId);
+            retryLog.setChannelCode(pushMessage.getChannelCode());
+            retryLog.setLogType(PushLogType.RETRY.getCode());
+            retryLog.setLogLevel("WARN");
+            retryLog.setErrorMessage(String.format("第%d/%d次重试, 延迟%d分钟, 上次错误: %s",
+                pushMessage.getRetryCount(), maxRetry, delayMinutes, errorMessage));
+            pushLogProducer.sendLog(retryLog);
+            deliveryStatsCollector.recordRetry(pushMessage);
+            coreMetrics.recordResult(pushMessage.getChannelCode(), CoreMetrics.RESULT_RETRY);
+
+            // 重新发送到投递队列（沿用追踪ID，重新记录各阶段）
+            String traceId = pushMessage.getTraceId();
+            sendToDeliveryTopic(pushMessage, traceEnabled && traceId != null ? TraceContext.of(traceId) : null);
+        } else {
+            // 达到最大重试次数,标记为失败
+            pushMessage.setStatus(MessageStatus.FAILED.getCode());
+            pushMessage.setErrorMessage(errorMessage);
+            deliveryStatsCollector.recordFailure(pushMessage);
+            coreMetrics.recordResult(pushMessage.getChannelCode(), CoreMetrics.RESULT_FAILED);
+            log.error("消息投递失败且达到最大重试次数, messageId: {}, retryCount: {}/{}",
+                messageId, currentRetry, maxRetry);
+        }
+    }
+
+    /**
+     * 批量写回消息（由 MessagePersistTask 调用）
+     * 新消息登记message_id后批量插入；已落库的批量更新，开启分区时带上create_time条件只访问所在分区
+     *
+     * @param batch 待写回的消息
+     * @return message_id已被其他消息占用、未能落库的新消息
+     * @throws IllegalStateException 批量插入失败（事务回滚，整批下次重试）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<PushMessage> persistBatch(List<PushMessage> batch) {
+        List<PushMessage> inserts = new ArrayList<>();
+        List<PushMessage> updates = new ArrayList<>();
+        for (PushMessage pushMessage : batch) {
+            (pushMessage.getId() == null ? inserts : updates).add(pushMessage);
+        }
+
+        List<PushMessage> accepted = messageIndexService.register(inserts);
+        if (!accepted.isEmpty() && !this.saveBatch(accepted, 100)) {
+            throw new IllegalStateException("批量插入消息失败, count: " + accepted.size());
+        }
+        if (!updates.isEmpty()) {
+            updateBatch(updates);
+        }
+
+        List<PushMessage> rejected = new ArrayList<>(inserts);
+        rejected.removeAll(accepted);
+        return rejected;
+    }
+
+    /**
+     * 批量更新已落库的消息（同一批次内复用预编译语句，一次提交）
+     * 未开启分区时按主键更新；开启分区时按 id + create_time 更新，避免逐个分区探查
+     */
+    private void updateBatch(List<PushMessage> updates) {
+        if (!messageIndexService.isEnabled()) {
+            this.updateBatchById(updates, 100);
+            return;
+        }
+
+        String updateById = getSqlStatement(SqlMethod.UPDATE_BY_ID);
+        String update = getSqlStatement(SqlMethod.UPDATE);
+        executeBatch(updates, 100, (sqlSession, pushMessage) -> {
+            MapperMethod.ParamMap<Object> param = new MapperMethod.ParamMap<>();
+            param.put(Constants.ENTITY, pushMessage);
+            LocalDateTime createTime = pushMessage.getCreateTime();
+            if (createTime == null) {
+                sqlSession.update(updateById, param);
+                return;
+            }
+            // DATETIME按秒存储，内存中的创建时间带毫秒，按1秒区间匹配
+            param.put(Constants.WRAPPER, Wrappers.<PushMessage>lambdaUpdate()
+                .eq(PushMessage::getId, pushMessage.getId())
+                .between(PushMessage::getCreateTime, createTime.minusSeconds(1), createTime.plusSeconds(1)));
+            sqlSession.update(update, param);
+        });
+    }
+
+    /**
+     * 按message_id查询数据库中的消息
+     * 开启分区时先从push_message_index取创建时间，只查询所在分区
+     */
+    private PushMessage findByMessageId(String messageId) {
+        LocalDateTime createTime = messageIndexService.createTimeOf(messageId);
+        if (createTime == null) {
+            return this.lambdaQuery()
+                .eq(PushMessage::getMessageId, messageId)
+                .one();
+        }
+        return this.lambdaQuery()
+            .eq(PushMessage::getMessageId, messageId)
+            .between(PushMessage::getCreateTime, createTime.minusSeconds(1), createTime.plusSeconds(1))
+            .one();
+    }
+
     /**
      * 将状态码映射为数字
      */
@@ -248,6 +682,8 @@ public class PushMessageService extends ServiceImpl<PushMessageMapper, PushMessa
             case "SENDING" -> 3;
             case "SUCCESS" -> 4;
             case "FAILED" -> 5;
+            case "SCHEDULED" -> 6;
+            case "EXPIRED" -> 7;
             default -> 0;
         };
     }
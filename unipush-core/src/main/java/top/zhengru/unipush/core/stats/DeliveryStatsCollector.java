@@ -0,0 +1,239 @@
+package top.zhengru.unipush.core.stats;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.common.model.entity.PushStatsMinute;
+import top.zhengru.unipush.core.mapper.PushStatsMinuteMapper;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * 投递统计收集器
+ * 在内存中按 分钟 × 渠道 × 主题 × 访问令牌 累加状态迁移次数与端到端耗时，定时刷入push_stats_minute，
+ * 统计查询只需读取分钟桶，不再扫描push_message
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class DeliveryStatsCollector {
+
+    /**
+     * 超出维度上限后的主题归并值
+     */
+    private static final String OTHER_TOPIC = "__other__";
+
+    /**
+     * 耗时记录上限（1小时），超出按上限记录
+     */
+    private static final long MAX_LATENCY_MS = Duration.ofHours(1).toMillis();
+
+    @Autowired
+    private PushStatsMinuteMapper pushStatsMinuteMapper;
+
+    @Value("${push.stats.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每分钟最多的维度组合数（防止topic等自由输入导致桶数失控）
+     */
+    @Value("${push.stats.max-keys-per-minute:10000}")
+    private int maxKeysPerMinute;
+
+    private final String instanceId;
+
+    private final Map<StatsKey, StatsBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * 每分钟已创建的维度组合数（刷出该分钟后移除）
+     */
+    private final Map<Long, AtomicInteger> keysPerMinute = new ConcurrentHashMap<>();
+
+    public DeliveryStatsCollector(@Value("${server.port:8081}") int serverPort) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        String id = host + ":" + serverPort;
+        this.instanceId = id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+
+    /**
+     * 记录投递成功
+     */
+    public void recordSuccess(PushMessage message) {
+        if (enabled) {
+            StatsBucket bucket = bucket(message);
+            bucket.success.increment();
+            recordLatency(bucket, message);
+        }
+    }
+
+    /**
+     * 记录最终失败
+     */
+    public void recordFailure(PushMessage message) {
+        if (enabled) {
+            StatsBucket bucket = bucket(message);
+            bucket.failed.increment();
+            recordLatency(bucket, message);
+        }
+    }
+
+    /**
+     * 记录重试
+     */
+    public void recordRetry(PushMessage message) {
+        if (enabled) {
+            bucket(message).retry.increment();
+        }
+    }
+
+    private void recordLatency(StatsBucket bucket, PushMessage message) {
+        if (message.getCreateTime() == null) {
+            return;
+        }
+        long latency = Math.max(0, Math.min(
+            Duration.between(message.getCreateTime(), LocalDateTime.now()).toMillis(), MAX_LATENCY_MS));
+        bucket.latency.recordValue(latency);
+        bucket.latencySum.add(latency);
+    }
+
+    private StatsBucket bucket(PushMessage message) {
+        long minute = System.currentTimeMillis() / 60_000 * 60_000;
+        String topic = message.getTopic() != null ? message.getTopic() : "";
+        long tokenId = message.getAccessTokenId() != null ? message.getAccessTokenId() : 0L;
+
+        StatsKey key = new StatsKey(minute, message.getChannelCode(), topic, tokenId);
+        StatsBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        AtomicInteger keyCount = keysPerMinute.computeIfAbsent(minute, m -> new AtomicInteger());
+        if (keyCount.get() >= maxKeysPerMinute) {
+            key = new StatsKey(minute, message.getChannelCode(), OTHER_TOPIC, 0L);
+        }
+        return buckets.computeIfAbsent(key, k -> {
+            keyCount.incrementAndGet();
+            return new StatsBucket();
+        });
+    }
+
+    /**
+     * 刷出已结束的分钟桶
+     * 只刷出至少一分钟前的桶，保证不会再有线程写入
+     */
+    public void flush() {
+        long threshold = System.currentTimeMillis() / 60_000 * 60_000 - 60_000;
+        flush(minute -> minute < threshold);
+    }
+
+    /**
+     * 停机时刷出全部桶（包括当前分钟）
+     */
+    @PreDestroy
+    public void flushAll() {
+        flush(minute -> true);
+    }
+
+    private void flush(LongPredicate filter) {
+        List<PushStatsMinute> rows = new ArrayList<>();
+        List<StatsKey> flushed = new ArrayList<>();
+        for (Iterator<Map.Entry<StatsKey, StatsBucket>> it = buckets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<StatsKey, StatsBucket> entry = it.next();
+            if (filter.test(entry.getKey().minute())) {
+                rows.add(toRow(entry.getKey(), entry.getValue()));
+                flushed.add(entry.getKey());
+            }
+        }
+        if (rows.isEmpty()) {
+            keysPerMinute.keySet().removeIf(filter::test);
+            return;
+        }
+
+        for (int i = 0; i < rows.size(); i += 200) {
+            pushStatsMinuteMapper.upsertBatch(rows.subList(i, Math.min(i + 200, rows.size())));
+        }
+        // 写库成功后再移除，失败时下次重试（upsert覆盖写，重复刷出无副作用）
+        flushed.forEach(buckets::remove);
+        keysPerMinute.keySet().removeIf(filter::test);
+        log.debug("统计分钟桶已刷出, count: {}", rows.size());
+    }
+
+    private PushStatsMinute toRow(StatsKey key, StatsBucket bucket) {
+        Histogram histogram = bucket.snapshot();
+
+        PushStatsMinute row = new PushStatsMinute();
+        row.setStatMinute(LocalDateTime.ofInstant(Instant.ofEpochMilli(key.minute()), ZoneId.systemDefault()));
+        row.setChannelCode(key.channelCode());
+        row.setTopic(key.topic());
+        row.setAccessTokenId(key.accessTokenId());
+        row.setInstanceId(instanceId);
+        row.setSuccessCount(bucket.success.sum());
+        row.setFailedCount(bucket.failed.sum());
+        row.setRetryCount(bucket.retry.sum());
+        row.setLatencyCount(histogram.getTotalCount());
+        row.setLatencySum(bucket.latencySum.sum());
+        row.setLatencyMax(histogram.getTotalCount() > 0 ? histogram.getMaxValue() : 0L);
+        if (histogram.getTotalCount() > 0) {
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            row.setLatencyHistogram(Arrays.copyOf(buffer.array(), length));
+        }
+        return row;
+    }
+
+    /**
+     * 统计维度
+     */
+    private record StatsKey(long minute, String channelCode, String topic, long accessTokenId) {
+    }
+
+    /**
+     * 分钟桶：计数使用LongAdder（分段累加，高并发无竞争），耗时使用HdrHistogram Recorder（无锁写入）
+     */
+    private static class StatsBucket {
+
+        private final LongAdder success = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private final LongAdder retry = new LongAdder();
+
+        private final LongAdder latencySum = new LongAdder();
+
+        private final Recorder latency = new Recorder(1, MAX_LATENCY_MS, 2);
+
+        /**
+         * 累计的耗时分布（Recorder每次取样只返回区间数据，需自行累加以支持刷盘重试）
+         */
+        private final Histogram accumulated = new Histogram(1, MAX_LATENCY_MS, 2);
+
+        private synchronized Histogram snapshot() {
+            accumulated.add(latency.getIntervalHistogram());
+            return accumulated;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.service.MessageContentService;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 消息正文清理定时任务
+ * 删除push_content中长时间未被引用、且已没有消息引用的正文，
+ * 消息被保留期清理（分区删除、冷归档）后其正文随之回收
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class ContentCleanupTask {
+
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${push.content.cleanup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 最近引用时间超过该天数才清理（需大于正文在Redis中的8天有效期）
+     */
+    @Value("${push.content.cleanup.idle-days:8}")
+    private int idleDays;
+
+    @Value("${push.content.cleanup.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每天凌晨执行一次（在分区维护与冷归档之后）
+     */
+    @Scheduled(cron = "${push.content.cleanup.cron:0 0 4 * * ?}")
+    public void purgeContents() {
+        if (!enabled) {
+            return;
+        }
+
+        // 多实例部署时只允许一个实例执行
+        Boolean locked = redisUtils.getRedisTemplate().opsForValue()
+            .setIfAbsent(RedisConstants.PUSH_CONTENT_CLEANUP_LOCK_KEY, "1", Duration.ofHours(2));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("正文清理任务已在其他实例执行，跳过");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            int purged = messageContentService.purgeUnreferenced(LocalDateTime.now().minusDays(idleDays), batchSize);
+            log.info("消息正文清理完成, purged: {}, cost: {}ms", purged, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("消息正文清理异常, cost: {}ms", System.currentTimeMillis() - startTime, e);
+        } finally {
+            redisUtils.delete(RedisConstants.PUSH_CONTENT_CLEANUP_LOCK_KEY);
+        }
+    }
+}
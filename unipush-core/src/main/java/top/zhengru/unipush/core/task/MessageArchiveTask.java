@@ -0,0 +1,75 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.archive.MessageArchiveService;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 消息冷归档定时任务
+ * 将超过阈值的消息导出到归档段文件并从push_message删除，归档段保留到审计期满
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class MessageArchiveTask {
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${push.archive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 消息创建超过该天数后归档
+     */
+    @Value("${push.archive.threshold-days:30}")
+    private int thresholdDays;
+
+    /**
+     * 归档段保留月数
+     */
+    @Value("${push.archive.retention-months:13}")
+    private int retentionMonths;
+
+    /**
+     * 每天凌晨执行一次
+     */
+    @Scheduled(cron = "${push.archive.cron:0 0 3 * * ?}")
+    public void archiveMessages() {
+        if (!enabled) {
+            return;
+        }
+
+        // 多实例部署时只允许一个实例执行
+        Boolean locked = redisUtils.getRedisTemplate().opsForValue()
+            .setIfAbsent(RedisConstants.PUSH_ARCHIVE_LOCK_KEY, "1", Duration.ofHours(6));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("归档任务已在其他实例执行，跳过");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            int archived = messageArchiveService.archiveBefore(LocalDateTime.now().minusDays(thresholdDays));
+            int purged = messageArchiveService.purgeBefore(LocalDateTime.now().minusMonths(retentionMonths));
+            log.info("消息归档完成, archived: {}, purgedSegments: {}, cost: {}ms",
+                archived, purged, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("消息归档异常, cost: {}ms", System.currentTimeMillis() - startTime, e);
+        } finally {
+            redisUtils.delete(RedisConstants.PUSH_ARCHIVE_LOCK_KEY);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package top.zhengru.unipush.core.task;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.common.enums.MessageStatus;
 import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.service.MessageContentService;
 import top.zhengru.unipush.core.service.PushMessageService;
 import top.zhengru.unipush.core.util.RedisUtils;
 
@@ -29,6 +33,20 @@ public class MessagePersistTask {
     @Autowired
     private PushMessageService pushMessageService;
 
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    /**
+     * 导出持久化队列积压量
+     */
+    @PostConstruct
+    public void bindMetrics() {
+        coreMetrics.bindPersistQueueSize(redisUtils::getPersistQueueSize);
+    }
+
     /**
      * 每5秒执行一次，批量迁移Redis消息到数据库
      */
@@ -69,26 +87,49 @@ public class MessagePersistTask {
                 return;
             }
 
-            // 3. 批量写入数据库（使用 saveOrUpdateBatch 支持插入和更新）
-            boolean success = pushMessageService.saveOrUpdateBatch(batch, 100);
+            // 3. 先写入去重存储的正文，再批量写入消息（新消息插入，已落库的批量更新）
+            long persistStart = System.nanoTime();
+            List<PushMessage> rejected;
+            try {
+                messageContentService.persistContents(batch);
+                rejected = pushMessageService.persistBatch(batch);
+            } catch (Exception e) {
+                coreMetrics.recordPersist(false, batch.size(), System.nanoTime() - persistStart);
+                // 失败不标记，下次继续重试
+                log.error("批量持久化失败, count: {}", batch.size(), e);
+                return;
+            }
+            coreMetrics.recordPersist(true, batch.size(), System.nanoTime() - persistStart);
 
-            if (success) {
-                // 4. 标记为已持久化（防止重复写回）
-                for (PushMessage msg : batch) {
-                    msg.setPersisted(1);
-                    msg.setPersistedTime(java.time.LocalDateTime.now());
-                    // 更新Redis中的状态
-                    redisUtils.setPushMessage(msg.getMessageId(), msg, 7 * 24 * 3600);
+            // 4. 标记为已持久化（防止重复写回）
+            for (PushMessage msg : batch) {
+                if (rejected.contains(msg)) {
+                    continue;
                 }
+                msg.setPersisted(1);
+                msg.setPersistedTime(java.time.LocalDateTime.now());
+                // 更新Redis中的状态
+                redisUtils.setPushMessage(msg.getMessageId(), msg, 7 * 24 * 3600);
+            }
 
-                // 5. 从持久化队列移除已迁移的消息
-                redisUtils.removeFromPersistQueueBatch(idsToRemove.toArray());
+            // 5. message_id被占用的消息无法落库，重试也不会成功：在Redis副本上标记失败（查询可见原因）后出队
+            for (PushMessage msg : rejected) {
+                msg.setStatus(MessageStatus.FAILED.getCode());
+                msg.setErrorMessage("message_id已被其他消息占用，无法落库");
+                redisUtils.setPushMessage(msg.getMessageId(), msg, 7 * 24 * 3600);
+                coreMetrics.recordResult(msg.getChannelCode(), CoreMetrics.RESULT_FAILED);
+            }
+
+            // 6. 从持久化队列移除已处理的消息
+            redisUtils.removeFromPersistQueueBatch(idsToRemove.toArray());
 
+            if (rejected.isEmpty()) {
                 log.info("定时迁移完成, total: {}, cost: {}ms",
                     batch.size(), System.currentTimeMillis() - startTime);
             } else {
-                log.error("批量持久化失败, count: {}", batch.size());
-                // 失败不标记，下次继续重试
+                log.error("定时迁移完成, 部分消息无法落库已标记失败, total: {}, rejected: {}, cost: {}ms",
+                    batch.size(), rejected.stream().map(PushMessage::getMessageId).toList(),
+                    System.currentTimeMillis() - startTime);
             }
 
         } catch (Exception e) {
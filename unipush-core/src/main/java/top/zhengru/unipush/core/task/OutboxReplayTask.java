@@ -0,0 +1,188 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.mq.DeliveryTaskProducer;
+import top.zhengru.unipush.core.outbox.DeliveryOutbox;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * outbox重放定时任务
+ * 按写入顺序批量补发outbox中的投递任务，一批全部确认后才继续下一批；遇到失败即停止，等下次调度再试。
+ * 重放锁的值为本次执行的随机令牌，每批完成后续期、结束时比对令牌再删除，
+ * 单批耗时超过锁有效期也不会误删其他实例的锁
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class OutboxReplayTask {
+
+    /**
+     * 仅当锁仍由本次执行持有时续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    /**
+     * 仅当锁仍由本次执行持有时删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    @Autowired
+    private DeliveryOutbox deliveryOutbox;
+
+    @Autowired
+    private DeliveryTaskProducer deliveryTaskProducer;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    /**
+     * 每批补发的记录数
+     */
+    @Value("${push.outbox.replay-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 单次调度最多补发的记录数（剩余的留给下次调度，避免长时间占用锁）
+     */
+    @Value("${push.outbox.replay-max-per-run:20000}")
+    private int maxPerRun;
+
+    /**
+     * 等待一批Kafka确认的超时（毫秒）
+     */
+    @Value("${push.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    /**
+     * 重放锁有效期（秒），每批完成后续期，需大于单批的最长耗时（send-timeout-ms）
+     */
+    @Value("${push.outbox.lock-seconds:60}")
+    private long lockSeconds;
+
+    @Scheduled(fixedDelayString = "${push.outbox.replay-interval:1000}", initialDelay = 10000)
+    public void replay() {
+        if (!deliveryOutbox.isEnabled()) {
+            return;
+        }
+        deliveryOutbox.refreshBacklog();
+        if (deliveryOutbox.getBacklog() == 0) {
+            deliveryOutbox.markKafkaRecovered();
+            return;
+        }
+
+        // 多实例部署时只允许一个实例重放，避免同一条任务被补发多次
+        String lockToken = UUID.randomUUID().toString();
+        Boolean locked = redisUtils.getRedisTemplate().opsForValue()
+            .setIfAbsent(RedisConstants.PUSH_OUTBOX_LOCK_KEY, lockToken, Duration.ofSeconds(lockSeconds));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int replayed = 0;
+        try {
+            while (replayed < maxPerRun) {
+                List<DeliveryOutbox.Entry> batch = deliveryOutbox.peek(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int sent = replayBatch(batch);
+                replayed += sent;
+                if (sent < batch.size()) {
+                    deliveryOutbox.markKafkaFailure();
+                    log.warn("outbox重放中断, Kafka仍不可用, replayed: {}, backlog: {}",
+                        replayed, deliveryOutbox.getBacklog());
+                    return;
+                }
+                // 一整批确认成功，新任务恢复直接发送Kafka
+                deliveryOutbox.markKafkaRecovered();
+
+                if (!renewLock(lockToken)) {
+                    log.warn("outbox重放锁已失效, 停止本次重放, replayed: {}", replayed);
+                    return;
+                }
+            }
+            log.info("outbox重放完成, replayed: {}, backlog: {}, cost: {}ms",
+                replayed, deliveryOutbox.getBacklog(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("outbox重放异常, replayed: {}", replayed, e);
+        } finally {
+            releaseLock(lockToken);
+        }
+    }
+
+    private boolean renewLock(String lockToken) {
+        Long renewed = redisUtils.getRedisTemplate().execute(RENEW_SCRIPT,
+            Collections.singletonList(RedisConstants.PUSH_OUTBOX_LOCK_KEY),
+            lockToken, lockSeconds);
+        return renewed != null && renewed > 0;
+    }
+
+    private void releaseLock(String lockToken) {
+        try {
+            redisUtils.getRedisTemplate().execute(RELEASE_SCRIPT,
+                Collections.singletonList(RedisConstants.PUSH_OUTBOX_LOCK_KEY), lockToken);
+        } catch (Exception e) {
+            // 释放失败时锁到期自动失效
+            log.warn("outbox重放锁释放失败, error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 补发一批并删除已确认的记录
+     *
+     * @return 确认成功的记录数
+     */
+    private int replayBatch(List<DeliveryOutbox.Entry> batch) {
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+        for (DeliveryOutbox.Entry entry : batch) {
+            futures.add(deliveryTaskProducer.replayDeliveryTask(
+                entry.getTopic(), entry.getKey(), entry.getValue(), entry.getTrace()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<RecordId> confirmed = new ArrayList<>(batch.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                confirmed.add(batch.get(i).getRecordId());
+            } catch (ExecutionException | TimeoutException e) {
+                // 未确认的保留在outbox，下次重放
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        deliveryOutbox.remove(confirmed);
+        coreMetrics.recordOutboxReplay(confirmed.size(), batch.size() - confirmed.size());
+        return confirmed.size();
+    }
+}
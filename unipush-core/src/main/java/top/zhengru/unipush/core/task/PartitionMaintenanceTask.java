@@ -0,0 +1,271 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.archive.MessageArchiveService;
+import top.zhengru.unipush.core.mapper.PartitionMapper;
+import top.zhengru.unipush.core.service.MessageIndexService;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分区维护定时任务
+ * push_message / push_log 按 create_time 做 RANGE 分区（见 sql/unipush_partition.sql），
+ * 本任务提前创建未来分区，并将过期分区 DROP 或 EXCHANGE 到归档表，避免大批量DELETE。
+ * 过期按分区上界判断，p_history 的上界早于保留起点后同样清理。
+ * 开启冷归档（push.archive.enabled）时，push_message 分区只有上界不晚于归档水位才会 DROP，
+ * 未导出到归档段的数据不会被删除
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class PartitionMaintenanceTask {
+
+    /**
+     * 允许维护的表（表名会拼进DDL，只接受白名单）
+     */
+    private static final Set<String> SUPPORTED_TABLES = Set.of("push_message", "push_log");
+
+    /**
+     * 兜底分区名
+     */
+    private static final String FUTURE_PARTITION = "p_future";
+
+    /**
+     * TO_DAYS('1970-01-01')，分区上界天数换算为日期用
+     */
+    private static final long TO_DAYS_EPOCH = 719528L;
+
+    @Autowired
+    private PartitionMapper partitionMapper;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private MessageIndexService messageIndexService;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${push.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${push.partition.index-purge-batch-size:1000}")
+    private int indexPurgeBatchSize;
+
+    @Value("${push.partition.enabled:false}")
+    private boolean enabled;
+
+    @Value("${push.partition.tables:push_message,push_log}")
+    private List<String> tables;
+
+    /**
+     * 分区粒度：DAY-按天 MONTH-按月
+     */
+    @Value("${push.partition.granularity:DAY}")
+    private String granularity;
+
+    /**
+     * 提前创建的分区数（含当前周期）
+     */
+    @Value("${push.partition.pre-create:7}")
+    private int preCreate;
+
+    /**
+     * 保留的分区数（按粒度计，超出的分区会被清理）
+     */
+    @Value("${push.partition.retention:30}")
+    private int retention;
+
+    /**
+     * 过期分区处理方式：DROP-直接删除 ARCHIVE-交换到归档表 {table}_{partition}
+     */
+    @Value("${push.partition.expire-action:DROP}")
+    private String expireAction;
+
+    /**
+     * 启动后立即维护一次，保证当前周期分区存在
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintainPartitions();
+    }
+
+    /**
+     * 每天凌晨维护一次
+     */
+    @Scheduled(cron = "${push.partition.cron:0 30 2 * * ?}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+
+        // 多实例部署时只允许一个实例执行DDL
+        Boolean locked = redisUtils.getRedisTemplate().opsForValue()
+            .setIfAbsent(RedisConstants.PUSH_PARTITION_LOCK_KEY, "1", Duration.ofHours(1));
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("分区维护任务已在其他实例执行，跳过");
+            return;
+        }
+
+        try {
+            for (String table : tables) {
+                String tableName = table.trim();
+                if (!SUPPORTED_TABLES.contains(tableName)) {
+                    log.warn("不支持分区维护的表, table: {}", tableName);
+                    continue;
+                }
+
+                try {
+                    maintainTable(tableName);
+                } catch (Exception e) {
+                    log.error("分区维护失败, table: {}", tableName, e);
+                }
+            }
+        } finally {
+            redisUtils.delete(RedisConstants.PUSH_PARTITION_LOCK_KEY);
+        }
+    }
+
+    private void maintainTable(String tableName) {
+        List<Map<String, Object>> bounds = partitionMapper.listPartitionBounds(tableName);
+        List<String> partitions = bounds.stream().map(row -> String.valueOf(row.get("name"))).toList();
+        if (partitions.isEmpty() || !partitions.contains(FUTURE_PARTITION)) {
+            log.warn("表未按约定分区（缺少{}），跳过维护, table: {}", FUTURE_PARTITION, tableName);
+            return;
+        }
+
+        boolean monthly = "MONTH".equalsIgnoreCase(granularity);
+        ChronoUnit unit = monthly ? ChronoUnit.MONTHS : ChronoUnit.DAYS;
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(monthly ? "yyyyMM" : "yyyyMMdd");
+        LocalDate currentPeriod = monthly ? LocalDate.now().withDayOfMonth(1) : LocalDate.now();
+
+        // 1. 提前创建未来分区：只追加在最后一个已有周期分区之后
+        LocalDate lastPeriod = null;
+        for (String partition : partitions) {
+            LocalDate period = parsePeriod(partition, formatter, monthly);
+            if (period != null && (lastPeriod == null || period.isAfter(lastPeriod))) {
+                lastPeriod = period;
+            }
+        }
+
+        List<String> definitions = new ArrayList<>();
+        for (int i = 0; i < preCreate; i++) {
+            LocalDate period = currentPeriod.plus(i, unit);
+            if (lastPeriod != null && !period.isAfter(lastPeriod)) {
+                continue;
+            }
+            definitions.add(String.format("PARTITION p%s VALUES LESS THAN (TO_DAYS('%s'))",
+                period.format(formatter), period.plus(1, unit)));
+        }
+
+        if (!definitions.isEmpty()) {
+            definitions.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE");
+            partitionMapper.reorganizeFuturePartition(tableName, String.join(", ", definitions));
+            log.info("已创建未来分区, table: {}, count: {}", tableName, definitions.size() - 1);
+        }
+
+        // 2. 清理过期分区：分区上界不晚于保留起点的整块删除或归档（含p_history）
+        LocalDate retentionStart = currentPeriod.minus(retention, unit);
+        boolean archive = "ARCHIVE".equalsIgnoreCase(expireAction);
+        boolean gated = !archive && archiveEnabled && "push_message".equals(tableName);
+        LocalDateTime watermark = gated ? messageArchiveService.getWatermark() : null;
+        LocalDate droppedBefore = null;
+
+        for (Map<String, Object> row : bounds) {
+            String partition = String.valueOf(row.get("name"));
+            LocalDate upperBound = parseUpperBound(row.get("description"));
+            if (upperBound == null || upperBound.isAfter(retentionStart)) {
+                continue;
+            }
+            if (gated && (watermark == null || upperBound.atStartOfDay().isAfter(watermark))) {
+                log.warn("分区数据尚未全部冷归档，暂不删除, table: {}, partition: {}, watermark: {}",
+                    tableName, partition, watermark);
+                continue;
+            }
+
+            if (archive) {
+                archivePartition(tableName, partition);
+            }
+            partitionMapper.dropPartition(tableName, partition);
+            droppedBefore = droppedBefore == null || upperBound.isAfter(droppedBefore) ? upperBound : droppedBefore;
+            log.info("已清理过期分区, table: {}, partition: {}, action: {}",
+                tableName, partition, expireAction);
+        }
+
+        // 3. 分区中的消息已移出push_message，同步清理message_id登记
+        if (droppedBefore != null && "push_message".equals(tableName)) {
+            int purged = messageIndexService.purgeBefore(droppedBefore.atStartOfDay(), indexPurgeBatchSize);
+            log.info("已清理消息ID登记, before: {}, count: {}", droppedBefore, purged);
+        }
+    }
+
+    /**
+     * 将分区数据交换到独立归档表，随后源分区变为空分区
+     */
+    private void archivePartition(String tableName, String partition) {
+        String archiveTable = tableName + "_" + partition;
+        partitionMapper.createArchiveTable(archiveTable, tableName);
+        try {
+            partitionMapper.removePartitioning(archiveTable);
+        } catch (Exception e) {
+            // 归档表已是非分区表（上次执行中断后重试）
+            log.debug("归档表无需移除分区定义, table: {}", archiveTable);
+        }
+        partitionMapper.exchangePartition(tableName, partition, archiveTable);
+    }
+
+    /**
+     * 解析分区上界（PARTITION_DESCRIPTION 为 TO_DAYS 天数）
+     *
+     * @return 上界日期（不含），MAXVALUE 返回null
+     */
+    private LocalDate parseUpperBound(Object description) {
+        if (description == null) {
+            return null;
+        }
+        try {
+            return LocalDate.ofEpochDay(Long.parseLong(description.toString().trim()) - TO_DAYS_EPOCH);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从分区名解析周期起始日期，如 p20261019 / p202610
+     *
+     * @return 周期起始日期，非周期分区（p_history、p_future）返回null
+     */
+    private LocalDate parsePeriod(String partition, DateTimeFormatter formatter, boolean monthly) {
+        if (partition == null || !partition.matches("p\\d{6}|p\\d{8}")) {
+            return null;
+        }
+        String value = partition.substring(1);
+        try {
+            return monthly
+                ? LocalDate.parse(value + "01", DateTimeFormatter.ofPattern("yyyyMMdd"))
+                : LocalDate.parse(value, formatter);
+        } catch (DateTimeParseException e) {
+            // 与当前粒度不一致的分区名
+            return null;
+        }
+    }
+}
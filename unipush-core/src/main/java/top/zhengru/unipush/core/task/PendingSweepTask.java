@@ -0,0 +1,79 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.core.service.PushMessageService;
+import top.zhengru.unipush.core.util.RedisUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 未回报结果消息检查定时任务
+ * worker 把投递任务放入内存队列后即提交offset（钉钉限流队列、Bark/webhook 批量窗口），
+ * 进程异常退出时队列中的任务丢失、不会再回报结果；
+ * 下发后超过 stale-minutes 仍为PENDING的消息按投递失败处理（重试或标记失败），不会永远停留在PENDING
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class PendingSweepTask {
+
+    @Autowired
+    private PushMessageService pushMessageService;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${push.pending-sweep.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 下发后超过该分钟数仍未回报结果视为丢失（需大于worker内存队列中最长的等待时间，否则会重复投递）
+     */
+    @Value("${push.pending-sweep.stale-minutes:60}")
+    private int staleMinutes;
+
+    /**
+     * 只检查最近该小时数内创建的消息
+     */
+    @Value("${push.pending-sweep.max-age-hours:48}")
+    private int maxAgeHours;
+
+    @Value("${push.pending-sweep.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${push.pending-sweep.interval:60000}", initialDelay = 60000)
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+
+        // 多实例部署时只允许一个实例执行
+        Boolean locked = redisUtils.getRedisTemplate().opsForValue()
+            .setIfAbsent(RedisConstants.PUSH_PENDING_SWEEP_LOCK_KEY, "1", Duration.ofMinutes(5));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int handled = pushMessageService.redispatchStalePending(now.minusMinutes(staleMinutes),
+                now.minusHours(maxAgeHours), batchSize);
+            if (handled > 0) {
+                log.warn("未回报结果的消息已按失败处理, count: {}, cost: {}ms",
+                    handled, System.currentTimeMillis() - startTime);
+            }
+        } catch (Exception e) {
+            log.error("未回报结果消息检查异常, cost: {}ms", System.currentTimeMillis() - startTime, e);
+        } finally {
+            redisUtils.delete(RedisConstants.PUSH_PENDING_SWEEP_LOCK_KEY);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package top.zhengru.unipush.core.task;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+import top.zhengru.unipush.core.schedule.ScheduledMessageQueue;
+import top.zhengru.unipush.core.service.PushMessageService;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时消息调度任务
+ * 独立线程按时间轮刻度取出到期消息并分批投递，定期认领加载即将到期的分钟桶；
+ * 加载与取出在同一线程执行。不使用 @Scheduled：共用的调度线程会被归档等长任务阻塞，影响发送准时性
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class ScheduledDispatchTask {
+
+    @Autowired
+    private ScheduledMessageQueue scheduledMessageQueue;
+
+    @Autowired
+    private PushMessageService pushMessageService;
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Value("${push.schedule.enabled:true}")
+    private boolean enabled;
+
+    @Value("${push.schedule.tick-millis:100}")
+    private long tickMillis;
+
+    /**
+     * 加载分钟桶的间隔（毫秒）
+     */
+    @Value("${push.schedule.load-interval:10000}")
+    private long loadInterval;
+
+    /**
+     * 每批投递的消息数
+     */
+    @Value("${push.schedule.dispatch-batch-size:500}")
+    private int batchSize;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "schedule-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::load, 5000, loadInterval, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::dispatch, 5000, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void load() {
+        try {
+            scheduledMessageQueue.load();
+        } catch (Exception e) {
+            log.error("加载定时消息异常", e);
+        }
+    }
+
+    private void dispatch() {
+        try {
+            List<String> due = scheduledMessageQueue.poll();
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<String> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+                try {
+                    pushMessageService.dispatchScheduled(batch);
+                    coreMetrics.recordScheduledDispatch(batch.size());
+                    scheduledMessageQueue.ack(batch);
+                } catch (Exception e) {
+                    log.error("投递定时消息异常, size: {}", batch.size(), e);
+                    for (String messageId : batch) {
+                        scheduledMessageQueue.putBack(messageId);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("定时消息调度异常", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package top.zhengru.unipush.core.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.core.stats.DeliveryStatsCollector;
+
+/**
+ * 投递统计刷盘定时任务
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class StatsFlushTask {
+
+    @Autowired
+    private DeliveryStatsCollector deliveryStatsCollector;
+
+    /**
+     * 每15秒刷出已结束的分钟桶
+     */
+    @Scheduled(fixedDelay = 15000, initialDelay = 30000)
+    public void flushStats() {
+        try {
+            deliveryStatsCollector.flush();
+        } catch (Exception e) {
+            log.error("统计分钟桶刷出失败，下次重试", e);
+        }
+    }
+}
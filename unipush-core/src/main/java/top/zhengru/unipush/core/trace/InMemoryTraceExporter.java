@@ -0,0 +1,60 @@
+package top.zhengru.unipush.core.trace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.trace.TraceExporter;
+import top.zhengru.unipush.common.trace.TraceRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 内存链路导出器（本地调试、测试使用）
+ * 保留最近 capacity 条记录，超出时丢弃最早的
+ *
+ * @author zhengru
+ */
+@Component
+@ConditionalOnProperty(name = "push.trace.exporter", havingValue = "memory")
+public class InMemoryTraceExporter implements TraceExporter {
+
+    @Value("${push.trace.memory-capacity:10000}")
+    private int capacity;
+
+    private final Deque<TraceRecord> records = new ArrayDeque<>();
+
+    @Override
+    public synchronized void export(TraceRecord record) {
+        if (records.size() >= capacity) {
+            records.pollFirst();
+        }
+        records.addLast(record);
+    }
+
+    /**
+     * 最近的链路记录（按导出顺序）
+     */
+    public synchronized List<TraceRecord> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * 按追踪ID查询（同一链路的重试会有多条）
+     */
+    public synchronized List<TraceRecord> findByTraceId(String traceId) {
+        List<TraceRecord> result = new ArrayList<>();
+        for (TraceRecord record : records) {
+            if (record.getTraceId().equals(traceId)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        records.clear();
+    }
+}
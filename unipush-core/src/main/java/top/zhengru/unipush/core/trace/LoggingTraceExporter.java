@@ -0,0 +1,26 @@
+package top.zhengru.unipush.core.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.trace.TraceExporter;
+import top.zhengru.unipush.common.trace.TraceRecord;
+
+/**
+ * 日志链路导出器（默认）
+ * 每条投递结果输出一行阶段耗时
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "push.trace.exporter", havingValue = "log", matchIfMissing = true)
+public class LoggingTraceExporter implements TraceExporter {
+
+    @Override
+    public void export(TraceRecord record) {
+        log.info("消息链路, traceId: {}, messageId: {}, channel: {}, success: {}, total: {}ms, stages: {}",
+            record.getTraceId(), record.getMessageId(), record.getChannelCode(), record.getSuccess(),
+            record.getTotalCost(), record.getStageCosts());
+    }
+}
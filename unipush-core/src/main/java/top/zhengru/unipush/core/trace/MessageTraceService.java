@@ -0,0 +1,71 @@
+package top.zhengru.unipush.core.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.model.entity.PushMessage;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.common.trace.TraceExporter;
+import top.zhengru.unipush.common.trace.TraceRecord;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
+
+import java.util.List;
+
+/**
+ * 消息链路汇总服务
+ * 投递结果回传时，链路已经过全部阶段：按阶段记录耗时指标，并交给已注册的 {@link TraceExporter}
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Service
+public class MessageTraceService {
+
+    private static final TraceStage[] STAGES = TraceStage.values();
+
+    @Autowired
+    private CoreMetrics coreMetrics;
+
+    @Autowired(required = false)
+    private List<TraceExporter> traceExporters;
+
+    /**
+     * 完成一次投递的链路
+     *
+     * @param pushMessage 消息
+     * @param trace       已合并各阶段的链路上下文
+     * @param success     本次投递是否成功
+     */
+    public void complete(PushMessage pushMessage, TraceContext trace, boolean success) {
+        for (TraceStage stage : STAGES) {
+            long cost = trace.costOf(stage);
+            if (cost >= 0) {
+                coreMetrics.recordTraceStage(stage, cost);
+            }
+        }
+
+        if (traceExporters == null || traceExporters.isEmpty()) {
+            return;
+        }
+
+        TraceRecord record = new TraceRecord();
+        record.setTraceId(trace.getTraceId());
+        record.setMessageId(pushMessage.getMessageId());
+        record.setChannelCode(pushMessage.getChannelCode());
+        record.setSuccess(success);
+        record.setRetryCount(pushMessage.getRetryCount());
+        record.setStageTimes(trace.stageTimes());
+        record.setStageCosts(trace.stageCosts());
+        record.setTotalCost(trace.totalCost());
+
+        for (TraceExporter exporter : traceExporters) {
+            try {
+                exporter.export(record);
+            } catch (Exception e) {
+                log.warn("链路导出失败, exporter: {}, traceId: {}, error: {}",
+                    exporter.getClass().getSimpleName(), trace.getTraceId(), e.getMessage());
+            }
+        }
+    }
+}
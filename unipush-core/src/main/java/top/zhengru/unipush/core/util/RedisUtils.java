@@ -1,9 +1,20 @@
 package top.zhengru.unipush.core.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
+import top.zhengru.unipush.core.metrics.CoreMetrics;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -18,9 +29,26 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class RedisUtils {
 
+    /**
+     * 从分钟桶取走消息并记入待确认集合
+     * KEYS[1]=待确认集合，KEYS[2..]=各消息所在的桶；ARGV[1]=确认期限，ARGV[2..]=消息ID
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAKE_SCHEDULED_SCRIPT = new DefaultRedisScript<>(
+        "local taken = {} " +
+            "for i = 2, #KEYS do " +
+            "if redis.call('zrem', KEYS[i], ARGV[i]) > 0 then " +
+            "redis.call('zadd', KEYS[1], ARGV[1], ARGV[i]) taken[i - 1] = 1 " +
+            "else taken[i - 1] = 0 end " +
+            "end " +
+            "return taken", List.class);
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private CoreMetrics coreMetrics;
+
     /**
      * 获取RedisTemplate（用于复杂操作）
      */
@@ -238,7 +266,9 @@ public class RedisUtils {
      */
     public void setPushMessage(String messageId, Object pushMessage, long expireSeconds) {
         String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_MESSAGE_KEY + messageId;
+        long start = System.nanoTime();
         redisTemplate.opsForValue().set(key, pushMessage, expireSeconds, TimeUnit.SECONDS);
+        coreMetrics.recordRedis(CoreMetrics.RedisOp.SET_MESSAGE, System.nanoTime() - start);
     }
 
     /**
@@ -249,7 +279,29 @@ public class RedisUtils {
      */
     public <T> T getPushMessage(String messageId) {
         String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_MESSAGE_KEY + messageId;
-        return (T) redisTemplate.opsForValue().get(key);
+        long start = System.nanoTime();
+        T value = (T) redisTemplate.opsForValue().get(key);
+        coreMetrics.recordRedis(CoreMetrics.RedisOp.GET_MESSAGE, System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * 批量获取推送消息
+     *
+     * @param messageIds 消息ID列表
+     * @return 与messageIds一一对应，不存在的为null
+     */
+    public <T> List<T> getPushMessages(List<String> messageIds) {
+        List<String> keys = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            keys.add(top.zhengru.unipush.common.constant.RedisConstants.PUSH_MESSAGE_KEY + messageId);
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        List<T> result = new ArrayList<>(messageIds.size());
+        for (int i = 0; i < messageIds.size(); i++) {
+            result.add(values != null ? (T) values.get(i) : null);
+        }
+        return result;
     }
 
     /**
@@ -260,7 +312,9 @@ public class RedisUtils {
      */
     public void addToPersistQueue(String messageId, long score) {
         String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_MESSAGE_BATCH_KEY;
+        long start = System.nanoTime();
         redisTemplate.opsForZSet().add(key, messageId, score);
+        coreMetrics.recordRedis(CoreMetrics.RedisOp.ADD_PERSIST_QUEUE, System.nanoTime() - start);
     }
 
     /**
@@ -321,4 +375,182 @@ public class RedisUtils {
         Long size = redisTemplate.opsForZSet().size(key);
         return size != null ? size : 0;
     }
+
+    // ============================= 专用方法：定时消息 =============================
+
+    /**
+     * 定时消息加入分钟桶
+     *
+     * @param minute    桶（epoch分钟）
+     * @param messageId 消息ID
+     * @param sendAt    计划发送时间（epoch毫秒）
+     */
+    public void addToScheduleBucket(long minute, String messageId, long sendAt) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_KEY + minute;
+        redisTemplate.opsForZSet().add(key, messageId, sendAt);
+    }
+
+    /**
+     * 分钟桶是否存在（有未取走的消息）
+     */
+    public boolean hasScheduleBucket(long minute) {
+        return hasKey(top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_KEY + minute);
+    }
+
+    /**
+     * 按下标读取分钟桶（按计划发送时间排序）
+     *
+     * @param minute 桶（epoch分钟）
+     * @param start  起始下标
+     * @param end    结束下标（包含）
+     * @return messageId 与计划发送时间
+     */
+    public Set<ZSetOperations.TypedTuple<Object>> rangeScheduleBucket(long minute, long start, long end) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_KEY + minute;
+        Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet().rangeWithScores(key, start, end);
+        return tuples != null ? tuples : Set.of();
+    }
+
+    /**
+     * 从分钟桶中取走一批消息，取走的同时记入待确认集合（脚本内逐条ZREM + ZADD）
+     * 同一条消息只有一次调用能取走，多实例/重复加载时以此保证只投递一次；
+     * 投递成功后由 {@link #ackScheduleInflight} 确认，取走后实例宕机的由 {@link #takeExpiredScheduleInflight} 找回
+     *
+     * @param minutes    每条消息所在的桶
+     * @param messageIds 消息ID
+     * @param deadline   确认期限（epoch毫秒）
+     * @return 与messageIds一一对应，true=本次取走
+     */
+    @SuppressWarnings("unchecked")
+    public boolean[] takeFromScheduleBuckets(long[] minutes, List<String> messageIds, long deadline) {
+        List<String> keys = new ArrayList<>(messageIds.size() + 1);
+        keys.add(top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_INFLIGHT_KEY);
+        Object[] args = new Object[messageIds.size() + 1];
+        args[0] = deadline;
+        for (int i = 0; i < messageIds.size(); i++) {
+            keys.add(top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_KEY + minutes[i]);
+            args[i + 1] = messageIds.get(i);
+        }
+        List<Object> results = redisTemplate.execute(TAKE_SCHEDULED_SCRIPT, keys, args);
+        boolean[] taken = new boolean[messageIds.size()];
+        for (int i = 0; i < taken.length && results != null && i < results.size(); i++) {
+            Object result = results.get(i);
+            taken[i] = result instanceof Number && ((Number) result).longValue() > 0;
+        }
+        return taken;
+    }
+
+    /**
+     * 确认定时消息已投递（移出待确认集合）
+     */
+    public void ackScheduleInflight(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForZSet().remove(
+            top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_INFLIGHT_KEY, messageIds.toArray());
+    }
+
+    /**
+     * 取走超过确认期限的定时消息（管道逐条ZREM，多实例只有一个能取走同一条）
+     *
+     * @param now   当前时间（epoch毫秒）
+     * @param limit 最多取走的条数
+     * @return 本次取走的messageId
+     */
+    public List<String> takeExpiredScheduleInflight(long now, int limit) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_INFLIGHT_KEY;
+        Set<Object> expired = redisTemplate.opsForZSet().rangeByScore(key, 0, now, 0, limit);
+        if (expired == null || expired.isEmpty()) {
+            return List.of();
+        }
+        List<Object> members = new ArrayList<>(expired);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (Object member : members) {
+                    ops.opsForZSet().remove(key, member);
+                }
+                return null;
+            }
+        });
+        List<String> taken = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof Number && ((Number) result).longValue() > 0) {
+                taken.add(members.get(i).toString());
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * 认领分钟桶的加载
+     *
+     * @param minute  桶（epoch分钟）
+     * @param owner   加载实例
+     * @param seconds 认领有效期（秒），过期后桶内剩余消息可被重新加载
+     * @return true=认领成功
+     */
+    public boolean claimScheduleBucket(long minute, String owner, long seconds) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_CLAIM_KEY + minute;
+        Boolean result = redisTemplate.opsForValue().setIfAbsent(key, owner, seconds, TimeUnit.SECONDS);
+        return result != null && result;
+    }
+
+    /**
+     * 分钟桶是否已被某个实例加载
+     */
+    public boolean isScheduleBucketClaimed(long minute) {
+        return hasKey(top.zhengru.unipush.common.constant.RedisConstants.PUSH_SCHEDULE_CLAIM_KEY + minute);
+    }
+
+    // ============================= 专用方法：投递任务outbox =============================
+
+    /**
+     * 追加一条投递任务到outbox（Stream）
+     *
+     * @param fields 记录字段
+     * @return 记录ID
+     */
+    public RecordId addToOutbox(Map<String, Object> fields) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_OUTBOX_KEY;
+        return redisTemplate.opsForStream().add(StreamRecords.newRecord().in(key).ofMap(fields));
+    }
+
+    /**
+     * 按写入顺序读取outbox最早的记录（不删除）
+     *
+     * @param count 数量
+     * @return 记录列表
+     */
+    public List<MapRecord<String, Object, Object>> rangeOutbox(long count) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_OUTBOX_KEY;
+        List<MapRecord<String, Object, Object>> records =
+            redisTemplate.opsForStream().range(key, Range.unbounded(), Limit.limit().count((int) count));
+        return records != null ? records : List.of();
+    }
+
+    /**
+     * 从outbox删除记录
+     *
+     * @param recordIds 记录ID
+     */
+    public long removeFromOutbox(RecordId... recordIds) {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_OUTBOX_KEY;
+        Long result = redisTemplate.opsForStream().delete(key, recordIds);
+        return result != null ? result : 0;
+    }
+
+    /**
+     * 获取outbox的大小
+     *
+     * @return 记录数
+     */
+    public long getOutboxSize() {
+        String key = top.zhengru.unipush.common.constant.RedisConstants.PUSH_OUTBOX_KEY;
+        Long size = redisTemplate.opsForStream().size(key);
+        return size != null ? size : 0;
+    }
 }
@@ -0,0 +1,117 @@
+package top.zhengru.unipush.core.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试
+ *
+ * @author zhengru
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 100;
+
+    private static final int WHEEL_SIZE = 8;
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void firesEachEntryWithinOneTickAfterDeadline() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, START);
+        Random random = new Random(42);
+        int count = 20_000;
+        // 跨越多层：8格 × 100ms 每层放大8倍，6小时需要6层
+        long horizon = 6 * 3600 * 1000L;
+        for (int i = 0; i < count; i++) {
+            long deadline = START + (long) (random.nextDouble() * horizon);
+            assertTrue(wheel.add(deadline, deadline));
+        }
+        assertEquals(count, wheel.size());
+
+        int fired = 0;
+        List<Long> due = new ArrayList<>();
+        for (long now = START; now <= START + horizon + TICK; now += TICK) {
+            wheel.advance(now, due);
+            for (long deadline : due) {
+                assertTrue(deadline < now, "提前触发: deadline=" + deadline + ", now=" + now);
+                assertTrue(now - deadline <= TICK, "延迟超过一格: deadline=" + deadline + ", now=" + now);
+            }
+            fired += due.size();
+            due.clear();
+        }
+        assertEquals(count, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverFiresEarlyWhenAdvancedIrregularly() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, START);
+        Random random = new Random(7);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long now = START;
+        int nextId = 0;
+        List<Integer> due = new ArrayList<>();
+        while (now < START + 3600 * 1000L) {
+            // 推进过程中不断加入新元素，模拟运行中的写入
+            for (int i = 0; i < 5; i++) {
+                long deadline = now + (long) (random.nextDouble() * 600_000);
+                if (wheel.add(deadline, nextId)) {
+                    deadlines.put(nextId, deadline);
+                }
+                nextId++;
+            }
+            now += 1 + random.nextInt(3000);
+            wheel.advance(now, due);
+            for (int id : due) {
+                assertTrue(deadlines.remove(id) < now, "提前触发: id=" + id);
+            }
+            due.clear();
+        }
+        wheel.advance(now + 700_000, due);
+        for (int id : due) {
+            deadlines.remove(id);
+        }
+        assertTrue(deadlines.isEmpty(), "未触发: " + deadlines.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsDeadlineBeforeCurrentTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, START);
+        wheel.advance(START + 10 * TICK, new ArrayList<>());
+
+        assertFalse(wheel.add(START + 5 * TICK, "past"));
+        assertTrue(wheel.add(START + 10 * TICK, "current"));
+        assertEquals(1, wheel.size());
+
+        List<String> due = new ArrayList<>();
+        wheel.advance(START + 11 * TICK, due);
+        assertEquals(List.of("current"), due);
+    }
+
+    @Test
+    void entriesInSameSlotFireTogether() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, START);
+        wheel.add(START + 3 * TICK + 10, "a");
+        wheel.add(START + 3 * TICK + 90, "b");
+        wheel.add(START + 4 * TICK, "c");
+
+        List<String> due = new ArrayList<>();
+        wheel.advance(START + 4 * TICK, due);
+        assertEquals(List.of("a", "b"), due);
+
+        due.clear();
+        wheel.advance(START + 5 * TICK, due);
+        assertEquals(List.of("c"), due);
+    }
+}
@@ -0,0 +1,173 @@
+package top.zhengru.unipush.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import top.zhengru.unipush.loadtest.driver.LoadDriver;
+import top.zhengru.unipush.loadtest.infra.EmbeddedInfrastructure;
+import top.zhengru.unipush.loadtest.infra.ServiceProcess;
+import top.zhengru.unipush.loadtest.report.LoadRecorder;
+import top.zhengru.unipush.loadtest.report.LoadTestReporter;
+import top.zhengru.unipush.loadtest.sink.FakeChannelSink;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测入口
+ * <p>
+ * 流程：启动嵌入式 Kafka/Redis/MariaDB 与渠道替身 → 以子进程拉起 core、webhook →
+ * 按速率调用 createPushTask → 等待投递与落库完成 → 输出报告。
+ * 覆盖完整链路：Dubbo → core → Kafka → webhook → 渠道 → 结果回写 → 批量落库。
+ * <p>
+ * 用法（在项目根目录，先 mvn package -DskipTests）：
+ * <pre>
+ * java -jar unipush-loadtest/target/unipush-loadtest-1.0-SNAPSHOT.jar --rate=2000 --duration=120 \
+ *      --sink-latency-ms=50 --sink-error-rate=0.01
+ * </pre>
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    private static final int STARTUP_TIMEOUT_SECONDS = 180;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Path outputDir = Path.of(options.getOutputDir());
+        Files.createDirectories(outputDir);
+        log.info("压测参数: {}", options);
+
+        LoadRecorder recorder = new LoadRecorder();
+        List<AutoCloseable> resources = new ArrayList<>();
+        try {
+            EmbeddedInfrastructure infra = new EmbeddedInfrastructure();
+            resources.add(infra);
+            infra.start(options.getPartitions(), Path.of(options.getSchema()));
+
+            int sinkPort = EmbeddedInfrastructure.freePort();
+            FakeChannelSink sink = new FakeChannelSink(recorder,
+                options.getSinkLatencyMs(), options.getSinkJitterMs(), options.getSinkErrorRate());
+            resources.add(sink);
+            sink.start(sinkPort);
+
+            int dubboPort = EmbeddedInfrastructure.freePort();
+            ServiceProcess core = ServiceProcess.start("core", Path.of(options.getCoreJar()),
+                options.getServiceJvmOpts() + " -Ddubbo.protocol.host=127.0.0.1"
+                    + " -Ddubbo.registry.parameters.register.ip=127.0.0.1",
+                coreArgs(infra, dubboPort), outputDir);
+            resources.add(0, core);
+
+            int webhookPort = EmbeddedInfrastructure.freePort();
+            ServiceProcess webhook = ServiceProcess.start("webhook", Path.of(options.getWebhookJar()),
+                options.getServiceJvmOpts(), webhookArgs(infra, webhookPort, sinkPort), outputDir);
+            resources.add(0, webhook);
+
+            core.awaitPort(dubboPort, STARTUP_TIMEOUT_SECONDS);
+            webhook.awaitPort(webhookPort, STARTUP_TIMEOUT_SECONDS);
+
+            LoadDriver driver = new LoadDriver(options, recorder, sinkPort);
+            resources.add(0, driver);
+            driver.connect(dubboPort);
+
+            LoadTestReporter reporter = new LoadTestReporter(recorder, infra.getJdbcUrl(),
+                infra.getJdbcUsername(), infra.getJdbcPassword(), LoadDriver.TOPIC);
+            resources.add(0, reporter);
+
+            // 预热阶段的消息不计入统计
+            recorder.startMeasuring((long) options.getRate() * options.getWarmupSeconds());
+            reporter.start();
+
+            // 预热结束时记录已落库数，用于计算正式阶段的持久化吞吐
+            long[] persistedAtMeasureStart = {0};
+            Thread persistProbe = new Thread(() -> {
+                sleepSeconds(options.getWarmupSeconds());
+                persistedAtMeasureStart[0] = reporter.queryPersistedFinal();
+            });
+            persistProbe.start();
+
+            driver.run(options.getWarmupSeconds() + options.getDurationSeconds());
+            persistProbe.join();
+            long persistedInWindow = reporter.queryPersistedFinal() - persistedAtMeasureStart[0];
+
+            drain(recorder, reporter, options);
+
+            reporter.writeReport(options, options.getDurationSeconds(), persistedInWindow, outputDir);
+        } finally {
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    log.warn("释放资源失败: {}", e.getMessage());
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static List<String> commonArgs(EmbeddedInfrastructure infra) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.cloud.nacos.config.enabled=false");
+        args.add("--spring.cloud.nacos.config.import-check.enabled=false");
+        args.add("--spring.cloud.nacos.discovery.enabled=false");
+        args.add("--spring.kafka.bootstrap-servers=" + infra.getKafkaBrokers());
+        // 全新的broker，从头消费避免丢失消费组加入前的消息
+        args.add("--spring.kafka.consumer.auto-offset-reset=earliest");
+        args.add("--spring.data.redis.host=127.0.0.1");
+        args.add("--spring.data.redis.port=" + infra.getRedisPort());
+        args.add("--logging.level.top.zhengru.unipush=warn");
+        return args;
+    }
+
+    private static List<String> coreArgs(EmbeddedInfrastructure infra, int dubboPort) throws Exception {
+        List<String> args = commonArgs(infra);
+        args.add("--server.port=" + EmbeddedInfrastructure.freePort());
+        args.add("--dubbo.protocol.port=" + dubboPort);
+        args.add("--dubbo.registry.address=N/A");
+        args.add("--spring.cloud.sentinel.enabled=false");
+        args.add("--spring.datasource.url=" + infra.getJdbcUrl());
+        args.add("--spring.datasource.username=" + infra.getJdbcUsername());
+        args.add("--spring.datasource.password=" + infra.getJdbcPassword());
+        args.add("--mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl");
+        return args;
+    }
+
+    private static List<String> webhookArgs(EmbeddedInfrastructure infra, int serverPort, int sinkPort) {
+        List<String> args = commonArgs(infra);
+        args.add("--server.port=" + serverPort);
+        args.add("--webhook.bark.base-url=http://127.0.0.1:" + sinkPort + "/bark");
+        // 渠道全部指向本地替身，不预热公网主机
+        args.add("--webhook.pool.prewarm-hosts=");
+        // 替身钉钉没有每分钟20条的限制，压测全部消息共用一个机器人地址，不做限速合并
+        args.add("--webhook.dingtalk.rate-limit.enabled=false");
+        return args;
+    }
+
+    /**
+     * 等待全部消息投递完成且终态落库，最长 drainSeconds
+     */
+    private static void drain(LoadRecorder recorder, LoadTestReporter reporter, LoadTestOptions options) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getDrainSeconds());
+        long expected = (long) options.getRate() * (options.getWarmupSeconds() + options.getDurationSeconds());
+        while (System.nanoTime() < deadline) {
+            long persisted = reporter.queryPersistedFinal();
+            if (recorder.getUndelivered() == 0 && persisted >= expected - recorder.getCallErrors()) {
+                log.info("全部消息已投递并落库, persisted: {}", persisted);
+                return;
+            }
+            sleepSeconds(1);
+        }
+        log.warn("等待超时, undelivered: {}, persisted: {}/{}",
+            recorder.getUndelivered(), reporter.queryPersistedFinal(), expected);
+    }
+
+    private static void sleepSeconds(int seconds) {
+        try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package top.zhengru.unipush.loadtest;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行以 --key=value 形式传入，未传入时使用默认值
+ *
+ * @author zhengru
+ */
+@Getter
+public class LoadTestOptions {
+
+    /**
+     * 目标发送速率（条/秒）
+     */
+    private final int rate;
+
+    /**
+     * 正式压测时长（秒）
+     */
+    private final int durationSeconds;
+
+    /**
+     * 预热时长（秒），预热期间的数据不计入报告
+     */
+    private final int warmupSeconds;
+
+    /**
+     * 压测结束后等待消息投递、持久化完成的最长时间（秒）
+     */
+    private final int drainSeconds;
+
+    /**
+     * 发起Dubbo调用的并发线程数
+     */
+    private final int concurrency;
+
+    /**
+     * 参与压测的渠道，按顺序轮流发送
+     */
+    private final List<String> channels;
+
+    /**
+     * 正文长度
+     */
+    private final int contentLength;
+
+    /**
+     * 渠道替身的响应延迟（毫秒）
+     */
+    private final int sinkLatencyMs;
+
+    /**
+     * 渠道替身的延迟抖动（毫秒），实际延迟在 [latency, latency + jitter] 内均匀分布
+     */
+    private final int sinkJitterMs;
+
+    /**
+     * 渠道替身返回失败的比例（0~1）
+     */
+    private final double sinkErrorRate;
+
+    /**
+     * Topic分区数
+     */
+    private final int partitions;
+
+    /**
+     * core 可执行jar
+     */
+    private final String coreJar;
+
+    /**
+     * webhook 可执行jar
+     */
+    private final String webhookJar;
+
+    /**
+     * 建表脚本
+     */
+    private final String schema;
+
+    /**
+     * 子进程JVM参数
+     */
+    private final String serviceJvmOpts;
+
+    /**
+     * 报告与子进程日志输出目录
+     */
+    private final String outputDir;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.rate = Integer.parseInt(values.getOrDefault("rate", "1000"));
+        this.durationSeconds = Integer.parseInt(values.getOrDefault("duration", "60"));
+        this.warmupSeconds = Integer.parseInt(values.getOrDefault("warmup", "15"));
+        this.drainSeconds = Integer.parseInt(values.getOrDefault("drain", "60"));
+        this.concurrency = Integer.parseInt(values.getOrDefault("concurrency", "64"));
+        this.channels = List.of(values.getOrDefault("channels", "webhook,dingtalk,bark").split(","));
+        this.contentLength = Integer.parseInt(values.getOrDefault("content-length", "256"));
+        this.sinkLatencyMs = Integer.parseInt(values.getOrDefault("sink-latency-ms", "20"));
+        this.sinkJitterMs = Integer.parseInt(values.getOrDefault("sink-jitter-ms", "10"));
+        this.sinkErrorRate = Double.parseDouble(values.getOrDefault("sink-error-rate", "0"));
+        this.partitions = Integer.parseInt(values.getOrDefault("partitions", "6"));
+        this.coreJar = values.getOrDefault("core-jar", "unipush-core/target/unipush-core-1.0-SNAPSHOT-exec.jar");
+        this.webhookJar = values.getOrDefault("webhook-jar",
+            "unipush-webhook/target/unipush-webhook-1.0-SNAPSHOT-exec.jar");
+        this.schema = values.getOrDefault("schema", "sql/unipush.sql");
+        this.serviceJvmOpts = values.getOrDefault("service-jvm-opts", "-Xms1g -Xmx1g");
+        this.outputDir = values.getOrDefault("output", "unipush-loadtest/target/loadtest");
+    }
+
+    /**
+     * 解析命令行参数
+     *
+     * @param args --key=value 形式的参数
+     * @return 压测参数
+     */
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int index = arg.indexOf('=');
+            values.put(arg.substring(2, index), arg.substring(index + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rate=%d/s, duration=%ds, warmup=%ds, concurrency=%d, channels=%s, contentLength=%d, "
+                + "sinkLatency=%d+%dms, sinkErrorRate=%.3f, partitions=%d",
+            rate, durationSeconds, warmupSeconds, concurrency, channels, contentLength,
+            sinkLatencyMs, sinkJitterMs, sinkErrorRate, partitions);
+    }
+}
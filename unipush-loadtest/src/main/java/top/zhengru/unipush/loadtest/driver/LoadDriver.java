@@ -0,0 +1,159 @@
+package top.zhengru.unipush.loadtest.driver;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.ApplicationConfig;
+import org.apache.dubbo.config.ReferenceConfig;
+import org.apache.dubbo.config.RegistryConfig;
+import org.apache.dubbo.config.bootstrap.DubboBootstrap;
+import top.zhengru.unipush.common.api.PushCoreService;
+import top.zhengru.unipush.common.model.dto.SendMessageDTO;
+import top.zhengru.unipush.loadtest.LoadTestOptions;
+import top.zhengru.unipush.loadtest.report.LoadRecorder;
+import top.zhengru.unipush.loadtest.sink.FakeChannelSink;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测发送端：以固定速率（开环）通过Dubbo直连调用 core 的 createPushTask，扮演 api 层
+ * <p>
+ * 第 n 条消息的计划发送时间固定为 start + n / rate，调用变慢不会降低发送速率，
+ * 积压在线程池队列中的等待时间计入延迟。
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class LoadDriver implements AutoCloseable {
+
+    /**
+     * 压测消息的topic，用于统计持久化进度
+     */
+    public static final String TOPIC = "loadtest";
+
+    private final LoadTestOptions options;
+
+    private final LoadRecorder recorder;
+
+    private final int sinkPort;
+
+    private ReferenceConfig<PushCoreService> reference;
+
+    private PushCoreService pushCoreService;
+
+    private ExecutorService callers;
+
+    public LoadDriver(LoadTestOptions options, LoadRecorder recorder, int sinkPort) {
+        this.options = options;
+        this.recorder = recorder;
+        this.sinkPort = sinkPort;
+    }
+
+    /**
+     * 建立到 core 的Dubbo直连
+     *
+     * @param dubboPort core 的Dubbo端口
+     */
+    public void connect(int dubboPort) {
+        reference = new ReferenceConfig<>();
+        reference.setInterface(PushCoreService.class);
+        reference.setUrl("dubbo://127.0.0.1:" + dubboPort);
+        reference.setTimeout(10000);
+        reference.setRetries(0);
+        reference.setCheck(false);
+
+        DubboBootstrap.getInstance()
+            .application(new ApplicationConfig("unipush-loadtest"))
+            .registry(new RegistryConfig(RegistryConfig.NO_AVAILABLE))
+            .reference(reference)
+            .start();
+        pushCoreService = reference.get();
+        callers = Executors.newFixedThreadPool(options.getConcurrency());
+        log.info("已直连core, dubboPort: {}", dubboPort);
+    }
+
+    /**
+     * 按速率发送，阻塞直到计划时长结束
+     *
+     * @param totalSeconds 总时长（预热 + 正式）
+     * @return 已发送（计划）的消息数
+     */
+    public long run(int totalSeconds) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long total = (long) options.getRate() * totalSeconds;
+        List<String> channels = options.getChannels();
+        String content = buildContent(options.getContentLength());
+
+        long start = System.nanoTime();
+        for (long seq = 0; seq < total; seq++) {
+            long intended = start + seq * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            long currentSeq = seq;
+            String channel = channels.get((int) (seq % channels.size()));
+            SendMessageDTO request = buildRequest(currentSeq, channel, content);
+            recorder.register(currentSeq, intended);
+            callers.execute(() -> {
+                boolean success = true;
+                try {
+                    pushCoreService.createPushTask(request);
+                } catch (Exception e) {
+                    success = false;
+                    log.debug("createPushTask失败, seq: {}, error: {}", currentSeq, e.getMessage());
+                }
+                recorder.onSent(currentSeq, intended, System.nanoTime(), success);
+            });
+        }
+        return total;
+    }
+
+    private SendMessageDTO buildRequest(long seq, String channel, String content) {
+        SendMessageDTO request = new SendMessageDTO();
+        request.setChannel(channel);
+        request.setTitle(FakeChannelSink.SEQ_PREFIX + seq);
+        request.setContent(content);
+        request.setTopic(TOPIC);
+        request.setTarget(buildTarget(channel));
+        request.setTimestamp(System.currentTimeMillis());
+        return request;
+    }
+
+    private Map<String, Object> buildTarget(String channel) {
+        Map<String, Object> target = new HashMap<>();
+        switch (channel) {
+            case "dingtalk" -> target.put("url", "http://127.0.0.1:" + sinkPort + "/dingtalk");
+            case "bark" -> target.put("key", "loadtestDeviceKey");
+            default -> target.put("url", "http://127.0.0.1:" + sinkPort + "/webhook");
+        }
+        return target;
+    }
+
+    private static String buildContent(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        String alphabet = "统一消息推送压测abcdefghijklmnopqrstuvwxyz0123456789 ";
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(i % alphabet.length()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        if (callers != null) {
+            callers.shutdown();
+            try {
+                callers.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        DubboBootstrap.getInstance().stop();
+    }
+}
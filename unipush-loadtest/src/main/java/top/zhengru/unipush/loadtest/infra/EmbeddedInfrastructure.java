@@ -0,0 +1,119 @@
+package top.zhengru.unipush.loadtest.infra;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import redis.embedded.RedisServer;
+import top.zhengru.unipush.common.constant.KafkaConstants;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 嵌入式基础设施：Kafka（KRaft单节点）、Redis、MariaDB
+ * <p>
+ * 全部运行在压测进程内或由其托管，端口随机分配，结束时统一关闭
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class EmbeddedInfrastructure implements AutoCloseable {
+
+    private static final String DATABASE = "unipush";
+
+    private EmbeddedKafkaKraftBroker kafka;
+
+    private RedisServer redis;
+
+    private DB mariaDb;
+
+    private int redisPort;
+
+    private int mysqlPort;
+
+    /**
+     * 启动全部组件并初始化表结构
+     *
+     * @param partitions Topic分区数
+     * @param schema     建表脚本路径
+     */
+    public void start(int partitions, Path schema) throws Exception {
+        kafka = new EmbeddedKafkaKraftBroker(1, partitions,
+            KafkaConstants.TOPIC_DELIVERY, KafkaConstants.TOPIC_DELIVERY_HIGH, KafkaConstants.TOPIC_DELIVERY_BULK,
+            KafkaConstants.TOPIC_RESULT, KafkaConstants.TOPIC_LOG);
+        kafka.afterPropertiesSet();
+        log.info("嵌入式Kafka已启动, brokers: {}", kafka.getBrokersAsString());
+
+        redisPort = freePort();
+        redis = new RedisServer(redisPort);
+        redis.start();
+        log.info("嵌入式Redis已启动, port: {}", redisPort);
+
+        mysqlPort = freePort();
+        mariaDb = DB.newEmbeddedDB(DBConfigurationBuilder.newBuilder()
+            .setPort(mysqlPort)
+            .addArg("--character-set-server=utf8mb4")
+            .addArg("--max-connections=500")
+            .build());
+        mariaDb.start();
+        // 脚本自带 CREATE DATABASE / USE
+        mariaDb.run(Files.readString(schema, StandardCharsets.UTF_8));
+        log.info("嵌入式MariaDB已启动并完成建表, port: {}, schema: {}", mysqlPort, schema);
+    }
+
+    public String getKafkaBrokers() {
+        return kafka.getBrokersAsString();
+    }
+
+    public int getRedisPort() {
+        return redisPort;
+    }
+
+    public String getJdbcUrl() {
+        return "jdbc:mysql://127.0.0.1:" + mysqlPort + "/" + DATABASE
+            + "?useUnicode=true&characterEncoding=utf8&serverTimezone=Asia/Shanghai&rewriteBatchedStatements=true";
+    }
+
+    public String getJdbcUsername() {
+        return "root";
+    }
+
+    public String getJdbcPassword() {
+        return "";
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (mariaDb != null) {
+                mariaDb.stop();
+            }
+        } catch (Exception e) {
+            log.warn("关闭MariaDB失败: {}", e.getMessage());
+        }
+        try {
+            if (redis != null) {
+                redis.stop();
+            }
+        } catch (Exception e) {
+            log.warn("关闭Redis失败: {}", e.getMessage());
+        }
+        if (kafka != null) {
+            kafka.destroy();
+        }
+    }
+
+    /**
+     * 获取一个空闲端口
+     */
+    public static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        }
+    }
+}
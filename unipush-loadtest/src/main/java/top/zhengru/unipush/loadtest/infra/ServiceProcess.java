@@ -0,0 +1,113 @@
+package top.zhengru.unipush.loadtest.infra;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以子进程方式运行的被测服务（core / webhook 的可执行jar）
+ * <p>
+ * 独立进程保证与线上一致的类路径和配置加载方式，输出重定向到日志文件
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class ServiceProcess implements AutoCloseable {
+
+    private final String name;
+
+    private final Process process;
+
+    private final Path logFile;
+
+    private ServiceProcess(String name, Process process, Path logFile) {
+        this.name = name;
+        this.process = process;
+        this.logFile = logFile;
+    }
+
+    /**
+     * 启动服务进程
+     *
+     * @param name      服务名（用于日志文件名）
+     * @param jar       可执行jar
+     * @param jvmOpts   JVM参数（空格分隔）
+     * @param appArgs   Spring Boot 启动参数
+     * @param outputDir 日志目录
+     * @return 服务进程
+     */
+    public static ServiceProcess start(String name, Path jar, String jvmOpts, List<String> appArgs,
+                                       Path outputDir) throws IOException {
+        if (!jar.toFile().isFile()) {
+            throw new IllegalStateException("找不到可执行jar，请先执行 mvn package: " + jar);
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmOpts.isBlank()) {
+            command.addAll(Arrays.asList(jvmOpts.trim().split("\\s+")));
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(appArgs);
+
+        Path logFile = outputDir.resolve(name + ".log");
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(logFile.toFile())
+            .directory(new File("."))
+            .start();
+        log.info("{} 进程已启动, pid: {}, log: {}", name, process.pid(), logFile);
+        return new ServiceProcess(name, process, logFile);
+    }
+
+    /**
+     * 等待端口可连接，表示服务已就绪
+     *
+     * @param port           监听端口
+     * @param timeoutSeconds 超时时间
+     */
+    public void awaitPort(int port, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " 进程已退出, exitCode: " + process.exitValue()
+                    + ", 详见日志: " + logFile);
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 500);
+                log.info("{} 已就绪, port: {}", name, port);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException(name + " 启动超时, 详见日志: " + logFile);
+    }
+
+    @Override
+    public void close() {
+        if (!process.isAlive()) {
+            return;
+        }
+        // 先正常退出，让服务执行 @PreDestroy（如统计刷盘、释放机器号）
+        process.destroy();
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        log.info("{} 进程已停止", name);
+    }
+}
@@ -0,0 +1,151 @@
+package top.zhengru.unipush.loadtest.report;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测数据记录（发送端与渠道替身共用）
+ * <p>
+ * 每条消息以序号标识（写在标题中），发送时记录计划发送时间，渠道替身首次成功收到时计算端到端延迟。
+ * 延迟从计划发送时间起算，发送端排队造成的等待同样计入，避免协调遗漏（coordinated omission）。
+ *
+ * @author zhengru
+ */
+public class LoadRecorder {
+
+    private static final long MAX_LATENCY_NANOS = 600_000_000_000L;
+
+    /**
+     * 已发送、尚未成功投递的消息：序号 → 计划发送时间（纳秒）
+     */
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * createPushTask 调用延迟（模拟api层同步调用的响应时间）
+     */
+    private final Recorder callLatency = new Recorder(MAX_LATENCY_NANOS, 3);
+
+    /**
+     * 端到端投递延迟（计划发送 → 渠道替身收到请求）
+     */
+    private final Recorder deliveryLatency = new Recorder(MAX_LATENCY_NANOS, 3);
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder callErrors = new LongAdder();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder sinkRequests = new LongAdder();
+
+    private final LongAdder sinkErrors = new LongAdder();
+
+    /**
+     * 预热期间发送的消息序号上界，小于该序号的消息不计入统计
+     */
+    private volatile long measureFromSeq = Long.MAX_VALUE;
+
+    /**
+     * 记录一次发送
+     *
+     * @param seq           消息序号
+     * @param intendedNanos 计划发送时间
+     * @param endNanos      调用返回时间
+     * @param success       调用是否成功
+     */
+    public void onSent(long seq, long intendedNanos, long endNanos, boolean success) {
+        if (!success) {
+            pending.remove(seq);
+            if (seq >= measureFromSeq) {
+                callErrors.increment();
+            }
+            return;
+        }
+        if (seq >= measureFromSeq) {
+            sent.increment();
+            callLatency.recordValue(Math.min(endNanos - intendedNanos, MAX_LATENCY_NANOS));
+        }
+    }
+
+    /**
+     * 发送前登记，保证渠道替身先于调用返回收到请求时也能匹配
+     */
+    public void register(long seq, long intendedNanos) {
+        pending.put(seq, intendedNanos);
+    }
+
+    /**
+     * 渠道替身收到请求
+     *
+     * @param seq     消息序号，无法识别时为负数
+     * @param success 替身本次是否返回成功
+     */
+    public void onSinkRequest(long seq, boolean success) {
+        long now = System.nanoTime();
+        if (seq < measureFromSeq) {
+            // 预热消息只清理登记
+            if (success && seq >= 0) {
+                pending.remove(seq);
+            }
+            return;
+        }
+        sinkRequests.increment();
+        if (!success) {
+            sinkErrors.increment();
+            return;
+        }
+        Long intended = pending.remove(seq);
+        if (intended != null) {
+            delivered.increment();
+            deliveryLatency.recordValue(Math.min(now - intended, MAX_LATENCY_NANOS));
+        }
+    }
+
+    /**
+     * 开始正式统计：之后发送的消息计入报告
+     */
+    public void startMeasuring(long fromSeq) {
+        this.measureFromSeq = fromSeq;
+        callLatency.reset();
+        deliveryLatency.reset();
+    }
+
+    /**
+     * 正式统计期间尚未成功投递的消息数
+     */
+    public long getUndelivered() {
+        return pending.keySet().stream().filter(seq -> seq >= measureFromSeq).count();
+    }
+
+    public Histogram snapshotCallLatency(Histogram recycle) {
+        return callLatency.getIntervalHistogram(recycle);
+    }
+
+    public Histogram snapshotDeliveryLatency(Histogram recycle) {
+        return deliveryLatency.getIntervalHistogram(recycle);
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getCallErrors() {
+        return callErrors.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getSinkRequests() {
+        return sinkRequests.sum();
+    }
+
+    public long getSinkErrors() {
+        return sinkErrors.sum();
+    }
+}
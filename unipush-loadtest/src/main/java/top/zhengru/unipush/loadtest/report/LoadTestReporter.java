@@ -0,0 +1,194 @@
+package top.zhengru.unipush.loadtest.report;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import top.zhengru.unipush.loadtest.LoadTestOptions;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测报告：每秒输出区间吞吐与延迟，结束时汇总百分位并写入报告文件
+ * <p>
+ * 持久化进度直接查询 push_message 表（core 经 Redis → 定时任务批量落库后可见）
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class LoadTestReporter implements AutoCloseable {
+
+    private static final String PERSISTED_SQL =
+        "SELECT status, COUNT(*) FROM push_message WHERE topic = ? GROUP BY status";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+    private final LoadRecorder recorder;
+
+    private final String jdbcUrl;
+
+    private final String jdbcUsername;
+
+    private final String jdbcPassword;
+
+    private final String topic;
+
+    private final Histogram callTotal = new Histogram(3);
+
+    private final Histogram deliveryTotal = new Histogram(3);
+
+    private Histogram callInterval;
+
+    private Histogram deliveryInterval;
+
+    private ScheduledExecutorService scheduler;
+
+    private long lastDelivered;
+
+    private long lastSent;
+
+    public LoadTestReporter(LoadRecorder recorder, String jdbcUrl, String jdbcUsername, String jdbcPassword,
+                            String topic) {
+        this.recorder = recorder;
+        this.jdbcUrl = jdbcUrl;
+        this.jdbcUsername = jdbcUsername;
+        this.jdbcPassword = jdbcPassword;
+        this.topic = topic;
+    }
+
+    /**
+     * 开始每秒输出区间统计
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loadtest-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private synchronized void tick() {
+        try {
+            callInterval = recorder.snapshotCallLatency(callInterval);
+            deliveryInterval = recorder.snapshotDeliveryLatency(deliveryInterval);
+            callTotal.add(callInterval);
+            deliveryTotal.add(deliveryInterval);
+
+            long sent = recorder.getSent();
+            long delivered = recorder.getDelivered();
+            log.info("sent: {}/s, delivered: {}/s, call p99: {}ms, delivery p50/p99: {}/{}ms, undelivered: {}",
+                sent - lastSent, delivered - lastDelivered,
+                millis(callInterval.getValueAtPercentile(99)),
+                millis(deliveryInterval.getValueAtPercentile(50)),
+                millis(deliveryInterval.getValueAtPercentile(99)),
+                recorder.getUndelivered());
+            lastSent = sent;
+            lastDelivered = delivered;
+        } catch (Exception e) {
+            log.warn("区间统计失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 查询已落库的压测消息数（按状态）
+     */
+    public Map<String, Long> queryPersisted() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, jdbcUsername, jdbcPassword);
+             PreparedStatement statement = connection.prepareStatement(PERSISTED_SQL)) {
+            statement.setString(1, topic);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("查询持久化进度失败: {}", e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * 已到终态（成功/失败）并落库的消息数
+     */
+    public long queryPersistedFinal() {
+        Map<String, Long> counts = queryPersisted();
+        return counts.getOrDefault("SUCCESS", 0L) + counts.getOrDefault("FAILED", 0L);
+    }
+
+    /**
+     * 汇总并写入报告
+     *
+     * @param options          压测参数
+     * @param measuredSeconds  正式统计时长
+     * @param persistedInWindow 正式统计时长内新增落库的终态消息数
+     * @param outputDir        输出目录
+     */
+    public synchronized void writeReport(LoadTestOptions options, double measuredSeconds, long persistedInWindow,
+                                         Path outputDir) throws IOException {
+        tick();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toString());
+        report.put("measuredSeconds", measuredSeconds);
+        report.put("sent", recorder.getSent());
+        report.put("callErrors", recorder.getCallErrors());
+        report.put("delivered", recorder.getDelivered());
+        report.put("undelivered", recorder.getUndelivered());
+        report.put("sinkRequests", recorder.getSinkRequests());
+        report.put("sinkErrors", recorder.getSinkErrors());
+        report.put("sendThroughput", recorder.getSent() / measuredSeconds);
+        report.put("deliveryThroughput", recorder.getDelivered() / measuredSeconds);
+        report.put("persistThroughput", persistedInWindow / measuredSeconds);
+        report.put("persisted", queryPersisted());
+        report.put("callLatencyMs", percentiles(callTotal));
+        report.put("deliveryLatencyMs", percentiles(deliveryTotal));
+
+        Files.createDirectories(outputDir);
+        Path json = outputDir.resolve("report.json");
+        Files.writeString(json, JSON.toJSONString(report, JSONWriter.Feature.PrettyFormat), StandardCharsets.UTF_8);
+        // 原始直方图便于不同版本之间做完整分布对比
+        try (PrintStream out = new PrintStream(outputDir.resolve("delivery-latency.hgrm").toFile(),
+            StandardCharsets.UTF_8)) {
+            deliveryTotal.outputPercentileDistribution(out, 1_000_000.0);
+        }
+
+        log.info("压测报告:\n{}", JSON.toJSONString(report, JSONWriter.Feature.PrettyFormat));
+        log.info("报告已写入: {}", json.toAbsolutePath());
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put("p" + percentile, millis(histogram.getValueAtPercentile(percentile)));
+        }
+        values.put("mean", histogram.getMean() / 1_000_000.0);
+        return values;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
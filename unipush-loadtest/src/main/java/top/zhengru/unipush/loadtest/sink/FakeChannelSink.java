@@ -0,0 +1,143 @@
+package top.zhengru.unipush.loadtest.sink;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import top.zhengru.unipush.loadtest.report.LoadRecorder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 渠道替身：本地HTTP服务，模拟 webhook 接收方、钉钉机器人与 Bark 服务
+ * <p>
+ * 按配置注入响应延迟与失败率；从请求中识别消息序号（标题 lt-{seq}）并回报给 {@link LoadRecorder}。
+ * <ul>
+ *   <li>POST /webhook：失败时返回HTTP 500</li>
+ *   <li>POST /dingtalk：失败时返回 errcode=310000</li>
+ *   <li>GET /bark/{key}/...、POST /bark/push（批量）：失败时返回 code=400</li>
+ * </ul>
+ *
+ * @author zhengru
+ */
+@Slf4j
+public class FakeChannelSink implements AutoCloseable {
+
+    /**
+     * 消息序号标记，与 LoadDriver 生成的标题一致
+     */
+    public static final String SEQ_PREFIX = "lt-";
+
+    private static final Pattern SEQ_PATTERN = Pattern.compile(SEQ_PREFIX + "(\\d+)");
+
+    private final LoadRecorder recorder;
+
+    private final int latencyMs;
+
+    private final int jitterMs;
+
+    private final double errorRate;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public FakeChannelSink(LoadRecorder recorder, int latencyMs, int jitterMs, double errorRate) {
+        this.recorder = recorder;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 启动替身服务
+     *
+     * @param port 监听端口
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // 响应延迟通过sleep模拟，线程数不能成为瓶颈
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+
+        server.createContext("/webhook", exchange -> handle(exchange, readBody(exchange),
+            success -> success ? 200 : 500,
+            success -> success ? "{\"success\":true}" : "{\"success\":false}"));
+        server.createContext("/dingtalk", exchange -> handle(exchange, readBody(exchange),
+            success -> 200,
+            success -> success ? "{\"errcode\":0,\"errmsg\":\"ok\"}"
+                : "{\"errcode\":310000,\"errmsg\":\"sign not match\"}"));
+        server.createContext("/bark", exchange -> handle(exchange,
+            "POST".equals(exchange.getRequestMethod()) ? readBody(exchange) : exchange.getRequestURI().getQuery(),
+            success -> 200,
+            success -> success ? "{\"code\":200,\"message\":\"success\"}"
+                : "{\"code\":400,\"message\":\"failed to push\"}"));
+
+        server.start();
+        log.info("渠道替身已启动, port: {}, latency: {}+{}ms, errorRate: {}", port, latencyMs, jitterMs, errorRate);
+    }
+
+    /**
+     * 模拟延迟后按失败率返回响应，并回报消息序号
+     *
+     * @param payload 用于识别序号的请求内容
+     * @param status  成功/失败对应的HTTP状态码
+     * @param body    成功/失败对应的响应体
+     */
+    private void handle(HttpExchange exchange, String payload,
+                        Function<Boolean, Integer> status, Function<Boolean, String> body) throws IOException {
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latencyMs + (jitterMs > 0 ? random.nextInt(jitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            boolean success = random.nextDouble() >= errorRate;
+            recorder.onSinkRequest(parseSeq(payload), success);
+
+            byte[] bytes = body.apply(success).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status.apply(success), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long parseSeq(String payload) {
+        if (payload == null) {
+            return -1;
+        }
+        Matcher matcher = SEQ_PATTERN.matcher(payload);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package top.zhengru.unipush.webhook;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Webhook投递执行器启动类
@@ -13,6 +14,7 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
     scanBasePackages = "top.zhengru.unipush",
     exclude = {DataSourceAutoConfiguration.class}
 )
+@EnableScheduling
 public class WebhookApplication {
 
     public static void main(String[] args) {
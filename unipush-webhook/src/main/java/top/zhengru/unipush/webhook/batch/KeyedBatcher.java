@@ -0,0 +1,144 @@
+package top.zhengru.unipush.webhook.batch;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 按Key在短时间窗口内攒批
+ * <p>
+ * 同一Key的第一条到达时开启窗口，窗口到期或攒满 maxBatch 条时整批交给处理函数，
+ * 处理函数在独立的线程池中执行，add() 不阻塞调用线程。
+ * 每批对应一个桶对象，桶从Map中移除（到期或攒满）后不再写入，保证每条只处理一次。
+ * <p>
+ * 窗口与线程池队列都在内存中：调用方（投递任务消费者）在 add() 返回后即提交offset，
+ * close() 会把剩余的批处理完，进程异常退出时未处理的元素丢失，由core的未回报结果检查（PendingSweepTask）按失败重试。
+ *
+ * @param <K> 分组Key（如相同的推送内容）
+ * @param <V> 批内元素
+ * @author zhengru
+ */
+@Slf4j
+public final class KeyedBatcher<K, V> implements AutoCloseable {
+
+    /**
+     * 一个窗口内的一批（按引用区分，不同批内容相同也不会误删）
+     */
+    private static final class Bucket<V> {
+        final List<V> items = new ArrayList<>();
+    }
+
+    private final Map<K, Bucket<V>> buckets = new ConcurrentHashMap<>();
+
+    private final BiConsumer<K, List<V>> handler;
+
+    private final long windowMillis;
+
+    private final int maxBatch;
+
+    private final ScheduledExecutorService timer;
+
+    private final ExecutorService workers;
+
+    /**
+     * @param name         线程名前缀
+     * @param windowMillis 攒批窗口（毫秒）
+     * @param maxBatch     单批上限
+     * @param threads      处理线程数
+     * @param handler      批处理函数，异常由本类记录后忽略
+     */
+    public KeyedBatcher(String name, long windowMillis, int maxBatch, int threads, BiConsumer<K, List<V>> handler) {
+        this.handler = handler;
+        this.windowMillis = windowMillis;
+        this.maxBatch = Math.max(maxBatch, 1);
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, name + "-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger index = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * 加入一条，攒满时立即提交该批
+     */
+    public void add(K key, V value) {
+        List<Bucket<V>> opened = new ArrayList<>(1);
+        List<Bucket<V>> full = new ArrayList<>(1);
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new Bucket<>();
+                opened.add(bucket);
+            }
+            bucket.items.add(value);
+            if (bucket.items.size() >= maxBatch) {
+                full.add(bucket);
+                return null;
+            }
+            return bucket;
+        });
+
+        if (!full.isEmpty()) {
+            submit(key, full.get(0).items);
+        } else if (!opened.isEmpty()) {
+            // 新开的窗口：到期时若仍是同一个桶则提交
+            Bucket<V> bucket = opened.get(0);
+            timer.schedule(() -> {
+                if (buckets.remove(key, bucket)) {
+                    submit(key, bucket.items);
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void submit(K key, List<V> batch) {
+        workers.execute(() -> handle(key, batch));
+    }
+
+    private void handle(K key, List<V> batch) {
+        try {
+            handler.accept(key, batch);
+        } catch (Exception e) {
+            log.error("批处理异常, size: {}", batch.size(), e);
+        }
+    }
+
+    /**
+     * 停止窗口计时，剩余的批立即处理完
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        for (K key : new ArrayList<>(buckets.keySet())) {
+            Bucket<V> bucket = buckets.remove(key);
+            if (bucket != null) {
+                submit(key, bucket.items);
+            }
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("批处理线程未在超时内结束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
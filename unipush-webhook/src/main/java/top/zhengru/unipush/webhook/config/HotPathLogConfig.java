@@ -0,0 +1,27 @@
+package top.zhengru.unipush.webhook.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.log.HotPathLogProperties;
+
+/**
+ * 热路径日志配置
+ *
+ * @author zhengru
+ */
+@Configuration
+public class HotPathLogConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "push.hot-log")
+    public HotPathLogProperties hotPathLogProperties() {
+        return new HotPathLogProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HotPathEventLog hotPathEventLog(HotPathLogProperties hotPathLogProperties) {
+        return new HotPathEventLog(hotPathLogProperties);
+    }
+}
@@ -2,14 +2,26 @@ package top.zhengru.unipush.webhook.config;
 
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import top.zhengru.unipush.webhook.http.ConnectionMetricsListener;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * OkHttp配置(用于HTTP投递)
+ * 这里是共享连接池的基础客户端，热点主机的独立客户端由 HttpClientManager 从它派生
  *
  * @author zhengru
  */
@@ -22,14 +34,33 @@ public class OkHttpConfig {
     @Value("${webhook.timeout.read:10000}")
     private int readTimeout;
 
-    @Value("${webhook.pool.maxIdle:5}")
+    @Value("${webhook.pool.maxIdle:50}")
     private int maxIdleConnections;
 
     @Value("${webhook.pool.keepAlive:300000}")
     private long keepAliveDuration;
 
+    /**
+     * TLS会话缓存条数（会话复用可省去完整握手）
+     */
+    @Value("${webhook.tls.session-cache-size:10000}")
+    private int sessionCacheSize;
+
+    /**
+     * TLS会话缓存有效期（秒）
+     */
+    @Value("${webhook.tls.session-timeout:3600}")
+    private int sessionTimeout;
+
     @Bean
-    public OkHttpClient okHttpClient() {
+    public OkHttpClient okHttpClient(DeliveryMetrics deliveryMetrics) throws GeneralSecurityException {
+        X509TrustManager trustManager = defaultTrustManager();
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{trustManager}, null);
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(sessionCacheSize);
+        sessionContext.setSessionTimeout(sessionTimeout);
+
         return new OkHttpClient.Builder()
             // 连接池配置
             .connectionPool(new ConnectionPool(
@@ -37,6 +68,12 @@ public class OkHttpConfig {
                 keepAliveDuration,
                 TimeUnit.MILLISECONDS
             ))
+            // 优先HTTP/2（TLS ALPN协商），对端不支持时回落HTTP/1.1
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            // 所有派生客户端共用同一个SSLContext，TLS会话缓存共享
+            .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+            // 连接复用率与握手次数
+            .eventListenerFactory(ConnectionMetricsListener.factory(deliveryMetrics))
             // 连接超时
             .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
             // 读取超时
@@ -47,4 +84,15 @@ public class OkHttpConfig {
             .retryOnConnectionFailure(true)
             .build();
     }
+
+    private static X509TrustManager defaultTrustManager() throws GeneralSecurityException {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        for (TrustManager trustManager : factory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager x509TrustManager) {
+                return x509TrustManager;
+            }
+        }
+        throw new IllegalStateException("未找到默认的X509TrustManager");
+    }
 }
@@ -0,0 +1,50 @@
+package top.zhengru.unipush.webhook.http;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+/**
+ * OkHttp 调用事件监听：统计连接复用率与TLS握手次数
+ * 每个调用一个实例；获取连接前发生过 connectStart 即为新建连接
+ *
+ * @author zhengru
+ */
+public class ConnectionMetricsListener extends EventListener {
+
+    private final DeliveryMetrics deliveryMetrics;
+
+    private boolean connecting;
+
+    public ConnectionMetricsListener(DeliveryMetrics deliveryMetrics) {
+        this.deliveryMetrics = deliveryMetrics;
+    }
+
+    /**
+     * 监听器工厂
+     */
+    public static EventListener.Factory factory(DeliveryMetrics deliveryMetrics) {
+        return call -> new ConnectionMetricsListener(deliveryMetrics);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connecting = true;
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        deliveryMetrics.recordTlsHandshake();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        deliveryMetrics.recordConnection(!connecting);
+        connecting = false;
+    }
+}
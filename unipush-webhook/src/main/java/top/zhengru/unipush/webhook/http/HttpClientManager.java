@@ -0,0 +1,381 @@
+package top.zhengru.unipush.webhook.http;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.RedisConstants;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按目标主机管理HTTP连接
+ * <p>
+ * 主机按 scheme://host:port 区分（同一主机的不同端口是不同的连接目标）。
+ * 所有请求先走共享连接池；定期按观测到的请求量选出热点主机，为其分配独立连接池，
+ * 池大小取统计周期内的并发峰值（已协商HTTP/2的主机多路复用，只保留少量连接），
+ * 避免热点主机与长尾主机争抢同一个池的空闲连接名额。
+ * 所有客户端派生自同一个基础客户端，共享调度器、TLS会话缓存与事件监听。
+ * 热点主机列表写入Redis，重启后立即恢复独立连接池，不必等待一个统计周期；
+ * 主动建连（HEAD请求）只对 prewarm-hosts 中显式配置的主机进行，不会向用户配置的任意回调地址发请求。
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class HttpClientManager {
+
+    private static final String POOL_SHARED = "shared";
+    private static final String POOL_DEDICATED = "dedicated";
+
+    /**
+     * 基础客户端（共享连接池）
+     */
+    @Autowired
+    private OkHttpClient okHttpClient;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 最多分配独立连接池的热点主机数
+     */
+    @Value("${webhook.pool.hot-hosts:32}")
+    private int hotHostLimit;
+
+    /**
+     * 成为热点主机的最少请求数（每个统计周期）
+     */
+    @Value("${webhook.pool.hot-min-requests:100}")
+    private long hotMinRequests;
+
+    /**
+     * 单个主机独立连接池的空闲连接上限
+     */
+    @Value("${webhook.pool.max-per-host:32}")
+    private int maxPerHost;
+
+    /**
+     * 统计的主机数上限，超出的主机不统计，始终走共享连接池
+     */
+    @Value("${webhook.pool.max-tracked-hosts:10000}")
+    private int maxTrackedHosts;
+
+    @Value("${webhook.pool.keepAlive:300000}")
+    private long keepAliveDuration;
+
+    /**
+     * 启动时主动建连预热的主机（如 oapi.dingtalk.com,api.day.app，可带scheme和端口，默认https）
+     */
+    @Value("${webhook.pool.prewarm-hosts:}")
+    private List<String> prewarmHosts;
+
+    /**
+     * 每个预热主机建立的连接数
+     */
+    @Value("${webhook.pool.prewarm-connections:2}")
+    private int prewarmConnections;
+
+    private final Map<String, HostStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 热点主机 → 独立客户端；整体替换，读取无锁
+     */
+    private volatile Map<String, HostClient> hotClients = Map.of();
+
+    @PostConstruct
+    public void init() {
+        ConnectionPool sharedPool = okHttpClient.connectionPool();
+        deliveryMetrics.bindPoolConnections(POOL_SHARED, "total", sharedPool::connectionCount);
+        deliveryMetrics.bindPoolConnections(POOL_SHARED, "idle", sharedPool::idleConnectionCount);
+        deliveryMetrics.bindPoolConnections(POOL_DEDICATED, "total", () -> dedicatedCount(false));
+        deliveryMetrics.bindPoolConnections(POOL_DEDICATED, "idle", () -> dedicatedCount(true));
+        deliveryMetrics.bindHotHosts(() -> hotClients.size());
+    }
+
+    /**
+     * 同步执行请求（调用方负责关闭响应）
+     */
+    public Response execute(Request request) throws IOException {
+        String host = originOf(request.url());
+        HostStats hostStats = track(host);
+        if (hostStats == null) {
+            return clientFor(host).newCall(request).execute();
+        }
+        hostStats.requests.increment();
+        hostStats.recordInFlight(hostStats.inFlight.incrementAndGet());
+        try {
+            Response response = clientFor(host).newCall(request).execute();
+            hostStats.http2 = response.protocol() == Protocol.HTTP_2;
+            return response;
+        } finally {
+            hostStats.inFlight.decrementAndGet();
+        }
+    }
+
+    private OkHttpClient clientFor(String host) {
+        HostClient hostClient = hotClients.get(host);
+        return hostClient != null ? hostClient.client : okHttpClient;
+    }
+
+    private HostStats track(String host) {
+        HostStats hostStats = stats.get(host);
+        if (hostStats != null || stats.size() >= maxTrackedHosts) {
+            return hostStats;
+        }
+        return stats.computeIfAbsent(host, h -> new HostStats());
+    }
+
+    /**
+     * 按上一周期的请求量重新选出热点主机并调整池大小
+     */
+    @Scheduled(fixedDelayString = "${webhook.pool.rebalance-interval:60000}",
+        initialDelayString = "${webhook.pool.rebalance-interval:60000}")
+    public void rebalance() {
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>();
+        Map<String, HostStats> snapshot = new HashMap<>(stats);
+        Map<String, Integer> peaks = new HashMap<>();
+        for (Map.Entry<String, HostStats> entry : snapshot.entrySet()) {
+            HostStats hostStats = entry.getValue();
+            long requests = hostStats.requests.sumThenReset();
+            int peak = hostStats.peakInFlight.getAndSet(hostStats.inFlight.get());
+            if (requests == 0 && hostStats.inFlight.get() == 0) {
+                // 本周期无流量，停止统计
+                stats.remove(entry.getKey(), hostStats);
+                continue;
+            }
+            if (requests >= hotMinRequests) {
+                ranked.add(Map.entry(entry.getKey(), requests));
+                peaks.put(entry.getKey(), peak);
+            }
+        }
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, HostClient> current = hotClients;
+        Map<String, HostClient> next = new HashMap<>();
+        for (int i = 0; i < ranked.size() && i < hotHostLimit; i++) {
+            String host = ranked.get(i).getKey();
+            HostStats hostStats = snapshot.get(host);
+            int target = poolSize(peaks.get(host), hostStats.http2);
+            HostClient existing = current.get(host);
+            next.put(host, existing != null && existing.fits(target) ? existing : newHostClient(target));
+        }
+        hotClients = next;
+
+        // 降级或被替换的独立池：关闭空闲连接，使用中的连接归还后按keepAlive过期
+        for (Map.Entry<String, HostClient> entry : current.entrySet()) {
+            if (next.get(entry.getKey()) != entry.getValue()) {
+                entry.getValue().client.connectionPool().evictAll();
+            }
+        }
+        saveHotHosts(next.keySet());
+
+        if (!next.isEmpty()) {
+            log.info("HTTP热点主机调整完成, hotHosts: {}, trackedHosts: {}", next.size(), stats.size());
+        }
+    }
+
+    /**
+     * 启动后预热：恢复上次运行的热点主机的独立连接池，并对配置的主机主动建连
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        Set<String> warmHosts = new LinkedHashSet<>();
+        if (prewarmHosts != null) {
+            for (String host : prewarmHosts) {
+                String origin = host.isBlank() ? null : parseOrigin(host.trim());
+                if (origin != null) {
+                    warmHosts.add(origin);
+                }
+            }
+        }
+        Set<String> hosts = new LinkedHashSet<>(warmHosts);
+        for (String host : loadHotHosts()) {
+            String origin = parseOrigin(host);
+            if (origin != null) {
+                hosts.add(origin);
+            }
+        }
+        if (hosts.isEmpty()) {
+            return;
+        }
+
+        Map<String, HostClient> next = new HashMap<>(hotClients);
+        for (String host : hosts) {
+            if (next.size() >= hotHostLimit) {
+                break;
+            }
+            next.computeIfAbsent(host, h -> newHostClient(Math.max(prewarmConnections, 1)));
+        }
+        hotClients = next;
+
+        for (String host : warmHosts) {
+            HostClient hostClient = next.get(host);
+            if (hostClient == null) {
+                continue;
+            }
+            for (int i = 0; i < prewarmConnections; i++) {
+                // HEAD 根路径只为建立连接与TLS会话，忽略响应
+                Request request = new Request.Builder().url(host + "/").head().build();
+                hostClient.client.newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        log.debug("HTTP连接预热失败, host: {}, error: {}", host, e.getMessage());
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        response.close();
+                    }
+                });
+            }
+        }
+        log.info("HTTP连接预热, hotHosts: {}, warmedHosts: {}", hosts.size(), warmHosts.size());
+    }
+
+    /**
+     * 连接目标：scheme://host:port
+     */
+    private static String originOf(HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    /**
+     * 解析配置或Redis中的主机，未带scheme时按https处理
+     *
+     * @return 连接目标，无法解析返回null
+     */
+    private static String parseOrigin(String value) {
+        HttpUrl url = HttpUrl.parse(value.contains("://") ? value : "https://" + value);
+        return url != null ? originOf(url) : null;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (HostClient hostClient : hotClients.values()) {
+            hostClient.client.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * 独立池大小：HTTP/2 一条连接即可多路复用，留一条备用；HTTP/1.1 按并发峰值
+     */
+    private int poolSize(int peakInFlight, boolean http2) {
+        int size = http2 ? 2 : peakInFlight + 1;
+        return Math.min(Math.max(size, 2), maxPerHost);
+    }
+
+    private HostClient newHostClient(int poolSize) {
+        OkHttpClient client = okHttpClient.newBuilder()
+            .connectionPool(new ConnectionPool(poolSize, keepAliveDuration, TimeUnit.MILLISECONDS))
+            .build();
+        return new HostClient(client, poolSize);
+    }
+
+    private int dedicatedCount(boolean idle) {
+        int count = 0;
+        for (HostClient hostClient : hotClients.values()) {
+            ConnectionPool pool = hostClient.client.connectionPool();
+            count += idle ? pool.idleConnectionCount() : pool.connectionCount();
+        }
+        return count;
+    }
+
+    private void saveHotHosts(Set<String> hosts) {
+        if (stringRedisTemplate == null || hosts.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(RedisConstants.PUSH_HTTP_HOT_HOSTS_KEY, String.join(",", hosts));
+        } catch (Exception e) {
+            log.warn("保存HTTP热点主机失败: {}", e.getMessage());
+        }
+    }
+
+    private List<String> loadHotHosts() {
+        if (stringRedisTemplate == null) {
+            return List.of();
+        }
+        try {
+            String hosts = stringRedisTemplate.opsForValue().get(RedisConstants.PUSH_HTTP_HOT_HOSTS_KEY);
+            return hosts == null || hosts.isEmpty() ? List.of() : List.of(hosts.split(","));
+        } catch (Exception e) {
+            log.warn("读取HTTP热点主机失败: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 单个主机的流量统计
+     */
+    private static final class HostStats {
+
+        final LongAdder requests = new LongAdder();
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        final AtomicInteger peakInFlight = new AtomicInteger();
+
+        /**
+         * 最近一次响应是否为HTTP/2
+         */
+        volatile boolean http2;
+
+        void recordInFlight(int value) {
+            int peak = peakInFlight.get();
+            while (value > peak && !peakInFlight.compareAndSet(peak, value)) {
+                peak = peakInFlight.get();
+            }
+        }
+    }
+
+    /**
+     * 热点主机的独立客户端
+     */
+    private static final class HostClient {
+
+        final OkHttpClient client;
+
+        final int poolSize;
+
+        HostClient(OkHttpClient client, int poolSize) {
+            this.client = client;
+            this.poolSize = poolSize;
+        }
+
+        /**
+         * 目标大小在当前的一半到两倍之间时沿用，避免小幅波动反复重建连接池
+         */
+        boolean fits(int target) {
+            return target * 2 >= poolSize && target <= poolSize * 2;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package top.zhengru.unipush.webhook.http;
+
+import com.alibaba.fastjson2.JSONReader;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 有上限的响应体读取
+ * <p>
+ * 只保留前 max-bytes 字节用于解析与日志，其余部分边读边丢弃（不缓冲），
+ * 丢弃量超过 max-drain-bytes 时直接关闭响应，放弃这条连接，避免异常端点拖住Worker线程。
+ * 正常大小的响应会被读完，连接可以立即归还连接池复用。
+ *
+ * @author zhengru
+ */
+@Component
+public class ResponseBodyReader {
+
+    private static final long DISCARD_CHUNK = 8192;
+
+    @Value("${webhook.response.max-bytes:4096}")
+    private int maxBytes;
+
+    @Value("${webhook.response.max-drain-bytes:65536}")
+    private long maxDrainBytes;
+
+    /**
+     * 读取响应体（调用方仍需关闭 Response）
+     *
+     * @param body 响应体，可为null
+     * @return 截断后的响应内容
+     */
+    public BoundedBody read(ResponseBody body) throws IOException {
+        return read(body, maxBytes);
+    }
+
+    /**
+     * 按指定上限读取响应体（响应大小与请求规模相关时使用，如批量推送的逐设备结果）
+     *
+     * @param body  响应体，可为null
+     * @param limit 保留的最大字节数，不小于 max-bytes
+     * @return 截断后的响应内容
+     */
+    public BoundedBody read(ResponseBody body, int limit) throws IOException {
+        if (body == null) {
+            return BoundedBody.EMPTY;
+        }
+        BufferedSource source = body.source();
+        Buffer captured = new Buffer();
+        long remaining = Math.max(limit, maxBytes);
+        while (remaining > 0) {
+            long read = source.read(captured, remaining);
+            if (read == -1) {
+                return new BoundedBody(captured.readByteArray(), false);
+            }
+            remaining -= read;
+        }
+        boolean truncated = !source.exhausted();
+        if (truncated) {
+            discard(source);
+        }
+        return new BoundedBody(captured.readByteArray(), truncated);
+    }
+
+    /**
+     * 丢弃响应体（不关心内容，只为让连接可以复用）
+     */
+    public void discard(ResponseBody body) throws IOException {
+        if (body != null) {
+            discard(body.source());
+        }
+    }
+
+    private void discard(BufferedSource source) throws IOException {
+        Buffer sink = new Buffer();
+        long drained = 0;
+        while (drained < maxDrainBytes) {
+            long read = source.read(sink, DISCARD_CHUNK);
+            if (read == -1) {
+                return;
+            }
+            drained += read;
+            sink.clear();
+        }
+        // 超出丢弃上限，剩余部分交给 Response.close() 中止连接
+    }
+
+    /**
+     * 截断后的响应体
+     */
+    public static final class BoundedBody {
+
+        static final BoundedBody EMPTY = new BoundedBody(new byte[0], false);
+
+        private final byte[] bytes;
+
+        private final boolean truncated;
+
+        private String text;
+
+        BoundedBody(byte[] bytes, boolean truncated) {
+            this.bytes = bytes;
+            this.truncated = truncated;
+        }
+
+        /**
+         * 是否超过读取上限被截断
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * 原始字节（未截断时为完整响应）
+         */
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        /**
+         * 文本内容（截断时末尾追加标记），用于日志与错误信息
+         */
+        public String text() {
+            if (text == null) {
+                String decoded = new String(bytes, StandardCharsets.UTF_8);
+                text = truncated ? decoded + "...(truncated)" : decoded;
+            }
+            return text;
+        }
+
+        /**
+         * 流式读取顶层JSON对象中的整数字段，不构建对象树；其他字段直接跳过
+         *
+         * @param fieldName 字段名（如钉钉 errcode、Bark code）
+         * @return 字段值；不是JSON对象、字段不存在（或位于截断部分）、类型不符时返回null
+         */
+        public Integer intField(String fieldName) {
+            if (bytes.length == 0) {
+                return null;
+            }
+            try (JSONReader reader = JSONReader.of(bytes)) {
+                if (!reader.nextIfObjectStart()) {
+                    return null;
+                }
+                while (!reader.nextIfObjectEnd()) {
+                    String name = reader.readFieldName();
+                    if (fieldName.equals(name)) {
+                        return reader.readInt32();
+                    }
+                    reader.skipValue();
+                }
+                return null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
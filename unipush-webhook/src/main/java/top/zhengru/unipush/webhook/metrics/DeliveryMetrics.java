@@ -0,0 +1,308 @@
+package top.zhengru.unipush.webhook.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.MetricConstants;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * webhook 投递监控指标
+ * <p>
+ * 渠道 × 结果的 Timer 在启动时预注册；按主机的 Timer 首次出现时注册并缓存，
+ * 主机数超过上限后统一归入 other，防止目标地址过多导致指标基数膨胀。
+ *
+ * @author zhengru
+ */
+@Component
+public class DeliveryMetrics {
+
+    /**
+     * 单次投递结果（标签 outcome 的取值）
+     */
+    public enum Outcome {
+        /**
+         * 渠道确认成功
+         */
+        SUCCESS("success"),
+        /**
+         * HTTP 2xx 但渠道返回业务错误（如钉钉 errcode != 0）
+         */
+        REJECTED("rejected"),
+        /**
+         * HTTP 非 2xx
+         */
+        HTTP_ERROR("http_error"),
+        /**
+         * 网络异常或超时
+         */
+        IO_ERROR("io_error"),
+        /**
+         * HTTP 2xx 但响应无法解析，渠道是否送达未知（按已受理处理，不重试）
+         */
+        UNKNOWN("unknown");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${push.metrics.max-host-tags:50}")
+    private int maxHostTags;
+
+    private Map<String, Timer[]> deliveries;
+
+    private Map<String, Timer> queueTimes;
+
+    private Map<String, Counter> expiredTasks;
+
+    private final Map<String, Timer> hostTimers = new ConcurrentHashMap<>();
+
+    private Timer otherHostTimer;
+
+    private Counter connectionReused;
+
+    private Counter connectionNew;
+
+    private Counter tlsHandshakes;
+
+    private DistributionSummary dingTalkCoalesced;
+
+    private Counter dingTalkThrottled;
+
+    private Counter partitionPauses;
+
+    @PostConstruct
+    public void init() {
+        Outcome[] outcomes = Outcome.values();
+        deliveries = new HashMap<>();
+        queueTimes = new HashMap<>();
+        expiredTasks = new HashMap<>();
+        for (String channel : channelsWithOther()) {
+            Timer[] timers = new Timer[outcomes.length];
+            for (Outcome outcome : outcomes) {
+                timers[outcome.ordinal()] = Timer.builder(MetricConstants.DELIVERY)
+                    .description("渠道HTTP投递耗时")
+                    .tag(MetricConstants.TAG_CHANNEL, channel)
+                    .tag(MetricConstants.TAG_OUTCOME, outcome.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+            }
+            deliveries.put(channel, timers);
+
+            queueTimes.put(channel, Timer.builder(MetricConstants.DELIVERY_QUEUE)
+                .description("投递任务在Kafka中的排队时间")
+                .tag(MetricConstants.TAG_CHANNEL, channel)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry));
+
+            expiredTasks.put(channel, Counter.builder(MetricConstants.WORKER_EXPIRED)
+                .description("已过期、未投递直接丢弃的任务数")
+                .tag(MetricConstants.TAG_CHANNEL, channel)
+                .register(meterRegistry));
+        }
+        otherHostTimer = hostTimer(MetricConstants.CHANNEL_OTHER);
+
+        connectionReused = connectionCounter("reused");
+        connectionNew = connectionCounter("new");
+        tlsHandshakes = Counter.builder(MetricConstants.HTTP_TLS_HANDSHAKE)
+            .description("TLS握手次数")
+            .register(meterRegistry);
+        dingTalkCoalesced = DistributionSummary.builder(MetricConstants.DINGTALK_COALESCED)
+            .description("钉钉合并发送的消息条数")
+            .register(meterRegistry);
+        dingTalkThrottled = Counter.builder(MetricConstants.DINGTALK_THROTTLED)
+            .description("钉钉返回限流错误码的次数")
+            .register(meterRegistry);
+        partitionPauses = Counter.builder(MetricConstants.WORKER_PARTITION_PAUSE)
+            .description("因背压暂停分区拉取的次数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次渠道投递
+     *
+     * @param channel  渠道编码
+     * @param outcome  投递结果
+     * @param host     目标主机
+     * @param costTime 耗时（毫秒）
+     */
+    public void recordDelivery(String channel, Outcome outcome, String host, long costTime) {
+        byChannel(deliveries, channel)[outcome.ordinal()].record(costTime, TimeUnit.MILLISECONDS);
+        byHost(host).record(costTime, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录投递任务排队时间（core发出到webhook开始处理）
+     *
+     * @param channel   渠道编码
+     * @param queueTime 排队时间（毫秒）
+     */
+    public void recordQueueTime(String channel, long queueTime) {
+        byChannel(queueTimes, channel).record(Math.max(queueTime, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一条因过期而未投递的任务
+     */
+    public void recordExpired(String channel) {
+        byChannel(expiredTasks, channel).increment();
+    }
+
+    /**
+     * 记录一次HTTP连接获取
+     *
+     * @param reused true=复用连接池中的连接 false=新建连接
+     */
+    public void recordConnection(boolean reused) {
+        (reused ? connectionReused : connectionNew).increment();
+    }
+
+    /**
+     * 记录一次TLS握手
+     */
+    public void recordTlsHandshake() {
+        tlsHandshakes.increment();
+    }
+
+    /**
+     * 注册连接池连接数（抓取时读取）
+     *
+     * @param pool  shared / dedicated
+     * @param state total / idle
+     */
+    public void bindPoolConnections(String pool, String state, Supplier<Number> count) {
+        Gauge.builder(MetricConstants.HTTP_POOL_CONNECTIONS, count)
+            .description("HTTP连接池连接数")
+            .tag(MetricConstants.TAG_POOL, pool)
+            .tag(MetricConstants.TAG_STATE, state)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 注册热点主机数（抓取时读取）
+     */
+    public void bindHotHosts(Supplier<Number> count) {
+        Gauge.builder(MetricConstants.HTTP_HOT_HOSTS, count)
+            .description("拥有独立连接池的热点主机数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次合并发送
+     *
+     * @param count 合并的消息条数
+     */
+    public void recordDingTalkCoalesced(int count) {
+        dingTalkCoalesced.record(count);
+    }
+
+    /**
+     * 记录一次钉钉限流响应
+     */
+    public void recordDingTalkThrottled() {
+        dingTalkThrottled.increment();
+    }
+
+    /**
+     * 注册钉钉机器人排队消息数（抓取时读取）
+     */
+    public void bindDingTalkQueue(Supplier<Number> count) {
+        Gauge.builder(MetricConstants.DINGTALK_QUEUE, count)
+            .description("钉钉机器人排队中的消息数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次分区暂停
+     */
+    public void recordPartitionPause() {
+        partitionPauses.increment();
+    }
+
+    /**
+     * 注册消费背压状态（抓取时读取）
+     *
+     * @param inFlight         在途任务数
+     * @param pendingBytes     在途任务字节数
+     * @param pausedPartitions 暂停拉取的分区数
+     */
+    public void bindBackpressure(Supplier<Number> inFlight, Supplier<Number> pendingBytes,
+                                 Supplier<Number> pausedPartitions) {
+        Gauge.builder(MetricConstants.WORKER_IN_FLIGHT, inFlight)
+            .description("已消费未回报结果的在途任务数")
+            .register(meterRegistry);
+        Gauge.builder(MetricConstants.WORKER_PENDING_BYTES, pendingBytes)
+            .description("在途任务字节数")
+            .register(meterRegistry);
+        Gauge.builder(MetricConstants.WORKER_PAUSED_PARTITIONS, pausedPartitions)
+            .description("因背压暂停拉取的分区数")
+            .register(meterRegistry);
+    }
+
+    private Counter connectionCounter(String result) {
+        return Counter.builder(MetricConstants.HTTP_CONNECTION)
+            .description("HTTP连接获取次数")
+            .tag(MetricConstants.TAG_RESULT, result)
+            .register(meterRegistry);
+    }
+
+    private Timer byHost(String host) {
+        if (host == null) {
+            return otherHostTimer;
+        }
+        Timer timer = hostTimers.get(host);
+        if (timer != null) {
+            return timer;
+        }
+        // 上限为近似值，并发注册时可能略微超出
+        if (hostTimers.size() >= maxHostTags) {
+            return otherHostTimer;
+        }
+        return hostTimers.computeIfAbsent(host, this::hostTimer);
+    }
+
+    private Timer hostTimer(String host) {
+        return Timer.builder(MetricConstants.DELIVERY_HOST)
+            .description("按目标主机的投递耗时")
+            .tag(MetricConstants.TAG_HOST, host)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(meterRegistry);
+    }
+
+    private static <T> T byChannel(Map<String, T> meters, String channel) {
+        T meter = channel != null ? meters.get(channel) : null;
+        return meter != null ? meter : meters.get(MetricConstants.CHANNEL_OTHER);
+    }
+
+    private static List<String> channelsWithOther() {
+        List<String> channels = new ArrayList<>(MetricConstants.CHANNELS);
+        channels.add(MetricConstants.CHANNEL_OTHER);
+        return channels;
+    }
+}
@@ -83,4 +83,14 @@ public class WebhookRequest implements Serializable {
         }
         return null;
     }
+
+    /**
+     * target中是否选择了批量投递（接收方可以处理JSON数组）
+     * 格式: {"url":"https://example.com/webhook","batch":true}
+     *
+     * @return 是否批量投递
+     */
+    public boolean isBatchTarget() {
+        return target != null && target.replace(" ", "").contains("\"batch\":true");
+    }
 }
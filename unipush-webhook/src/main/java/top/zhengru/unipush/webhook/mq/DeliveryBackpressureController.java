@@ -0,0 +1,297 @@
+package top.zhengru.unipush.webhook.mq;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 投递任务消费背压
+ * <p>
+ * 钉钉排队、Bark/webhook攒批后，监听线程提交任务即返回、offset随即提交，
+ * 未回报结果的任务都堆在内存里。这里按分区统计在途任务数与字节数：
+ * 超过阈值时暂停该分区的拉取，回落到阈值的 resume-ratio 以下再恢复，
+ * 暂停期间监听线程照常 poll（不拉取该分区），不会触发 max.poll.interval 再均衡。
+ * <p>
+ * 任务从 {@link #acquire} 开始在途，投递结果发出时（{@link #release}）结束；
+ * 超过 ticket-timeout 仍未结束的按泄漏清理，避免分区永久暂停。
+ * <p>
+ * 暂停/恢复按分区所属Topic找到对应通道的监听容器，不依赖当前分配：再均衡后分区已不在本实例时
+ * 仍会清除暂停请求。分区被撤销时丢弃其统计并解除暂停（注册为容器的再均衡监听器），
+ * 定时清理时也会恢复已回落到阈值以下却仍处于暂停的分区。
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class DeliveryBackpressureController implements ConsumerRebalanceListener {
+
+    /**
+     * 投递任务监听器ID（与 DeliveryTaskConsumer 的 @KafkaListener id 一致）
+     */
+    public static final String LISTENER_ID = "deliveryTaskListener";
+
+    public static final String HIGH_LISTENER_ID = "deliveryTaskHighListener";
+
+    public static final String BULK_LISTENER_ID = "deliveryTaskBulkListener";
+
+    private static final List<String> LISTENER_IDS = List.of(HIGH_LISTENER_ID, LISTENER_ID, BULK_LISTENER_ID);
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Value("${push.backpressure.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个分区在途任务数上限
+     */
+    @Value("${push.backpressure.max-in-flight-per-partition:500}")
+    private int maxInFlight;
+
+    /**
+     * 单个分区在途任务字节数上限
+     */
+    @Value("${push.backpressure.max-pending-bytes-per-partition:8388608}")
+    private long maxPendingBytes;
+
+    /**
+     * 回落到上限的该比例以下时恢复拉取
+     */
+    @Value("${push.backpressure.resume-ratio:0.5}")
+    private double resumeRatio;
+
+    @Value("${push.backpressure.ticket-timeout:600000}")
+    private long ticketTimeoutMillis;
+
+    private final Map<TopicPartition, PartitionLoad> partitions = new ConcurrentHashMap<>();
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    /**
+     * Topic → 订阅该Topic的监听容器
+     */
+    private final Map<String, MessageListenerContainer> containers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        deliveryMetrics.bindBackpressure(tickets::size, this::pendingBytes, this::pausedPartitions);
+    }
+
+    /**
+     * 任务开始在途（监听线程调用）
+     *
+     * @param messageId 消息ID
+     * @param partition 来源分区
+     * @param bytes     任务大小
+     */
+    public void acquire(String messageId, TopicPartition partition, long bytes) {
+        if (!enabled || messageId == null) {
+            return;
+        }
+        PartitionLoad load = partitions.computeIfAbsent(partition, PartitionLoad::new);
+        Ticket previous = tickets.put(messageId, new Ticket(load, bytes));
+        if (previous != null) {
+            // 同一消息被重复消费，前一次视为结束
+            previous.load.release(previous.bytes);
+        }
+        int inFlight = load.inFlight.incrementAndGet();
+        long pending = load.pendingBytes.addAndGet(bytes);
+        if ((inFlight > maxInFlight || pending > maxPendingBytes) && !load.paused) {
+            pause(load, inFlight, pending);
+        }
+    }
+
+    /**
+     * 任务结束（投递结果已发出，或未投递直接结束），重复调用无副作用
+     */
+    public void release(String messageId) {
+        if (messageId == null) {
+            return;
+        }
+        Ticket ticket = tickets.remove(messageId);
+        if (ticket != null) {
+            release(ticket);
+        }
+    }
+
+    private void release(Ticket ticket) {
+        PartitionLoad load = ticket.load;
+        load.release(ticket.bytes);
+        if (load.paused && belowResumeThreshold(load)) {
+            resume(load);
+        }
+    }
+
+    private boolean belowResumeThreshold(PartitionLoad load) {
+        return load.inFlight.get() <= maxInFlight * resumeRatio
+            && load.pendingBytes.get() <= maxPendingBytes * resumeRatio;
+    }
+
+    /**
+     * 分区被撤销（或丢失）：丢弃统计并解除暂停，重新分配后从零开始计数。
+     * 撤销前的在途任务仍持有旧的统计对象，结束时只更新旧对象，不影响新分配
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionLoad load = partitions.remove(partition);
+            if (load != null && load.paused) {
+                resume(load);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> assigned) {
+        // 新分配的分区在首次 acquire 时创建统计
+    }
+
+    private synchronized void pause(PartitionLoad load, int inFlight, long pending) {
+        MessageListenerContainer container = containerOf(load.partition.topic());
+        if (load.paused || container == null) {
+            return;
+        }
+        container.pausePartition(load.partition);
+        load.paused = true;
+        deliveryMetrics.recordPartitionPause();
+        log.warn("投递任务积压, 暂停分区拉取, partition: {}, inFlight: {}, pendingBytes: {}",
+            load.partition, inFlight, pending);
+    }
+
+    private synchronized void resume(PartitionLoad load) {
+        MessageListenerContainer container = containerOf(load.partition.topic());
+        if (!load.paused || container == null) {
+            return;
+        }
+        container.resumePartition(load.partition);
+        load.paused = false;
+        log.info("投递任务积压回落, 恢复分区拉取, partition: {}, inFlight: {}, pendingBytes: {}",
+            load.partition, load.inFlight.get(), load.pendingBytes.get());
+    }
+
+    /**
+     * 查找订阅该Topic的监听容器（紧急/普通/批量通道各一个）
+     * 按Topic而不是当前分配查找：暂停请求记录在容器上，分区撤销后同样需要在原容器上清除
+     */
+    private MessageListenerContainer containerOf(String topic) {
+        MessageListenerContainer cached = containers.get(topic);
+        if (cached != null) {
+            return cached;
+        }
+        for (String listenerId : LISTENER_IDS) {
+            MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(listenerId);
+            if (container == null) {
+                continue;
+            }
+            String[] topics = container.getContainerProperties().getTopics();
+            if (topics != null && Arrays.asList(topics).contains(topic)) {
+                containers.put(topic, container);
+                return container;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 清理超时未结束的任务
+     */
+    @Scheduled(fixedDelayString = "${push.backpressure.sweep-interval:60000}")
+    public void sweep() {
+        long deadline = System.currentTimeMillis() - ticketTimeoutMillis;
+        int expired = 0;
+        for (Map.Entry<String, Ticket> entry : tickets.entrySet()) {
+            Ticket ticket = entry.getValue();
+            if (ticket.acquiredAt < deadline && tickets.remove(entry.getKey(), ticket)) {
+                release(ticket);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.warn("清理超时未回报结果的在途任务, count: {}", expired);
+        }
+
+        // 兜底：已回落到阈值以下但未恢复的分区（恢复时容器尚不可用等）
+        for (PartitionLoad load : partitions.values()) {
+            if (load.paused && belowResumeThreshold(load)) {
+                resume(load);
+            }
+        }
+    }
+
+    private long pendingBytes() {
+        long total = 0;
+        for (PartitionLoad load : partitions.values()) {
+            total += load.pendingBytes.get();
+        }
+        return total;
+    }
+
+    private int pausedPartitions() {
+        int count = 0;
+        for (PartitionLoad load : partitions.values()) {
+            if (load.paused) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单个分区的在途统计
+     */
+    private static final class PartitionLoad {
+
+        final TopicPartition partition;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        final AtomicLong pendingBytes = new AtomicLong();
+
+        volatile boolean paused;
+
+        PartitionLoad(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        void release(long bytes) {
+            inFlight.decrementAndGet();
+            pendingBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * 一个在途任务
+     */
+    private static final class Ticket {
+
+        final PartitionLoad load;
+
+        final long bytes;
+
+        final long acquiredAt = System.currentTimeMillis();
+
+        Ticket(PartitionLoad load, long bytes) {
+            this.load = load;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package top.zhengru.unipush.webhook.mq;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.KafkaConstants;
+import top.zhengru.unipush.common.enums.PushLogType;
+import top.zhengru.unipush.common.model.entity.PushLog;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 投递日志Kafka生产者
+ * 每次HTTP投递尝试发送一条日志到 unipush-log Topic，由core批量写入push_log。
+ * 日志是尽力而为的：在途发送数超过上限时直接丢弃，绝不阻塞投递线程
+ *
+ * @author zhengru
+ */
+@Slf4j
+@Component
+public class DeliveryLogProducer {
+
+    @Autowired
+    @Qualifier("logKafkaTemplate")
+    private KafkaTemplate<String, String> logKafkaTemplate;
+
+    @Value("${push.log.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 成功响应体的采样率（失败响应始终记录）
+     */
+    @Value("${push.log.response-sample-rate:0.1}")
+    private double responseSampleRate;
+
+    /**
+     * 请求/响应/错误信息的最大字符数，超出截断
+     */
+    @Value("${push.log.max-content-length:2000}")
+    private int maxContentLength;
+
+    /**
+     * 在途（未确认）日志上限
+     */
+    private final Semaphore inFlight;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public DeliveryLogProducer(@Value("${push.log.max-in-flight:10000}") int maxInFlight) {
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * 记录一次投递尝试
+     *
+     * @param messageId 消息ID
+     * @param channelCode 渠道编码
+     * @param requestContent 请求内容
+     * @param responseContent 响应内容
+     * @param success 是否成功
+     * @param errorMessage 错误信息
+     * @param costTime 耗时（毫秒）
+     */
+    public void sendAttemptLog(String messageId, String channelCode, String requestContent,
+                               String responseContent, boolean success, String errorMessage, long costTime) {
+        if (!enabled) {
+            return;
+        }
+
+        PushLog pushLog = new PushLog();
+        pushLog.setMessageId(messageId);
+        pushLog.setChannelCode(channelCode);
+        pushLog.setLogType(PushLogType.RESPONSE.getCode());
+        pushLog.setLogLevel(success ? "INFO" : "ERROR");
+        pushLog.setRequestContent(truncate(requestContent));
+        if (!success || ThreadLocalRandom.current().nextDouble() < responseSampleRate) {
+            pushLog.setResponseContent(truncate(responseContent));
+        }
+        pushLog.setErrorMessage(truncate(errorMessage));
+        pushLog.setCostTime(costTime);
+        pushLog.setCreateTime(LocalDateTime.now());
+
+        send(messageId, pushLog);
+    }
+
+    private void send(String messageId, PushLog pushLog) {
+        // 过载时丢弃日志，投递本身优先
+        if (!inFlight.tryAcquire()) {
+            long count = dropped.incrementAndGet();
+            if (count % 1000 == 1) {
+                log.warn("投递日志在途过多，已丢弃, dropped: {}", count);
+            }
+            return;
+        }
+
+        try {
+            logKafkaTemplate.send(KafkaConstants.TOPIC_LOG, messageId, JSON.toJSONString(pushLog))
+                .whenComplete((result, ex) -> {
+                    inFlight.release();
+                    if (ex != null) {
+                        dropped.incrementAndGet();
+                        log.debug("投递日志发送失败, messageId: {}, error: {}", messageId, ex.getMessage());
+                    }
+                });
+        } catch (Exception e) {
+            inFlight.release();
+            dropped.incrementAndGet();
+            log.debug("投递日志发送异常, messageId: {}, error: {}", messageId, e.getMessage());
+        }
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= maxContentLength) {
+            return value;
+        }
+        return value.substring(0, maxContentLength) + "...(truncated " + (value.length() - maxContentLength) + ")";
+    }
+
+    /**
+     * 累计丢弃的日志数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
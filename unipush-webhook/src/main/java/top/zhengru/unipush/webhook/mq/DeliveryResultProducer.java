@@ -1,12 +1,22 @@
 package top.zhengru.unipush.webhook.mq;
 
+import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import top.zhengru.unipush.common.constant.TraceConstants;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -25,22 +35,77 @@ public class DeliveryResultProducer {
     @Value("${kafka.topic.result:unipush-result}")
     private String resultTopic;
 
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    @Autowired
+    private DeliveryBackpressureController deliveryBackpressureController;
+
+    /**
+     * 回报任务已过期（未投递），core据此标记为EXPIRED，不再重试
+     *
+     * @param messageId   消息ID
+     * @param channelCode 渠道编码
+     */
+    public void sendExpiredResult(String messageId, String channelCode) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("messageId", messageId);
+        result.put("success", false);
+        result.put("expired", true);
+        result.put("errorMessage", "消息已过期，未投递");
+        result.put("channelCode", channelCode);
+        result.put("timestamp", System.currentTimeMillis());
+        sendDeliveryResult(messageId, JSON.toJSONString(result));
+    }
+
+    /**
+     * 回报正文缺失（Redis中已不存在，未投递），core据此从数据库还原正文后重新下发，还原不了则标记为失败
+     *
+     * @param messageId   消息ID
+     * @param channelCode 渠道编码
+     * @param contentHash 正文哈希
+     */
+    public void sendContentMissingResult(String messageId, String channelCode, String contentHash) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("messageId", messageId);
+        result.put("success", false);
+        result.put("contentMissing", true);
+        result.put("contentHash", contentHash);
+        result.put("errorMessage", "消息正文不存在，未投递");
+        result.put("channelCode", channelCode);
+        result.put("timestamp", System.currentTimeMillis());
+        sendDeliveryResult(messageId, JSON.toJSONString(result));
+    }
+
     /**
      * 发送投递结果到unipush-result Topic
+     * 当前线程有链路上下文时，连同webhook侧阶段一起写入record header回传core
+     * 结果发出即视为该任务处理结束，释放背压计数
      *
      * @param messageId 消息ID
      * @param resultJson 投递结果JSON字符串
      */
     public void sendDeliveryResult(String messageId, String resultJson) {
+        deliveryBackpressureController.release(messageId);
         try {
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(resultTopic, messageId, resultJson);
+            ProducerRecord<String, String> record = new ProducerRecord<>(resultTopic, messageId, resultJson);
+            TraceContext trace = TraceContext.current();
+            if (trace != null) {
+                record.headers()
+                    .add(TraceConstants.TRACE_ID, trace.getTraceId().getBytes(StandardCharsets.UTF_8))
+                    .add(TraceConstants.TRACE_STAGES, trace.encodeStages().getBytes(StandardCharsets.UTF_8));
+            }
+            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(record);
 
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
-                    log.info("投递结果已发送, messageId: {}, topic: {}, partition: {}, offset: {}",
-                        messageId, resultTopic,
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset());
+                    // 回调运行在Kafka生产者IO线程上，只做入队
+                    if (hotPathEventLog.isEnabled(HotPathStage.RESULT, Level.DEBUG)) {
+                        hotPathEventLog.debug(HotPathStage.RESULT, "投递结果已发送, messageId: {}, topic: {}, partition: {}, offset: {}",
+                            messageId, resultTopic,
+                            result.getRecordMetadata().partition(),
+                            result.getRecordMetadata().offset());
+                    }
                 } else {
                     log.error("投递结果发送失败, messageId: {}, topic: {}, error: {}",
                         messageId, resultTopic, ex.getMessage());
@@ -1,17 +1,29 @@
 package top.zhengru.unipush.webhook.mq;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
-import top.zhengru.unipush.webhook.model.WebhookRequest;
+import top.zhengru.unipush.common.constant.TraceConstants;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.service.MessageContentService;
 import top.zhengru.unipush.webhook.service.WebhookDeliveryService;
 import top.zhengru.unipush.webhook.service.DingTalkDeliveryService;
 import top.zhengru.unipush.webhook.service.BarkDeliveryService;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Webhook投递任务消费者
  * 纯Worker角色,消费投递任务并执行HTTP投递
@@ -31,28 +43,125 @@ public class DeliveryTaskConsumer {
     @Autowired
     private BarkDeliveryService barkDeliveryService;
 
+    @Autowired
+    private MessageContentService messageContentService;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    @Autowired
+    private DeliveryBackpressureController deliveryBackpressureController;
+
+    @Autowired
+    private DeliveryResultProducer deliveryResultProducer;
+
+    /**
+     * 消费紧急通道投递任务（unipush-delivery-high）
+     * 独立的监听容器与线程，普通/批量通道积压时不受影响
+     */
+    @KafkaListener(
+        id = DeliveryBackpressureController.HIGH_LISTENER_ID,
+        topics = "${kafka.topic.delivery-high:unipush-delivery-high}",
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "kafkaListenerContainerFactory",
+        concurrency = "${push.lanes.high.concurrency:2}"
+    )
+    public void consumeHighPriorityTask(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        consumeDeliveryTask(record, ack);
+    }
+
+    /**
+     * 消费批量通道投递任务（unipush-delivery-bulk）
+     * 并发数小于普通通道，大批量发送只占用固定份额的Worker线程
+     */
+    @KafkaListener(
+        id = DeliveryBackpressureController.BULK_LISTENER_ID,
+        topics = "${kafka.topic.delivery-bulk:unipush-delivery-bulk}",
+        groupId = "${spring.kafka.consumer.group-id}",
+        containerFactory = "kafkaListenerContainerFactory",
+        concurrency = "${push.lanes.bulk.concurrency:1}"
+    )
+    public void consumeBulkTask(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        consumeDeliveryTask(record, ack);
+    }
+
     /**
      * 消费webhook投递任务
-     * 订阅统一的 unipush-delivery Topic，处理 channelCode="webhook"、"dingtalk" 和 "bark" 的消息
+     * 订阅普通通道 unipush-delivery Topic（紧急/批量通道也由此处理），
+     * 处理 channelCode="webhook"、"dingtalk" 和 "bark" 的消息
      *
      * @param record Kafka消费者记录
      * @param ack 手动确认对象
      */
     @KafkaListener(
+        id = DeliveryBackpressureController.LISTENER_ID,
         topics = "${kafka.topic.delivery:unipush-delivery}",
         groupId = "${spring.kafka.consumer.group-id}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        concurrency = "${push.lanes.normal.concurrency:5}"
     )
     public void consumeDeliveryTask(ConsumerRecord<String, String> record, Acknowledgment ack) {
         String messageId = record.key();
         String message = record.value();
 
-        log.info("收到投递任务, messageId: {}, partition: {}, offset: {}",
-            messageId, record.partition(), record.offset());
+        if (hotPathEventLog.isEnabled(HotPathStage.CONSUME, Level.DEBUG)) {
+            hotPathEventLog.debug(HotPathStage.CONSUME, "收到投递任务, messageId: {}, partition: {}, offset: {}",
+                messageId, record.partition(), record.offset());
+        }
+
+        // 还原core传来的链路上下文，投递服务与结果生产者在同一线程上读取
+        TraceContext trace = TraceContext.restore(header(record, TraceConstants.TRACE_ID),
+            header(record, TraceConstants.TRACE_STAGES));
+        if (trace != null) {
+            trace.mark(TraceStage.WORKER_RECEIVED);
+            TraceContext.setCurrent(trace);
+        }
+
+        // 结果回报前一直计入所在分区的在途任务（异步投递时监听线程提交即返回）
+        deliveryBackpressureController.acquire(messageId, new TopicPartition(record.topic(), record.partition()),
+            Math.max(record.serializedValueSize(), 0));
 
         try {
             // 解析消息获取渠道编码
-            String channelCode = parseChannelCode(message);
+            JSONObject task = parseTask(message);
+            String channelCode = task != null ? task.getString("channelCode") : "";
+            long sentAt = task != null ? task.getLongValue("timestamp") : 0;
+            if (sentAt > 0) {
+                deliveryMetrics.recordQueueTime(channelCode, System.currentTimeMillis() - sentAt);
+            }
+
+            // 已过期的任务不还原正文、不发HTTP，直接回报过期（积压追赶时只把容量花在仍有效的消息上）
+            long expireAt = task != null ? task.getLongValue("expireAt") : 0;
+            if (expireAt > 0 && expireAt <= System.currentTimeMillis()) {
+                hotPathEventLog.info(HotPathStage.CONSUME, "投递任务已过期, 不再投递, messageId: {}, channelCode: {}",
+                    messageId, channelCode);
+                deliveryMetrics.recordExpired(channelCode);
+                deliveryResultProducer.sendExpiredResult(messageId, channelCode);
+                if (ack != null) {
+                    ack.acknowledge();
+                }
+                return;
+            }
+
+            // 正文去重存储的任务只携带contentHash，投递前还原正文
+            String contentHash = task != null ? task.getString("contentHash") : null;
+            if (contentHash != null && task.get("content") == null) {
+                String content = messageContentService.resolve(contentHash);
+                if (content == null) {
+                    // Redis中的正文已过期或被淘汰：回报core，由core从数据库还原后携带正文重新下发
+                    log.warn("消息正文不存在, 回报core还原, messageId: {}, contentHash: {}", messageId, contentHash);
+                    deliveryResultProducer.sendContentMissingResult(messageId, channelCode, contentHash);
+                    if (ack != null) {
+                        ack.acknowledge();
+                    }
+                    return;
+                }
+                task.put("content", content);
+                message = task.toJSONString();
+            }
 
             // 渠道分发：根据channelCode投递到不同的服务
             if ("webhook".equals(channelCode)) {
@@ -67,6 +176,7 @@ public class DeliveryTaskConsumer {
             } else {
                 log.debug("忽略不支持的消息, channelCode: {}, messageId: {}",
                     channelCode, messageId);
+                deliveryBackpressureController.release(messageId);
                 // 提交offset，避免重复消费
                 if (ack != null) {
                     ack.acknowledge();
@@ -74,33 +184,41 @@ public class DeliveryTaskConsumer {
                 return;
             }
 
-            // 投递成功后提交offset
+            // 同步投递已回报结果；放入内存队列（钉钉限流、批量窗口）的任务此时尚未发送，
+            // 进程异常退出时由core的未回报结果检查（PendingSweepTask）按失败重试
             if (ack != null) {
                 ack.acknowledge();
-                log.debug("投递完成,已提交offset, messageId: {}, channelCode: {}",
+                log.debug("投递任务已处理,已提交offset, messageId: {}, channelCode: {}",
                     messageId, channelCode);
             }
 
         } catch (Exception e) {
             log.error("投递失败, messageId: {}, 暂不提交offset等待重试",
                 messageId, e);
+            deliveryBackpressureController.release(messageId);
             // 不提交offset,Kafka会重新投递
+        } finally {
+            TraceContext.clearCurrent();
         }
     }
 
+    private static String header(ConsumerRecord<String, String> record, String key) {
+        Header header = record.headers().lastHeader(key);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
     /**
-     * 解析消息获取渠道编码
+     * 解析投递任务消息
      *
      * @param message JSON消息
-     * @return 渠道编码
+     * @return 任务JSON对象，解析失败返回null
      */
-    private String parseChannelCode(String message) {
+    private JSONObject parseTask(String message) {
         try {
-            com.alibaba.fastjson2.JSONObject json = JSON.parseObject(message);
-            return json.getString("channelCode");
+            return JSON.parseObject(message);
         } catch (Exception e) {
-            log.error("解析channelCode失败, message: {}", message, e);
-            return "";
+            log.error("解析投递任务失败, message: {}", message, e);
+            return null;
         }
     }
 }
@@ -1,16 +1,33 @@
 package top.zhengru.unipush.webhook.service;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.slf4j.event.Level;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.webhook.batch.KeyedBatcher;
+import top.zhengru.unipush.webhook.http.HttpClientManager;
+import top.zhengru.unipush.webhook.http.ResponseBodyReader;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.mq.DeliveryLogProducer;
 import top.zhengru.unipush.webhook.mq.DeliveryResultProducer;
 import top.zhengru.unipush.webhook.model.BarkRequest;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,12 +40,73 @@ import java.util.Map;
 public class BarkDeliveryService {
 
     @Autowired
-    private OkHttpClient okHttpClient;
+    private HttpClientManager httpClientManager;
+
+    @Autowired
+    private ResponseBodyReader responseBodyReader;
 
     @Autowired
     private DeliveryResultProducer deliveryResultProducer;
 
-    private static final String BARK_API_BASE = "https://api.day.app";
+    @Autowired
+    private DeliveryLogProducer deliveryLogProducer;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    /**
+     * Bark服务地址（自建Bark服务或压测时指向本地替身）
+     */
+    @Value("${webhook.bark.base-url:https://api.day.app}")
+    private String barkApiBase;
+
+    /**
+     * 批量模式：相同内容的推送在窗口内合并为一次 POST /push（device_keys），需要服务端支持批量推送
+     */
+    @Value("${webhook.bark.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${webhook.bark.batch.window-millis:20}")
+    private long batchWindowMillis;
+
+    /**
+     * 单次请求的设备数上限
+     */
+    @Value("${webhook.bark.batch.max-devices:100}")
+    private int batchMaxDevices;
+
+    @Value("${webhook.bark.batch.threads:4}")
+    private int batchThreads;
+
+    /**
+     * 批量响应中每台设备结果的预留字节数，批量响应按 max-devices × 该值读取，保证逐设备结果不被截断
+     */
+    @Value("${webhook.bark.batch.response-bytes-per-device:256}")
+    private int responseBytesPerDevice;
+
+    /**
+     * 推送内容（不含设备key）→ 待推送的设备；未启用批量模式（或未经Spring初始化）时为null
+     */
+    private KeyedBatcher<Map<String, String>, BarkItem> batcher;
+
+    public static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    @PostConstruct
+    public void init() {
+        if (batchEnabled) {
+            batcher = new KeyedBatcher<>("bark-batch", batchWindowMillis, batchMaxDevices, batchThreads, this::sendBatch);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
 
     /**
      * 执行Bark推送投递
@@ -42,101 +120,279 @@ public class BarkDeliveryService {
         // 1. 解析投递任务
         BarkRequest request = JSON.parseObject(taskMessage, BarkRequest.class);
 
-        log.info("开始Bark推送投递, messageId: {}, key: {}", messageId, request.getBarkKey());
+        hotPathEventLog.debug(HotPathStage.DELIVERY, "开始Bark推送投递, messageId: {}, key: {}", messageId, request.getBarkKey());
 
-        // 2. 构造Bark API URL和查询参数
+        // 2. 推送参数（标题、正文与可选参数）
         String barkKey = request.getBarkKey();
-        HttpUrl.Builder urlBuilder = HttpUrl.parse(BARK_API_BASE + "/" + barkKey).newBuilder();
-
-        // 添加必需参数
-        urlBuilder.addQueryParameter("title", request.getTitle() != null ? request.getTitle() : "");
-        urlBuilder.addQueryParameter("body", request.getContent() != null ? request.getContent() : "");
-
-        // 添加可选参数
-        addOptionalParameter(urlBuilder, "sound", request.getSound());
-        addOptionalParameter(urlBuilder, "icon", request.getIcon());
-        addOptionalParameter(urlBuilder, "group", request.getGroup());
-        addOptionalParameter(urlBuilder, "level", request.getLevel());
-        addOptionalParameter(urlBuilder, "url", request.getUrl());
-        addOptionalParameter(urlBuilder, "click", request.getClick());
-        addOptionalParameter(urlBuilder, "autoCopy", request.getAutoCopy());
-        addOptionalParameter(urlBuilder, "copy", request.getCopy());
-        addOptionalParameter(urlBuilder, "badge", request.extractParam("badge"));
-        addOptionalParameter(urlBuilder, "sound", request.extractParam("sound"));
-        addOptionalParameter(urlBuilder, "isArchive", request.extractParam("isArchive"));
-        addOptionalParameter(urlBuilder, "autoCancel", request.extractParam("autoCancel"));
-
-        // 3. 构造GET请求
+        Map<String, String> payload = buildPayload(request);
+
+        if (batcher != null) {
+            // 批量模式：按推送内容分组，由批处理线程发送并逐条回报
+            // （offset随即提交，进程异常退出时窗口中的消息由core的未回报结果检查重试）
+            batcher.add(payload, new BarkItem(messageId, barkKey, TraceContext.current()));
+            return;
+        }
+
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(barkApiBase + "/" + barkKey).newBuilder();
+        for (Map.Entry<String, String> entry : payload.entrySet()) {
+            urlBuilder.addQueryParameter(entry.getKey(), entry.getValue());
+        }
+
+        // 3. 构造GET请求（日志中隐去设备key）
+        HttpUrl url = urlBuilder.build();
+        String requestLog = barkKey != null ? url.toString().replace(barkKey, "***") : url.toString();
         Request httpRequest = new Request.Builder()
-            .url(urlBuilder.build())
+            .url(url)
             .get()
             .build();
 
         // 4. 发送HTTP请求
-        try (Response response = okHttpClient.newCall(httpRequest).execute()) {
+        TraceContext.markCurrent(TraceStage.HTTP_START);
+        try (Response response = httpClientManager.execute(httpRequest)) {
             long costTime = System.currentTimeMillis() - startTime;
+            TraceContext.markCurrent(TraceStage.HTTP_END);
 
             if (response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
+                ResponseBodyReader.BoundedBody responseBody = responseBodyReader.read(response.body());
 
                 // 5. 解析响应，判断是否成功
                 boolean success = parseBarkResponse(responseBody);
 
                 if (success) {
-                    log.info("Bark推送投递成功, messageId: {}, costTime: {}ms, response: {}",
-                        messageId, costTime, responseBody);
+                    if (hotPathEventLog.isEnabled(HotPathStage.DELIVERY, Level.INFO)) {
+                        hotPathEventLog.info(HotPathStage.DELIVERY, "Bark推送投递成功, messageId: {}, costTime: {}ms",
+                            messageId, costTime);
+                    }
+                    deliveryMetrics.recordDelivery("bark", DeliveryMetrics.Outcome.SUCCESS, httpRequest.url().host(), costTime);
                     sendDeliveryResult(messageId, true, null);
+                    deliveryLogProducer.sendAttemptLog(messageId, "bark", requestLog, responseBody.text(), true, null, costTime);
                 } else {
                     log.error("Bark推送投递失败, messageId: {}, costTime: {}ms, response: {}",
-                        messageId, costTime, responseBody);
-                    sendDeliveryResult(messageId, false, "Bark返回错误: " + responseBody);
+                        messageId, costTime, responseBody.text());
+                    deliveryMetrics.recordDelivery("bark", DeliveryMetrics.Outcome.REJECTED, httpRequest.url().host(), costTime);
+                    sendDeliveryResult(messageId, false, "Bark返回错误: " + responseBody.text());
+                    deliveryLogProducer.sendAttemptLog(messageId, "bark", requestLog, responseBody.text(),
+                        false, "Bark返回错误", costTime);
                 }
             } else {
+                // 读掉错误响应体，连接才能归还连接池
+                responseBodyReader.discard(response.body());
                 String errorMsg = String.format("HTTP错误: %d, %s",
                     response.code(), response.message());
                 log.error("Bark推送投递失败, messageId: {}, costTime: {}ms, error: {}",
                     messageId, costTime, errorMsg);
+                deliveryMetrics.recordDelivery("bark", DeliveryMetrics.Outcome.HTTP_ERROR, httpRequest.url().host(), costTime);
                 sendDeliveryResult(messageId, false, errorMsg);
+                deliveryLogProducer.sendAttemptLog(messageId, "bark", requestLog, null,
+                    false, errorMsg, costTime);
             }
 
         } catch (IOException e) {
             long costTime = System.currentTimeMillis() - startTime;
+            TraceContext.markCurrent(TraceStage.HTTP_END);
             String errorMsg = String.format("投递异常: %s", e.getMessage());
             log.error("Bark推送投递异常, messageId: {}, costTime: {}ms",
                 messageId, costTime, e);
+            deliveryMetrics.recordDelivery("bark", DeliveryMetrics.Outcome.IO_ERROR, httpRequest.url().host(), costTime);
             sendDeliveryResult(messageId, false, errorMsg);
+            deliveryLogProducer.sendAttemptLog(messageId, "bark", requestLog, null, false, errorMsg, costTime);
         }
     }
 
+    /**
+     * 构造推送参数，顺序固定，相同内容的推送得到相等的Map（批量模式按此分组）
+     *
+     * @param request Bark投递请求
+     * @return 参数名 → 参数值（可选参数为空时不包含）
+     */
+    private Map<String, String> buildPayload(BarkRequest request) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        // 必需参数
+        payload.put("title", request.getTitle() != null ? request.getTitle() : "");
+        payload.put("body", request.getContent() != null ? request.getContent() : "");
+
+        // 可选参数
+        putOptional(payload, "sound", request.getSound());
+        putOptional(payload, "icon", request.getIcon());
+        putOptional(payload, "group", request.getGroup());
+        putOptional(payload, "level", request.getLevel());
+        putOptional(payload, "url", request.getUrl());
+        putOptional(payload, "click", request.getClick());
+        putOptional(payload, "autoCopy", request.getAutoCopy());
+        putOptional(payload, "copy", request.getCopy());
+        putOptional(payload, "badge", request.extractParam("badge"));
+        putOptional(payload, "isArchive", request.extractParam("isArchive"));
+        putOptional(payload, "autoCancel", request.extractParam("autoCancel"));
+        return payload;
+    }
+
     /**
      * 添加可选参数（非空时才添加）
      *
-     * @param urlBuilder URL构建器
+     * @param payload 推送参数
      * @param paramName 参数名
      * @param paramValue 参数值
      */
-    private void addOptionalParameter(HttpUrl.Builder urlBuilder, String paramName, String paramValue) {
+    private void putOptional(Map<String, String> payload, String paramName, String paramValue) {
         if (paramValue != null && !paramValue.isEmpty()) {
-            urlBuilder.addQueryParameter(paramName, paramValue);
+            payload.put(paramName, paramValue);
         }
     }
 
     /**
-     * 解析Bark响应
-     * 成功响应: {"code":200,"message":"success"}
+     * 批量发送：一次 POST /push 推送到多个设备，逐条回报结果
      *
-     * @param response 响应JSON字符串
-     * @return 是否成功
+     * @param payload 推送参数
+     * @param items 同一内容的待推送设备
      */
-    private boolean parseBarkResponse(String response) {
+    private void sendBatch(Map<String, String> payload, List<BarkItem> items) {
+        long startTime = System.currentTimeMillis();
+
+        List<String> deviceKeys = new ArrayList<>(items.size());
+        for (BarkItem item : items) {
+            deviceKeys.add(item.deviceKey);
+        }
+        Map<String, Object> body = new LinkedHashMap<>(payload);
+        body.put("device_keys", deviceKeys);
+
+        // 日志中不记录设备key
+        String requestLog = "POST /push " + JSON.toJSONString(payload) + ", devices: " + items.size();
+        Request httpRequest = new Request.Builder()
+            .url(barkApiBase + "/push")
+            .post(RequestBody.create(JSON.toJSONString(body), JSON_TYPE))
+            .build();
+        String host = httpRequest.url().host();
+
+        mark(items, TraceStage.HTTP_START);
+        try (Response response = httpClientManager.execute(httpRequest)) {
+            long costTime = System.currentTimeMillis() - startTime;
+            mark(items, TraceStage.HTTP_END);
+
+            if (response.isSuccessful()) {
+                ResponseBodyReader.BoundedBody responseBody = responseBodyReader.read(response.body(),
+                    batchMaxDevices * responseBytesPerDevice + 1024);
+                BatchResponse batchResponse = parseBatchResponse(responseBody);
+
+                int failed = 0;
+                int unknown = 0;
+                for (BarkItem item : items) {
+                    Integer deviceCode = batchResponse.deviceCodes().getOrDefault(item.deviceKey, batchResponse.code());
+                    if (deviceCode == null) {
+                        // 服务端已受理（2xx）但结果无法解析：不能判定为失败，否则重试会重复推送
+                        unknown++;
+                        report(item, DeliveryMetrics.Outcome.UNKNOWN, host, costTime, null,
+                            requestLog, responseBody.text(), "Bark响应无法解析，按已受理处理");
+                    } else if (deviceCode == 200) {
+                        report(item, DeliveryMetrics.Outcome.SUCCESS, host, costTime, null,
+                            requestLog, responseBody.text(), null);
+                    } else {
+                        failed++;
+                        report(item, DeliveryMetrics.Outcome.REJECTED, host, costTime, "Bark返回错误: " + deviceCode,
+                            requestLog, responseBody.text(), "Bark返回错误");
+                    }
+                }
+                if (failed > 0) {
+                    log.error("Bark批量推送部分失败, devices: {}, failed: {}, costTime: {}ms, response: {}",
+                        items.size(), failed, costTime, responseBody.text());
+                } else if (unknown > 0) {
+                    log.warn("Bark批量推送响应无法解析, 按已受理处理, devices: {}, unknown: {}, costTime: {}ms, response: {}",
+                        items.size(), unknown, costTime, responseBody.text());
+                } else if (hotPathEventLog.isEnabled(HotPathStage.DELIVERY, Level.INFO)) {
+                    hotPathEventLog.info(HotPathStage.DELIVERY, "Bark批量推送成功, devices: {}, costTime: {}ms",
+                        items.size(), costTime);
+                }
+            } else {
+                // 读掉错误响应体，连接才能归还连接池
+                responseBodyReader.discard(response.body());
+                String errorMsg = String.format("HTTP错误: %d, %s",
+                    response.code(), response.message());
+                log.error("Bark批量推送失败, devices: {}, costTime: {}ms, error: {}",
+                    items.size(), costTime, errorMsg);
+                for (BarkItem item : items) {
+                    report(item, DeliveryMetrics.Outcome.HTTP_ERROR, host, costTime, errorMsg, requestLog, null, errorMsg);
+                }
+            }
+
+        } catch (IOException e) {
+            long costTime = System.currentTimeMillis() - startTime;
+            mark(items, TraceStage.HTTP_END);
+            String errorMsg = String.format("投递异常: %s", e.getMessage());
+            log.error("Bark批量推送异常, devices: {}, costTime: {}ms", items.size(), costTime, e);
+            for (BarkItem item : items) {
+                report(item, DeliveryMetrics.Outcome.IO_ERROR, host, costTime, errorMsg, requestLog, null, errorMsg);
+            }
+        }
+    }
+
+    /**
+     * 解析批量响应：整体 code 与 data 数组中的逐设备结果（元素含 device_key、code），字段顺序不限
+     * 响应被截断或无法解析时两者均为空，调用方按结果未知处理
+     */
+    private BatchResponse parseBatchResponse(ResponseBodyReader.BoundedBody response) {
+        if (response.isTruncated() || response.bytes().length == 0) {
+            return BatchResponse.UNKNOWN;
+        }
         try {
-            JSONObject json = JSON.parseObject(response);
-            Integer code = json.getInteger("code");
-            return code != null && code == 200;
+            JSONObject root = JSON.parseObject(response.bytes());
+            if (root == null) {
+                return BatchResponse.UNKNOWN;
+            }
+            Map<String, Integer> codes = new HashMap<>();
+            JSONArray data = root.getJSONArray("data");
+            if (data != null) {
+                for (int i = 0; i < data.size(); i++) {
+                    JSONObject device = data.getJSONObject(i);
+                    if (device != null && device.getString("device_key") != null) {
+                        codes.put(device.getString("device_key"), device.getInteger("code"));
+                    }
+                }
+            }
+            return new BatchResponse(root.getInteger("code"), codes);
         } catch (Exception e) {
-            log.error("解析Bark响应失败, response: {}", response, e);
+            return BatchResponse.UNKNOWN;
+        }
+    }
+
+    /**
+     * 回报一条批量推送的结果（带该消息的链路上下文）
+     */
+    private void report(BarkItem item, DeliveryMetrics.Outcome outcome, String host, long costTime,
+                        String resultError, String requestLog, String responseLog, String attemptError) {
+        // 结果未知按已受理回报，不触发重试
+        boolean success = outcome == DeliveryMetrics.Outcome.SUCCESS || outcome == DeliveryMetrics.Outcome.UNKNOWN;
+        TraceContext.setCurrent(item.trace);
+        try {
+            deliveryMetrics.recordDelivery("bark", outcome, host, costTime);
+            sendDeliveryResult(item.messageId, success, resultError);
+            deliveryLogProducer.sendAttemptLog(item.messageId, "bark", requestLog, responseLog,
+                success, attemptError, costTime);
+        } finally {
+            TraceContext.clearCurrent();
+        }
+    }
+
+    private static void mark(List<BarkItem> items, TraceStage stage) {
+        for (BarkItem item : items) {
+            if (item.trace != null) {
+                item.trace.mark(stage);
+            }
+        }
+    }
+
+    /**
+     * 解析Bark响应（流式读取 code，不解析整个对象）
+     * 成功响应: {"code":200,"message":"success"}
+     *
+     * @param response 截断后的响应体
+     * @return 是否成功
+     */
+    private boolean parseBarkResponse(ResponseBodyReader.BoundedBody response) {
+        Integer code = response.intField("code");
+        if (code == null) {
+            log.error("解析Bark响应失败, response: {}", response.text());
             return false;
         }
+        return code == 200;
     }
 
     /**
@@ -157,4 +413,33 @@ public class BarkDeliveryService {
         String resultJson = JSON.toJSONString(result);
         deliveryResultProducer.sendDeliveryResult(messageId, resultJson);
     }
+
+    /**
+     * 批量响应的解析结果
+     *
+     * @param code        整体 code，缺失时为null
+     * @param deviceCodes 设备key → 该设备的 code
+     */
+    private record BatchResponse(Integer code, Map<String, Integer> deviceCodes) {
+
+        static final BatchResponse UNKNOWN = new BatchResponse(null, Map.of());
+    }
+
+    /**
+     * 批量模式下等待推送的一台设备
+     */
+    private static final class BarkItem {
+
+        final String messageId;
+
+        final String deviceKey;
+
+        final TraceContext trace;
+
+        BarkItem(String messageId, String deviceKey, TraceContext trace) {
+            this.messageId = messageId;
+            this.deviceKey = deviceKey;
+            this.trace = trace;
+        }
+    }
 }
@@ -1,16 +1,28 @@
 package top.zhengru.unipush.webhook.service;
 
 import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.slf4j.event.Level;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.webhook.http.HttpClientManager;
+import top.zhengru.unipush.webhook.http.ResponseBodyReader;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.mq.DeliveryLogProducer;
 import top.zhengru.unipush.webhook.mq.DeliveryResultProducer;
 import top.zhengru.unipush.webhook.model.DingTalkRequest;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,80 +35,239 @@ import java.util.Map;
 public class DingTalkDeliveryService {
 
     @Autowired
-    private OkHttpClient okHttpClient;
+    private HttpClientManager httpClientManager;
+
+    @Autowired
+    private ResponseBodyReader responseBodyReader;
 
     @Autowired
     private DeliveryResultProducer deliveryResultProducer;
 
+    @Autowired
+    private DeliveryLogProducer deliveryLogProducer;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
     public static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
 
+    /**
+     * 按机器人限速与合并发送（关闭时每条消息直接发送）
+     */
+    @Value("${webhook.dingtalk.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    /**
+     * 每个机器人每分钟最多发送的消息数
+     */
+    @Value("${webhook.dingtalk.rate-limit.permits-per-minute:20}")
+    private int permitsPerMinute;
+
+    @Value("${webhook.dingtalk.rate-limit.max-queue-per-robot:1000}")
+    private int maxQueuePerRobot;
+
+    /**
+     * 合并为一条消息的最大条数与字符数
+     */
+    @Value("${webhook.dingtalk.rate-limit.max-merge:20}")
+    private int maxMerge;
+
+    @Value("${webhook.dingtalk.rate-limit.max-merge-chars:4000}")
+    private int maxMergeChars;
+
+    /**
+     * 收到钉钉限流错误码后暂停该机器人的时间（毫秒）
+     */
+    @Value("${webhook.dingtalk.rate-limit.throttle-penalty:60000}")
+    private long throttlePenaltyMillis;
+
+    @Value("${webhook.dingtalk.rate-limit.sender-threads:4}")
+    private int senderThreads;
+
+    /**
+     * 未启用限速（或未经Spring初始化）时为null
+     */
+    private DingTalkRobotScheduler robotScheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!rateLimitEnabled) {
+            return;
+        }
+        robotScheduler = new DingTalkRobotScheduler(new DingTalkRobotScheduler.Sender() {
+            @Override
+            public boolean send(String url, List<DingTalkRobotScheduler.Pending> batch) {
+                return sendBatch(url, batch);
+            }
+
+            @Override
+            public void reject(List<DingTalkRobotScheduler.Pending> batch, String reason) {
+                rejectBatch(batch, reason);
+            }
+        }, permitsPerMinute, maxQueuePerRobot, maxMerge, maxMergeChars, throttlePenaltyMillis, senderThreads);
+        deliveryMetrics.bindDingTalkQueue(robotScheduler::queued);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (robotScheduler != null) {
+            robotScheduler.close();
+        }
+    }
+
     /**
      * 执行钉钉机器人投递
+     * 启用限速时，该机器人有配额且无积压则在当前线程发送，否则进入该机器人的队列，由调度线程合并发送
      *
      * @param messageId 消息ID
      * @param taskMessage 投递任务消息(JSON)
      */
     public void deliver(String messageId, String taskMessage) {
-        long startTime = System.currentTimeMillis();
-
         // 1. 解析投递任务
         DingTalkRequest request = JSON.parseObject(taskMessage, DingTalkRequest.class);
+        String url = request.getTargetUrl();
 
-        log.info("开始钉钉机器人投递, messageId: {}, url: {}", messageId, request.getTargetUrl());
+        hotPathEventLog.debug(HotPathStage.DELIVERY, "开始钉钉机器人投递, messageId: {}, url: {}", messageId, url);
 
-        // 2. 构造钉钉机器人请求体
+        DingTalkRobotScheduler.Pending pending = new DingTalkRobotScheduler.Pending(messageId,
+            request.getMsgType() != null ? request.getMsgType() : "text",
+            buildContent(request.getTitle(), request.getContent()), TraceContext.current());
+        List<DingTalkRobotScheduler.Pending> single = List.of(pending);
+
+        if (robotScheduler == null) {
+            sendBatch(url, single);
+        } else if (!robotScheduler.submit(url, pending)) {
+            log.warn("钉钉机器人发送队列已满, messageId: {}", messageId);
+            rejectBatch(single, "钉钉机器人发送队列已满");
+        }
+    }
+
+    /**
+     * 发送一条钉钉消息（多条时合并为一条文本），逐条回报结果
+     *
+     * @return true=被钉钉限流且启用了调度，消息未回报结果，由调度重新排队
+     */
+    private boolean sendBatch(String url, List<DingTalkRobotScheduler.Pending> batch) {
+        long startTime = System.currentTimeMillis();
+        DingTalkRobotScheduler.Pending first = batch.get(0);
+        String messageId = first.messageId;
+        int count = batch.size();
+
+        // 2. 构造钉钉机器人请求体（合并的消息统一按text发送）
         Map<String, Object> body = new HashMap<>();
-        body.put("msgtype", request.getMsgType() != null ? request.getMsgType() : "text");
+        body.put("msgtype", count == 1 ? first.msgType : "text");
 
         // 构造文本内容
         Map<String, String> textContent = new HashMap<>();
-        String content = buildContent(request.getTitle(), request.getContent());
-        textContent.put("content", content);
+        textContent.put("content", DingTalkRobotScheduler.mergeText(batch));
         body.put("text", textContent);
 
         String jsonBody = JSON.toJSONString(body);
 
         // 3. 构造请求
         Request httpRequest = new Request.Builder()
-            .url(request.getTargetUrl())
+            .url(url)
             .post(RequestBody.create(jsonBody, JSON_TYPE))
             .build();
+        String host = httpRequest.url().host();
 
         // 4. 发送HTTP请求
-        try (Response response = okHttpClient.newCall(httpRequest).execute()) {
+        mark(batch, TraceStage.HTTP_START);
+        try (Response response = httpClientManager.execute(httpRequest)) {
             long costTime = System.currentTimeMillis() - startTime;
+            mark(batch, TraceStage.HTTP_END);
 
             if (response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
+                ResponseBodyReader.BoundedBody responseBody = responseBodyReader.read(response.body());
 
                 // 5. 解析响应，判断是否成功
-                boolean success = parseDingTalkResponse(responseBody);
+                Integer errcode = parseDingTalkResponse(responseBody);
+                if (errcode != null && errcode == DingTalkRobotScheduler.ERRCODE_THROTTLED && robotScheduler != null) {
+                    deliveryMetrics.recordDingTalkThrottled();
+                    return true;
+                }
 
-                if (success) {
-                    log.info("钉钉机器人投递成功, messageId: {}, costTime: {}ms, response: {}",
-                        messageId, costTime, responseBody);
-                    sendDeliveryResult(messageId, true, null);
+                if (errcode != null && errcode == 0) {
+                    if (hotPathEventLog.isEnabled(HotPathStage.DELIVERY, Level.INFO)) {
+                        hotPathEventLog.info(HotPathStage.DELIVERY, "钉钉机器人投递成功, messageId: {}, merged: {}, costTime: {}ms",
+                            messageId, count, costTime);
+                    }
+                    report(batch, DeliveryMetrics.Outcome.SUCCESS, host, costTime, null, jsonBody, responseBody.text(), null);
                 } else {
-                    log.error("钉钉机器人投递失败, messageId: {}, costTime: {}ms, response: {}",
-                        messageId, costTime, responseBody);
-                    sendDeliveryResult(messageId, false, "钉钉返回错误: " + responseBody);
+                    log.error("钉钉机器人投递失败, messageId: {}, merged: {}, costTime: {}ms, response: {}",
+                        messageId, count, costTime, responseBody.text());
+                    report(batch, DeliveryMetrics.Outcome.REJECTED, host, costTime, "钉钉返回错误: " + responseBody.text(),
+                        jsonBody, responseBody.text(), "钉钉返回错误");
                 }
             } else {
+                // 读掉错误响应体，连接才能归还连接池
+                responseBodyReader.discard(response.body());
                 String errorMsg = String.format("HTTP错误: %d, %s",
                     response.code(), response.message());
-                log.error("钉钉机器人投递失败, messageId: {}, costTime: {}ms, error: {}",
-                    messageId, costTime, errorMsg);
-                // 发送失败结果
-                sendDeliveryResult(messageId, false, errorMsg);
+                log.error("钉钉机器人投递失败, messageId: {}, merged: {}, costTime: {}ms, error: {}",
+                    messageId, count, costTime, errorMsg);
+                report(batch, DeliveryMetrics.Outcome.HTTP_ERROR, host, costTime, errorMsg, jsonBody, null, errorMsg);
             }
 
         } catch (IOException e) {
             long costTime = System.currentTimeMillis() - startTime;
+            mark(batch, TraceStage.HTTP_END);
             String errorMsg = String.format("投递异常: %s", e.getMessage());
-            log.error("钉钉机器人投递异常, messageId: {}, costTime: {}ms",
-                messageId, costTime, e);
-            // 发送失败结果
-            sendDeliveryResult(messageId, false, errorMsg);
+            log.error("钉钉机器人投递异常, messageId: {}, merged: {}, costTime: {}ms",
+                messageId, count, costTime, e);
+            report(batch, DeliveryMetrics.Outcome.IO_ERROR, host, costTime, errorMsg, jsonBody, null, errorMsg);
+        }
+        if (count > 1) {
+            deliveryMetrics.recordDingTalkCoalesced(count);
+        }
+        return false;
+    }
+
+    /**
+     * 逐条回报投递结果：指标、结果消息（带各自的链路上下文）、投递日志
+     */
+    private void report(List<DingTalkRobotScheduler.Pending> batch, DeliveryMetrics.Outcome outcome, String host,
+                        long costTime, String resultError, String requestLog, String responseLog, String attemptError) {
+        boolean success = outcome == DeliveryMetrics.Outcome.SUCCESS;
+        TraceContext previous = TraceContext.current();
+        try {
+            for (DingTalkRobotScheduler.Pending pending : batch) {
+                TraceContext.setCurrent(pending.trace);
+                deliveryMetrics.recordDelivery("dingtalk", outcome, host, costTime);
+                sendDeliveryResult(pending.messageId, success, resultError);
+                deliveryLogProducer.sendAttemptLog(pending.messageId, "dingtalk", requestLog, responseLog,
+                    success, attemptError, costTime);
+            }
+        } finally {
+            TraceContext.setCurrent(previous);
+        }
+    }
+
+    /**
+     * 未发送直接回报失败（队列已满、服务停止）
+     */
+    private void rejectBatch(List<DingTalkRobotScheduler.Pending> batch, String reason) {
+        TraceContext previous = TraceContext.current();
+        try {
+            for (DingTalkRobotScheduler.Pending pending : batch) {
+                TraceContext.setCurrent(pending.trace);
+                sendDeliveryResult(pending.messageId, false, reason);
+                deliveryLogProducer.sendAttemptLog(pending.messageId, "dingtalk", pending.text, null,
+                    false, reason, 0);
+            }
+        } finally {
+            TraceContext.setCurrent(previous);
+        }
+    }
+
+    private static void mark(List<DingTalkRobotScheduler.Pending> batch, TraceStage stage) {
+        for (DingTalkRobotScheduler.Pending pending : batch) {
+            if (pending.trace != null) {
+                pending.trace.mark(stage);
+            }
         }
     }
 
@@ -115,21 +286,18 @@ public class DingTalkDeliveryService {
     }
 
     /**
-     * 解析钉钉机器人响应
+     * 解析钉钉机器人响应（流式读取 errcode，不解析整个对象）
      * 成功响应: {"errcode":0,"errmsg":"ok"}
      *
-     * @param response 响应JSON字符串
-     * @return 是否成功
+     * @param response 截断后的响应体
+     * @return errcode，无法解析时返回null
      */
-    private boolean parseDingTalkResponse(String response) {
-        try {
-            JSONObject json = JSON.parseObject(response);
-            Integer errcode = json.getInteger("errcode");
-            return errcode != null && errcode == 0;
-        } catch (Exception e) {
-            log.error("解析钉钉响应失败, response: {}", response, e);
-            return false;
+    private Integer parseDingTalkResponse(ResponseBodyReader.BoundedBody response) {
+        Integer errcode = response.intField("errcode");
+        if (errcode == null) {
+            log.error("解析钉钉响应失败, response: {}", response.text());
         }
+        return errcode;
     }
 
     /**
@@ -0,0 +1,318 @@
+package top.zhengru.unipush.webhook.service;
+
+import lombok.extern.slf4j.Slf4j;
+import top.zhengru.unipush.common.trace.TraceContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 钉钉机器人发送调度
+ * <p>
+ * 钉钉自定义机器人每个webhook每分钟最多约20条，超出返回 errcode 130101 并限流一段时间。
+ * 按机器人URL排队，每个机器人记录最近N次发送时间（滑动窗口，N=每分钟配额），
+ * 窗口内配额用完时消息留在队列中；配额恢复后把队列中的多条消息合并为一条发送，
+ * 每条消息的结果仍单独回报。同一机器人同一时刻只有一个在途请求，保证顺序。
+ * 队列为空且有配额时直接在调用线程发送，不增加延迟。
+ *
+ * @author zhengru
+ */
+@Slf4j
+public final class DingTalkRobotScheduler implements AutoCloseable {
+
+    /**
+     * 钉钉限流错误码（发送速度太快）
+     */
+    public static final int ERRCODE_THROTTLED = 130101;
+
+    /**
+     * 实际发送与失败回报（由投递服务实现）
+     */
+    public interface Sender {
+
+        /**
+         * 发送一条（可能由多条合并而成的）消息并回报每条消息的结果
+         *
+         * @return true=被钉钉限流，消息未回报结果，需要重新排队
+         */
+        boolean send(String url, List<Pending> batch);
+
+        /**
+         * 不再发送，直接回报失败
+         */
+        void reject(List<Pending> batch, String reason);
+    }
+
+    /**
+     * 排队中的消息
+     */
+    public static final class Pending {
+
+        final String messageId;
+
+        final String msgType;
+
+        final String text;
+
+        final TraceContext trace;
+
+        public Pending(String messageId, String msgType, String text, TraceContext trace) {
+            this.messageId = messageId;
+            this.msgType = msgType;
+            this.text = text;
+            this.trace = trace;
+        }
+    }
+
+    /**
+     * 单个机器人的队列与发送窗口，所有字段在 synchronized(this) 下访问
+     */
+    private static final class Robot {
+
+        final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+        /**
+         * 最近N次发送时间（环形）
+         */
+        final long[] sendTimes;
+
+        int next;
+
+        long blockedUntil;
+
+        boolean sending;
+
+        boolean removed;
+
+        long lastActive;
+
+        Robot(int permits, long now) {
+            this.sendTimes = new long[permits];
+            this.lastActive = now;
+        }
+
+        boolean tryAcquire(long now, long windowMillis) {
+            if (now < blockedUntil || now - sendTimes[next] < windowMillis) {
+                return false;
+            }
+            sendTimes[next] = now;
+            next = (next + 1) % sendTimes.length;
+            return true;
+        }
+    }
+
+    private static final long TICK_MILLIS = 100;
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final Sender sender;
+
+    private final int permitsPerMinute;
+
+    private final int maxQueuePerRobot;
+
+    private final int maxMerge;
+
+    private final int maxMergeChars;
+
+    private final long throttlePenaltyMillis;
+
+    private final Map<String, Robot> robots = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final ScheduledExecutorService ticker;
+
+    private final ExecutorService senders;
+
+    public DingTalkRobotScheduler(Sender sender, int permitsPerMinute, int maxQueuePerRobot, int maxMerge,
+                                  int maxMergeChars, long throttlePenaltyMillis, int senderThreads) {
+        this.sender = sender;
+        this.permitsPerMinute = Math.max(permitsPerMinute, 1);
+        this.maxQueuePerRobot = maxQueuePerRobot;
+        this.maxMerge = Math.max(maxMerge, 1);
+        this.maxMergeChars = maxMergeChars;
+        this.throttlePenaltyMillis = throttlePenaltyMillis;
+
+        ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "dingtalk-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker = scheduled;
+        AtomicInteger index = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "dingtalk-sender-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        scheduled.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一条消息：有配额且无积压时在当前线程发送，否则排队
+     *
+     * @return false=该机器人队列已满，调用方自行回报失败
+     */
+    public boolean submit(String url, Pending pending) {
+        while (true) {
+            long now = System.currentTimeMillis();
+            Robot robot = robots.computeIfAbsent(url, u -> new Robot(permitsPerMinute, now));
+            synchronized (robot) {
+                if (robot.removed) {
+                    // 恰好被清理，重新创建
+                    continue;
+                }
+                robot.lastActive = now;
+                if (!robot.queue.isEmpty() || robot.sending || !robot.tryAcquire(now, WINDOW_MILLIS)) {
+                    if (robot.queue.size() >= maxQueuePerRobot) {
+                        return false;
+                    }
+                    robot.queue.addLast(pending);
+                    queued.incrementAndGet();
+                    return true;
+                }
+                robot.sending = true;
+            }
+            dispatch(url, robot, List.of(pending));
+            return true;
+        }
+    }
+
+    /**
+     * 当前排队的消息数
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Robot> entry : robots.entrySet()) {
+                Robot robot = entry.getValue();
+                List<Pending> batch;
+                synchronized (robot) {
+                    if (robot.queue.isEmpty()) {
+                        if (!robot.sending && now - robot.lastActive > IDLE_MILLIS) {
+                            robot.removed = true;
+                            robots.remove(entry.getKey(), robot);
+                        }
+                        continue;
+                    }
+                    if (robot.sending || !robot.tryAcquire(now, WINDOW_MILLIS)) {
+                        continue;
+                    }
+                    robot.sending = true;
+                    batch = drain(robot);
+                }
+                String url = entry.getKey();
+                senders.execute(() -> dispatch(url, robot, batch));
+            }
+        } catch (Exception e) {
+            log.error("钉钉机器人调度异常", e);
+        }
+    }
+
+    /**
+     * 取出可以合并为一条消息的前若干条（至少一条）
+     */
+    private List<Pending> drain(Robot robot) {
+        List<Pending> batch = new ArrayList<>();
+        int chars = 0;
+        while (!robot.queue.isEmpty() && batch.size() < maxMerge) {
+            Pending head = robot.queue.peekFirst();
+            int length = head.text != null ? head.text.length() : 0;
+            if (!batch.isEmpty() && chars + SEPARATOR.length() + length > maxMergeChars) {
+                break;
+            }
+            batch.add(robot.queue.pollFirst());
+            chars += (batch.size() > 1 ? SEPARATOR.length() : 0) + length;
+        }
+        queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void dispatch(String url, Robot robot, List<Pending> batch) {
+        boolean throttled = false;
+        try {
+            throttled = sender.send(url, batch);
+        } catch (Exception e) {
+            log.error("钉钉机器人发送异常, url: {}", url, e);
+            sender.reject(batch, "投递异常: " + e.getMessage());
+        } finally {
+            synchronized (robot) {
+                robot.sending = false;
+                if (throttled) {
+                    // 被钉钉限流：暂停该机器人，消息按原顺序放回队首
+                    robot.blockedUntil = System.currentTimeMillis() + throttlePenaltyMillis;
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        robot.queue.addFirst(batch.get(i));
+                    }
+                    queued.addAndGet(batch.size());
+                }
+            }
+        }
+        if (throttled) {
+            log.warn("钉钉机器人被限流, 暂停{}ms, url: {}, 退回消息数: {}", throttlePenaltyMillis, url, batch.size());
+        }
+    }
+
+    /**
+     * 合并多条消息的文本
+     */
+    public static String mergeText(List<Pending> batch) {
+        if (batch.size() == 1) {
+            return batch.get(0).text;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Pending pending : batch) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(pending.text);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 停止调度，队列中未发送的消息回报失败
+     * 进程异常退出时来不及回报，由core的未回报结果检查（PendingSweepTask）按失败处理
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Robot robot : robots.values()) {
+            List<Pending> rest;
+            synchronized (robot) {
+                rest = new ArrayList<>(robot.queue);
+                robot.queue.clear();
+            }
+            if (!rest.isEmpty()) {
+                queued.addAndGet(-rest.size());
+                sender.reject(rest, "webhook服务停止，消息未发送");
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package top.zhengru.unipush.webhook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import top.zhengru.unipush.common.constant.RedisConstants;
+
+import java.time.Duration;
+
+/**
+ * 消息正文还原服务
+ * 投递任务只携带contentHash时，经本地缓存 → Redis 还原正文，
+ * 广播场景下同一正文在本Worker内只从Redis读取一次。
+ * Worker不访问数据库：Redis中已过期/被淘汰的正文由core从push_content还原后重新下发
+ *
+ * @author zhengru
+ */
+@Service
+public class MessageContentService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本地正文缓存上限（按字符数计）
+     */
+    @Value("${push.content.cache.max-weight:33554432}")
+    private long cacheMaxWeight;
+
+    private Cache<String, String> contentCache;
+
+    @PostConstruct
+    public void init() {
+        contentCache = Caffeine.newBuilder()
+            .maximumWeight(cacheMaxWeight)
+            .weigher((String hash, String content) -> content.length())
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+    }
+
+    /**
+     * 根据hash还原正文
+     *
+     * @param contentHash 正文哈希
+     * @return 正文内容，Redis中已不存在时返回null（不缓存未命中）
+     */
+    public String resolve(String contentHash) {
+        return contentCache.get(contentHash,
+            hash -> stringRedisTemplate.opsForValue().get(RedisConstants.PUSH_CONTENT_KEY + hash));
+    }
+}
@@ -1,17 +1,31 @@
 package top.zhengru.unipush.webhook.service;
 
 import com.alibaba.fastjson2.JSON;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.slf4j.event.Level;
+import top.zhengru.unipush.common.enums.HotPathStage;
+import top.zhengru.unipush.common.enums.TraceStage;
+import top.zhengru.unipush.common.log.HotPathEventLog;
+import top.zhengru.unipush.common.trace.TraceContext;
+import top.zhengru.unipush.webhook.batch.KeyedBatcher;
+import top.zhengru.unipush.webhook.http.HttpClientManager;
+import top.zhengru.unipush.webhook.http.ResponseBodyReader;
+import top.zhengru.unipush.webhook.metrics.DeliveryMetrics;
+import top.zhengru.unipush.webhook.mq.DeliveryLogProducer;
 import top.zhengru.unipush.webhook.mq.DeliveryResultProducer;
 import top.zhengru.unipush.webhook.model.WebhookRequest;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Webhook投递服务
@@ -23,13 +37,68 @@ import java.util.concurrent.TimeUnit;
 public class WebhookDeliveryService {
 
     @Autowired
-    private OkHttpClient okHttpClient;
+    private HttpClientManager httpClientManager;
+
+    @Autowired
+    private ResponseBodyReader responseBodyReader;
 
     @Autowired
     private DeliveryResultProducer deliveryResultProducer;
 
+    @Autowired
+    private DeliveryLogProducer deliveryLogProducer;
+
+    @Autowired
+    private DeliveryMetrics deliveryMetrics;
+
+    @Autowired
+    private HotPathEventLog hotPathEventLog;
+
+    /**
+     * 批量投递总开关；开启后只对选择批量的目标生效（target中 "batch":true 或地址在 targets 列表中）
+     */
+    @Value("${webhook.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    /**
+     * 选择批量投递的接收地址（前缀匹配），适合无法修改target的存量目标
+     */
+    @Value("${webhook.batch.targets:}")
+    private List<String> batchTargets;
+
+    @Value("${webhook.batch.window-millis:50}")
+    private long batchWindowMillis;
+
+    /**
+     * 单次请求的消息数上限
+     */
+    @Value("${webhook.batch.max-items:50}")
+    private int batchMaxItems;
+
+    @Value("${webhook.batch.threads:4}")
+    private int batchThreads;
+
+    /**
+     * 接收地址 → 待投递的消息；未开启（或未经Spring初始化）时为null
+     */
+    private KeyedBatcher<String, WebhookItem> batcher;
+
     public static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
 
+    @PostConstruct
+    public void init() {
+        if (batchEnabled) {
+            batcher = new KeyedBatcher<>("webhook-batch", batchWindowMillis, batchMaxItems, batchThreads, this::sendBatch);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
     /**
      * 执行webhook投递
      *
@@ -42,7 +111,7 @@ public class WebhookDeliveryService {
         // 1. 解析投递任务
         WebhookRequest request = JSON.parseObject(taskMessage, WebhookRequest.class);
 
-        log.info("开始webhook投递, messageId: {}, url: {}", messageId, request.getTargetUrl());
+        hotPathEventLog.debug(HotPathStage.DELIVERY, "开始webhook投递, messageId: {}, url: {}", messageId, request.getTargetUrl());
 
         // 2. 构造HTTP请求体
         Map<String, Object> body = new HashMap<>();
@@ -51,6 +120,14 @@ public class WebhookDeliveryService {
         body.put("content", request.getContent());
         body.put("timestamp", System.currentTimeMillis());
 
+        String targetUrl = request.getTargetUrl();
+        if (batcher != null && isBatchTarget(request, targetUrl)) {
+            // 批量投递：同一地址的消息合并为JSON数组，由批处理线程发送并逐条回报
+            // （offset随即提交，进程异常退出时窗口中的消息由core的未回报结果检查重试）
+            batcher.add(targetUrl, new WebhookItem(messageId, body, TraceContext.current()));
+            return;
+        }
+
         String jsonBody = JSON.toJSONString(body);
 
         // 3. 构造请求
@@ -60,31 +137,45 @@ public class WebhookDeliveryService {
             .build();
 
         // 4. 发送HTTP请求
-        try (Response response = okHttpClient.newCall(httpRequest).execute()) {
+        TraceContext.markCurrent(TraceStage.HTTP_START);
+        try (Response response = httpClientManager.execute(httpRequest)) {
             long costTime = System.currentTimeMillis() - startTime;
+            TraceContext.markCurrent(TraceStage.HTTP_END);
 
             if (response.isSuccessful()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                log.info("webhook投递成功, messageId: {}, costTime: {}ms, response: {}",
-                    messageId, costTime, responseBody);
+                ResponseBodyReader.BoundedBody responseBody = responseBodyReader.read(response.body());
+                if (hotPathEventLog.isEnabled(HotPathStage.DELIVERY, Level.INFO)) {
+                    hotPathEventLog.info(HotPathStage.DELIVERY, "webhook投递成功, messageId: {}, costTime: {}ms",
+                        messageId, costTime);
+                }
                 // 发送成功结果
+                deliveryMetrics.recordDelivery("webhook", DeliveryMetrics.Outcome.SUCCESS, httpRequest.url().host(), costTime);
                 sendDeliveryResult(messageId, true, null);
+                deliveryLogProducer.sendAttemptLog(messageId, "webhook", jsonBody, responseBody.text(), true, null, costTime);
             } else {
+                // 读掉错误响应体，连接才能归还连接池
+                responseBodyReader.discard(response.body());
                 String errorMsg = String.format("HTTP错误: %d, %s",
                     response.code(), response.message());
                 log.error("webhook投递失败, messageId: {}, costTime: {}ms, error: {}",
                     messageId, costTime, errorMsg);
                 // 发送失败结果
+                deliveryMetrics.recordDelivery("webhook", DeliveryMetrics.Outcome.HTTP_ERROR, httpRequest.url().host(), costTime);
                 sendDeliveryResult(messageId, false, errorMsg);
+                deliveryLogProducer.sendAttemptLog(messageId, "webhook", jsonBody, null,
+                    false, errorMsg, costTime);
             }
 
         } catch (IOException e) {
             long costTime = System.currentTimeMillis() - startTime;
+            TraceContext.markCurrent(TraceStage.HTTP_END);
             String errorMsg = String.format("投递异常: %s", e.getMessage());
             log.error("webhook投递异常, messageId: {}, costTime: {}ms",
                 messageId, costTime, e);
             // 发送失败结果
+            deliveryMetrics.recordDelivery("webhook", DeliveryMetrics.Outcome.IO_ERROR, httpRequest.url().host(), costTime);
             sendDeliveryResult(messageId, false, errorMsg);
+            deliveryLogProducer.sendAttemptLog(messageId, "webhook", jsonBody, null, false, errorMsg, costTime);
         }
     }
 
@@ -106,4 +197,122 @@ public class WebhookDeliveryService {
         String resultJson = JSON.toJSONString(result);
         deliveryResultProducer.sendDeliveryResult(messageId, resultJson);
     }
+
+    /**
+     * 目标是否选择了批量投递
+     */
+    private boolean isBatchTarget(WebhookRequest request, String targetUrl) {
+        if (request.isBatchTarget()) {
+            return true;
+        }
+        if (batchTargets != null) {
+            for (String prefix : batchTargets) {
+                if (!prefix.isBlank() && targetUrl.startsWith(prefix.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 批量投递：一次POST发送JSON数组（元素与单条投递的请求体相同），按HTTP结果回报每条消息
+     *
+     * @param targetUrl 接收地址
+     * @param items 同一地址的待投递消息
+     */
+    private void sendBatch(String targetUrl, List<WebhookItem> items) {
+        long startTime = System.currentTimeMillis();
+
+        List<Map<String, Object>> bodies = new ArrayList<>(items.size());
+        for (WebhookItem item : items) {
+            bodies.add(item.body);
+        }
+        String jsonBody = JSON.toJSONString(bodies);
+
+        Request httpRequest = new Request.Builder()
+            .url(targetUrl)
+            .post(RequestBody.create(jsonBody, JSON_TYPE))
+            .build();
+        String host = httpRequest.url().host();
+
+        mark(items, TraceStage.HTTP_START);
+        try (Response response = httpClientManager.execute(httpRequest)) {
+            long costTime = System.currentTimeMillis() - startTime;
+            mark(items, TraceStage.HTTP_END);
+
+            if (response.isSuccessful()) {
+                ResponseBodyReader.BoundedBody responseBody = responseBodyReader.read(response.body());
+                if (hotPathEventLog.isEnabled(HotPathStage.DELIVERY, Level.INFO)) {
+                    hotPathEventLog.info(HotPathStage.DELIVERY, "webhook批量投递成功, host: {}, items: {}, costTime: {}ms",
+                        host, items.size(), costTime);
+                }
+                for (WebhookItem item : items) {
+                    report(item, DeliveryMetrics.Outcome.SUCCESS, host, costTime, null, jsonBody, responseBody.text());
+                }
+            } else {
+                // 读掉错误响应体，连接才能归还连接池
+                responseBodyReader.discard(response.body());
+                String errorMsg = String.format("HTTP错误: %d, %s",
+                    response.code(), response.message());
+                log.error("webhook批量投递失败, host: {}, items: {}, costTime: {}ms, error: {}",
+                    host, items.size(), costTime, errorMsg);
+                for (WebhookItem item : items) {
+                    report(item, DeliveryMetrics.Outcome.HTTP_ERROR, host, costTime, errorMsg, jsonBody, null);
+                }
+            }
+
+        } catch (IOException e) {
+            long costTime = System.currentTimeMillis() - startTime;
+            mark(items, TraceStage.HTTP_END);
+            String errorMsg = String.format("投递异常: %s", e.getMessage());
+            log.error("webhook批量投递异常, host: {}, items: {}, costTime: {}ms", host, items.size(), costTime, e);
+            for (WebhookItem item : items) {
+                report(item, DeliveryMetrics.Outcome.IO_ERROR, host, costTime, errorMsg, jsonBody, null);
+            }
+        }
+    }
+
+    /**
+     * 回报一条批量投递的结果（带该消息的链路上下文）
+     */
+    private void report(WebhookItem item, DeliveryMetrics.Outcome outcome, String host, long costTime,
+                        String errorMessage, String requestLog, String responseLog) {
+        boolean success = outcome == DeliveryMetrics.Outcome.SUCCESS;
+        TraceContext.setCurrent(item.trace);
+        try {
+            deliveryMetrics.recordDelivery("webhook", outcome, host, costTime);
+            sendDeliveryResult(item.messageId, success, errorMessage);
+            deliveryLogProducer.sendAttemptLog(item.messageId, "webhook", requestLog, responseLog,
+                success, errorMessage, costTime);
+        } finally {
+            TraceContext.clearCurrent();
+        }
+    }
+
+    private static void mark(List<WebhookItem> items, TraceStage stage) {
+        for (WebhookItem item : items) {
+            if (item.trace != null) {
+                item.trace.mark(stage);
+            }
+        }
+    }
+
+    /**
+     * 批量投递中等待发送的一条消息
+     */
+    private static final class WebhookItem {
+
+        final String messageId;
+
+        final Map<String, Object> body;
+
+        final TraceContext trace;
+
+        WebhookItem(String messageId, Map<String, Object> body, TraceContext trace) {
+            this.messageId = messageId;
+            this.body = body;
+            this.trace = trace;
+        }
+    }
 }